@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.dna.mqtt.moquette.messaging.spi.impl;
+
+import com.lmax.disruptor.EventHandler;
+import org.dna.mqtt.moquette.messaging.spi.impl.events.StopEvent;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Processes the inbound events of the clients assigned to this handler. Several handlers consume the same ring
+ * buffer and events are distributed among them by client ID, hence events of a client are always processed by the
+ * same handler in the order they were published.
+ */
+class ClientShardEventHandler implements EventHandler<ValueEvent> {
+
+    /**
+     * Ordinal of this handler among the handlers consuming the ring buffer
+     */
+    private final int ordinal;
+
+    /**
+     * Number of handlers consuming the ring buffer
+     */
+    private final int handlerCount;
+
+    /**
+     * Handler processing the events of the clients assigned to this handler
+     */
+    private final EventHandler<ValueEvent> eventHandler;
+
+    /**
+     * Latch counted down by every handler when the stop event is reached
+     */
+    private final CountDownLatch stopLatch;
+
+    /**
+     * @param ordinal      ordinal of this handler
+     * @param handlerCount number of handlers consuming the ring buffer
+     * @param eventHandler handler processing the events of the clients assigned to this handler
+     * @param stopLatch    latch counted down when the stop event is reached
+     */
+    ClientShardEventHandler(int ordinal, int handlerCount, EventHandler<ValueEvent> eventHandler,
+                            CountDownLatch stopLatch) {
+        this.ordinal = ordinal;
+        this.handlerCount = handlerCount;
+        this.eventHandler = eventHandler;
+        this.stopLatch = stopLatch;
+    }
+
+    @Override
+    public void onEvent(ValueEvent event, long sequence, boolean endOfBatch) throws Exception {
+        // Every handler should have processed the events published before stopping
+        if (event.getEvent() instanceof StopEvent) {
+            stopLatch.countDown();
+        } else if (getHandlerOrdinal(event.getHandlerKey(), handlerCount) == ordinal) {
+            eventHandler.onEvent(event, sequence, endOfBatch);
+        }
+    }
+
+    /**
+     * Get the ordinal of the handler processing the events of a client
+     *
+     * @param clientID     client ID of the event, events without a client ID are processed by the first handler
+     * @param handlerCount number of handlers consuming the ring buffer
+     * @return ordinal of the handler
+     */
+    static int getHandlerOrdinal(String clientID, int handlerCount) {
+        if (null == clientID) {
+            return 0;
+        }
+        // Taking the absolute value since hashCode can be a negative value
+        return Math.abs(clientID.hashCode() % handlerCount);
+    }
+}
@@ -47,9 +47,9 @@ import org.wso2.andes.mqtt.MQTTException;
 import org.wso2.andes.mqtt.utils.MQTTUtils;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -64,7 +64,10 @@ public class ProtocolProcessor implements EventHandler<ValueEvent>, PubAckHandle
 
     public static final String CARBON_SUPER_TENANT_DOMAIN = "carbon.super";
 
-    private Map<String, ConnectionDescriptor> m_clientIDs = new HashMap<String, ConnectionDescriptor>();
+    /**
+     * Connections by client ID. Updated by the inbound event handlers and read by the delivery threads.
+     */
+    private Map<String, ConnectionDescriptor> m_clientIDs = new ConcurrentHashMap<String, ConnectionDescriptor>();
     private SubscriptionsStore subscriptions;
     private IStorageService m_storageService;
     private IAuthenticator m_authenticator;
@@ -73,13 +76,13 @@ public class ProtocolProcessor implements EventHandler<ValueEvent>, PubAckHandle
     /**
      * Keeps client data in memory for authorization of publishing and subscribing later. <ClientID, AuthData>
      */
-    private Map<String, MQTTAuthorizationSubject> authSubjects = new HashMap<>();
+    private Map<String, MQTTAuthorizationSubject> authSubjects = new ConcurrentHashMap<>();
 
     /**
      * Channels which were forcibly closed by ProtocolProcessor in order to connect a new client with an already
      * existing clientId.
      */
-    private Map<String, ServerChannel> forciblyClosedChannels = new HashMap<>();
+    private Map<String, ServerChannel> forciblyClosedChannels = new ConcurrentHashMap<>();
 
     private RingBuffer<ValueEvent> m_ringBuffer;
 
@@ -380,7 +383,7 @@ public class ProtocolProcessor implements EventHandler<ValueEvent>, PubAckHandle
 
         // Authorize publish
         String clientID = evt.getClientID();
-        MQTTAuthorizationSubject authSubject = authSubjects.get(clientID);
+        MQTTAuthorizationSubject authSubject = getAuthorizationSubject(clientID);
         String tenant = MQTTUtils.getTenantFromTopic(topic);
 
         boolean authenticated = false;
@@ -716,7 +719,7 @@ public class ProtocolProcessor implements EventHandler<ValueEvent>, PubAckHandle
 
     void processDisconnect(ServerChannel session, String clientID, boolean cleanSession) throws InterruptedException {
 
-        String username = authSubjects.get(clientID).getUsername();
+        String username = getAuthorizationSubject(clientID).getUsername();
         removeAuthorizationSubject(clientID);
 
         if (cleanSession) {
@@ -741,6 +744,11 @@ public class ProtocolProcessor implements EventHandler<ValueEvent>, PubAckHandle
 
     void proccessConnectionLost(String clientID) {
 
+        // Connection is lost before the client is connected
+        if (null == clientID) {
+            return;
+        }
+
         boolean forciblyClosed = false;
 
         if (forciblyClosedChannels.containsKey(clientID)) {
@@ -780,6 +788,19 @@ public class ProtocolProcessor implements EventHandler<ValueEvent>, PubAckHandle
         }
     }
 
+    /**
+     * Get authorization data of a client.
+     *
+     * @param clientID the client ID to get data for, may be null if the client is not connected
+     * @return authorization data of the client, null if the client is not authorized
+     */
+    private MQTTAuthorizationSubject getAuthorizationSubject(String clientID) {
+        if (null == clientID) {
+            return null;
+        }
+        return authSubjects.get(clientID);
+    }
+
     /**
      * Remove authorization data for a client.
      *
@@ -832,7 +853,7 @@ public class ProtocolProcessor implements EventHandler<ValueEvent>, PubAckHandle
             log.debug("processSubscribe invoked from client " + clientID + " with msgID " + msg.getMessageID());
         }
 
-        MQTTAuthorizationSubject authSubject = authSubjects.get(clientID);
+        MQTTAuthorizationSubject authSubject = getAuthorizationSubject(clientID);
         SubAckMessage ackMessage = new SubAckMessage();
         ackMessage.setMessageID(msg.getMessageID());
         if (authSubject == null) {
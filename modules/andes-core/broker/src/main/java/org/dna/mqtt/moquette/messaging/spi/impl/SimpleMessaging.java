@@ -3,6 +3,7 @@ package org.dna.mqtt.moquette.messaging.spi.impl;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.dsl.Disruptor;
@@ -11,7 +12,6 @@ import org.apache.commons.logging.LogFactory;
 import org.dna.mqtt.moquette.messaging.spi.IMessaging;
 import org.dna.mqtt.moquette.messaging.spi.IStorageService;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.DisconnectEvent;
-import org.dna.mqtt.moquette.messaging.spi.impl.events.InitEvent;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.LostConnectionEvent;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.MessagingEvent;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.ProtocolEvent;
@@ -85,23 +85,37 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         ExecutorService executor = Executors.newCachedThreadPool(namedThreadFactory);
         Integer ringBufferSize = AndesConfigurationManager.readValue(
                 AndesConfiguration.TRANSPORTS_MQTT_INBOUND_BUFFER_SIZE);
+        Integer handlerCount = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_INBOUND_PARALLEL_HANDLERS);
+
+        //Added by WSO2, handlers are started after initializing since events are processed in parallel
+        processInit(configProps);
 
         disruptor = new Disruptor<ValueEvent>( ValueEvent.EVENT_FACTORY, ringBufferSize, executor);
         //Added by WSO2, we do not want to ignore the exception here
         disruptor.handleExceptionsWith(new MqttLogExceptionHandler());
         SequenceBarrier barrier = disruptor.getRingBuffer().newBarrier();
-        BatchEventProcessor<ValueEvent> eventProcessor = new BatchEventProcessor<ValueEvent>(
-                disruptor.getRingBuffer(), barrier, this);
-        //Added by WSO2, we need to make sure the exceptions aren't ignored
-        eventProcessor.setExceptionHandler(new MqttLogExceptionHandler());
-        disruptor.handleEventsWith(eventProcessor);
+        m_stopLatch = new CountDownLatch(handlerCount);
+        EventProcessor[] eventProcessors = new EventProcessor[handlerCount];
+        for (int i = 0; i < handlerCount; i++) {
+            BatchEventProcessor<ValueEvent> eventProcessor = new BatchEventProcessor<ValueEvent>(
+                    disruptor.getRingBuffer(), barrier, new ClientShardEventHandler(i, handlerCount, this, m_stopLatch));
+            //Added by WSO2, we need to make sure the exceptions aren't ignored
+            eventProcessor.setExceptionHandler(new MqttLogExceptionHandler());
+            eventProcessors[i] = eventProcessor;
+        }
+        disruptor.handleEventsWith(eventProcessors);
         m_ringBuffer = disruptor.start();
-        
-        disruptorPublish(new InitEvent(configProps));
     }
 
 
-    private void disruptorPublish(MessagingEvent msgEvent) {
+    /**
+     * Publish an event to the inbound ring buffer
+     *
+     * @param msgEvent event to publish
+     * @param clientID client ID used to pick the handler processing the event
+     */
+    private void disruptorPublish(MessagingEvent msgEvent, String clientID) {
         if (log.isDebugEnabled()) {
             log.debug("disruptorPublish publishing event " + msgEvent);
         }
@@ -109,31 +123,38 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         ValueEvent event = m_ringBuffer.get(sequence);
 
         event.setEvent(msgEvent);
+        event.setHandlerKey(clientID);
 
         m_ringBuffer.publish(sequence);
     }
 
 
     public void disconnect(ServerChannel session) {
-        disruptorPublish(new DisconnectEvent(session));
+        disruptorPublish(new DisconnectEvent(session), (String) session.getAttribute(Constants.ATTR_HANDLER_KEY));
     }
 
     public void lostConnection(String clientID) {
-        disruptorPublish(new LostConnectionEvent(clientID));
+        disruptorPublish(new LostConnectionEvent(clientID), clientID);
     }
 
     public void handleProtocolMessage(ServerChannel session, AbstractMessage msg) {
-        disruptorPublish(new ProtocolEvent(session, msg));
+        // The client ID is set to the session only once the connect message is processed. Hence the client ID of the
+        // connect message is kept in the session to pick the handler of the messages that follow it.
+        if (msg instanceof ConnectMessage) {
+            session.setAttribute(Constants.ATTR_HANDLER_KEY, ((ConnectMessage) msg).getClientID());
+        }
+        disruptorPublish(new ProtocolEvent(session, msg), (String) session.getAttribute(Constants.ATTR_HANDLER_KEY));
     }
 
     public void stop() {
-        m_stopLatch = new CountDownLatch(1);
-        disruptorPublish(new StopEvent());
+        disruptorPublish(new StopEvent(), null);
         try {
-            //wait the callback notification from the protocol processor thread
+            //wait until every handler has processed the events published before the stop event
             boolean elapsed = !m_stopLatch.await(10, TimeUnit.SECONDS);
             if (elapsed) {
                 log.warn("Can't stop the server in 10 seconds");
+            } else {
+                processStop();
             }
         } catch (InterruptedException ex) {
             log.error(null, ex);
@@ -147,8 +168,6 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         }
         if (evt instanceof PublishEvent) {
             mqttProcessor.processPublish((PublishEvent) evt);
-        } else if (evt instanceof StopEvent) {
-            processStop();
         } else if (evt instanceof DisconnectEvent) {
             DisconnectEvent disEvt = (DisconnectEvent) evt;
             String clientID = (String) disEvt.getSession().getAttribute(Constants.ATTR_CLIENTID);
@@ -168,7 +187,12 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
 //                } else {
 //                    pubEvt = new PublishEvent(pubMsg.getTopicName(), pubMsg.getQos(), pubMsg.getPayload(), pubMsg.isRetainFlag(), clientID, pubMsg.getMessageID(), session);
 //                }
-                mqttProcessor.processPublish(pubEvt);
+                try {
+                    mqttProcessor.processPublish(pubEvt);
+                } finally {
+                    //Added by WSO2, the payload is copied to the message content by now
+                    ((PublishMessage) message).release();
+                }
             } else if (message instanceof DisconnectMessage) {
                 String clientID = (String) session.getAttribute(Constants.ATTR_CLIENTID);
                 boolean cleanSession = (Boolean) session.getAttribute(Constants.CLEAN_SESSION);
@@ -208,8 +232,6 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
                 throw new RuntimeException("Illegal message received " + message);
             }
 
-        } else if (evt instanceof InitEvent) {
-            processInit(((InitEvent) evt).getConfig());
         } else if (evt instanceof LostConnectionEvent) {
             LostConnectionEvent lostEvt = (LostConnectionEvent) evt;
             mqttProcessor.proccessConnectionLost(lostEvt.getClientID());
@@ -253,6 +275,5 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         disruptor.shutdown();
 
         subscriptions = null;
-        m_stopLatch.countDown();
     }
 }
@@ -7,6 +7,11 @@ public final class ValueEvent {
 
     private MessagingEvent m_event;
 
+    /**
+     * Client ID used to pick the handler processing the event
+     */
+    private String m_handlerKey;
+
     public MessagingEvent getEvent() {
         return m_event;
     }
@@ -14,6 +19,14 @@ public final class ValueEvent {
     public void setEvent(MessagingEvent event) {
         m_event = event;
     }
+
+    public String getHandlerKey() {
+        return m_handlerKey;
+    }
+
+    public void setHandlerKey(String handlerKey) {
+        m_handlerKey = handlerKey;
+    }
     
     public final static EventFactory<ValueEvent> EVENT_FACTORY = new EventFactory<ValueEvent>() {
 
@@ -15,7 +15,7 @@ public class Subscription implements Serializable {
     String clientId;
     String topic;
     boolean cleanSession;
-    boolean active = true;
+    volatile boolean active = true;
     
     public Subscription(String clientId, String topic, QOSType requestedQos, boolean cleanSession) {
         this.requestedQos = requestedQos;
@@ -10,7 +10,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingDeque;
-
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tree of topic subscriptions. The tree is changed and matched by the MQTT handler threads of different clients,
+ * hence it is guarded by a read write lock. Lookups and matches share the read lock, any change to the tree or to the
+ * state of its subscriptions takes the write lock.
+ */
 public class SubscriptionsStore {
     
     public static interface IVisitor<T> {
@@ -51,6 +58,11 @@ public class SubscriptionsStore {
     }
 
     private TreeNode subscriptions = new TreeNode(null);
+
+    /**
+     * Guards the subscription tree
+     */
+    private final ReadWriteLock treeLock = new ReentrantReadWriteLock();
     private static final Logger LOG = LoggerFactory.getLogger(SubscriptionsStore.class);
 
     private IPersistentSubscriptionStore m_storageService;
@@ -79,10 +91,19 @@ public class SubscriptionsStore {
     }
     
     protected void addDirect(Subscription newSubscription) {
-        TreeNode current = findMatchingNode(newSubscription.topic);
-        current.addSubscription(newSubscription);
+        treeLock.writeLock().lock();
+        try {
+            TreeNode current = findMatchingNode(newSubscription.topic);
+            current.addSubscription(newSubscription);
+        } finally {
+            treeLock.writeLock().unlock();
+        }
     }
-    
+
+    /**
+     * Find the node of a topic, creating the nodes on its path which do not exist. Must be called holding the
+     * write lock.
+     */
     private TreeNode findMatchingNode(String topic) {
         List<Token> tokens = new ArrayList<Token>();
         try {
@@ -111,6 +132,30 @@ public class SubscriptionsStore {
         return current;
     }
 
+    /**
+     * Find the node of a topic without changing the tree. Must be called holding the read lock.
+     *
+     * @return node of the topic or null if there is no node for the topic
+     */
+    private TreeNode findExistingNode(String topic) {
+        List<Token> tokens;
+        try {
+            tokens = splitTopic(topic);
+        } catch (ParseException ex) {
+            LOG.error(null, ex);
+            return null;
+        }
+
+        TreeNode current = subscriptions;
+        for (Token token : tokens) {
+            current = current.childWithToken(token);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
     public void add(Subscription newSubscription) {
         addDirect(newSubscription);
 
@@ -121,8 +166,23 @@ public class SubscriptionsStore {
 
 
     public void removeSubscription(String topic, String clientID) {
-        TreeNode matchNode = findMatchingNode(topic);
-        
+        treeLock.writeLock().lock();
+        try {
+            removeFromTree(topic, clientID);
+        } finally {
+            treeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the subscription of a client to a topic. Must be called holding the write lock.
+     */
+    private void removeFromTree(String topic, String clientID) {
+        TreeNode matchNode = findExistingNode(topic);
+        if (matchNode == null) {
+            return;
+        }
+
         //search for the subscription to remove
         Subscription toBeRemoved = null;
         for (Subscription sub : matchNode.subscriptions()) {
@@ -131,7 +191,7 @@ public class SubscriptionsStore {
                 break;
             }
         }
-        
+
         if (toBeRemoved != null) {
             matchNode.subscriptions().remove(toBeRemoved);
         }
@@ -143,13 +203,21 @@ public class SubscriptionsStore {
     public Subscription getSubscriptions(String topic,String clientID){
         Subscription subscription = null;
 
-        TreeNode matchNode = findMatchingNode(topic);
+        treeLock.readLock().lock();
+        try {
+            TreeNode matchNode = findExistingNode(topic);
+            if (matchNode == null) {
+                return null;
+            }
 
-        for (Subscription sub : matchNode.subscriptions()) {
-            if (sub.topic.equals(topic) && sub.getClientId().equals(clientID)) {
-                subscription = sub;
-                break;
+            for (Subscription sub : matchNode.subscriptions()) {
+                if (sub.topic.equals(topic) && sub.getClientId().equals(clientID)) {
+                    subscription = sub;
+                    break;
+                }
             }
+        } finally {
+            treeLock.readLock().unlock();
         }
 
         return subscription;
@@ -159,12 +227,17 @@ public class SubscriptionsStore {
      * TODO implement testing
      */
     public void clearAllSubscriptions() {
-        SubscriptionTreeCollector subsCollector = new SubscriptionTreeCollector();
-        bfsVisit(subscriptions, subsCollector);
-        
-        List<Subscription> allSubscriptions = subsCollector.getResult();
-        for (Subscription subscription : allSubscriptions) {
-            removeSubscription(subscription.getTopic(), subscription.getClientId());
+        treeLock.writeLock().lock();
+        try {
+            SubscriptionTreeCollector subsCollector = new SubscriptionTreeCollector();
+            bfsVisit(subscriptions, subsCollector);
+
+            List<Subscription> allSubscriptions = subsCollector.getResult();
+            for (Subscription subscription : allSubscriptions) {
+                removeFromTree(subscription.getTopic(), subscription.getClientId());
+            }
+        } finally {
+            treeLock.writeLock().unlock();
         }
     }
 
@@ -172,19 +245,34 @@ public class SubscriptionsStore {
      * Visit the topics tree to remove matching subscriptions with clientID
      */
     public void removeForClient(String clientID) {
-        subscriptions.removeClientSubscriptions(clientID);
+        treeLock.writeLock().lock();
+        try {
+            subscriptions.removeClientSubscriptions(clientID);
+        } finally {
+            treeLock.writeLock().unlock();
+        }
 
         //remove from log all subscriptions
         m_storageService.removeAllSubscriptions(clientID);
     }
 
     public void deactivate(String clientID) {
-        subscriptions.deactivate(clientID);
+        treeLock.writeLock().lock();
+        try {
+            subscriptions.deactivate(clientID);
+        } finally {
+            treeLock.writeLock().unlock();
+        }
     }
 
     public void activate(String clientID) {
         LOG.debug("Activating subscriptions for clientID <{}>", clientID);
-        subscriptions.activate(clientID);
+        treeLock.writeLock().lock();
+        try {
+            subscriptions.activate(clientID);
+        } finally {
+            treeLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -204,7 +292,12 @@ public class SubscriptionsStore {
 
         Queue<Token> tokenQueue = new LinkedBlockingDeque<Token>(tokens);
         List<Subscription> matchingSubs = new ArrayList<Subscription>();
-        subscriptions.matches(tokenQueue, matchingSubs);
+        treeLock.readLock().lock();
+        try {
+            subscriptions.matches(tokenQueue, matchingSubs);
+        } finally {
+            treeLock.readLock().unlock();
+        }
         return matchingSubs;
     }
 
@@ -213,12 +306,22 @@ public class SubscriptionsStore {
     }
 
     public int size() {
-        return subscriptions.size();
+        treeLock.readLock().lock();
+        try {
+            return subscriptions.size();
+        } finally {
+            treeLock.readLock().unlock();
+        }
     }
     
     public String dumpTree() {
         DumpTreeVisitor visitor = new DumpTreeVisitor();
-        bfsVisit(subscriptions, visitor);
+        treeLock.readLock().lock();
+        try {
+            bfsVisit(subscriptions, visitor);
+        } finally {
+            treeLock.readLock().unlock();
+        }
         return visitor.getResult();
     }
     
@@ -16,7 +16,6 @@
 package org.dna.mqtt.moquette.parser.netty;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.util.AttributeMap;
 import org.dna.mqtt.moquette.proto.messages.AbstractMessage;
@@ -89,9 +88,9 @@ class PublishDecoder extends DemuxDecoder {
             return;
         }
 //        byte[] b = new byte[payloadSize];
-        ByteBuf bb = Unpooled.buffer(payloadSize);
-        in.readBytes(bb);
-        message.setPayload(bb.nioBuffer());
+        //Modified by WSO2, the payload is a retained slice of the inbound buffer instead of a copy. The slice is
+        //released once the message is processed.
+        message.setPayload(in.readSlice(payloadSize).retain());
 
         out.add(message);
     }
@@ -15,6 +15,8 @@
  */
 package org.dna.mqtt.moquette.proto.messages;
 
+import io.netty.buffer.ByteBuf;
+
 import java.nio.ByteBuffer;
 
 /**
@@ -27,6 +29,11 @@ public class PublishMessage extends MessageIDMessage {
 //    private Integer m_messageID; //could be null if Qos is == 0
     private ByteBuffer m_payload;
 
+    /**
+     * Inbound buffer the payload is a view of, null if the payload is not read from an inbound buffer
+     */
+    private ByteBuf m_payloadBuffer;
+
     /*public Integer getMessageID() {
         return m_messageID;
     }
@@ -54,4 +61,24 @@ public class PublishMessage extends MessageIDMessage {
     public void setPayload(ByteBuffer payload) {
         this.m_payload = payload;
     }
+
+    /**
+     * Set the payload as a view of a retained inbound buffer. The buffer is released through {@link #release()}.
+     *
+     * @param payloadBuffer retained buffer holding the payload
+     */
+    public void setPayload(ByteBuf payloadBuffer) {
+        this.m_payloadBuffer = payloadBuffer;
+        this.m_payload = payloadBuffer.nioBuffer();
+    }
+
+    /**
+     * Release the inbound buffer the payload is a view of. The payload should not be read afterwards.
+     */
+    public void release() {
+        if (null != m_payloadBuffer) {
+            m_payloadBuffer.release();
+            m_payloadBuffer = null;
+        }
+    }
 }
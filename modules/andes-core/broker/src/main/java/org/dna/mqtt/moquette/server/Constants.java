@@ -7,4 +7,5 @@ public class Constants {
     public static final String ATTR_CLIENTID = "ClientID";
     public static final String CLEAN_SESSION = "cleanSession";
     public static final String KEEP_ALIVE = "keepAlive";
+    public static final String ATTR_HANDLER_KEY = "handlerKey";
 }
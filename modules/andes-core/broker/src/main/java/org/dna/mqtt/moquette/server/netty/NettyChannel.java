@@ -26,6 +26,7 @@ public class NettyChannel implements ServerChannel {
     private static final AttributeKey<Object> ATTR_KEY_KEEPALIVE = new AttributeKey<Object>(Constants.KEEP_ALIVE);
     private static final AttributeKey<Object> ATTR_KEY_CLEANSESSION = new AttributeKey<Object>(Constants.CLEAN_SESSION);
     private static final AttributeKey<Object> ATTR_KEY_CLIENTID = new AttributeKey<Object>(Constants.ATTR_CLIENTID);
+    private static final AttributeKey<Object> ATTR_KEY_HANDLER_KEY = new AttributeKey<Object>(Constants.ATTR_HANDLER_KEY);
     public static final AttributeKey<Object> ATTR_KEY_USERNAME = AttributeKey.valueOf(ATTR_USERNAME);
     private final UUID uuid = UUID.randomUUID();
 
@@ -34,6 +35,7 @@ public class NettyChannel implements ServerChannel {
         m_attributesKeys.put(Constants.KEEP_ALIVE, ATTR_KEY_KEEPALIVE);
         m_attributesKeys.put(Constants.CLEAN_SESSION, ATTR_KEY_CLEANSESSION);
         m_attributesKeys.put(Constants.ATTR_CLIENTID, ATTR_KEY_CLIENTID);
+        m_attributesKeys.put(Constants.ATTR_HANDLER_KEY, ATTR_KEY_HANDLER_KEY);
         m_attributesKeys.put(ATTR_USERNAME,ATTR_KEY_USERNAME);
     }
 
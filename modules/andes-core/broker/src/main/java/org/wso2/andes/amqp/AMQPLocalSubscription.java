@@ -160,6 +160,24 @@ public class AMQPLocalSubscription implements OutboundSubscription {
     public boolean isMessageAcceptedBySelector(AndesMessageMetadata messageMetadata)
             throws AndesException {
 
+        if (amqpSubscription instanceof SubscriptionImpl) {
+            String selector = ((SubscriptionImpl) amqpSubscription).getSelector();
+
+            // Without a selector every message is accepted, hence the message is decoded only when it is sent
+            if (null == selector) {
+                return true;
+            }
+
+            StoredMessage<MessageMetaData> acceptedMessage = SharedSelectorEvaluator.getAcceptedMessage(
+                    amqQueue.getName(), messageMetadata, amqpSubscription.getSubscriptionID());
+            if (null != acceptedMessage) {
+                storedMessageCache.put(messageMetadata.getMessageID(), acceptedMessage);
+                return true;
+            } else {
+                return false;
+            }
+        }
+
         AMQMessage amqMessage = AMQPUtils.getAMQMessageFromAndesMetaData(messageMetadata);
         QueueEntry message = AMQPUtils.convertAMQMessageToQueueEntry(amqMessage, amqQueue);
 
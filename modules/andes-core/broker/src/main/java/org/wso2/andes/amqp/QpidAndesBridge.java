@@ -342,7 +342,20 @@ public class QpidAndesBridge {
                 if (log.isDebugEnabled()) {
                     log.debug("Adding Subscription " + subscription.getSubscriptionID() + " to queue " + queue.getName());
                 }
-                addLocalSubscriptionsForAllBindingsOfQueue(queue, subscription);
+                String selector = (subscription instanceof SubscriptionImpl)
+                        ? ((SubscriptionImpl) subscription).getSelector() : null;
+                if (null != selector) {
+                    // Added before deliveries can start, which only check whether the subscriber accepts messages
+                    SharedSelectorEvaluator.addSubscriber(queue.getName(), subscription.getSubscriptionID(), selector);
+                }
+                try {
+                    addLocalSubscriptionsForAllBindingsOfQueue(queue, subscription);
+                } catch (AndesException | RuntimeException e) {
+                    if (null != selector) {
+                        SharedSelectorEvaluator.removeSubscriber(queue.getName(), subscription.getSubscriptionID());
+                    }
+                    throw e;
+                }
             }
         } catch (SubscriptionAlreadyExistsException e) {
             log.error("Error occurred while adding an already existing subscription", e);
@@ -368,7 +381,11 @@ public class QpidAndesBridge {
 
         // Browser subscriptions are not registered and hence not needed to be closed.
         if (!(subscription instanceof SubscriptionImpl.BrowserSubscription)) {
-            closeLocalSubscriptionsForAllBindingsOfQueue(queue, subscription);
+            try {
+                closeLocalSubscriptionsForAllBindingsOfQueue(queue, subscription);
+            } finally {
+                SharedSelectorEvaluator.removeSubscriber(queue.getName(), subscription.getSubscriptionID());
+            }
         }
     }
 
@@ -0,0 +1,470 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.amqp;
+
+import org.wso2.andes.AMQInvalidArgumentException;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.server.filter.BooleanExpression;
+import org.wso2.andes.server.filter.Expression;
+import org.wso2.andes.server.filter.LogicExpression;
+import org.wso2.andes.server.filter.SelectorCompiler;
+import org.wso2.andes.server.filter.jms.selector.SelectorParser;
+import org.wso2.andes.server.message.AMQMessage;
+import org.wso2.andes.server.message.AMQMessageHeader;
+import org.wso2.andes.server.message.MessageMetaData;
+import org.wso2.andes.server.queue.Filterable;
+import org.wso2.andes.server.store.StoredMessage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Evaluates the JMS selectors of all subscribers of a queue in one pass over a message. The message is decoded once
+ * and the decoded properties are shared by all the selectors. Subscribers with the same selector share a selector
+ * group, and the top level AND conditions of the selectors are evaluated at most once per message even when they
+ * appear in several selectors. Conditions are evaluated through {@link SelectorCompiler}.
+ * <p>
+ * The result of the last evaluated message is kept, hence asking for each subscriber of the queue in turn whether it
+ * accepts a message evaluates the selectors only for the first subscriber.
+ * <p>
+ * Subscribers are added when their subscription is opened and removed when it is closed. A subscriber which is not
+ * added does not accept any message, so that a delivery racing with closing a subscription does not add it again.
+ */
+public class SharedSelectorEvaluator {
+
+    /**
+     * Evaluators by the name of the queue they evaluate selectors for
+     */
+    private static final ConcurrentMap<String, SharedSelectorEvaluator> evaluators = new ConcurrentHashMap<>();
+
+    /**
+     * Result of a condition not evaluated for the current message
+     */
+    private static final byte NOT_EVALUATED = 0;
+
+    private static final byte MATCHED = 1;
+
+    private static final byte NOT_MATCHED = 2;
+
+    /**
+     * Selector groups by the ids of the subscribers in them
+     */
+    private final Map<Long, SelectorGroup> groupsBySubscriber = new HashMap<>();
+
+    /**
+     * Selector groups by selector
+     */
+    private final Map<String, SelectorGroup> groupsBySelector = new HashMap<>();
+
+    /**
+     * Selector groups by group id. Ids of removed groups are reused, hence this may contain null entries.
+     */
+    private final List<SelectorGroup> groups = new ArrayList<>();
+
+    /**
+     * Distinct top level AND conditions of all selectors by condition id
+     */
+    private final List<BooleanExpression> conditions = new ArrayList<>();
+
+    /**
+     * Number of selector groups each condition is used in, by condition id
+     */
+    private final List<Integer> conditionUsages = new ArrayList<>();
+
+    /**
+     * Condition ids by the string form of the condition
+     */
+    private final Map<String, Integer> conditionIds = new HashMap<>();
+
+    /**
+     * Results of the conditions for the current message, by condition id
+     */
+    private byte[] conditionResults = new byte[0];
+
+    /**
+     * Ids of the groups accepting the current message
+     */
+    private final BitSet acceptingGroups = new BitSet();
+
+    /**
+     * Id of the current message, -1 if there is no evaluated message
+     */
+    private long evaluatedMessageId = -1;
+
+    /**
+     * Stored form of the current message which is shared with the subscribers accepting it
+     */
+    private StoredMessage<MessageMetaData> evaluatedMessage;
+
+    /**
+     * Get the evaluator of a queue
+     *
+     * @param queueName name of the queue
+     * @return selector evaluator of the queue or null if the queue does not have subscribers with selectors
+     */
+    static SharedSelectorEvaluator getEvaluator(String queueName) {
+        return evaluators.get(queueName);
+    }
+
+    /**
+     * Add a subscriber of a queue. The evaluator of the queue is created with its first subscriber.
+     *
+     * @param queueName    name of the queue
+     * @param subscriberId id of the subscriber
+     * @param selector     selector of the subscriber
+     * @throws AndesException if the selector cannot be parsed
+     */
+    public static void addSubscriber(String queueName, long subscriberId, String selector) throws AndesException {
+        // Serialised with removing subscribers so that a subscriber is never added to an evaluator being dropped
+        synchronized (evaluators) {
+            SharedSelectorEvaluator evaluator = evaluators.get(queueName);
+            if (null == evaluator) {
+                evaluator = new SharedSelectorEvaluator();
+                evaluator.add(subscriberId, selector);
+                evaluators.put(queueName, evaluator);
+            } else {
+                evaluator.add(subscriberId, selector);
+            }
+        }
+    }
+
+    /**
+     * Remove a subscriber of a queue. The evaluator of the queue is dropped with its last subscriber.
+     *
+     * @param queueName    name of the queue
+     * @param subscriberId id of the subscriber
+     */
+    public static void removeSubscriber(String queueName, long subscriberId) {
+        synchronized (evaluators) {
+            SharedSelectorEvaluator evaluator = evaluators.get(queueName);
+            if (null != evaluator && evaluator.remove(subscriberId)) {
+                evaluators.remove(queueName);
+            }
+        }
+    }
+
+    /**
+     * Check whether a subscriber of a queue accepts a message. All selectors of the queue are evaluated when a
+     * message is checked for the first time.
+     *
+     * @param queueName    name of the queue
+     * @param metadata     metadata of the message
+     * @param subscriberId id of the subscriber
+     * @return stored form of the message decoded for the evaluation if the subscriber accepts the message, null
+     * otherwise or if the subscriber is not added
+     */
+    public static StoredMessage<MessageMetaData> getAcceptedMessage(String queueName, AndesMessageMetadata metadata,
+                                                                    long subscriberId) {
+        SharedSelectorEvaluator evaluator = evaluators.get(queueName);
+        if (null == evaluator) {
+            return null;
+        }
+        return evaluator.getAcceptedMessage(metadata, subscriberId);
+    }
+
+    /**
+     * Check whether a subscriber accepts a message
+     *
+     * @param metadata     metadata of the message
+     * @param subscriberId id of the subscriber
+     * @return stored form of the message if the subscriber accepts the message, null otherwise
+     */
+    private synchronized StoredMessage<MessageMetaData> getAcceptedMessage(AndesMessageMetadata metadata,
+                                                                           long subscriberId) {
+        SelectorGroup group = groupsBySubscriber.get(subscriberId);
+        if (null == group) {
+            return null;
+        }
+
+        if (metadata.getMessageID() != evaluatedMessageId) {
+            AMQMessage message = AMQPUtils.getAMQMessageFromAndesMetaData(metadata);
+            evaluate(new MessageProperties(message.getMessageMetaData()));
+            evaluatedMessageId = metadata.getMessageID();
+            evaluatedMessage = message.getStoredMessage();
+        }
+
+        if (acceptingGroups.get(group.id)) {
+            return evaluatedMessage;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Check whether a subscriber accepts a message. All selectors of the queue are evaluated when a message is
+     * checked for the first time.
+     *
+     * @param messageId    id of the message
+     * @param message      properties of the message
+     * @param subscriberId id of the subscriber
+     * @return true if the subscriber is added and accepts the message
+     */
+    synchronized boolean isAccepted(long messageId, Filterable message, long subscriberId) {
+        SelectorGroup group = groupsBySubscriber.get(subscriberId);
+        if (null == group) {
+            return false;
+        }
+
+        if (messageId != evaluatedMessageId) {
+            evaluate(message);
+            evaluatedMessageId = messageId;
+            evaluatedMessage = null;
+        }
+        return acceptingGroups.get(group.id);
+    }
+
+    /**
+     * Get the number of distinct selectors of the queue
+     *
+     * @return number of selector groups
+     */
+    synchronized int getGroupCount() {
+        return groupsBySelector.size();
+    }
+
+    /**
+     * Get the number of distinct top level AND conditions of the selectors of the queue
+     *
+     * @return number of conditions
+     */
+    synchronized int getConditionCount() {
+        return conditionIds.size();
+    }
+
+    /**
+     * Evaluate the selectors of all groups over a message, updating the accepting groups
+     *
+     * @param message properties of the message
+     */
+    private void evaluate(Filterable message) {
+        acceptingGroups.clear();
+        for (int i = 0; i < conditionResults.length; i++) {
+            conditionResults[i] = NOT_EVALUATED;
+        }
+
+        for (SelectorGroup group : groups) {
+            if (null != group && isMatched(group, message)) {
+                acceptingGroups.set(group.id);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the conditions of a group. The selector is matched only if all of its top level AND conditions are
+     * matched, which is how the AND expressions of a selector are matched too.
+     *
+     * @param group   selector group
+     * @param message properties of the message
+     * @return true if the selector of the group is matched
+     */
+    private boolean isMatched(SelectorGroup group, Filterable message) {
+        for (int conditionId : group.conditionIds) {
+            byte result = conditionResults[conditionId];
+            if (NOT_EVALUATED == result) {
+                result = conditions.get(conditionId).matches(message) ? MATCHED : NOT_MATCHED;
+                conditionResults[conditionId] = result;
+            }
+            if (NOT_MATCHED == result) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a subscriber to the group of its selector. Adding a subscriber which is already added has no effect.
+     *
+     * @param subscriberId id of the subscriber
+     * @param selector     selector of the subscriber
+     * @throws AndesException if the selector cannot be parsed
+     */
+    synchronized void add(long subscriberId, String selector) throws AndesException {
+        if (!groupsBySubscriber.containsKey(subscriberId)) {
+            SelectorGroup group = groupsBySelector.get(selector);
+            if (null == group) {
+                group = createGroup(selector);
+            }
+            group.subscriberCount++;
+            groupsBySubscriber.put(subscriberId, group);
+        }
+    }
+
+    private SelectorGroup createGroup(String selector) throws AndesException {
+        BooleanExpression expression;
+        try {
+            expression = new SelectorParser().parse(selector);
+        } catch (AMQInvalidArgumentException e) {
+            throw new AndesException("Invalid selector " + selector, e);
+        }
+
+        List<BooleanExpression> groupConditions = new ArrayList<>();
+        splitConditions(expression, groupConditions);
+
+        int[] groupConditionIds = new int[groupConditions.size()];
+        for (int i = 0; i < groupConditionIds.length; i++) {
+            groupConditionIds[i] = addCondition(groupConditions.get(i));
+        }
+
+        int groupId = groups.indexOf(null);
+        if (groupId < 0) {
+            groupId = groups.size();
+            groups.add(null);
+        }
+        SelectorGroup group = new SelectorGroup(groupId, selector, groupConditionIds);
+        groups.set(groupId, group);
+        groupsBySelector.put(selector, group);
+
+        // The current message was not evaluated for the new group
+        evaluatedMessageId = -1;
+        evaluatedMessage = null;
+        return group;
+    }
+
+    /**
+     * Remove a subscriber
+     *
+     * @param subscriberId id of the subscriber
+     * @return true if the evaluator does not have subscribers anymore
+     */
+    private synchronized boolean remove(long subscriberId) {
+        SelectorGroup group = groupsBySubscriber.remove(subscriberId);
+        if (null != group) {
+            group.subscriberCount--;
+            if (group.subscriberCount == 0) {
+                groupsBySelector.remove(group.selector);
+                groups.set(group.id, null);
+                for (int conditionId : group.conditionIds) {
+                    removeCondition(conditionId);
+                }
+            }
+        }
+        return groupsBySubscriber.isEmpty();
+    }
+
+    /**
+     * Split an expression into its top level AND conditions
+     */
+    private static void splitConditions(BooleanExpression expression, List<BooleanExpression> groupConditions) {
+        if (expression instanceof LogicExpression
+                && "AND".equals(((LogicExpression) expression).getExpressionSymbol())) {
+            LogicExpression andExpression = (LogicExpression) expression;
+            splitConditions(asBooleanExpression(andExpression.getLeft()), groupConditions);
+            splitConditions(asBooleanExpression(andExpression.getRight()), groupConditions);
+        } else {
+            groupConditions.add(expression);
+        }
+    }
+
+    private static BooleanExpression asBooleanExpression(Expression expression) {
+        // Operands of an AND expression are always boolean expressions
+        return (BooleanExpression) expression;
+    }
+
+    /**
+     * Add a condition of a new group, reusing the condition if another group has the same condition
+     *
+     * @return id of the condition
+     */
+    private int addCondition(BooleanExpression condition) {
+        String key = condition.toString();
+        Integer conditionId = conditionIds.get(key);
+        if (null == conditionId) {
+            conditionId = conditions.indexOf(null);
+            if (conditionId < 0) {
+                conditionId = conditions.size();
+                conditions.add(null);
+                conditionUsages.add(0);
+                conditionResults = new byte[conditions.size()];
+            }
+            conditions.set(conditionId, SelectorCompiler.compile(condition));
+            conditionIds.put(key, conditionId);
+        }
+        conditionUsages.set(conditionId, conditionUsages.get(conditionId) + 1);
+        return conditionId;
+    }
+
+    private void removeCondition(int conditionId) {
+        int usages = conditionUsages.get(conditionId) - 1;
+        conditionUsages.set(conditionId, usages);
+        if (usages == 0) {
+            conditionIds.remove(conditions.get(conditionId).toString());
+            conditions.set(conditionId, null);
+        }
+    }
+
+    /**
+     * Subscribers sharing the same selector
+     */
+    private static class SelectorGroup {
+
+        private final int id;
+
+        private final String selector;
+
+        /**
+         * Ids of the top level AND conditions of the selector
+         */
+        private final int[] conditionIds;
+
+        private int subscriberCount;
+
+        private SelectorGroup(int id, String selector, int[] conditionIds) {
+            this.id = id;
+            this.selector = selector;
+            this.conditionIds = conditionIds;
+        }
+    }
+
+    /**
+     * Properties of a decoded message shared by all the selectors. A message checked against the selectors is not
+     * redelivered yet, the same as a newly created queue entry.
+     */
+    private static class MessageProperties implements Filterable {
+
+        private final AMQMessageHeader messageHeader;
+
+        private final boolean persistent;
+
+        private MessageProperties(MessageMetaData metaData) {
+            messageHeader = metaData.getMessageHeader();
+            persistent = metaData.isPersistent();
+        }
+
+        @Override
+        public AMQMessageHeader getMessageHeader() {
+            return messageHeader;
+        }
+
+        @Override
+        public boolean isPersistent() {
+            return persistent;
+        }
+
+        @Override
+        public boolean isRedelivered() {
+            return false;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.wso2.andes.configuration.util.ConfigurationProperty;
 import org.wso2.andes.configuration.util.ImmutableMetaProperties;
 import org.wso2.andes.configuration.util.MetaProperties;
 import org.wso2.andes.configuration.util.TopicMessageDeliveryStrategy;
+import org.wso2.andes.kernel.disruptor.waitStrategy.WaitStrategyType;
 
 import java.util.List;
 
@@ -48,6 +49,39 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     CLUSTER_EVENT_SYNC_INTERVAL("coordination/rdbmsBasedClusterEventSynchronization/eventSyncInterval", "1000", Integer.class),
 
+    /**
+     * Maximum length of the encoded object of a cluster event stored in the database. Batched subscription changes
+     * are split into several cluster events to fit this length. Should match the length of the EVENT_DETAILS
+     * column of the cluster event table.
+     */
+    CLUSTER_EVENT_MAX_DETAILS_LENGTH("coordination/rdbmsBasedClusterEventSynchronization/maxEventDetailsLength",
+            "1024", Integer.class),
+
+    /**
+     * Enables pushing a signal to the other nodes of the cluster after a cluster event or a membership event is
+     * written to the database. Nodes read the database as soon as a signal is received, hence events are reflected
+     * without waiting for the next poll. Only applies with RDBMS based coordination. Disabled by default since it
+     * needs the signal port of each node to be reachable from the other nodes.
+     */
+    CLUSTER_EVENT_PUSH_ENABLED("coordination/rdbmsBasedClusterEventSynchronization/eventPush/@enabled", "false",
+            Boolean.class),
+
+    /**
+     * Offset added to the Hazelcast port of a node to get the port cluster event signals are received on.
+     */
+    CLUSTER_EVENT_PUSH_PORT_OFFSET("coordination/rdbmsBasedClusterEventSynchronization/eventPush/portOffset", "100",
+            Integer.class),
+
+    /**
+     * The interval at which, the cluster events and membership events will be read from the database once all other
+     * nodes push signals to a node. Specified in milliseconds. Polling only catches up on signals lost while a node
+     * was unreachable, hence this can be much larger than the eventSyncInterval. Nodes keep reading at the
+     * eventSyncInterval while any other node is not connected to push signals.
+     */
+    CLUSTER_EVENT_PUSH_FALLBACK_SYNC_INTERVAL
+            ("coordination/rdbmsBasedClusterEventSynchronization/eventPush/fallbackSyncInterval", "10000",
+            Integer.class),
+
     /**
      * The host IP to be used by the Thrift server. Thrift is used to coordinate message slots between MB nodes.
      */
@@ -76,6 +110,21 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     COORDINATION_CLUSTER_NOTIFICATION_TIMEOUT("coordination/clusterNotificationTimeout", "10", Integer.class),
 
+    /**
+     * Time window in milliseconds local subscription changes are collected over before they are notified to the
+     * cluster as a single notification. A subscription added and closed within the window is not notified at all.
+     * Setting this to 0 notifies each subscription change as it happens.
+     */
+    COORDINATION_SUBSCRIPTION_NOTIFICATION_BATCH_WINDOW("coordination/subscriptionNotificationBatching/window",
+            "100", Integer.class),
+
+    /**
+     * Maximum number of subscription changes notified in a single notification. Collected changes are notified
+     * right away once this many changes are collected.
+     */
+    COORDINATION_SUBSCRIPTION_NOTIFICATION_MAX_BATCH_SIZE
+            ("coordination/subscriptionNotificationBatching/maxBatchSize", "1000", Integer.class),
+
     /**
      * Node ID is the unique identifier of a node within a cluster. By default, its generated using the IP of the node.
      * However, with this property, the Node ID can be explicitly set.
@@ -207,6 +256,13 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     TRANSPORTS_MQTT_DELIVERY_BUFFER_SIZE("transports/mqtt/deliveryBufferSize", "32768", Integer.class),
 
+    /**
+     * Number of parallel handlers processing MQTT inbound events. Events are distributed among the handlers by client
+     * ID, hence events of a client are processed in order. Increasing this value will speedup processing of events of
+     * different clients.
+     */
+    TRANSPORTS_MQTT_INBOUND_PARALLEL_HANDLERS("transports/mqtt/inboundParallelHandlers", "4", Integer.class),
+
     /**
      * This is a temporary list of user elements to enable user-authentication for MQTT.
      */
@@ -298,6 +354,13 @@ public enum AndesConfiguration implements ConfigurationProperty {
      * Size of the messages cache in MBs. Setting '0' will disable the cache. defaults to 256 MB.
      */
     PERSISTENCE_CACHE_SIZE("persistence/cache/size", "256", Integer.class),
+
+    /**
+     * Type of the messages cache. 'guava' keeps messages on the heap. 'offHeap' keeps metadata and content in direct
+     * memory and evicts the oldest messages once the cache size is reached, hence the JVM needs a maximum direct
+     * memory size larger than the cache size. The reference type setting applies to the 'guava' cache only.
+     */
+    PERSISTENCE_CACHE_TYPE("persistence/cache/type", "guava", String.class),
     
     /**
      * Expected concurrency for the cache (4 is guava default)
@@ -449,6 +512,38 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_SLOT_DELETE_QUEUE_DEPTH_WARNING_THRESHOLD(
              "performanceTuning/slots/SlotDeleteQueueDepthWarningThreshold", "1000", Integer.class),
 
+    /**
+     * Number of threads shared by all storage queues to execute per queue background work such as releasing slots.
+     * Thread count does not grow with the number of queues.
+     */
+    PERFORMANCE_TUNING_QUEUE_TASK_SCHEDULER_THREAD_COUNT(
+            "performanceTuning/slots/queueTaskSchedulerThreadCount", "4", Integer.class),
+
+    /**
+     * Time in milliseconds an idle message delivery task waits before polling the slot manager again. Delivery tasks
+     * are woken up as soon as a slot is available for the queue. In a cluster with RDBMS based event synchronization
+     * and no cluster event push, wake ups of other nodes are only read at the event sync interval and a lost wake up
+     * is only recovered by this poll. Hence this is kept short.
+     */
+    PERFORMANCE_TUNING_SLOTS_IDLE_DELIVERY_POLLING_INTERVAL(
+            "performanceTuning/slots/idleDeliveryPollingInterval", "100", Integer.class),
+
+    /**
+     * Time in milliseconds an idle message delivery task waits before polling the slot manager again when slot wake
+     * ups are pushed to the delivery tasks. That is on a standalone node, with Hazelcast based event synchronization
+     * or with cluster event push. The poll is only a safety net for missed wake ups in that case. Lowering this value
+     * increases the number of slot requests sent to the coordinator.
+     */
+    PERFORMANCE_TUNING_SLOTS_IDLE_DELIVERY_FALLBACK_POLLING_INTERVAL(
+            "performanceTuning/slots/idleDeliveryFallbackPollingInterval", "5000", Integer.class),
+
+    /**
+     * Time interval in milliseconds the coordinator accumulates slot availability events before notifying them to
+     * the other nodes in the cluster as a single notification.
+     */
+    PERFORMANCE_TUNING_SLOTS_AVAILABILITY_NOTIFICATION_INTERVAL(
+            "performanceTuning/slots/slotAvailabilityNotificationInterval", "100", Integer.class),
+
 
     /**
      * Maximum number of undelivered messages that can be in memory. Increasing this value could cause out of memory
@@ -463,6 +558,20 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERFORMANCE_TUNING_DELIVERY_RING_BUFFER_SIZE("performanceTuning/delivery/ringBufferSize", "4096", Integer.class),
 
+    /**
+     * Wait strategy used by the event processors of the delivery disruptor. ADAPTIVE spins under load and blocks when
+     * idle. BUSY_SPIN and YIELDING give the lowest latency but keep CPU cores busy even when there is no load.
+     */
+    PERFORMANCE_TUNING_DELIVERY_WAIT_STRATEGY("performanceTuning/delivery/waitStrategy",
+            WaitStrategyType.SLEEPING_BLOCKING.toString(), WaitStrategyType.class),
+
+    /**
+     * Run the event processors of the delivery disruptor on a fixed pool with one thread per processor, created when
+     * the disruptor starts.
+     */
+    PERFORMANCE_TUNING_DELIVERY_DEDICATED_HANDLER_THREADS("performanceTuning/delivery/dedicatedHandlerThreads",
+            "false", Boolean.class),
+
     /**
      * Number of parallel readers used to read content from message store. Increasing this value will speedup
      * the message sending mechanism. But the load on the data store will increase.
@@ -503,6 +612,34 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_DELIVERY_CONTENT_CACHE_EXPIRY_TIME("performanceTuning/delivery/contentCache/expiryTime", "120",
                                                           Integer.class),
 
+    /**
+     * Messages with content larger than this many bytes are streamed to subscribers. Their content is read in
+     * windows while it is being delivered instead of being read with the content read batch. Compressed messages are
+     * not streamed since the whole content is needed to decompress them. Setting '0' disables streaming.
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_THRESHOLD("performanceTuning/delivery/contentStreaming/threshold",
+            "1048576", Integer.class),
+
+    /**
+     * Maximum content size in bytes held in memory for a streamed message, shared by all of its deliveries. Half of
+     * it is the window being delivered and the other half is the next window read ahead.
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_MEMORY_BUDGET(
+            "performanceTuning/delivery/contentStreaming/memoryBudget", "524288", Integer.class),
+
+    /**
+     * Maximum content size in bytes held in memory for all streamed messages. Windows are not read ahead once it is
+     * used up, and content is then read one chunk at a time.
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_TOTAL_MEMORY_BUDGET(
+            "performanceTuning/delivery/contentStreaming/totalMemoryBudget", "67108864", Integer.class),
+
+    /**
+     * Number of threads reading the content of streamed messages ahead of delivery.
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_READERS("performanceTuning/delivery/contentStreaming/readers", "4",
+            Integer.class),
+
     /**
      * Number of parallel writers used to write content to message store. Increasing this value will speedup
      * the message receiving mechanism. But the load on the data store will increase.
@@ -525,6 +662,20 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERFORMANCE_TUNING_PUBLISHING_BUFFER_SIZE("performanceTuning/inboundEvents/bufferSize", "65536", Integer.class),
 
+    /**
+     * Wait strategy used by the event processors of the inbound disruptor. ADAPTIVE spins under load and blocks when
+     * idle. BUSY_SPIN and YIELDING give the lowest latency but keep CPU cores busy even when there is no load.
+     */
+    PERFORMANCE_TUNING_INBOUND_WAIT_STRATEGY("performanceTuning/inboundEvents/waitStrategy",
+            WaitStrategyType.SLEEPING_BLOCKING.toString(), WaitStrategyType.class),
+
+    /**
+     * Run the event processors of the inbound disruptor on a fixed pool with one thread per processor, created when
+     * the disruptor starts.
+     */
+    PERFORMANCE_TUNING_INBOUND_DEDICATED_HANDLER_THREADS("performanceTuning/inboundEvents/dedicatedHandlerThreads",
+            "false", Boolean.class),
+
     /**
      * Maximum batch size of the batch write operation for inbound messages. Batch write of a message will vary around
      * this number.
@@ -532,6 +683,21 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_MESSAGE_WRITER_BATCH_SIZE
             ("performanceTuning/inboundEvents/messageWriterBatchSize", "70", Integer.class),
 
+    /**
+     * Maximum time in microseconds batches of parallel message writers are held to be stored together in one
+     * operation. A group is stored earlier once all writers have added a batch. Set to 0 to store each batch on its
+     * own. Has no effect with a single message writer.
+     */
+    PERFORMANCE_TUNING_GROUP_COMMIT_WINDOW_TIME
+            ("performanceTuning/inboundEvents/groupCommit/windowTime", "500", Long.class),
+
+    /**
+     * Size in bytes of message metadata and content at which a group of message writer batches is stored without
+     * waiting for the rest of the window time.
+     */
+    PERFORMANCE_TUNING_GROUP_COMMIT_WINDOW_SIZE
+            ("performanceTuning/inboundEvents/groupCommit/windowSize", "1048576", Long.class),
+
     /**
      * Timeout for waiting for a queue purge event to end to get the purged count. Doesn't affect actual purging.
      * If purge takes time, increasing the value will improve the possibility of retrieving the correct purged count.
@@ -539,7 +705,14 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERFORMANCE_TUNING_PURGED_COUNT_TIMEOUT
             ("performanceTuning/inboundEvents/purgedCountTimeout", "180", Integer.class),
-    
+
+    /**
+     * Maximum number of routing keys for which matching storage queues are cached by topic and MQTT message routers.
+     * Cached results are invalidated when a matching binding is added or removed. Set to 0 to disable the cache.
+     */
+    PERFORMANCE_TUNING_TOPIC_ROUTING_CACHE_SIZE
+            ("performanceTuning/inboundEvents/topicRoutingCacheSize", "1000", Integer.class),
+
     /**
      * Average batch size of the batch acknowledgement handling for message acknowledgements. Andes will be updated
      * of acknowledgements batched around this number.
@@ -553,6 +726,27 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_ACK_HANDLER_COUNT("performanceTuning/ackHandling/ackHandlerCount", "1",
             Integer.class ),
 
+    /**
+     * Interval in milliseconds at which acknowledged messages of all ack handlers are deleted together from the
+     * message store. Pending messages are kept in a local journal so that they are not delivered again if the
+     * broker crashes before deleting them. Set to 0 to delete messages in each ack handler batch.
+     */
+    PERFORMANCE_TUNING_ACK_DELETION_INTERVAL("performanceTuning/ackHandling/deletionInterval", "100",
+            Integer.class),
+
+    /**
+     * Number of acknowledged messages waiting to be deleted at which deletion starts without waiting for the
+     * deletion interval.
+     */
+    PERFORMANCE_TUNING_ACK_DELETION_BATCH_SIZE("performanceTuning/ackHandling/deletionBatchSize", "1000",
+            Integer.class),
+
+    /**
+     * Directory of the journal of acknowledged messages waiting to be deleted. Each node needs its own directory.
+     */
+    PERFORMANCE_TUNING_ACK_DELETION_JOURNAL_DIRECTORY("performanceTuning/ackHandling/deletionJournalDirectory",
+            "repository/database/ack-journal", String.class),
+
     /**
      * Message delivery from server to the client will be paused temporarily if number of delivered but
      * unacknowledged message count reaches this size. Should be set considering message consume rate.
@@ -614,6 +808,28 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERFORMANCE_TUNING_SAFE_DELETE_REGION_SLOT_COUNT
             ("performanceTuning/messageExpiration/safetySlotCount", "3", Integer.class),
+
+    /**
+     * Enable/Disable the in-memory expiry index. When enabled, expired messages are found from a timing wheel fed
+     * by the message writers instead of querying the store queue by queue at the periodic deletion interval.
+     */
+    PERFORMANCE_TUNING_EXPIRY_INDEX_ENABLED
+            ("performanceTuning/messageExpiration/expiryIndex/@enabled", "true", Boolean.class),
+
+    /**
+     * Interval at which the expiry index is checked for expired messages. This is the time span covered by a
+     * bucket of the timing wheel. Specified in milliseconds.
+     */
+    PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL
+            ("performanceTuning/messageExpiration/expiryIndex/tickInterval", "1000", Integer.class),
+
+    /**
+     * Interval at which the expiry index reloads messages expiring within the next two intervals from the store.
+     * This picks up messages written through other nodes of the cluster. Specified in seconds.
+     */
+    PERFORMANCE_TUNING_EXPIRY_INDEX_RELOAD_INTERVAL
+            ("performanceTuning/messageExpiration/expiryIndex/reloadInterval", "60", Integer.class),
+
     /**
      * Maximum batch size (Messages) in kilobytes for a transaction. Exceeding this limit will result in a failure in
      * the subsequent commit (or prepare) request. Default is set to 10MB. Limit is calculated considering the payload
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.wso2.andes.server.message.MessageMetaData;
+import org.wso2.andes.server.store.MessageMetaDataType;
+
+/**
+ * Flyweight view over the stored metadata of an AMQP 0-8/0-9-1 message. Fields are decoded straight from the stored
+ * bytes when they are read, without building the {@link MessageMetaData} of the message and its content header.
+ * Routing key, exchange and compression flag are changed by splicing the stored bytes instead of encoding the whole
+ * metadata again.
+ * <p>
+ * Stored bytes are never modified, since the same bytes are shared by the copies of a message routed to several
+ * queues.
+ * <p>
+ * Stored layout, as written by {@link MessageMetaData#writeToBuffer(int, java.nio.ByteBuffer)}:
+ * metadata type, content header size, content header (class id, weight, body size, property flags, properties),
+ * exchange, routing key, publish flags, publisher session id, arrival time and an optional compression flag.
+ */
+public class AMQPMetadataView {
+
+    /**
+     * Offset of the content header size
+     */
+    private static final int CONTENT_HEADER_SIZE_OFFSET = 1;
+
+    /**
+     * Offset of the content header. Follows the metadata type and the content header size.
+     */
+    private static final int CONTENT_HEADER_OFFSET = 5;
+
+    /**
+     * Offset of the body size. Follows the class id and weight of the content header.
+     */
+    private static final int BODY_SIZE_OFFSET = CONTENT_HEADER_OFFSET + 4;
+
+    private static final int PROPERTY_FLAGS_OFFSET = BODY_SIZE_OFFSET + 8;
+
+    private static final int PROPERTIES_OFFSET = PROPERTY_FLAGS_OFFSET + 2;
+
+    /**
+     * Offset of the arrival time from the end of the routing key. Follows the publish flags and the publisher
+     * session id.
+     */
+    private static final int ARRIVAL_TIME_OFFSET = 1 + 8;
+
+    /**
+     * Offset of the optional compression flag from the end of the routing key
+     */
+    private static final int COMPRESSED_FLAG_OFFSET = ARRIVAL_TIME_OFFSET + 8;
+
+    /**
+     * Content header properties in the order they are stored, as in BasicContentHeaderProperties
+     */
+    private static final int CONTENT_TYPE_MASK = 1 << 15;
+    private static final int ENCODING_MASK = 1 << 14;
+    private static final int HEADERS_MASK = 1 << 13;
+    private static final int DELIVERY_MODE_MASK = 1 << 12;
+    private static final int PRIORITY_MASK = 1 << 11;
+    private static final int CORRELATION_ID_MASK = 1 << 10;
+    private static final int REPLY_TO_MASK = 1 << 9;
+    private static final int EXPIRATION_MASK = 1 << 8;
+
+    /**
+     * Delivery mode of persistent messages
+     */
+    private static final byte PERSISTENT_DELIVERY_MODE = 2;
+
+    private final byte[] metadata;
+
+    private final int exchangeOffset;
+
+    private final int routingKeyOffset;
+
+    /**
+     * Offset of the byte following the routing key
+     */
+    private final int routingKeyEnd;
+
+    /**
+     * Create a view over stored metadata. Only the offsets of the exchange and routing key are read here.
+     *
+     * @param metadata stored metadata of an AMQP 0-8/0-9-1 message
+     */
+    public AMQPMetadataView(byte[] metadata) {
+        this.metadata = metadata;
+        exchangeOffset = CONTENT_HEADER_OFFSET + readInt(CONTENT_HEADER_SIZE_OFFSET);
+        routingKeyOffset = exchangeOffset + 1 + getUnsignedByte(exchangeOffset);
+        routingKeyEnd = routingKeyOffset + 1 + getUnsignedByte(routingKeyOffset);
+    }
+
+    /**
+     * Check if stored metadata can be read through this view
+     *
+     * @param metadata stored metadata
+     * @return true if the metadata belongs to an AMQP 0-8/0-9-1 message
+     */
+    public static boolean isAMQPMetadata(byte[] metadata) {
+        return null != metadata && metadata.length > 0
+                && metadata[0] == MessageMetaDataType.META_DATA_0_8.ordinal();
+    }
+
+    public byte[] getMetadata() {
+        return metadata;
+    }
+
+    public int getContentSize() {
+        return (int) readLong(BODY_SIZE_OFFSET);
+    }
+
+    public long getArrivalTime() {
+        return readLong(routingKeyEnd + ARRIVAL_TIME_OFFSET);
+    }
+
+    /**
+     * Compression flag is optional. Metadata written before the flag was introduced is not compressed.
+     *
+     * @return true if the content of the message is compressed
+     */
+    public boolean isCompressed() {
+        int offset = routingKeyEnd + COMPRESSED_FLAG_OFFSET;
+        return metadata.length > offset && metadata[offset] == 1;
+    }
+
+    public String getExchange() {
+        return readShortString(exchangeOffset);
+    }
+
+    public String getRoutingKey() {
+        return readShortString(routingKeyOffset);
+    }
+
+    /**
+     * Compare the exchange of the message without decoding it
+     *
+     * @param exchangeName name of the exchange
+     * @return true if the message is published to the given exchange
+     */
+    public boolean isPublishedTo(String exchangeName) {
+        int length = getUnsignedByte(exchangeOffset);
+        if (length != exchangeName.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((char) metadata[exchangeOffset + 1 + i] != exchangeName.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isPersistent() {
+        int offset = getPropertyOffset(DELIVERY_MODE_MASK);
+        return offset >= 0 && metadata[offset] == PERSISTENT_DELIVERY_MODE;
+    }
+
+    /**
+     * Get the expiration set by the publisher. Expiration is stored as a short string of digits.
+     *
+     * @return expiration time of the message, 0 if not set
+     */
+    public long getExpiration() {
+        int offset = getPropertyOffset(EXPIRATION_MASK);
+        if (offset < 0) {
+            return 0L;
+        }
+        int length = getUnsignedByte(offset);
+        if (length == 0) {
+            return 0L;
+        }
+
+        int position = offset + 1;
+        int end = position + length;
+        boolean isNegative = metadata[position] == '-';
+        if (isNegative) {
+            position++;
+        }
+        long expiration = 0;
+        while (position < end) {
+            expiration = expiration * 10 + (metadata[position] - '0');
+            position++;
+        }
+        return isNegative ? -expiration : expiration;
+    }
+
+    /**
+     * Create metadata routed with the given routing key and exchange. Only the routing key and exchange are written,
+     * rest of the metadata is copied as it is.
+     *
+     * @param routingKey   routing key to set
+     * @param exchangeName exchange to set
+     * @return updated metadata
+     */
+    public byte[] withRoutingKeyAndExchange(String routingKey, String exchangeName) {
+        int trailerLength = metadata.length - routingKeyEnd;
+        byte[] updated = new byte[exchangeOffset + 2 + exchangeName.length() + routingKey.length() + trailerLength];
+
+        System.arraycopy(metadata, 0, updated, 0, exchangeOffset);
+        int offset = writeShortString(updated, exchangeOffset, exchangeName);
+        offset = writeShortString(updated, offset, routingKey);
+        System.arraycopy(metadata, routingKeyEnd, updated, offset, trailerLength);
+        return updated;
+    }
+
+    /**
+     * Create metadata with the given compression flag. The flag is appended if the stored metadata does not have it.
+     *
+     * @param isCompressed true if the content of the message is compressed
+     * @return updated metadata
+     */
+    public byte[] withCompressed(boolean isCompressed) {
+        int offset = routingKeyEnd + COMPRESSED_FLAG_OFFSET;
+        byte[] updated = new byte[Math.max(metadata.length, offset + 1)];
+        System.arraycopy(metadata, 0, updated, 0, metadata.length);
+        updated[offset] = (byte) (isCompressed ? 1 : 0);
+        return updated;
+    }
+
+    /**
+     * Find a content header property by skipping the properties stored before it
+     *
+     * @param mask property flag of the property
+     * @return offset of the property, -1 if the property is not set
+     */
+    private int getPropertyOffset(int mask) {
+        int propertyFlags = (getUnsignedByte(PROPERTY_FLAGS_OFFSET) << 8) | getUnsignedByte(PROPERTY_FLAGS_OFFSET + 1);
+        if ((propertyFlags & mask) == 0) {
+            return -1;
+        }
+
+        int offset = PROPERTIES_OFFSET;
+        for (int propertyMask = CONTENT_TYPE_MASK; propertyMask > mask; propertyMask = propertyMask >>> 1) {
+            if ((propertyFlags & propertyMask) == 0) {
+                continue;
+            }
+            switch (propertyMask) {
+                case HEADERS_MASK:
+                    offset = offset + 4 + (int) readUnsignedInt(offset);
+                    break;
+                case DELIVERY_MODE_MASK:
+                case PRIORITY_MASK:
+                    offset = offset + 1;
+                    break;
+                case CONTENT_TYPE_MASK:
+                case ENCODING_MASK:
+                case CORRELATION_ID_MASK:
+                case REPLY_TO_MASK:
+                    offset = offset + 1 + getUnsignedByte(offset);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected content header property " + propertyMask);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Short strings hold ASCII characters, decoded the same way as AMQShortString
+     */
+    private String readShortString(int offset) {
+        int length = getUnsignedByte(offset);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) metadata[offset + 1 + i];
+        }
+        return new String(chars);
+    }
+
+    private static int writeShortString(byte[] destination, int offset, String value) {
+        int length = value.length();
+        if (length > 255) {
+            throw new IllegalArgumentException("Cannot write short string with number of octets over 255: " + value);
+        }
+        destination[offset] = (byte) length;
+        for (int i = 0; i < length; i++) {
+            destination[offset + 1 + i] = (byte) value.charAt(i);
+        }
+        return offset + 1 + length;
+    }
+
+    private int getUnsignedByte(int offset) {
+        return metadata[offset] & 0xFF;
+    }
+
+    private int readInt(int offset) {
+        return (getUnsignedByte(offset) << 24) | (getUnsignedByte(offset + 1) << 16)
+                | (getUnsignedByte(offset + 2) << 8) | getUnsignedByte(offset + 3);
+    }
+
+    private long readUnsignedInt(int offset) {
+        return readInt(offset) & 0xFFFFFFFFL;
+    }
+
+    private long readLong(int offset) {
+        return ((long) readInt(offset) << 32) | readUnsignedInt(offset + 4);
+    }
+}
@@ -780,10 +780,15 @@ public class Andes {
      * @param channel   channel object of the session
      * @param sessionID session id
      * @return created DistributeTransaction object
-     * @throws AndesException if maximum number of parallel transactions limit reached
+     * @throws AndesException if maximum number of parallel transactions limit reached or the message store cannot
+     *                        prepare transactions
      */
     public synchronized DistributedTransaction createDistributedTransaction(AndesChannel channel, UUID sessionID)
             throws AndesException {
+        if (!dtxRegistry.getStore().isPrepareSupported()) {
+            throw new AndesException("Distributed transactions are not supported by the configured message store");
+        }
+
         if (dtxChannelList.size() <= maxParallelDtxConnections) {
             DistributedTransaction distributedTransaction = new DistributedTransaction(dtxRegistry,
                                                                                        inboundEventManager,
@@ -27,6 +27,7 @@ import org.wso2.andes.kernel.registry.StorageQueueRegistry;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.server.cluster.ClusterAgent;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationListenerManager;
+import org.wso2.andes.store.cache.TieredContentCache;
 
 
 import java.util.List;
@@ -78,6 +79,11 @@ public class AndesContext {
      */
     private ClusterNotificationListenerManager clusterNotificationListenerManager;
 
+    /**
+     * Content cache shared by the message store and the delivery path
+     */
+    private TieredContentCache contentCache;
+
     /**
      * Getter for cluster agent
      *
@@ -355,4 +361,22 @@ public class AndesContext {
                                                               clusterNotificationListenerManager) {
         this.clusterNotificationListenerManager = clusterNotificationListenerManager;
     }
+
+    /**
+     * Get the content cache shared by the message store and the delivery path
+     *
+     * @return shared content cache, or null if message stores are not started
+     */
+    public TieredContentCache getContentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Set the content cache shared by the message store and the delivery path
+     *
+     * @param contentCache content cache to share
+     */
+    public void setContentCache(TieredContentCache contentCache) {
+        this.contentCache = contentCache;
+    }
 }
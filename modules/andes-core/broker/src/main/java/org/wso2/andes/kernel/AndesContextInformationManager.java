@@ -37,6 +37,7 @@ import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
 import org.wso2.andes.server.cluster.coordination.CoordinationComponentFactory;
 import org.wso2.andes.server.queue.DLCQueueUtils;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -490,4 +491,15 @@ public class AndesContextInformationManager {
         }
     }
 
+    /**
+     * Notify other nodes in the cluster that slots are available for the given storage queues so that idle message
+     * delivery of those queues is woken up
+     *
+     * @param storageQueueNames names of storage queues having slots to deliver
+     * @throws AndesException
+     */
+    public void notifySlotAvailability(Collection<String> storageQueueNames) throws AndesException {
+        clusterNotificationAgent.notifySlotAvailability(storageQueueNames);
+    }
+
 }
@@ -31,6 +31,7 @@ import org.wso2.andes.kernel.registry.MessageRouterRegistry;
 import org.wso2.andes.kernel.registry.StorageQueueRegistry;
 import org.wso2.andes.kernel.registry.SubscriptionRegistry;
 import org.wso2.andes.kernel.slot.SlotCreator;
+import org.wso2.andes.kernel.slot.SlotAvailabilityNotifier;
 import org.wso2.andes.kernel.slot.SlotDeletionExecutor;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
@@ -51,6 +52,7 @@ import org.wso2.andes.server.virtualhost.VirtualHostConfigSynchronizer;
 import org.wso2.andes.store.FailureObservingAndesContextStore;
 import org.wso2.andes.store.FailureObservingMessageStore;
 import org.wso2.andes.store.FailureObservingStoreManager;
+import org.wso2.andes.store.cache.MessageCacheFactory;
 import org.wso2.andes.thrift.MBThriftServer;
 import org.wso2.carbon.context.CarbonContext;
 import org.wso2.carbon.user.api.UserStoreException;
@@ -300,6 +302,9 @@ public class AndesKernelBoot {
                 failureObservingStoreManager);
         AndesContext.getInstance().setAndesContextStore(contextStore);
 
+        // Content cache shared by the message store and the delivery path
+        AndesContext.getInstance().setContentCache(new MessageCacheFactory().createTieredCache());
+
         // directly wire the instance without wrapped instance
         messageStore = createMessageStoreFromConfig(contextStoreInConfig, failureObservingStoreManager);
 
@@ -461,11 +466,22 @@ public class AndesKernelBoot {
         int safeDeleteRegionSlotCount = AndesConfigurationManager.readValue
                 (AndesConfiguration.PERFORMANCE_TUNING_SAFE_DELETE_REGION_SLOT_COUNT);
 
-        periodicExpiryMessageDeletionTask = new PeriodicExpiryMessageDeletionTask();
-
         andesRecoveryTaskScheduler.scheduleAtFixedRate(andesRecoveryTask, recoveryTaskScheduledPeriod,
                 recoveryTaskScheduledPeriod, TimeUnit.SECONDS);
-        if (safeDeleteRegionSlotCount >= 1) {
+        MessageExpiryIndex messageExpiryIndex = MessagingEngine.getInstance().getMessageExpiryIndex();
+        if (safeDeleteRegionSlotCount >= 1 && null != messageExpiryIndex) {
+            int expiryIndexTickInterval = AndesConfigurationManager.readValue
+                    (AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL);
+            int expiryIndexReloadInterval = AndesConfigurationManager.readValue
+                    (AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_RELOAD_INTERVAL);
+            int expiryDeletionBatchSize = AndesConfigurationManager.readValue
+                    (AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_EXPIRATION_BATCH_SIZE);
+            periodicExpiryMessageDeletionTask = new IndexedExpiryMessageDeletionTask(messageExpiryIndex,
+                    TimeUnit.SECONDS.toMillis(expiryIndexReloadInterval), expiryDeletionBatchSize);
+            expiryMessageDeletionTaskScheduler.scheduleAtFixedRate(periodicExpiryMessageDeletionTask,
+                    expiryIndexTickInterval, expiryIndexTickInterval, TimeUnit.MILLISECONDS);
+        } else if (safeDeleteRegionSlotCount >= 1) {
+            periodicExpiryMessageDeletionTask = new PeriodicExpiryMessageDeletionTask();
             expiryMessageDeletionTaskScheduler.scheduleAtFixedRate(periodicExpiryMessageDeletionTask,
                     dbBasedDeletionTaskScheduledPeriod, dbBasedDeletionTaskScheduledPeriod, TimeUnit.SECONDS);
         } else {
@@ -580,6 +596,10 @@ public class AndesKernelBoot {
         if (AndesContext.getInstance().isClusteringEnabled()) {
             MBThriftServer.getInstance().start(AndesContext.getInstance().getThriftServerHost(),
                     AndesContext.getInstance().getThriftServerPort(), "MB-ThriftServer-main-thread");
+            // Slots submitted to the slot manager while this node is the coordinator are notified to other nodes
+            int slotAvailabilityNotificationInterval = AndesConfigurationManager.readValue
+                    (AndesConfiguration.PERFORMANCE_TUNING_SLOTS_AVAILABILITY_NOTIFICATION_INTERVAL);
+            SlotAvailabilityNotifier.getInstance().start(slotAvailabilityNotificationInterval);
         }
 
     }
@@ -118,6 +118,12 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
      */
     private boolean retain;
 
+    /**
+     * View over stored AMQP metadata the destination and message router name are decoded from on first access. Null
+     * if the metadata is not parsed or does not belong to an AMQP 0-8/0-9-1 message.
+     */
+    private AMQPMetadataView metadataView;
+
     public AndesMessageMetadata() {
         propertyMap = new HashMap<>();
         this.retain = false;
@@ -201,6 +207,9 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
     }
 
     public String getMessageRouterName() {
+        if (null == messageRouterName && null != metadataView) {
+            messageRouterName = metadataView.getExchange();
+        }
         return messageRouterName;
     }
 
@@ -219,6 +228,9 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
      * @return routing key of the message
      */
     public String getDestination() {
+        if (null == destination && null != metadataView) {
+            destination = metadataView.getRoutingKey();
+        }
         return destination;
     }
 
@@ -283,6 +295,7 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
         clone.isTopic = isTopic;
         clone.messageRouterName = messageRouterName;
         clone.destination = destination;
+        clone.metadataView = metadataView;
         clone.storageQueueName = storageQueueName;
         clone.isPersistent = isPersistent;
         clone.arrivalTime = arrivalTime;
@@ -302,8 +315,13 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
      * @param newExchangeName new exchange name to set
      */
     public void updateMetadata(String newDestination, String newExchangeName) {
+        // Message router name is not changed by the update, keep the name decoded from the original metadata
+        this.messageRouterName = getMessageRouterName();
         this.metadata = createNewMetadata(this.metadata, newDestination, newExchangeName);
         this.destination = newDestination;
+        if (null != metadataView) {
+            metadataView = new AMQPMetadataView(metadata);
+        }
         if (log.isDebugEnabled()) {
             log.debug("updated andes message metadata id= " + messageID + " new destination = " + newDestination);
         }
@@ -318,6 +336,9 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
     public void updateMetadata(boolean isCompressedMessage) {
         this.metadata = createNewMetadata(this.metadata, isCompressedMessage);
         this.isCompressed = isCompressedMessage;
+        if (null != metadataView) {
+            metadataView = new AMQPMetadataView(metadata);
+        }
         if (log.isDebugEnabled()) {
             log.debug("updated andes message metadata id = " + messageID + ", compression state of the message is " +
                     isCompressedMessage);
@@ -333,11 +354,16 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
     }
 
     private void parseMetaData() {
+        MessageMetaDataType type = MessageMetaDataType.values()[metadata[0]];
+        metaDataType = type;
+        if (type.equals(MessageMetaDataType.META_DATA_0_8)) {
+            parseAMQPMetadata();
+            return;
+        }
+
         ByteBuffer buf = ByteBuffer.wrap(metadata);
         buf.position(1);
         buf = buf.slice();
-        MessageMetaDataType type = MessageMetaDataType.values()[metadata[0]];
-        metaDataType = type;
         StorableMessageMetaData mdt = type.getFactory()
                 .createMetaData(buf);
         //todo need to discuss on making the flow more generic
@@ -366,6 +392,21 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
 
     }
 
+    /**
+     * Read the fields of AMQP 0-8/0-9-1 metadata straight from the stored bytes, without decoding the content header.
+     * Destination and message router name are decoded when they are first read.
+     */
+    private void parseAMQPMetadata() {
+        AMQPMetadataView view = new AMQPMetadataView(metadata);
+        this.isPersistent = view.isPersistent();
+        this.expirationTime = view.getExpiration();
+        this.arrivalTime = view.getArrivalTime();
+        this.messageContentLength = view.getContentSize();
+        this.isTopic = view.isPublishedTo(AMQPUtils.TOPIC_EXCHANGE_NAME);
+        this.isCompressed = view.isCompressed();
+        this.metadataView = view;
+    }
+
     /**
      * Create a copy of updated metadata, for durable topic subscriptions
      *
@@ -375,6 +416,11 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
      * @return copy of the metadata as a byte array
      */
     private byte[] createNewMetadata(byte[] originalMetadata, String routingKey, String exchangeName) {
+        if (AMQPMetadataView.isAMQPMetadata(originalMetadata)) {
+            metaDataType = MessageMetaDataType.META_DATA_0_8;
+            return new AMQPMetadataView(originalMetadata).withRoutingKeyAndExchange(routingKey, exchangeName);
+        }
+
         ByteBuffer buf = ByteBuffer.wrap(originalMetadata);
         buf.position(1);
         buf = buf.slice();
@@ -401,6 +447,11 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
      * @return copy of the metadata as a byte array
      */
     private byte[] createNewMetadata(byte[] originalMetadata, boolean isCompressed) {
+        if (AMQPMetadataView.isAMQPMetadata(originalMetadata)) {
+            metaDataType = MessageMetaDataType.META_DATA_0_8;
+            return new AMQPMetadataView(originalMetadata).withCompressed(isCompressed);
+        }
+
         ByteBuffer buf = ByteBuffer.wrap(originalMetadata);
         buf.position(1);
         buf = buf.slice();
@@ -34,7 +34,8 @@ public interface ClusterNotificationListener {
         Binding,
         Queue,
         Subscription,
-        DBUpdate
+        DBUpdate,
+        SlotAvailability
     }
 
     /**
@@ -67,7 +68,13 @@ public interface ClusterNotificationListener {
      */
     enum SubscriptionChange {
         Added,
-        Closed
+        Closed,
+
+        /**
+         * Several subscription changes sent as a
+         * {@link org.wso2.andes.server.cluster.coordination.SubscriptionNotificationBatch}
+         */
+        Batch
     }
 
     /**
@@ -18,16 +18,18 @@
 
 package org.wso2.andes.kernel;
 
-import com.gs.collections.impl.map.mutable.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.slot.Slot;
-import org.wso2.andes.kernel.subscription.*;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.tools.utils.MessageTracer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,39 +38,96 @@ import java.util.UUID;
 /**
  * This class represents the message metadata and all the delivery aspects of it to the subscribers (outbound path).
  * The lifecycle of the message is maintained here itself.
+ * <p>
+ * A metadata object is kept for every in-flight message, hence the delivery state is kept compact. Message status is
+ * packed into a single state word and the status and delivery count of each channel is packed into an int. The full
+ * status history is only kept while message tracing is enabled.
  */
 public class DeliverableAndesMetadata extends AndesMessageMetadata {
 
     /**
-     * Map to keep message status and delivery information of this message to vivid channels
+     * Bits of the state word marking the statuses the message went through, indexed by status ordinal
      */
-    private Map<UUID, ChannelInformation> channelDeliveryInfo;
+    private static final int VISITED_STATUSES_MASK = 0xFFFF;
+
     /**
-     * State transition of the message
+     * Offset of the latest status ordinal in the state word
      */
-    private List<MessageStatus> messageStatus;
+    private static final int LATEST_STATUS_SHIFT = 16;
+
+    private static final int LATEST_STATUS_MASK = 0xFF;
+
     /**
-     * Parent slot of message.
+     * State word flag set if the message is stale
      */
-    private Slot slot;
+    private static final int STALE_FLAG = 1 << 24;
 
     /**
-     * Time stamp message is read from the store
+     * State word flag set if the message is beyond the last rollbacked message
      */
-    private long timeMessageIsRead;
+    private static final int BEYOND_LAST_ROLLBACK_FLAG = 1 << 25;
+
+    /**
+     * Number of low bits of a channel state holding the channel status. Remaining bits hold the delivery count.
+     */
+    private static final int CHANNEL_STATUS_BITS = 4;
+
+    private static final int CHANNEL_STATUS_MASK = (1 << CHANNEL_STATUS_BITS) - 1;
+
+    /**
+     * Value added to a channel state to increment the delivery count
+     */
+    private static final int ONE_DELIVERY = 1 << CHANNEL_STATUS_BITS;
+
+    /**
+     * Number of channel slots allocated when the message is first scheduled
+     */
+    private static final int INITIAL_CHANNEL_CAPACITY = 1;
+
+    private static final MessageStatus[] MESSAGE_STATUSES = MessageStatus.values();
+
+    private static final ChannelMessageStatus[] CHANNEL_MESSAGE_STATUSES = ChannelMessageStatus.values();
+
+    /**
+     * Statuses the message went through, latest status of the message and the stale and beyond last rollback
+     * flags packed into a single word. Written while holding the lock of this object.
+     */
+    private volatile int state;
+
+    /**
+     * IDs of the channels the message is scheduled to, sorted in the first channelCount entries
+     */
+    private UUID[] channelIDs;
+
+    /**
+     * Latest status (ordinal + 1, 0 if no status) and delivery count of the channel at the same index of channelIDs
+     */
+    private int[] channelStates;
+
+    /**
+     * Number of channels the message is scheduled to
+     */
+    private int channelCount;
+
+    /**
+     * State transition of the message. Only kept while message tracing is enabled, null otherwise.
+     */
+    private List<MessageStatus> statusHistory;
+
+    /**
+     * State transition of the message for each channel. Only kept while message tracing is enabled, null otherwise.
+     */
+    private Map<UUID, List<ChannelMessageStatus>> channelStatusHistory;
 
     /**
-     * In a session-transacted consumer scenario, a rollback will reject even the messages beyond the rollback point,
-     * since they have been pre-fetched from the server to the client buffer. This property marks such messages.
-     * Attempt to re-send a message beyond a rollback point should not be added to the deliveryAttempts. (Since such
-     * messages have not yet been visible to the consumer through the client.)
+     * Parent slot of message.
      */
-    private boolean isBeyondLastRollbackedMessage;
+    private Slot slot;
 
     /**
-     * Indicate if the metadata should not be used.
+     * Time stamp message is read from the store
      */
-    private boolean stale;
+    private long timeMessageIsRead;
 
     private static Log log = LogFactory.getLog(DeliverableAndesMetadata.class);
 
@@ -76,9 +135,12 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
         super(messageID, metadata, parse);
         this.slot = slot;
         this.timeMessageIsRead = System.currentTimeMillis();
-        this.channelDeliveryInfo = new ConcurrentHashMap<>();
-        this.messageStatus = Collections.synchronizedList(new ArrayList<MessageStatus>());
-        this.messageStatus.add(MessageStatus.READ);
+        this.state = withStatus(0, MessageStatus.READ);
+        if (MessageTracer.isEnabled()) {
+            statusHistory = new ArrayList<>();
+            statusHistory.add(MessageStatus.READ);
+            channelStatusHistory = new HashMap<>();
+        }
     }
 
     /**
@@ -126,16 +188,17 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
     }
 
     /**
-     * Get Message Status this message passed as a string
+     * Get Message Status this message passed as a string. Only the latest status is available unless message
+     * tracing is enabled.
      *
      * @return encoded status history
      */
     public String getStatusHistoryAsString() {
-        String history = "";
-        for (MessageStatus status : messageStatus) {
-            history = history + status + ">>";
+        StringBuilder history = new StringBuilder();
+        for (MessageStatus status : getStatusHistory()) {
+            history.append(status).append(">>");
         }
-        return history;
+        return history.toString();
     }
 
     /**
@@ -145,24 +208,22 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      */
     public String getMessageStatusWithAllChannelStatus() {
         String messageStatusHistory = getStatusHistoryAsString();
-        String deliveries = "";
-        for (UUID channelID : getAllDeliveredChannels()) {
-            deliveries = deliveries + channelID + " : " + channelDeliveryInfo.get(channelID)
-                    .getMessageStatusHistoryForChannelAsString() + " | ";
-        }
-
-        String completeInfo = "[" + messageStatusHistory + "]" + deliveries;
+        String completeInfo = "[" + messageStatusHistory + "]" + getChannelStatusesAsString();
         return completeInfo;
 
     }
 
     /**
-     * Get message status this message went through as a list
+     * Get message status this message went through as a list. Only the latest status is available unless message
+     * tracing is enabled.
      *
      * @return list of MessageStatus
      */
-    public List<MessageStatus> getStatusHistory() {
-        return messageStatus;
+    public synchronized List<MessageStatus> getStatusHistory() {
+        if (null != statusHistory) {
+            return new ArrayList<>(statusHistory);
+        }
+        return Collections.singletonList(getLatestState());
     }
 
     /**
@@ -171,11 +232,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return message status
      */
     public MessageStatus getLatestState() {
-        MessageStatus latest = null;
-        if (messageStatus.size() > 0) {
-            latest = messageStatus.get(messageStatus.size() - 1);
-        }
-        return latest;
+        return getLatestStatus(state);
     }
 
     /**
@@ -185,9 +242,9 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID ID of the channel to deliver
      * @return if message is a redelivery
      */
-    public boolean isRedelivered(UUID channelID) {
-        Integer numOfDeliveries = channelDeliveryInfo.get(channelID).getDeliveryCount();
-        return numOfDeliveries > 0;
+    public synchronized boolean isRedelivered(UUID channelID) {
+        int index = indexOfChannel(channelID);
+        return index >= 0 && getDeliveryCount(channelStates[index]) > 0;
     }
 
     /**
@@ -196,8 +253,11 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param channelID ID of the subscriber channel delivery should be rollback
      */
-    public void rollbackDelivery(UUID channelID) {
-        channelDeliveryInfo.get(channelID).decrementDeliveryCount();
+    public synchronized void rollbackDelivery(UUID channelID) {
+        int index = getChannelIndex(channelID);
+        if (index >= 0) {
+            channelStates[index] = channelStates[index] - ONE_DELIVERY;
+        }
     }
 
     /**
@@ -213,14 +273,9 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param localSubscriptions local subscriptions to deliver. AMQP/MQTT subscribers have individual
      *                           delivery channels
      */
-    public void markAsScheduledToDeliver(Collection<AndesSubscription> localSubscriptions) {
+    public synchronized void markAsScheduledToDeliver(Collection<AndesSubscription> localSubscriptions) {
         for (AndesSubscription subscription : localSubscriptions) {
-            UUID subscriptionChannelID = subscription.getSubscriberConnection().getProtocolChannelID();
-            ChannelInformation channelInformation = channelDeliveryInfo.get(subscriptionChannelID);
-            if (null == channelInformation) {
-                channelInformation = new ChannelInformation();
-                channelDeliveryInfo.put(subscriptionChannelID, channelInformation);
-            }
+            addChannel(subscription.getSubscriberConnection().getProtocolChannelID());
         }
         addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
     }
@@ -230,13 +285,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param subscription subscription to deliver message
      */
-    public void markAsScheduledToDeliver(AndesSubscription subscription) {
-        UUID subscriptionChannelID = subscription.getSubscriberConnection().getProtocolChannelID();
-        ChannelInformation channelInformation = channelDeliveryInfo.get(subscriptionChannelID);
-        if (null == channelInformation) {
-            channelInformation = new ChannelInformation();
-            channelDeliveryInfo.put(subscriptionChannelID, channelInformation);
-        }
+    public synchronized void markAsScheduledToDeliver(AndesSubscription subscription) {
+        addChannel(subscription.getSubscriberConnection().getProtocolChannelID());
         addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
     }
 
@@ -246,12 +296,15 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param channelID ID of the channel
      */
-    public void markAsDispatchedToDeliver(UUID channelID) {
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.DISPATCHED);
+    public synchronized void markAsDispatchedToDeliver(UUID channelID) {
+        int index = getChannelIndex(channelID);
+        if (index < 0) {
+            return;
+        }
+        addChannelStatus(index, ChannelMessageStatus.DISPATCHED);
 
-        if (!this.isBeyondLastRollbackedMessage) {
-            channelInformation.incrementDeliveryCount();
+        if ((state & BEYOND_LAST_ROLLBACK_FLAG) == 0) {
+            channelStates[index] = channelStates[index] + ONE_DELIVERY;
         } else {
             // No need to increase deliveryCount if this message is beyond the last rollback.
             MessageTracer.trace(getMessageID(), getDestination(), MessageTracer.MESSAGE_BEYOND_LAST_ROLLBACK);
@@ -264,11 +317,12 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID Id of the channel
      * @return if acknowledges by all the channels are received
      */
-    public boolean markAsAcknowledgedByChannel(UUID channelID) {
+    public synchronized boolean markAsAcknowledgedByChannel(UUID channelID) {
         boolean isAcknowledgedByAll = false;
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.ACKED);
-        channelDeliveryInfo.put(channelID, channelInformation);
+        int index = getChannelIndex(channelID);
+        if (index >= 0) {
+            addChannelStatus(index, ChannelMessageStatus.ACKED);
+        }
 
         if (isMarkAsAcked()) {
             addMessageStatus(MessageStatus.ACKED_BY_ALL);
@@ -283,8 +337,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID ID of the channel
      */
     public void markAsNackedByClient(UUID channelID) {
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.NACKED);
+        addChannelStatus(channelID, ChannelMessageStatus.NACKED);
     }
 
     /**
@@ -293,8 +346,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID ID of the channel
      */
     public void markAsRecoveredByClient(UUID channelID) {
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.RECOVERED);
+        addChannelStatus(channelID, ChannelMessageStatus.RECOVERED);
     }
 
     /**
@@ -304,8 +356,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID ID of the channel
      */
     public void markAsRejectedByClient(UUID channelID) {
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.CLIENT_REJECTED);
+        addChannelStatus(channelID, ChannelMessageStatus.CLIENT_REJECTED);
     }
 
     /**
@@ -351,7 +402,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return true if conditions are met
      */
     public boolean isOKToDispose() {
-        return MessageStatus.isOKToRemove(messageStatus);
+        int currentState = state;
+        return MessageStatus.isOKToRemove(currentState & VISITED_STATUSES_MASK, getLatestStatus(currentState));
     }
 
     /**
@@ -382,11 +434,11 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return true if message is stale
      */
     public boolean isStale() {
-        return stale;
+        return (state & STALE_FLAG) != 0;
     }
 
-    public void markAsStale() {
-        stale = true;
+    public synchronized void markAsStale() {
+        state = state | STALE_FLAG;
     }
 
     /**
@@ -413,10 +465,14 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID id of the channel
      * @return current number of times this message is delivered to the given channel
      */
-    public int markDeliveryFailureOfASentMessage(UUID channelID) {
-        channelDeliveryInfo.get(channelID).
-                addChannelStatus(ChannelMessageStatus.SEND_FAILED);
-        return channelDeliveryInfo.get(channelID).decrementDeliveryCount();
+    public synchronized int markDeliveryFailureOfASentMessage(UUID channelID) {
+        int index = getChannelIndex(channelID);
+        if (index < 0) {
+            return 0;
+        }
+        addChannelStatus(index, ChannelMessageStatus.SEND_FAILED);
+        channelStates[index] = channelStates[index] - ONE_DELIVERY;
+        return getDeliveryCount(channelStates[index]);
     }
 
     /**
@@ -429,8 +485,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID id of the channel message is sent
      */
     public void markDeliveryFailureByProtocol(UUID channelID) {
-        channelDeliveryInfo.get(channelID).
-                addChannelStatus(ChannelMessageStatus.SEND_FAILED);
+        addChannelStatus(channelID, ChannelMessageStatus.SEND_FAILED);
     }
 
     /**
@@ -438,7 +493,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * this evaluation should be performed and subsequently try to delete the message
      * if ACKED_BY_ALL evaluation returned success
      */
-    public void evaluateMessageAcknowledgement() {
+    public synchronized void evaluateMessageAcknowledgement() {
         if (isMarkAsAcked()) {
             addMessageStatus(MessageStatus.ACKED_BY_ALL);
         }
@@ -451,8 +506,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID ID of the channel
      */
     public void markDeliveredChannelAsClosed(UUID channelID) {
-        channelDeliveryInfo.get(channelID).
-                addChannelStatus(ChannelMessageStatus.CLOSED);
+        addChannelStatus(channelID, ChannelMessageStatus.CLOSED);
     }
 
     /**
@@ -460,8 +514,12 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @return Set of channel IDs
      */
-    public Set<UUID> getAllDeliveredChannels() {
-        return channelDeliveryInfo.keySet();
+    public synchronized Set<UUID> getAllDeliveredChannels() {
+        Set<UUID> deliveredChannels = new HashSet<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            deliveredChannels.add(channelIDs[i]);
+        }
+        return deliveredChannels;
     }
 
     /**
@@ -470,36 +528,32 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return true if message is acknowledged by all the channels
      */
     private boolean isMarkAsAcked() {
-        boolean isAcked = true;
-        for (Map.Entry<UUID, ChannelInformation> channelInfoEntry : channelDeliveryInfo.entrySet()) {
-            ChannelMessageStatus messageStatus = channelInfoEntry.getValue().getLatestMessageStatus();
+        if (channelCount == 0) {
+            return false;
+        }
+        for (int i = 0; i < channelCount; i++) {
+            ChannelMessageStatus messageStatus = getChannelStatus(channelStates[i]);
 
             if (null == messageStatus) {
-                isAcked = false;
-                break;
-            } else {
-                //if channel is closed ignore it from considering
-                if (messageStatus.equals(ChannelMessageStatus.CLOSED)) {
-                    continue;
-                }
-                //if message is rejected by client repeatedly ignore it from considering
-                if (messageStatus.equals(ChannelMessageStatus.CLIENT_REJECTED)) {
-                    continue;
-                }
-                //the message could be recovered by one client and acknowledged by another, hence needs to be ignored
-                if (messageStatus.equals(ChannelMessageStatus.RECOVERED)) {
-                    continue;
-                }
-                if (!messageStatus.equals(ChannelMessageStatus.ACKED)) {
-                    isAcked = false;
-                    break;
-                }
+                return false;
+            }
+            //if channel is closed ignore it from considering
+            if (messageStatus.equals(ChannelMessageStatus.CLOSED)) {
+                continue;
+            }
+            //if message is rejected by client repeatedly ignore it from considering
+            if (messageStatus.equals(ChannelMessageStatus.CLIENT_REJECTED)) {
+                continue;
+            }
+            //the message could be recovered by one client and acknowledged by another, hence needs to be ignored
+            if (messageStatus.equals(ChannelMessageStatus.RECOVERED)) {
+                continue;
+            }
+            if (!messageStatus.equals(ChannelMessageStatus.ACKED)) {
+                return false;
             }
         }
-        if (channelDeliveryInfo.isEmpty()) {
-            isAcked = false;
-        }
-        return isAcked;
+        return true;
     }
 
     /**
@@ -508,13 +562,14 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID Id of the channel
      * @return number of deliveries
      */
-    public int getNumOfDeliveries4Channel(UUID channelID) {
+    public synchronized int getNumOfDeliveries4Channel(UUID channelID) {
          /* Since sometimes Broker tries to send stored messages when it initialised a subscription
             so then it returns null value for that subscription's channel's amount of deliveries,
             Since we need to the evaluate the rules before we send message, therefore we have to ignore the null value,
             then we have to check the number of deliveries for the particular channel */
-        if (null != channelDeliveryInfo.get(channelID)) {
-            return channelDeliveryInfo.get(channelID).getDeliveryCount();
+        int index = indexOfChannel(channelID);
+        if (index >= 0) {
+            return getDeliveryCount(channelStates[index]);
         } else {
             return 0;
         }
@@ -524,45 +579,26 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * Check if state going to be added is valid considering it as the next
      * transition compared to current latest state.
      *
-     * @param state state to be transferred
+     * @param status state to be transferred
      */
-    public boolean addMessageStatus(MessageStatus state) {
-
-        boolean isValidTransition = false;
+    public synchronized boolean addMessageStatus(MessageStatus status) {
 
-        if (messageStatus.isEmpty()) {
-            if (MessageStatus.READ.equals(state)) {
-                isValidTransition = true;
-                messageStatus.add(state);
-            } else {
-                log.warn(
-                        "Invalid message state transition suggested: " + state + " Message ID: " + messageID + "slot = "
-                                + slot.getId());
+        MessageStatus latestStatus = getLatestState();
+        boolean isValidTransition = latestStatus.isValidNextTransition(status);
+        if (isValidTransition) {
+            state = withStatus(state, status);
+            if (null != statusHistory) {
+                statusHistory.add(status);
             }
         } else {
-            isValidTransition = messageStatus.get(messageStatus.size() - 1).isValidNextTransition(state);
-            if (isValidTransition) {
-                messageStatus.add(state);
-            } else {
-                log.warn("Invalid message state transition from " + messageStatus.get(messageStatus.size() - 1)
-                        + " suggested: " + state + " Message ID: " + messageID + " slot = " + slot.getId()
-                        + " Message Status History >> " + messageStatus);
-            }
+            log.warn("Invalid message state transition from " + latestStatus
+                    + " suggested: " + status + " Message ID: " + messageID + " slot = " + getSlotId()
+                    + " Message Status History >> " + getStatusHistory());
         }
 
         return isValidTransition;
     }
 
-    /**
-     * Check if state going to be added is valid considering it as the next transition compared
-     * to current latest state. This status is for individual delivery channels
-     * @param channelID ID of the channel to record status
-     * @param status state to be transferred
-     */
-/*    public boolean addMessageStatusForChannel(UUID channelID, MessageStatus status) {
-         return channelDeliveryInfo.get(channelID).addChannelStatus(status);
-    }*/
-
     /**
      * Get message status history as a string.
      *
@@ -594,103 +630,172 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
         information.append(Long.toString(expirationTime));
         information.append(',');
         information.append("Channels sent ");
-        String deliveries = "";
-        for (UUID channelID : getAllDeliveredChannels()) {
-            deliveries = deliveries + channelID + " : " + channelDeliveryInfo.get(channelID)
-                    .getMessageStatusHistoryForChannelAsString() + " | ";
-        }
-        information.append(deliveries);
+        information.append(getChannelStatusesAsString());
         information.append('\n');
 
         return information.toString();
     }
 
     /**
-     * Inner class to hold Message status channel-wise
+     * Set beyondLastRollbackedMessage
+     *
+     * @param beyondLastRollbackedMessage true if this message is beyond the last rollbacked message.
      */
-    private class ChannelInformation {
-
-        private Integer channelToNumOfDeliveries = 0;
-        private List<ChannelMessageStatus> messageStatusesForChannel = new ArrayList<>(5);
-
-        private int incrementDeliveryCount() {
-            channelToNumOfDeliveries = channelToNumOfDeliveries + 1;
-            return channelToNumOfDeliveries;
-        }
-
-        private int decrementDeliveryCount() {
-            channelToNumOfDeliveries = channelToNumOfDeliveries - 1;
-            return channelToNumOfDeliveries;
+    public synchronized void setIsBeyondLastRollbackedMessage(boolean beyondLastRollbackedMessage) {
+        if (log.isDebugEnabled()) {
+            log.debug("setIsBeyondLastRollbackedMessage : " + beyondLastRollbackedMessage);
         }
-
-        private int getDeliveryCount() {
-            return channelToNumOfDeliveries;
+        if (beyondLastRollbackedMessage) {
+            state = state | BEYOND_LAST_ROLLBACK_FLAG;
+        } else {
+            state = state & ~BEYOND_LAST_ROLLBACK_FLAG;
         }
+    }
 
-        /**
-         * Check if state going to be added is valid considering it as the next transition compared
-         * to current latest state. This status is for individual delivery channels
-         *
-         * @param state state to be transferred
-         */
-        private boolean addChannelStatus(ChannelMessageStatus state) {
-
-            boolean isValidTransition = false;
-
-            if (messageStatusesForChannel.isEmpty()) {
-                if (ChannelMessageStatus.DISPATCHED.equals(state)) {
-                    isValidTransition = true;
-                    messageStatusesForChannel.add(state);
-                } else {
-                    log.warn(
-                            "Invalid channel message state transition suggested: " + state + " Message ID: " + messageID
-                                    + " Slot = " + slot.getId() + " Message Status History >> " + messageStatus);
-                }
-            } else {
-                isValidTransition = messageStatusesForChannel.
-                        get(messageStatusesForChannel.size() - 1).isValidNextTransition(state);
-
-                if (isValidTransition) {
-                    messageStatusesForChannel.add(state);
-                } else {
-                    log.warn("Invalid channel message state transition from " + messageStatusesForChannel
-                            .get(messageStatusesForChannel.size() - 1) + " suggested: " + state + " Message ID: "
-                            + messageID + " Slot = " + slot.getId() + " Channel Status History >> "
-                            + messageStatusesForChannel);
+    /**
+     * Get status history of each channel as a string. Only the latest status of a channel is available unless
+     * message tracing is enabled.
+     *
+     * @return channel ID and status history of each channel
+     */
+    private synchronized String getChannelStatusesAsString() {
+        StringBuilder deliveries = new StringBuilder();
+        for (int i = 0; i < channelCount; i++) {
+            deliveries.append(channelIDs[i]).append(" : ");
+            if (null != channelStatusHistory) {
+                for (ChannelMessageStatus channelMessageStatus : channelStatusHistory.get(channelIDs[i])) {
+                    deliveries.append(channelMessageStatus).append(">>");
                 }
+            } else if (null != getChannelStatus(channelStates[i])) {
+                deliveries.append(getChannelStatus(channelStates[i])).append(">>");
             }
+            deliveries.append(" | ");
+        }
+        return deliveries.toString();
+    }
 
-            return isValidTransition;
+    /**
+     * Start tracking delivery of the message to a channel, if it is not tracked already
+     *
+     * @param channelID ID of the channel
+     */
+    private void addChannel(UUID channelID) {
+        int index = indexOfChannel(channelID);
+        if (index >= 0) {
+            return;
+        }
+        int insertionPoint = -(index + 1);
+        if (null == channelIDs) {
+            channelIDs = new UUID[INITIAL_CHANNEL_CAPACITY];
+            channelStates = new int[INITIAL_CHANNEL_CAPACITY];
+        } else if (channelCount == channelIDs.length) {
+            channelIDs = Arrays.copyOf(channelIDs, channelCount * 2);
+            channelStates = Arrays.copyOf(channelStates, channelCount * 2);
+        }
+        System.arraycopy(channelIDs, insertionPoint, channelIDs, insertionPoint + 1, channelCount - insertionPoint);
+        System.arraycopy(channelStates, insertionPoint, channelStates, insertionPoint + 1,
+                channelCount - insertionPoint);
+        channelIDs[insertionPoint] = channelID;
+        channelStates[insertionPoint] = 0;
+        channelCount++;
+
+        if (null != channelStatusHistory) {
+            channelStatusHistory.put(channelID, new ArrayList<ChannelMessageStatus>(5));
         }
+    }
 
-        private ChannelMessageStatus getLatestMessageStatus() {
-            if (!messageStatusesForChannel.isEmpty()) {
-                return messageStatusesForChannel.get(messageStatusesForChannel.size() - 1);
-            } else {
-                return null;
-            }
+    /**
+     * Find the index of a channel. Channel IDs are kept sorted so that lookups stay cheap when a topic message is
+     * delivered to many subscribers.
+     *
+     * @param channelID ID of the channel
+     * @return index of the channel if tracked, (-(insertion point) - 1) otherwise
+     */
+    private int indexOfChannel(UUID channelID) {
+        if (channelCount == 0) {
+            return -1;
         }
+        return Arrays.binarySearch(channelIDs, 0, channelCount, channelID);
+    }
 
-        private String getMessageStatusHistoryForChannelAsString() {
-            StringBuilder channelInfo = new StringBuilder();
-            for (ChannelMessageStatus channelMessageStatus : messageStatusesForChannel) {
-                channelInfo.append(channelMessageStatus).append(">>");
-            }
-            return channelInfo.toString();
+    /**
+     * Find the index of a channel the message is expected to be scheduled to
+     *
+     * @param channelID ID of the channel
+     * @return index of the channel, -1 if the message is not scheduled to the channel
+     */
+    private int getChannelIndex(UUID channelID) {
+        int index = indexOfChannel(channelID);
+        if (index < 0) {
+            log.warn("Message ID: " + messageID + " is not scheduled to channel " + channelID + " slot = "
+                    + getSlotId());
+            return -1;
         }
+        return index;
+    }
 
+    private synchronized boolean addChannelStatus(UUID channelID, ChannelMessageStatus status) {
+        int index = getChannelIndex(channelID);
+        return index >= 0 && addChannelStatus(index, status);
     }
 
     /**
-     * Set beyondLastRollbackedMessage
+     * Check if state going to be added is valid considering it as the next transition compared
+     * to current latest state. This status is for individual delivery channels
      *
-     * @param beyondLastRollbackedMessage true if this message is beyond the last rollbacked message.
+     * @param index  index of the channel
+     * @param status state to be transferred
      */
-    public void setIsBeyondLastRollbackedMessage(boolean beyondLastRollbackedMessage) {
-        if (log.isDebugEnabled()) {
-            log.debug("setIsBeyondLastRollbackedMessage : " + beyondLastRollbackedMessage);
+    private boolean addChannelStatus(int index, ChannelMessageStatus status) {
+
+        boolean isValidTransition;
+        ChannelMessageStatus latestStatus = getChannelStatus(channelStates[index]);
+
+        if (null == latestStatus) {
+            isValidTransition = ChannelMessageStatus.DISPATCHED.equals(status);
+            if (!isValidTransition) {
+                log.warn("Invalid channel message state transition suggested: " + status + " Message ID: "
+                        + messageID + " Slot = " + getSlotId() + " Message Status History >> " + getStatusHistory());
+            }
+        } else {
+            isValidTransition = latestStatus.isValidNextTransition(status);
+            if (!isValidTransition) {
+                log.warn("Invalid channel message state transition from " + latestStatus + " suggested: " + status
+                        + " Message ID: " + messageID + " Slot = " + getSlotId() + " Channel Status History >> "
+                        + (null != channelStatusHistory ? channelStatusHistory.get(channelIDs[index]) : latestStatus));
+            }
         }
-        isBeyondLastRollbackedMessage = beyondLastRollbackedMessage;
+
+        if (isValidTransition) {
+            channelStates[index] = (channelStates[index] & ~CHANNEL_STATUS_MASK) | (status.ordinal() + 1);
+            if (null != channelStatusHistory) {
+                channelStatusHistory.get(channelIDs[index]).add(status);
+            }
+        }
+        return isValidTransition;
+    }
+
+    private String getSlotId() {
+        return null != slot ? slot.getId() : null;
+    }
+
+    private static int withStatus(int currentState, MessageStatus status) {
+        return (currentState & ~(LATEST_STATUS_MASK << LATEST_STATUS_SHIFT))
+                | (status.ordinal() << LATEST_STATUS_SHIFT)
+                | (1 << status.ordinal());
+    }
+
+    private static MessageStatus getLatestStatus(int currentState) {
+        return MESSAGE_STATUSES[(currentState >>> LATEST_STATUS_SHIFT) & LATEST_STATUS_MASK];
+    }
+
+    private static ChannelMessageStatus getChannelStatus(int channelState) {
+        int statusValue = channelState & CHANNEL_STATUS_MASK;
+        return statusValue == 0 ? null : CHANNEL_MESSAGE_STATUSES[statusValue - 1];
+    }
+
+    private static int getDeliveryCount(int channelState) {
+        return channelState >> CHANNEL_STATUS_BITS;
     }
 
 }
@@ -89,4 +89,12 @@ public interface DtxStore extends HealthAwareStore {
      * @throws AndesException throws {@link AndesException} on store related error
      */
     Set<XidImpl> getStoredXidSet(String nodeId) throws AndesException;
+
+    /**
+     * Check whether transaction branches can be prepared. If not, distributed transactions are rejected when they
+     * are started rather than failing at the prepare stage.
+     *
+     * @return true if {@link #storeDtxRecords(Xid, List, List)} is supported
+     */
+    boolean isPrepareSupported();
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.tools.utils.MessageTracer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Expiry message deletion task driven by a {@link MessageExpiryIndex}. The task runs once per tick of the index and
+ * deletes the messages whose expiry time has passed, instead of querying the store for each queue. Like the periodic
+ * task, only messages in the safe deletion region of a queue are deleted.
+ * <p/>
+ * The index is fed with the messages written through this node, and messages deleted through this node are removed
+ * from it. Once per reload interval the index is rebuilt from the messages expiring within the next two reload
+ * intervals in the store. This covers messages written before the node started, and messages written or deleted
+ * through other nodes, which are therefore only seen by the index at the next reload.
+ */
+class IndexedExpiryMessageDeletionTask extends PeriodicExpiryMessageDeletionTask {
+
+    private static Log log = LogFactory.getLog(IndexedExpiryMessageDeletionTask.class);
+    private static Log expiryLog = LogFactory.getLog("MessageExpirationTask");
+
+    /**
+     * Index of messages expiring in the near future
+     */
+    private final MessageExpiryIndex expiryIndex;
+
+    /**
+     * Interval between reloading the index from the store in milliseconds
+     */
+    private final long reloadInterval;
+
+    /**
+     * Maximum number of messages deleted in one store operation
+     */
+    private final int deletionBatchSize;
+
+    /**
+     * Time at which the index should next be reloaded from the store
+     */
+    private long nextReloadTime;
+
+    /**
+     * Indicate whether this node was deleting expired messages during the previous run. The index is reloaded
+     * immediately when a node starts deleting, for example after becoming the coordinator.
+     */
+    private boolean wasDeletingNode;
+
+    /**
+     * Create a deletion task fed by the given expiry index
+     *
+     * @param expiryIndex       index of messages expiring in the near future
+     * @param reloadInterval    interval between reloading the index from the store in milliseconds
+     * @param deletionBatchSize maximum number of messages deleted in one store operation
+     */
+    IndexedExpiryMessageDeletionTask(MessageExpiryIndex expiryIndex, long reloadInterval, int deletionBatchSize) {
+        super();
+        this.expiryIndex = expiryIndex;
+        this.reloadInterval = reloadInterval;
+        this.deletionBatchSize = deletionBatchSize;
+    }
+
+    @Override
+    public void run() {
+        try {
+            long currentTime = System.currentTimeMillis();
+            boolean isDeletingNode = !isClusteringEnabled
+                    || AndesContext.getInstance().getClusterAgent().isCoordinator();
+
+            if (isDeletingNode && (!wasDeletingNode || currentTime >= nextReloadTime)) {
+                nextReloadTime = currentTime + reloadInterval;
+                deleteExpiredMessagesFromDLC();
+                reloadIndex(currentTime);
+            }
+            wasDeletingNode = isDeletingNode;
+
+            // Expired messages are drained on every node so that the index does not grow on nodes which are not
+            // deleting. Those are read from the store again by the node which becomes the coordinator.
+            Map<String, List<Long>> expiredMessages = expiryIndex.pollExpired(currentTime);
+            if (isDeletingNode && !expiredMessages.isEmpty()) {
+                deleteExpiredMessages(expiredMessages);
+            }
+        } catch (AndesException e) {
+            log.error("Error running Message Expiration Checker " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            log.error("Thread interrupted while waiting for message stores to come online", e);
+        } catch (ExecutionException e) {
+            log.error("Error occurred while waiting for message stores to come online", e);
+        } catch (Throwable e) {
+            log.error("Error occurred during the indexed expiry message deletion task", e);
+        }
+    }
+
+    /**
+     * Rebuild the index from the messages expiring within the next two reload intervals in the store. The index is
+     * cleared so that messages deleted through other nodes are dropped. The horizon is moved and the index cleared
+     * before reading, so that messages written concurrently are either indexed by the message writers or read from
+     * the store.
+     *
+     * @param currentTime current time
+     */
+    private void reloadIndex(long currentTime) throws AndesException, InterruptedException, ExecutionException {
+        long horizon = currentTime + 2 * reloadInterval;
+        expiryIndex.setHorizon(horizon);
+        awaitMessageStores();
+        expiryIndex.clear();
+        MessagingEngine.getInstance().readExpiryData(horizon, expiryIndex);
+        if (log.isDebugEnabled()) {
+            log.debug("Expiry index reloaded. Indexed message count is " + expiryIndex.size());
+        }
+    }
+
+    /**
+     * Delete the expired messages which are in the safe deletion region of their queue. Messages outside the region
+     * are dropped from the index. They are either deleted when they are about to be delivered, or read again from
+     * the store on the next reload.
+     *
+     * @param expiredMessages ids of the expired messages grouped by their storage queue
+     */
+    private void deleteExpiredMessages(Map<String, List<Long>> expiredMessages)
+            throws AndesException, InterruptedException, ExecutionException {
+        Set<String> queues = abstractSlotManagerSlotManager.getAllQueues();
+        for (Map.Entry<String, List<Long>> entry : expiredMessages.entrySet()) {
+            String queueName = entry.getKey();
+            if (!queues.contains(queueName)) {
+                continue;
+            }
+            long currentDeletionRangeLowerBoundId = abstractSlotManagerSlotManager.getSafeZoneLowerBoundId(queueName);
+            // Lower bound id -1 represents that there is no valid region to perform the delete
+            if (currentDeletionRangeLowerBoundId == -1) {
+                continue;
+            }
+
+            List<Long> messagesToDelete = new ArrayList<>(entry.getValue().size());
+            for (Long messageId : entry.getValue()) {
+                if (messageId >= currentDeletionRangeLowerBoundId) {
+                    messagesToDelete.add(messageId);
+                }
+            }
+
+            for (int from = 0; from < messagesToDelete.size(); from += deletionBatchSize) {
+                List<Long> batch = new ArrayList<>(messagesToDelete.subList(from,
+                        Math.min(from + deletionBatchSize, messagesToDelete.size())));
+                awaitMessageStores();
+                //Tracing message activity
+                if (MessageTracer.isEnabled()) {
+                    for (Long messageId : batch) {
+                        MessageTracer.trace(messageId, "", MessageTracer.EXPIRED_MESSAGE_DETECTED_FROM_DATABASE);
+                    }
+                }
+                //delete message metadata, content from the meta data table, content table and expiry table
+                MessagingEngine.getInstance().deleteMessagesById(batch);
+                if (expiryLog.isWarnEnabled()) {
+                    for (Long expiredMessageId : batch) {
+                        expiryLog.warn("Message is expired. Therefore, it will be deleted. : id= "
+                                + expiredMessageId);
+                    }
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Expired message count for queue : " + queueName + " is " + messagesToDelete.size());
+            }
+            //clear the safe deletion state in the slot manager after deletion completes
+            abstractSlotManagerSlotManager.clearDeletionTaskState();
+        }
+    }
+}
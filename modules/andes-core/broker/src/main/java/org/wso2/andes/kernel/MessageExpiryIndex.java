@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel;
+
+import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of messages ordered by their expiration time, kept in a hierarchical timing wheel. Adding a message
+ * and advancing the clock are constant time operations regardless of the number of indexed messages, which allows
+ * expired messages to be found without querying the message store.
+ * <p/>
+ * Only messages that expire before the horizon of the index are accepted. The horizon is moved forward by the owner
+ * of the index each time the index is reloaded from the message store, so that memory is only spent on messages
+ * that expire in the near future.
+ * <p/>
+ * Messages deleted before they expire are removed lazily. Their ids are dropped right away, while their entries stay
+ * in the wheels until they are due and are then skipped.
+ */
+public class MessageExpiryIndex {
+
+    /**
+     * Time span covered by a bucket of the finest wheel in milliseconds
+     */
+    private final long tickDuration;
+
+    /**
+     * Number of buckets in each wheel
+     */
+    private final int wheelSize;
+
+    /**
+     * Wheels from the finest to the coarsest. Each wheel covers the time span of a single bucket of the next wheel.
+     */
+    private final List<Wheel> wheels;
+
+    /**
+     * Messages that expire within the current tick of the finest wheel, or have already expired
+     */
+    private final List<Entry> dueEntries;
+
+    /**
+     * Ids of the indexed messages. Used to avoid indexing a message twice when it is both written through this node
+     * and read from the message store, and to skip the entries of removed messages.
+     */
+    private final LongHashSet indexedMessageIds;
+
+    /**
+     * Time the wheels were last advanced to
+     */
+    private long currentTime;
+
+    /**
+     * Messages expiring at or after this time are not accepted. Marked as volatile since it is read without locking
+     * by the threads writing messages.
+     */
+    private volatile long horizon;
+
+    /**
+     * Create an expiry index which does not accept any message until a horizon is set
+     *
+     * @param tickDuration time span covered by a bucket of the finest wheel in milliseconds
+     * @param wheelSize    number of buckets in each wheel
+     * @param currentTime  time the index starts from
+     */
+    public MessageExpiryIndex(long tickDuration, int wheelSize, long currentTime) {
+        if (tickDuration < 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("Invalid expiry index tick duration: " + tickDuration
+                    + " or wheel size: " + wheelSize);
+        }
+        this.tickDuration = tickDuration;
+        this.wheelSize = wheelSize;
+        this.currentTime = currentTime;
+        this.horizon = Long.MIN_VALUE;
+        wheels = new ArrayList<>();
+        wheels.add(new Wheel(tickDuration, currentTime));
+        dueEntries = new ArrayList<>();
+        indexedMessageIds = new LongHashSet();
+    }
+
+    /**
+     * Move the horizon of the index forward. The horizon never moves backwards.
+     *
+     * @param horizon messages expiring at or after this time will not be accepted
+     */
+    public synchronized void setHorizon(long horizon) {
+        if (horizon > this.horizon) {
+            this.horizon = horizon;
+        }
+    }
+
+    /**
+     * Get the current horizon of the index
+     *
+     * @return messages expiring at or after this time are not accepted
+     */
+    public long getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Index a message
+     *
+     * @param messageId      id of the message
+     * @param queueName      storage queue of the message
+     * @param expirationTime time the message expires at
+     * @return true if the message was indexed, false if it expires after the horizon or was already indexed
+     */
+    public boolean add(long messageId, String queueName, long expirationTime) {
+        // Checked before locking since most messages are expected to expire beyond the horizon
+        if (expirationTime >= horizon) {
+            return false;
+        }
+        synchronized (this) {
+            if (!indexedMessageIds.add(messageId)) {
+                return false;
+            }
+            place(new Entry(messageId, queueName, expirationTime));
+            return true;
+        }
+    }
+
+    /**
+     * Remove a message deleted before it expired, so that it is not polled as expired
+     *
+     * @param messageId id of the message
+     */
+    public synchronized void remove(long messageId) {
+        indexedMessageIds.remove(messageId);
+    }
+
+    /**
+     * Remove all messages from the index. The horizon and the time of the index are kept.
+     */
+    public synchronized void clear() {
+        for (Wheel wheel : wheels) {
+            wheel.clear();
+        }
+        dueEntries.clear();
+        indexedMessageIds.clear();
+    }
+
+    /**
+     * Advance the index to the given time and remove the messages that have expired by then
+     *
+     * @param time current time
+     * @return ids of the expired messages grouped by their storage queue
+     */
+    public synchronized Map<String, List<Long>> pollExpired(long time) {
+        if (time > currentTime) {
+            List<Entry> cascadedEntries = new ArrayList<>();
+            for (Wheel wheel : wheels) {
+                wheel.advance(time, cascadedEntries);
+            }
+            currentTime = time;
+            for (Entry entry : cascadedEntries) {
+                place(entry);
+            }
+        }
+
+        Map<String, List<Long>> expiredMessages = new HashMap<>();
+        int remainingCount = 0;
+        for (Entry entry : dueEntries) {
+            if (entry.expirationTime < time) {
+                if (!indexedMessageIds.remove(entry.messageId)) {
+                    // Removed before it expired
+                    continue;
+                }
+                List<Long> messageIds = expiredMessages.get(entry.queueName);
+                if (null == messageIds) {
+                    messageIds = new ArrayList<>();
+                    expiredMessages.put(entry.queueName, messageIds);
+                }
+                messageIds.add(entry.messageId);
+            } else {
+                // Compact the entries which are yet to expire to the front of the list
+                dueEntries.set(remainingCount, entry);
+                remainingCount++;
+            }
+        }
+        dueEntries.subList(remainingCount, dueEntries.size()).clear();
+        return expiredMessages;
+    }
+
+    /**
+     * Get the number of indexed messages
+     *
+     * @return number of messages that are yet to be polled
+     */
+    public synchronized int size() {
+        return indexedMessageIds.size();
+    }
+
+    /**
+     * Put an entry in the finest wheel that covers its expiration time. Wheels are added as needed.
+     *
+     * @param entry entry to place
+     */
+    private void place(Entry entry) {
+        if (entry.expirationTime < wheels.get(0).currentTime + tickDuration) {
+            dueEntries.add(entry);
+            return;
+        }
+        int level = 0;
+        while (true) {
+            if (level == wheels.size()) {
+                long bucketDuration = wheels.get(level - 1).interval;
+                wheels.add(new Wheel(bucketDuration, currentTime));
+            }
+            Wheel wheel = wheels.get(level);
+            if (entry.expirationTime < wheel.currentTime + wheel.interval) {
+                wheel.add(entry);
+                return;
+            }
+            level++;
+        }
+    }
+
+    /**
+     * A ring of buckets each covering the same span of time
+     */
+    private final class Wheel {
+
+        /**
+         * Time span covered by a single bucket
+         */
+        private final long bucketDuration;
+
+        /**
+         * Time span covered by all the buckets
+         */
+        private final long interval;
+
+        /**
+         * Start time of the current bucket. Buckets after it hold the entries of this wheel.
+         */
+        private long currentTime;
+
+        /**
+         * Buckets of the wheel. Created lazily.
+         */
+        private final List<List<Entry>> buckets;
+
+        private Wheel(long bucketDuration, long time) {
+            this.bucketDuration = bucketDuration;
+            this.interval = bucketDuration * wheelSize;
+            this.currentTime = time - (time % bucketDuration);
+            buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(null);
+            }
+        }
+
+        private void add(Entry entry) {
+            int index = (int) ((entry.expirationTime / bucketDuration) % wheelSize);
+            List<Entry> bucket = buckets.get(index);
+            if (null == bucket) {
+                bucket = new ArrayList<>();
+                buckets.set(index, bucket);
+            }
+            bucket.add(entry);
+        }
+
+        private void clear() {
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.set(i, null);
+            }
+        }
+
+        /**
+         * Move the current bucket up to the given time, draining every bucket passed over so that the entries can be
+         * placed in a finer wheel
+         *
+         * @param time    time to advance to
+         * @param drained list to add the drained entries to
+         */
+        private void advance(long time, List<Entry> drained) {
+            long targetTime = time - (time % bucketDuration);
+            if (targetTime <= currentTime) {
+                return;
+            }
+            long steps = Math.min((targetTime - currentTime) / bucketDuration, wheelSize);
+            for (long step = 1; step <= steps; step++) {
+                int index = (int) (((currentTime / bucketDuration) + step) % wheelSize);
+                List<Entry> bucket = buckets.get(index);
+                if (null != bucket) {
+                    drained.addAll(bucket);
+                    buckets.set(index, null);
+                }
+            }
+            currentTime = targetTime;
+        }
+    }
+
+    /**
+     * Expiry information of an indexed message
+     */
+    private static final class Entry {
+
+        private final long messageId;
+
+        private final String queueName;
+
+        private final long expirationTime;
+
+        private Entry(long messageId, String queueName, long expirationTime) {
+            this.messageId = messageId;
+            this.queueName = queueName;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
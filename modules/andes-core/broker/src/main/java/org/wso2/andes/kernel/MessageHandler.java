@@ -15,7 +15,6 @@
 
 package org.wso2.andes.kernel;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
@@ -37,11 +36,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 
 /**
  * This class is for message handling operations of a queue. Handling
@@ -75,10 +69,9 @@ public class MessageHandler {
 
     /**
      * In-memory message list scheduled to be delivered. These messages will be flushed
-     * to subscriber.Used Map instead of Set because of https://wso2.org/jira/browse/MB-1624
+     * to subscriber. Messages are keyed by message ID because of https://wso2.org/jira/browse/MB-1624
      */
-    private ConcurrentMap<Long, DeliverableAndesMetadata> readButUndeliveredMessages = new
-            ConcurrentSkipListMap<>();
+    private final MessageReadBuffer readButUndeliveredMessages = new MessageReadBuffer();
 
     /**
      * Map of slots read so far
@@ -97,16 +90,15 @@ public class MessageHandler {
     private Integer maxNumberOfReadButUndeliveredMessages;
 
     /**
-     * Used for asynchronously execute slot reassign task
+     * Used for asynchronously execute slot reassign task. Tasks are executed in order on the shared
+     * {@link QueueTaskScheduler}
      */
-    private final ExecutorService executor;
+    private final QueueTaskScheduler.TaskQueue backgroundTaskQueue;
 
 
     public MessageHandler(String queueName) {
         this.queueName = queueName;
-        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().
-                setNameFormat("AndesReleaseSlotTaskExecutor").build();
-        this.executor = Executors.newSingleThreadExecutor(namedThreadFactory);
+        this.backgroundTaskQueue = QueueTaskScheduler.getInstance().createTaskQueue(queueName);
         this.maxNumberOfReadButUndeliveredMessages = AndesConfigurationManager.
                 readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_MAX_READ_BUT_UNDELIVERED_MESSAGES);
         this.messageDeliveryManager = SlotDeliveryWorkerManager.getInstance();
@@ -125,6 +117,13 @@ public class MessageHandler {
         messageDeliveryManager.startMessageDeliveryForQueue(queue);
     }
 
+    /**
+     * Wake up message delivery for the queue if the delivery task is idle
+     */
+    public void wakeUpMessageDelivery() {
+        messageDeliveryManager.wakeUpDeliveryForQueue(queueName);
+    }
+
     /**
      * Stop delivering messages for queue
      *
@@ -271,7 +270,7 @@ public class MessageHandler {
      * @return Collection with DeliverableAndesMetadata
      */
     public Collection<DeliverableAndesMetadata> getReadButUndeliveredMessages() {
-        return readButUndeliveredMessages.values();
+        return readButUndeliveredMessages;
     }
 
     /**
@@ -280,7 +279,7 @@ public class MessageHandler {
      * @param message message metadata to buffer
      */
     public void bufferMessage(DeliverableAndesMetadata message) {
-        readButUndeliveredMessages.putIfAbsent(message.getMessageID(), message);
+        readButUndeliveredMessages.add(message);
         message.markAsBuffered();
         MessageTracer.trace(message, MessageTracer.METADATA_BUFFERED_FOR_DELIVERY);
     }
@@ -317,8 +316,7 @@ public class MessageHandler {
      */
     public int clearReadButUndeliveredMessages() {
         lastPurgedTimestamp = System.currentTimeMillis();
-        int messageCount = readButUndeliveredMessages.size();
-        readButUndeliveredMessages.clear();
+        int messageCount = readButUndeliveredMessages.removeAll();
         for (Slot slot : slotsRead.values()) {
             if (log.isDebugEnabled()) {
                 log.debug("clear tracking of messages for slot = " + slot);
@@ -410,7 +408,7 @@ public class MessageHandler {
      * Schedule to release all non empty slots read back to the coordinator
      */
     public void releaseAllSlots() {
-        executor.submit(new SlotReAssignTask(queueName));
+        backgroundTaskQueue.submit(new SlotReAssignTask(queueName));
     }
 
 
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Buffer of messages read from the store and waiting to be delivered, ordered by message ID. At most one message is
+ * kept per message ID.
+ * <p/>
+ * Message IDs and messages are kept in two parallel arrays sorted by message ID, so buffering a message does not box
+ * the ID or allocate a node. Messages read from slots arrive in ascending order and are appended at the tail, and
+ * messages are delivered in order and removed from the head. Removed entries are left as gaps which are skipped and
+ * later reclaimed when the arrays are compacted. Messages arriving out of order, such as re-queued messages, are
+ * inserted at their position.
+ * <p/>
+ * Iterators are weakly consistent similar to iterators of concurrent collections. They never throw
+ * {@link java.util.ConcurrentModificationException} and continue from the message ID last returned.
+ */
+final class MessageReadBuffer extends AbstractCollection<DeliverableAndesMetadata> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] messageIds;
+
+    private DeliverableAndesMetadata[] messages;
+
+    /**
+     * Index of the first entry which is not a gap
+     */
+    private int head;
+
+    /**
+     * Index after the last entry which is not a gap
+     */
+    private int tail;
+
+    /**
+     * Number of messages in the buffer
+     */
+    private volatile int size;
+
+    /**
+     * Incremented whenever entries are moved to a different index, which invalidates indexes cached by iterators
+     */
+    private int layoutVersion;
+
+    MessageReadBuffer() {
+        messageIds = new long[INITIAL_CAPACITY];
+        messages = new DeliverableAndesMetadata[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add a message to the buffer if a message with the same ID is not already buffered
+     *
+     * @param message message to buffer
+     * @return true if the message was added
+     */
+    @Override
+    public synchronized boolean add(DeliverableAndesMetadata message) {
+        long messageId = message.getMessageID();
+
+        if (head == tail || messageId > messageIds[tail - 1]) {
+            ensureTailCapacity();
+            messageIds[tail] = messageId;
+            messages[tail] = message;
+            tail++;
+            size++;
+            return true;
+        }
+
+        int index = Arrays.binarySearch(messageIds, head, tail, messageId);
+        if (index >= 0) {
+            if (null != messages[index]) {
+                return false;
+            }
+            // Fill the gap left by a removed message with the same ID
+            messages[index] = message;
+            size++;
+            return true;
+        }
+
+        int insertionIndex = -(index + 1);
+        if (insertionIndex == head && head > 0) {
+            head--;
+            messageIds[head] = messageId;
+            messages[head] = message;
+            size++;
+            // An iterator past the old head would otherwise miss this message
+            layoutVersion++;
+            return true;
+        }
+
+        ensureTailCapacity();
+        // Compaction might have moved the entries
+        insertionIndex = -(Arrays.binarySearch(messageIds, head, tail, messageId) + 1);
+        System.arraycopy(messageIds, insertionIndex, messageIds, insertionIndex + 1, tail - insertionIndex);
+        System.arraycopy(messages, insertionIndex, messages, insertionIndex + 1, tail - insertionIndex);
+        messageIds[insertionIndex] = messageId;
+        messages[insertionIndex] = message;
+        tail++;
+        size++;
+        layoutVersion++;
+        return true;
+    }
+
+    /**
+     * Remove the message with the given ID
+     *
+     * @param messageId ID of the message to remove
+     * @return true if the message was in the buffer
+     */
+    synchronized boolean remove(long messageId) {
+        if (head == tail) {
+            return false;
+        }
+
+        int index = Arrays.binarySearch(messageIds, head, tail, messageId);
+        if (index < 0 || null == messages[index]) {
+            return false;
+        }
+
+        messages[index] = null;
+        size--;
+
+        if (0 == size) {
+            head = 0;
+            tail = 0;
+            layoutVersion++;
+        } else if (index == head) {
+            while (null == messages[head]) {
+                head++;
+            }
+        } else if (index == tail - 1) {
+            while (null == messages[tail - 1]) {
+                tail--;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove all the messages from the buffer
+     *
+     * @return number of messages removed
+     */
+    synchronized int removeAll() {
+        int removedCount = size;
+        messageIds = new long[INITIAL_CAPACITY];
+        messages = new DeliverableAndesMetadata[INITIAL_CAPACITY];
+        head = 0;
+        tail = 0;
+        size = 0;
+        layoutVersion++;
+        return removedCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This is a constant time operation.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        removeAll();
+    }
+
+    @Override
+    public Iterator<DeliverableAndesMetadata> iterator() {
+        return new BufferIterator();
+    }
+
+    /**
+     * Make room to append an entry at the tail. Gaps are dropped by moving entries to the start of the arrays, which
+     * are resized if they are more than half full or mostly empty.
+     */
+    private void ensureTailCapacity() {
+        int capacity = messageIds.length;
+        if (tail < capacity) {
+            return;
+        }
+
+        int newCapacity = capacity;
+        if (size >= capacity / 2) {
+            newCapacity = capacity * 2;
+        } else if (size < capacity / 8 && capacity > INITIAL_CAPACITY) {
+            newCapacity = capacity / 2;
+        }
+
+        long[] newMessageIds = (newCapacity == capacity) ? messageIds : new long[newCapacity];
+        DeliverableAndesMetadata[] newMessages =
+                (newCapacity == capacity) ? messages : new DeliverableAndesMetadata[newCapacity];
+
+        int newTail = 0;
+        for (int i = head; i < tail; i++) {
+            if (null != messages[i]) {
+                newMessageIds[newTail] = messageIds[i];
+                newMessages[newTail] = messages[i];
+                newTail++;
+            }
+        }
+        Arrays.fill(newMessages, newTail, newCapacity, null);
+
+        messageIds = newMessageIds;
+        messages = newMessages;
+        head = 0;
+        tail = newTail;
+        layoutVersion++;
+    }
+
+    /**
+     * Iterator in ascending order of message IDs. Position is tracked by the index of the current entry, which is
+     * looked up again by message ID if the entries were moved since.
+     */
+    private final class BufferIterator implements Iterator<DeliverableAndesMetadata> {
+
+        private int layoutVersionOfIndex = layoutVersion;
+
+        private int currentIndex = -1;
+
+        private long currentMessageId = Long.MIN_VALUE;
+
+        private DeliverableAndesMetadata nextMessage;
+
+        private long lastReturnedMessageId;
+
+        private boolean canRemove;
+
+        @Override
+        public boolean hasNext() {
+            if (null == nextMessage) {
+                advance();
+            }
+            return null != nextMessage;
+        }
+
+        @Override
+        public DeliverableAndesMetadata next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DeliverableAndesMetadata message = nextMessage;
+            nextMessage = null;
+            lastReturnedMessageId = currentMessageId;
+            canRemove = true;
+            return message;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            canRemove = false;
+            MessageReadBuffer.this.remove(lastReturnedMessageId);
+        }
+
+        /**
+         * Find the first message after the current message ID
+         */
+        private void advance() {
+            synchronized (MessageReadBuffer.this) {
+                int index;
+                if (layoutVersionOfIndex == layoutVersion) {
+                    index = Math.max(currentIndex + 1, head);
+                } else {
+                    index = Arrays.binarySearch(messageIds, head, tail, currentMessageId);
+                    index = (index >= 0) ? index + 1 : -(index + 1);
+                    layoutVersionOfIndex = layoutVersion;
+                }
+
+                while (index < tail && null == messages[index]) {
+                    index++;
+                }
+
+                if (index < tail) {
+                    currentIndex = index;
+                    currentMessageId = messageIds[index];
+                    nextMessage = messages[index];
+                }
+            }
+        }
+    }
+}
@@ -174,4 +174,19 @@ public enum MessageStatus {
                 || messageStatus.get(messageStatus.size() - 1).equals(MessageStatus.SLOT_REMOVED)
                 || messageStatus.get(messageStatus.size() - 1).equals(MessageStatus.SLOT_RETURNED);
     }
+
+    /**
+     * Is OK to remove tracking message
+     *
+     * @param visitedStatuses bit mask of the statuses the message went through, indexed by ordinal
+     * @param latestStatus    current status of the message
+     * @return eligibility to remove
+     */
+    public static boolean isOKToRemove(int visitedStatuses, MessageStatus latestStatus) {
+        int removableStatuses = (1 << EXPIRED.ordinal()) | (1 << DLC_MESSAGE.ordinal()) | (1 << PURGED.ordinal())
+                | (1 << DELETED.ordinal());
+        return (visitedStatuses & removableStatuses) != 0
+                || SLOT_REMOVED.equals(latestStatus)
+                || SLOT_RETURNED.equals(latestStatus);
+    }
 }
@@ -63,6 +63,17 @@ public interface MessageStore extends HealthAwareStore {
      */
     AndesMessagePart getContent(long messageId, int offsetValue) throws AndesException;
 
+    /**
+     * Read content chunks of a message with offsets in the given range
+     *
+     * @param messageId   id of the message
+     * @param startOffset offset of the first chunk to read
+     * @param endOffset   offset after the last chunk to read
+     * @return content chunks in offset order
+     * @throws AndesException
+     */
+    List<AndesMessagePart> getContent(long messageId, int startOffset, int endOffset) throws AndesException;
+
     /**
      * Read content for given message metadata list
      *
@@ -253,6 +264,15 @@ public interface MessageStore extends HealthAwareStore {
      */
     List<Long> getExpiredMessagesFromDLC(long messageCount) throws AndesException;
 
+    /**
+     * Read messages which are not in a dead letter channel and expire before the given time into an expiry index
+     *
+     * @param expirationTimeUpperBound messages expiring before this time are read
+     * @param expiryIndex              index to add the messages to
+     * @throws AndesException
+     */
+    void readExpiryData(long expirationTimeUpperBound, MessageExpiryIndex expiryIndex) throws AndesException;
+
     /**
      * add messages to expiry queue
      *
@@ -42,6 +42,7 @@ import org.wso2.andes.tools.utils.MessageTracer;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -82,8 +83,18 @@ public class MessagingEngine {
      */
     private MessageExpiryManager messageExpiryManager;
 
+    /**
+     * Index of messages expiring in the near future. Null if the expiry index is disabled
+     */
+    private MessageExpiryIndex messageExpiryIndex;
+
     private AndesSubscriptionManager subscriptionManager;
 
+    /**
+     * Number of buckets in each wheel of the expiry index
+     */
+    private static final int EXPIRY_INDEX_WHEEL_SIZE = 64;
+
     /**
      * private constructor for singleton pattern
      */
@@ -124,6 +135,14 @@ public class MessagingEngine {
         this.messageExpiryManager = messageExpiryManager;
         this.subscriptionManager = subscriptionManager;
 
+        Boolean isExpiryIndexEnabled = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_ENABLED);
+        if (isExpiryIndexEnabled) {
+            Integer tickInterval = AndesConfigurationManager.readValue
+                    (AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL);
+            messageExpiryIndex = new MessageExpiryIndex(tickInterval, EXPIRY_INDEX_WHEEL_SIZE,
+                    System.currentTimeMillis());
+        }
 
         /*
         Initialize the SlotCoordinator
@@ -168,6 +187,25 @@ public class MessagingEngine {
      */
     public void messagesReceived(List<AndesMessage> messageList) throws AndesException {
         messageStore.storeMessages(messageList);
+
+        if (null != messageExpiryIndex) {
+            for (AndesMessage message : messageList) {
+                AndesMessageMetadata metadata = message.getMetadata();
+                if (metadata.isExpirationDefined()) {
+                    messageExpiryIndex.add(metadata.getMessageID(), metadata.getStorageQueueName(),
+                            metadata.getExpirationTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the index of messages expiring in the near future
+     *
+     * @return expiry index, or null if the expiry index is disabled
+     */
+    public MessageExpiryIndex getMessageExpiryIndex() {
+        return messageExpiryIndex;
     }
 
     /**
@@ -193,6 +231,7 @@ public class MessagingEngine {
             throws AndesException {
         String deadLetterQueueName = DLCQueueUtils.identifyTenantInformationAndGenerateDLCString(destinationQueueName);
         messageExpiryManager.moveMetadataToDLC(messageToRemove.getMessageID(), deadLetterQueueName);
+        removeFromExpiryIndex(Collections.singletonList(messageToRemove));
 
         // Increment count by 1 in DLC and decrement by 1 in original queue
 
@@ -211,6 +250,7 @@ public class MessagingEngine {
      */
     public void deleteMessages(Collection<AndesMessageMetadata> messagesToRemove) throws AndesException {
         messageStore.deleteMessages(messagesToRemove);
+        removeFromExpiryIndex(messagesToRemove);
     }
 
     /**
@@ -234,6 +274,22 @@ public class MessagingEngine {
         //delete message content along with metadata
         messageStore.deleteMessages(messagesToRemove);
         markAsDeleted(messagesToRemove);
+        removeFromExpiryIndex(messagesToRemove);
+    }
+
+    /**
+     * Remove deleted messages from the expiry index so that they are not deleted again when they expire
+     *
+     * @param messages messages deleted from the store or moved to the dead letter channel
+     */
+    private void removeFromExpiryIndex(Collection<? extends AndesMessageMetadata> messages) {
+        if (null != messageExpiryIndex) {
+            for (AndesMessageMetadata message : messages) {
+                if (message.isExpirationDefined()) {
+                    messageExpiryIndex.remove(message.getMessageID());
+                }
+            }
+        }
     }
 
     /**
@@ -316,7 +372,12 @@ public class MessagingEngine {
      * @throws AndesException
      */
     public void deleteMessagesById(List<Long> messagesToRemove) throws AndesException {
-            messageStore.deleteMessages(messagesToRemove);
+        messageStore.deleteMessages(messagesToRemove);
+        if (null != messageExpiryIndex) {
+            for (Long messageId : messagesToRemove) {
+                messageExpiryIndex.remove(messageId);
+            }
+        }
     }
 
 
@@ -335,6 +396,7 @@ public class MessagingEngine {
             message.markAsDLCMessage();
             message.getSlot().decrementPendingMessageCount();
         }
+        removeFromExpiryIndex(messagesToMove);
     }
 
     public void moveMessageToDeadLetterChannel(Collection<AndesMessageMetadata> messagesToMove) throws AndesException {
@@ -354,6 +416,7 @@ public class MessagingEngine {
             String dlcQueueName = DLCQueueUtils.identifyTenantInformationAndGenerateDLCString(entry.getKey());
             messageExpiryManager.moveMetadataToDLC(entry.getValue(), dlcQueueName);
         }
+        removeFromExpiryIndex(messagesToMove);
 
         //TODO:message can be in delivery path. If so we need to decrement slot message count
     }
@@ -507,6 +570,18 @@ public class MessagingEngine {
         return messageStore.getExpiredMessagesFromDLC(messageCount);
     }
 
+    /**
+     * Read messages expiring before the given time from message store into an expiry index
+     *
+     * @param expirationTimeUpperBound messages expiring before this time are read
+     * @param expiryIndex              index to add the messages to
+     * @throws AndesException
+     */
+    public void readExpiryData(long expirationTimeUpperBound, MessageExpiryIndex expiryIndex)
+            throws AndesException {
+        messageStore.readExpiryData(expirationTimeUpperBound, expiryIndex);
+    }
+
     /**
      * Update the meta data for the given message with the given information in the AndesMetaData. Update destination
      * and meta data bytes.
@@ -56,7 +56,7 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
     /**
      * Holds the slot manager based on broker running mode.
      */
-    private AbstractSlotManager abstractSlotManagerSlotManager;
+    protected AbstractSlotManager abstractSlotManagerSlotManager;
 
     /**
      * Indicate the cluster mode is enabled or not.
@@ -102,14 +102,7 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
                          * Checks for the message store availability if its not available
                          * Deletion task needs to await until message store becomes available
                          */
-                        if (null != messageStoresUnavailable) {
-                            log.info("Message store has become unavailable therefore expiry message deletion task "
-                                    + "waiting until store becomes available");
-                            //act as a barrier
-                            messageStoresUnavailable.get();
-                            log.info("Message store became available. Resuming expiry message deletion task");
-                            messageStoresUnavailable = null; // we are passing the blockade (therefore clear the it).
-                        }
+                        awaitMessageStores();
 
                         if ((null != expiredMessages) && (!expiredMessages.isEmpty())) {
                             //Tracing message activity
@@ -152,17 +145,10 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
     /**
      * Get the messages form the DLC which are expired and delete those from DB.
      */
-    private void deleteExpiredMessagesFromDLC() throws InterruptedException, ExecutionException, AndesException {
+    protected void deleteExpiredMessagesFromDLC() throws InterruptedException, ExecutionException, AndesException {
         //Checks for the message store availability if its not available
         //Deletion task needs to await until message store becomes available
-        if (null != messageStoresUnavailable) {
-            log.info("Message store has become unavailable therefore expiry message deletion task waiting until"
-                    + " store becomes available");
-            //act as a barrier
-            messageStoresUnavailable.get();
-            log.info("Message store became available. Resuming expiry message deletion task");
-            messageStoresUnavailable = null; // we are passing the blockade (therefore clear the it).
-        }
+        awaitMessageStores();
         List<Long> expiredMessages = MessagingEngine.getInstance().
                 getExpiredMessagesFromDLC(RETRIEVE_MESSAGE_COUNT);
 
@@ -186,6 +172,20 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
         }
     }
 
+    /**
+     * Wait until the message stores become available if they have become unavailable
+     */
+    protected void awaitMessageStores() throws InterruptedException, ExecutionException {
+        if (null != messageStoresUnavailable) {
+            log.info("Message store has become unavailable therefore expiry message deletion task waiting until"
+                    + " store becomes available");
+            //act as a barrier
+            messageStoresUnavailable.get();
+            log.info("Message store became available. Resuming expiry message deletion task");
+            messageStoresUnavailable = null; // we are passing the blockade (therefore clear the it).
+        }
+    }
+
     @Override
     public void run() {
         //delete the expired messages queue wise from safe deletion range
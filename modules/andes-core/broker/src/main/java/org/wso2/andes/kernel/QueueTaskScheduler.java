@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer.Context;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size scheduler shared by all storage queues for per queue background work such as releasing
+ * slots back to the coordinator.
+ * <p/>
+ * Each storage queue gets a light weight {@link TaskQueue} instead of a dedicated thread. Tasks submitted to the same
+ * {@link TaskQueue} are executed one at a time in submission order, while tasks of different queues run in parallel
+ * on the shared pool. Hence the number of threads stays constant regardless of the number of storage queues.
+ * <p/>
+ * Task queues waiting for a thread are served in FIFO order. A queue with a long backlog goes to the back of the line
+ * after {@link #MAX_TASKS_PER_RUN} tasks, so that it does not starve other queues.
+ * <p/>
+ * Once the scheduler is shutdown, tasks that are submitted are dropped instead of being executed.
+ */
+public class QueueTaskScheduler {
+
+    private static Log log = LogFactory.getLog(QueueTaskScheduler.class);
+
+    /**
+     * Maximum number of tasks of a single queue executed before yielding the pool thread to other queues
+     */
+    static final int MAX_TASKS_PER_RUN = 16;
+
+    /**
+     * Time to wait for pending tasks to complete on shutdown
+     */
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Singleton instance
+     */
+    private static QueueTaskScheduler instance;
+
+    /**
+     * Shared pool executing tasks of all queues
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Number of tasks submitted but not yet executed across all queues
+     */
+    private final AtomicInteger pendingTaskCount;
+
+    /**
+     * Create a scheduler with given number of threads
+     *
+     * @param threadCount number of threads in the shared pool
+     */
+    QueueTaskScheduler(int threadCount) {
+        pendingTaskCount = new AtomicInteger(0);
+        // A work stealing pool is not used since a worker runs tasks it submitted itself before tasks submitted by
+        // other threads, which defeats the hand-off of a busy queue to other queues
+        pool = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("AndesQueueTaskScheduler-%d").build());
+        MetricManager.gauge(MetricsConstants.QUEUE_TASK_SCHEDULER_PENDING_TASKS, Level.INFO, new PendingTaskGauge());
+    }
+
+    /**
+     * Return the scheduler instance. Scheduler is created on first access using the configured thread count.
+     *
+     * @return QueueTaskScheduler instance
+     */
+    public static synchronized QueueTaskScheduler getInstance() {
+        if (null == instance) {
+            int threadCount = AndesConfigurationManager.readValue(
+                    AndesConfiguration.PERFORMANCE_TUNING_QUEUE_TASK_SCHEDULER_THREAD_COUNT);
+            instance = new QueueTaskScheduler(threadCount);
+        }
+        return instance;
+    }
+
+    /**
+     * Create a task queue for the given storage queue. Tasks submitted through the returned task queue are executed
+     * in order.
+     *
+     * @param queueName name of the storage queue
+     * @return task queue bound to this scheduler
+     */
+    public TaskQueue createTaskQueue(String queueName) {
+        return new TaskQueue(queueName);
+    }
+
+    /**
+     * Get number of tasks waiting to be executed across all queues
+     *
+     * @return pending task count
+     */
+    public int getPendingTaskCount() {
+        return pendingTaskCount.get();
+    }
+
+    /**
+     * Stop accepting new tasks and wait for already submitted tasks to complete. Tasks submitted after this call are
+     * dropped without being executed.
+     */
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Queue task scheduler did not terminate within " + SHUTDOWN_TIMEOUT_SECONDS
+                        + " seconds. Pending task count " + pendingTaskCount.get());
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ordered task queue of a single storage queue. A task queue is scheduled on the shared pool only while it has
+     * pending tasks, hence an idle queue does not hold any thread.
+     */
+    public final class TaskQueue implements Runnable {
+
+        /**
+         * Name of the storage queue tasks belong to
+         */
+        private final String queueName;
+
+        /**
+         * Tasks waiting to be executed
+         */
+        private final Queue<TimedTask> tasks;
+
+        /**
+         * True while this task queue is submitted to the pool or running
+         */
+        private final AtomicBoolean scheduled;
+
+        private TaskQueue(String queueName) {
+            this.queueName = queueName;
+            this.tasks = new ConcurrentLinkedQueue<>();
+            this.scheduled = new AtomicBoolean(false);
+        }
+
+        /**
+         * Submit a task to be executed after all previously submitted tasks of this queue. If the scheduler is
+         * already shutdown the task is dropped and a warning is logged.
+         *
+         * @param task task to execute
+         */
+        public void submit(Runnable task) {
+            Context latencyContext = MetricManager.timer(MetricsConstants.QUEUE_TASK_SCHEDULER_TASK_LATENCY,
+                    Level.INFO).start();
+            tasks.offer(new TimedTask(task, latencyContext));
+            pendingTaskCount.incrementAndGet();
+            scheduleIfIdle();
+        }
+
+        /**
+         * Drain a bounded number of tasks and reschedule if more tasks are pending
+         */
+        @Override
+        public void run() {
+            int executedCount = 0;
+            TimedTask timedTask;
+            while (executedCount < MAX_TASKS_PER_RUN && (timedTask = tasks.poll()) != null) {
+                pendingTaskCount.decrementAndGet();
+                executedCount++;
+                try {
+                    timedTask.task.run();
+                } catch (Throwable e) {
+                    log.error("Error while executing background task of queue " + queueName, e);
+                } finally {
+                    timedTask.latencyContext.stop();
+                }
+            }
+
+            scheduled.set(false);
+            // A task might have been added after the last poll. Check again since the submitter might have seen
+            // this queue as scheduled.
+            if (!tasks.isEmpty()) {
+                scheduleIfIdle();
+            }
+        }
+
+        /**
+         * Remove the pending tasks of this queue without executing them
+         *
+         * @return number of tasks removed
+         */
+        private int dropPendingTasks() {
+            int droppedCount = 0;
+            TimedTask timedTask;
+            while ((timedTask = tasks.poll()) != null) {
+                pendingTaskCount.decrementAndGet();
+                timedTask.latencyContext.stop();
+                droppedCount++;
+            }
+            return droppedCount;
+        }
+
+        /**
+         * Submit this task queue to the pool if it is not already scheduled
+         */
+        private void scheduleIfIdle() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    pool.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    int droppedCount = dropPendingTasks();
+                    log.warn("Queue task scheduler is shutdown. " + droppedCount + " tasks of queue " + queueName
+                            + " will not be executed");
+                }
+            }
+        }
+    }
+
+    /**
+     * Task along with the timer context started at submission
+     */
+    private static final class TimedTask {
+
+        private final Runnable task;
+
+        private final Context latencyContext;
+
+        private TimedTask(Runnable task, Context latencyContext) {
+            this.task = task;
+            this.latencyContext = latencyContext;
+        }
+    }
+
+    /**
+     * Gauge reporting the number of pending tasks across all queues
+     */
+    private class PendingTaskGauge implements Gauge<Integer> {
+        @Override
+        public Integer getValue() {
+            return pendingTaskCount.get();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates executors which run the event processors of a Disruptor. Each event processor occupies a thread until the
+ * Disruptor is shut down.
+ */
+public final class DisruptorExecutors {
+
+    private DisruptorExecutors() {
+    }
+
+    /**
+     * Create an executor for the event processors of a Disruptor
+     *
+     * @param nameFormat     name format of the threads, see {@link ThreadFactoryBuilder#setNameFormat(String)}
+     * @param processorCount number of event processors run by the executor
+     * @param dedicated      if true a fixed pool with exactly one thread per event processor is created and all the
+     *                       threads are started immediately. Otherwise threads are created on demand.
+     * @return executor for the event processors
+     */
+    public static ExecutorService createExecutor(String nameFormat, int processorCount, boolean dedicated) {
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat(nameFormat).build();
+
+        if (!dedicated) {
+            return Executors.newCachedThreadPool(namedThreadFactory);
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(processorCount, processorCount, 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), namedThreadFactory);
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+}
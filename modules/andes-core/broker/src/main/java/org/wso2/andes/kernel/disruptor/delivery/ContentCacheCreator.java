@@ -18,27 +18,21 @@
 
 package org.wso2.andes.kernel.disruptor.delivery;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.gs.collections.api.iterator.MutableLongIterator;
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
 import org.apache.log4j.Logger;
-import org.wso2.andes.configuration.AndesConfigurationManager;
-import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DisruptorCachedContent;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.ProtocolMessage;
+import org.wso2.andes.store.cache.TieredContentCache;
 import org.wso2.andes.tools.utils.MessageTracer;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * This is used to load message content to memory.
@@ -49,11 +43,6 @@ public class ContentCacheCreator {
      */
     private static final Logger log = Logger.getLogger(ContentCacheCreator.class);
 
-    /**
-     * Maximum content chunk size stored in DB
-     */
-    private final int maxChunkSize;
-
     /**
      * Keeps track of ids of messages which this handler couldn't load payload
      * content (from message store)
@@ -61,26 +50,25 @@ public class ContentCacheCreator {
     private final LongArrayList failedContentRetrivals;
 
     /**
-     * Guava based cache used to avoid fetching content for same message id in non-durable topics
+     * Content cache shared with the message store and other content readers. Used to avoid fetching content for same
+     * message id in non-durable topics, and for messages published through this node.
      */
-    private final Cache<Long, DisruptorCachedContent> contentCache;
+    private final TieredContentCache contentCache;
+
+    /**
+     * Creates content of large messages which are read while they are delivered
+     */
+    private final StreamingContentReader streamingContentReader;
 
     /**
      * Creates a {@link org.wso2.andes.kernel.disruptor.delivery.ContentCacheCreator} object
      *
-     * @param maxContentChunkSize maximum content chunk size stored in DB
+     * @param contentCache           content cache shared by the message store and all content readers
+     * @param streamingContentReader creates content of messages streamed to subscribers
      */
-    public ContentCacheCreator(int maxContentChunkSize) {
-        this.maxChunkSize = maxContentChunkSize;
-
-        Integer maximumSize = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_CACHE_MAXIMUM_SIZE);
-        Integer expiryTime = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_CACHE_EXPIRY_TIME);
-
-        contentCache = CacheBuilder.newBuilder().expireAfterWrite(expiryTime, TimeUnit.SECONDS).maximumSize(maximumSize)
-                .concurrencyLevel(1).build();
-
+    public ContentCacheCreator(TieredContentCache contentCache, StreamingContentReader streamingContentReader) {
+        this.contentCache = contentCache;
+        this.streamingContentReader = streamingContentReader;
         failedContentRetrivals = new LongArrayList();
 
     }
@@ -103,7 +91,7 @@ public class ContentCacheCreator {
 
             if (contentLength > 0) {
 
-                DisruptorCachedContent content = contentCache.getIfPresent(messageID);
+                DisruptorCachedContent content = contentCache.getDeliveryContent(messageID, contentLength);
 
                 if (null != content) {
                     deliveryEventData.setAndesContent(content);
@@ -112,6 +100,14 @@ public class ContentCacheCreator {
                         log.trace("Content read from cache for message " + messageID);
                     }
 
+                } else if (streamingContentReader.isStreamed(metadata.getMessage())) {
+                    // Content is read while the message is delivered
+                    deliveryEventData.setAndesContent(streamingContentReader.createContent(messageID, contentLength));
+
+                    if (log.isTraceEnabled()) {
+                        log.trace("Content of message " + messageID + " will be streamed");
+                    }
+
                 } else {
                     // Add to the list to fetch later
                     messagesToFetch.add(messageID);
@@ -132,12 +128,15 @@ public class ContentCacheCreator {
         LongObjectHashMap<List<AndesMessagePart>> contentListMap = MessagingEngine.getInstance()
                 .getContent(containMessegesToFetch);
 
+        // Content read in this batch. A message may appear more than once in a batch.
+        LongObjectHashMap<DisruptorCachedContent> readContent = new LongObjectHashMap<>();
+
         for (DeliveryEventData deliveryEventData : messagesWithoutCachedContent) {
 
             ProtocolMessage metadata = deliveryEventData.getMetadata();
             long messageID = metadata.getMessageID();
-            // We check again for content put in cache in the previous iteration
-            DisruptorCachedContent content = contentCache.getIfPresent(messageID);
+            // We check again for content read in the previous iteration
+            DisruptorCachedContent content = readContent.get(messageID);
 
             if (null != content) {
                 deliveryEventData.setAndesContent(content);
@@ -153,14 +152,8 @@ public class ContentCacheCreator {
             List<AndesMessagePart> contentList = contentListMap.get(messageID);
 
             if (null != contentList) {
-                Map<Integer, AndesMessagePart> messagePartMap = new HashMap<>(contentList.size());
-
-                for (AndesMessagePart messagePart : contentList) {
-                    messagePartMap.put(messagePart.getOffset(), messagePart);
-                }
-
-                content = new DisruptorCachedContent(messagePartMap, contentSize, maxChunkSize);
-                contentCache.put(messageID, content);
+                content = contentCache.putDeliveryContent(messageID, contentList, contentSize);
+                readContent.put(messageID, content);
                 deliveryEventData.setAndesContent(content);
 
                 if (log.isTraceEnabled()) {
@@ -20,6 +20,7 @@ package org.wso2.andes.kernel.disruptor.delivery;
 
 import com.lmax.disruptor.EventHandler;
 import org.apache.log4j.Logger;
+import org.wso2.andes.kernel.AndesContent;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DisruptorCachedContent;
@@ -77,7 +78,7 @@ public class ContentDecompressionHandler implements EventHandler<DeliveryEventDa
             return;
         }
 
-        DisruptorCachedContent content = (DisruptorCachedContent) deliveryEventData.getAndesContent();
+        AndesContent content = deliveryEventData.getAndesContent();
 
         ProtocolMessage metadata = deliveryEventData.getMetadata();
         int originalMessageSize = metadata.getMessage().getMessageContentLength();
@@ -95,7 +96,9 @@ public class ContentDecompressionHandler implements EventHandler<DeliveryEventDa
              */
             if (isCompressed) {
 
-                Map<Integer, AndesMessagePart> messagePartMapFromContentReader = content.getContentList();
+                // Compressed messages are not streamed, hence their content is read by the content readers
+                Map<Integer, AndesMessagePart> messagePartMapFromContentReader =
+                        ((DisruptorCachedContent) content).getContentList();
                 Collection<AndesMessagePart> contentList = messagePartMapFromContentReader.values();
 
                 // Get the decompressed message, as a message part map
@@ -18,7 +18,6 @@
 
 package org.wso2.andes.kernel.disruptor.delivery;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.TimeoutException;
@@ -28,18 +27,20 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.ProtocolMessage;
-import org.wso2.andes.kernel.disruptor.waitStrategy.SleepingBlockingWaitStrategy;
+import org.wso2.andes.kernel.disruptor.DisruptorExecutors;
+import org.wso2.andes.kernel.disruptor.waitStrategy.WaitStrategyType;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.andes.store.cache.MessageCacheFactory;
+import org.wso2.andes.store.cache.TieredContentCache;
 import org.wso2.andes.tools.utils.MessageTracer;
 import org.wso2.carbon.metrics.manager.Gauge;
 import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.MetricManager;
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -59,11 +60,21 @@ public class DisruptorBasedFlusher {
      */
     private final Disruptor<DeliveryEventData> disruptor;
 
+    /**
+     * Runs the event processors of the disruptor. Shut down once the disruptor is shut down.
+     */
+    private final ExecutorService threadPoolExecutor;
+
     /**
      * Ring buffer used for delivery
      */
     private final RingBuffer<DeliveryEventData> ringBuffer;
 
+    /**
+     * Reads content of streamed messages ahead of delivery
+     */
+    private final StreamingContentReader streamingContentReader;
+
     public DisruptorBasedFlusher() {
         Integer ringBufferSize = AndesConfigurationManager.readValue(
                 AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_RING_BUFFER_SIZE);
@@ -78,13 +89,38 @@ public class DisruptorBasedFlusher {
         int maxContentChunkSize = AndesConfigurationManager.readValue(
                 AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
 
-        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("DisruptorBasedFlusher-%d").build();
-        Executor threadPoolExecutor = Executors.newCachedThreadPool(namedThreadFactory);
+        WaitStrategyType waitStrategyType = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_WAIT_STRATEGY);
+        boolean dedicatedHandlerThreads = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_DEDICATED_HANDLER_THREADS);
+
+        // Content readers share the content cache of the message store. A separate one is used only if the flusher
+        // is created before the message store
+        TieredContentCache contentCache = AndesContext.getInstance().getContentCache();
+        if (null == contentCache) {
+            contentCache = new MessageCacheFactory().createTieredCache();
+        }
+
+        Integer streamingThreshold = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_THRESHOLD);
+        Integer streamingMemoryBudget = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_MEMORY_BUDGET);
+        Integer streamingTotalMemoryBudget = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_TOTAL_MEMORY_BUDGET);
+        Integer streamingReaders = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_STREAMING_READERS);
+        streamingContentReader = new StreamingContentReader(streamingThreshold, streamingMemoryBudget,
+                streamingTotalMemoryBudget, streamingReaders, maxContentChunkSize);
+
+        // Content readers, decompression handlers, delivery handlers and cleanup handler
+        int eventProcessorCount = parallelContentReaders + parallelDecompressionHandlers + parallelDeliveryHandlers + 1;
+        threadPoolExecutor = DisruptorExecutors.createExecutor("DisruptorBasedFlusher-%d",
+                eventProcessorCount, dedicatedHandlerThreads);
 
         disruptor = new Disruptor<>(new DeliveryEventData.DeliveryEventDataFactory(), ringBufferSize,
                                                      threadPoolExecutor,
                                                      ProducerType.MULTI,
-                                                     new SleepingBlockingWaitStrategy());
+                                                     waitStrategyType.createWaitStrategy());
 
         disruptor.handleExceptionsWith(new DeliveryExceptionHandler());
 
@@ -98,7 +134,7 @@ public class DisruptorBasedFlusher {
             contentReadTaskBatchProcessor[i] = new ConcurrentContentReadTaskBatchProcessor(
                     disruptor.getRingBuffer(),
                     barrier,
-                    new ContentCacheCreator(maxContentChunkSize),
+                    new ContentCacheCreator(contentCache, streamingContentReader),
                     i,
                     parallelContentReaders,
                     contentSizeToBatch);
@@ -158,14 +194,18 @@ public class DisruptorBasedFlusher {
     /**
      * Waits until all events currently in the disruptor have been processed by all event processors
      * and then halts the processors. It is critical that publishing to the ring buffer has stopped
-     * before calling this method, otherwise it may never return.
+     * before calling this method, otherwise it may never return. Threads of the event processors are released
+     * afterwards.
      */
     public void stop() {
         try {
             disruptor.shutdown(OUTBOUND_DISRUPTOR_SHUTDOWN_WAIT_TIME, TimeUnit.SECONDS);
         } catch (TimeoutException e) {
             log.error("Outbound disruptor did not shut down properly.");
+            disruptor.halt();
         }
+        threadPoolExecutor.shutdown();
+        streamingContentReader.stop();
     }
 
     /**
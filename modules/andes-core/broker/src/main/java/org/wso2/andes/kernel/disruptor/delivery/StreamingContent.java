@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.delivery;
+
+import org.wso2.andes.kernel.AndesContent;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.MessageStore;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Content of a large message read from the message store while the message is delivered. Content is read in windows
+ * of consecutive chunks. While a window is written to the subscriber the next window is read ahead, hence at most two
+ * windows are held in memory for a message and the first chunks are written before the rest of the content is read.
+ * <p/>
+ * Memory for windows is taken from a limiter shared by all streamed messages. When the limiter has no memory left
+ * the next window is not read ahead, and content is read one chunk at a time.
+ */
+public class StreamingContent implements AndesContent {
+
+    private final long messageId;
+
+    /**
+     * Content length of the message
+     */
+    private final int contentLength;
+
+    /**
+     * Maximum chunk size of the stored content
+     */
+    private final int maxChunkSize;
+
+    /**
+     * Number of content bytes in a window. A multiple of the chunk size.
+     */
+    private final int windowSize;
+
+    /**
+     * Executor reading windows ahead of delivery
+     */
+    private final ExecutorService readerExecutor;
+
+    /**
+     * Store the content is read from
+     */
+    private final MessageStore messageStore;
+
+    /**
+     * Content bytes which can still be held in memory by all streamed messages
+     */
+    private final Semaphore memoryLimiter;
+
+    /**
+     * Content bytes taken from the limiter by this content
+     */
+    private final AtomicInteger heldMemory;
+
+    /**
+     * Chunks of the window being delivered by chunk offset
+     */
+    private Map<Integer, AndesMessagePart> window = Collections.emptyMap();
+
+    /**
+     * Offset of the first chunk of the window being delivered, -1 if no window is read
+     */
+    private int windowStart = -1;
+
+    /**
+     * Offset after the last chunk of the window being delivered
+     */
+    private int windowEnd = -1;
+
+    /**
+     * Memory taken from the limiter for the window being delivered
+     */
+    private int windowMemory;
+
+    /**
+     * Window read ahead, null if no window is being read ahead
+     */
+    private Future<Map<Integer, AndesMessagePart>> nextWindow;
+
+    /**
+     * Offset of the first chunk of the window read ahead
+     */
+    private int nextWindowStart = -1;
+
+    /**
+     * Memory taken from the limiter for the window read ahead
+     */
+    private int nextWindowMemory;
+
+    /**
+     * Create content of a streamed message. Content is read once it is first written.
+     *
+     * @param messageId      id of the message
+     * @param contentLength  content length of the message
+     * @param maxChunkSize   maximum chunk size of the stored content
+     * @param memoryBudget   maximum number of content bytes held in memory for the message
+     * @param readerExecutor executor reading windows ahead of delivery
+     * @param messageStore   store the content is read from
+     * @param memoryLimiter  content bytes which can still be held in memory by all streamed messages
+     * @param heldMemory     updated with the content bytes taken from the limiter by this content
+     */
+    public StreamingContent(long messageId, int contentLength, int maxChunkSize, int memoryBudget,
+                            ExecutorService readerExecutor, MessageStore messageStore, Semaphore memoryLimiter,
+                            AtomicInteger heldMemory) {
+        this.messageId = messageId;
+        this.contentLength = contentLength;
+        this.maxChunkSize = maxChunkSize;
+        this.windowSize = Math.max(1, memoryBudget / 2 / maxChunkSize) * maxChunkSize;
+        this.readerExecutor = readerExecutor;
+        this.messageStore = messageStore;
+        this.memoryLimiter = memoryLimiter;
+        this.heldMemory = heldMemory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int putContent(int offset, ByteBuffer destinationBuffer) throws AndesException {
+        int written = 0;
+        int remainingBufferSpace = destinationBuffer.remaining();
+        int remainingContent = contentLength - offset;
+        int maxRemaining = Math.min(remainingBufferSpace, remainingContent);
+
+        int currentBytePosition = offset;
+
+        while (maxRemaining > written) {
+            // This is an integer division
+            int chunkNumber = currentBytePosition / maxChunkSize;
+            int chunkStartByteIndex = chunkNumber * maxChunkSize;
+            int positionToReadFromChunk = currentBytePosition - chunkStartByteIndex;
+
+            AndesMessagePart messagePart = getMessagePart(chunkStartByteIndex);
+
+            int numOfBytesAvailableToRead = messagePart.getDataLength() - positionToReadFromChunk;
+            int numOfBytesToRead = Math.min(maxRemaining - written, numOfBytesAvailableToRead);
+
+            destinationBuffer.put(messagePart.getData(), positionToReadFromChunk, numOfBytesToRead);
+
+            written = written + numOfBytesToRead;
+            currentBytePosition = currentBytePosition + numOfBytesToRead;
+        }
+
+        // Release the last window once all content is written
+        if (currentBytePosition >= contentLength && null == nextWindow) {
+            releaseWindow();
+        }
+
+        return written;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Get the chunk starting at the given byte index, moving the window if the chunk is outside of it
+     *
+     * @param chunkStartByteIndex byte index the chunk starts from
+     * @return content chunk
+     * @throws AndesException if the chunk cannot be read
+     */
+    private AndesMessagePart getMessagePart(int chunkStartByteIndex) throws AndesException {
+        if (windowStart < 0 || chunkStartByteIndex < windowStart || chunkStartByteIndex >= windowEnd) {
+            moveWindow(chunkStartByteIndex);
+        }
+
+        AndesMessagePart messagePart = window.get(chunkStartByteIndex);
+        if (null == messagePart) {
+            throw new AndesException("Content not found for message " + messageId + " chunk index "
+                    + chunkStartByteIndex);
+        }
+        return messagePart;
+    }
+
+    /**
+     * Make the window starting from the given offset the window being delivered, and read the following window ahead
+     * if the limiter has memory for it. Without memory for a whole window only the chunk at the offset is read.
+     *
+     * @param start offset of the first chunk of the window
+     * @throws AndesException if the window cannot be read
+     */
+    private void moveWindow(int start) throws AndesException {
+        // Release the previous window before waiting for the next one
+        releaseWindow();
+
+        if (start == nextWindowStart) {
+            int memory = nextWindowMemory;
+            nextWindowMemory = 0;
+            try {
+                window = awaitNextWindow();
+            } catch (AndesException e) {
+                releaseMemory(memory);
+                nextWindow = null;
+                nextWindowStart = -1;
+                throw e;
+            }
+            windowMemory = memory;
+            windowEnd = start + windowSize;
+            nextWindow = null;
+            nextWindowStart = -1;
+        } else {
+            cancelReadAhead();
+            int length = acquireMemory(windowSize) ? windowSize : maxChunkSize;
+            try {
+                window = readWindow(start, length);
+            } catch (AndesException e) {
+                releaseMemory(length == windowSize ? windowSize : 0);
+                throw e;
+            }
+            windowMemory = (length == windowSize) ? windowSize : 0;
+            windowEnd = start + length;
+        }
+        windowStart = start;
+
+        if (windowEnd < contentLength && acquireMemory(windowSize)) {
+            readAhead(windowEnd);
+        }
+    }
+
+    /**
+     * Drop the window being delivered and return its memory to the limiter
+     */
+    private void releaseWindow() {
+        window = Collections.emptyMap();
+        windowStart = -1;
+        windowEnd = -1;
+        releaseMemory(windowMemory);
+        windowMemory = 0;
+    }
+
+    /**
+     * Stop reading the next window ahead and return its memory to the limiter
+     */
+    private void cancelReadAhead() {
+        if (null != nextWindow) {
+            nextWindow.cancel(false);
+            nextWindow = null;
+            nextWindowStart = -1;
+            releaseMemory(nextWindowMemory);
+            nextWindowMemory = 0;
+        }
+    }
+
+    private boolean acquireMemory(int bytes) {
+        if (memoryLimiter.tryAcquire(bytes)) {
+            heldMemory.addAndGet(bytes);
+            return true;
+        }
+        return false;
+    }
+
+    private void releaseMemory(int bytes) {
+        if (bytes > 0) {
+            heldMemory.addAndGet(-bytes);
+            memoryLimiter.release(bytes);
+        }
+    }
+
+    private Map<Integer, AndesMessagePart> awaitNextWindow() throws AndesException {
+        try {
+            return nextWindow.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AndesException("Interrupted while reading content of message " + messageId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AndesException) {
+                throw (AndesException) e.getCause();
+            }
+            throw new AndesException("Error while reading content of message " + messageId, e.getCause());
+        }
+    }
+
+    /**
+     * Read the window starting from the given offset in a reader thread. Memory for the window must be taken from
+     * the limiter.
+     *
+     * @param start offset of the first chunk of the window
+     */
+    private void readAhead(final int start) {
+        try {
+            nextWindow = readerExecutor.submit(new Callable<Map<Integer, AndesMessagePart>>() {
+                @Override
+                public Map<Integer, AndesMessagePart> call() throws AndesException {
+                    return readWindow(start, windowSize);
+                }
+            });
+            nextWindowStart = start;
+            nextWindowMemory = windowSize;
+        } catch (RejectedExecutionException e) {
+            // Readers are stopped. The window is read when it is delivered.
+            releaseMemory(windowSize);
+        }
+    }
+
+    private Map<Integer, AndesMessagePart> readWindow(int start, int length) throws AndesException {
+        List<AndesMessagePart> partList = messageStore.getContent(messageId, start, start + length);
+        Map<Integer, AndesMessagePart> messagePartMap = new HashMap<>(partList.size());
+        for (AndesMessagePart messagePart : partList) {
+            messagePartMap.put(messagePart.getOffset(), messagePart);
+        }
+        return messagePartMap;
+    }
+}
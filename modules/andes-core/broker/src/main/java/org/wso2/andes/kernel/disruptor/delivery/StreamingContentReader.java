@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.delivery;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.MessageStore;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which messages are streamed to subscribers and creates their {@link StreamingContent}. Content of streamed
+ * messages is not read by the content readers of the delivery disruptor, so that a large message does not hold up
+ * the other messages in its content read batch.
+ * <p/>
+ * Deliveries of the same message share one {@link StreamingContent} while any of them can still write it. Memory
+ * of all streamed content is taken from a shared limiter. Memory held by content which is no longer reachable, for
+ * instance content of a delivery abandoned when its subscriber closed, is returned to the limiter when the next
+ * content is created.
+ */
+public class StreamingContentReader {
+
+    /**
+     * Messages with content larger than this are streamed. 0 if streaming is disabled.
+     */
+    private final int threshold;
+
+    /**
+     * Maximum number of content bytes held in memory for a streamed message
+     */
+    private final int memoryBudget;
+
+    /**
+     * Content bytes which can still be held in memory by all streamed messages
+     */
+    private final Semaphore memoryLimiter;
+
+    /**
+     * Maximum chunk size of the stored content
+     */
+    private final int maxChunkSize;
+
+    /**
+     * Reads content of streamed messages ahead of delivery. Null if streaming is disabled.
+     */
+    private final ExecutorService readerExecutor;
+
+    /**
+     * Store content is read from. Null to use the message store of the broker.
+     */
+    private final MessageStore messageStore;
+
+    /**
+     * Content of messages being delivered by message ID
+     */
+    private final ConcurrentMap<Long, ContentReference> contents = new ConcurrentHashMap<>();
+
+    /**
+     * Content which is no longer reachable and whose memory has to be returned to the limiter
+     */
+    private final ReferenceQueue<StreamingContent> unreachableContents = new ReferenceQueue<>();
+
+    /**
+     * Create a reader for streamed messages
+     *
+     * @param threshold         messages with content larger than this many bytes are streamed, 0 disables streaming
+     * @param memoryBudget      maximum number of content bytes held in memory for a streamed message
+     * @param totalMemoryBudget maximum number of content bytes held in memory for all streamed messages
+     * @param readerCount       number of threads reading content ahead of delivery
+     * @param maxChunkSize      maximum chunk size of the stored content
+     */
+    public StreamingContentReader(int threshold, int memoryBudget, int totalMemoryBudget, int readerCount,
+                                  int maxChunkSize) {
+        this(threshold, memoryBudget, totalMemoryBudget, readerCount, maxChunkSize, null);
+    }
+
+    /**
+     * Create a reader for streamed messages which reads content from the given store
+     *
+     * @param threshold         messages with content larger than this many bytes are streamed, 0 disables streaming
+     * @param memoryBudget      maximum number of content bytes held in memory for a streamed message
+     * @param totalMemoryBudget maximum number of content bytes held in memory for all streamed messages
+     * @param readerCount       number of threads reading content ahead of delivery
+     * @param maxChunkSize      maximum chunk size of the stored content
+     * @param messageStore      store content is read from, null to use the message store of the broker
+     */
+    StreamingContentReader(int threshold, int memoryBudget, int totalMemoryBudget, int readerCount,
+                           int maxChunkSize, MessageStore messageStore) {
+        this.threshold = threshold;
+        this.memoryBudget = memoryBudget;
+        this.memoryLimiter = new Semaphore(totalMemoryBudget);
+        this.maxChunkSize = maxChunkSize;
+        this.messageStore = messageStore;
+
+        if (threshold > 0) {
+            ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("StreamingContentReader-%d")
+                    .setDaemon(true).build();
+            readerExecutor = Executors.newFixedThreadPool(readerCount, namedThreadFactory);
+        } else {
+            readerExecutor = null;
+        }
+    }
+
+    /**
+     * Check if the content of a message should be streamed. Compressed messages are not streamed since the whole
+     * content is needed to decompress them.
+     *
+     * @param message metadata of the message
+     * @return true if the content should be streamed
+     */
+    public boolean isStreamed(AndesMessageMetadata message) {
+        return threshold > 0 && message.getMessageContentLength() > threshold && !message.isCompressed();
+    }
+
+    /**
+     * Get the content of a streamed message, creating it unless another delivery of the message still uses it
+     *
+     * @param messageId     id of the message
+     * @param contentLength content length of the message
+     * @return content which reads the message content while it is delivered
+     */
+    public StreamingContent createContent(long messageId, int contentLength) {
+        releaseUnreachableContents();
+
+        ContentReference reference = contents.get(messageId);
+        StreamingContent content = (null == reference) ? null : reference.get();
+        while (null == content) {
+            AtomicInteger heldMemory = new AtomicInteger();
+            StreamingContent newContent = new StreamingContent(messageId, contentLength, maxChunkSize, memoryBudget,
+                    readerExecutor, getMessageStore(), memoryLimiter, heldMemory);
+            ContentReference newReference = new ContentReference(newContent, messageId, heldMemory,
+                    unreachableContents);
+
+            boolean added;
+            if (null == reference) {
+                added = null == contents.putIfAbsent(messageId, newReference);
+            } else {
+                added = contents.replace(messageId, reference, newReference);
+            }
+
+            if (added) {
+                content = newContent;
+            } else {
+                reference = contents.get(messageId);
+                content = (null == reference) ? null : reference.get();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * @return number of content bytes which can still be held in memory by streamed messages
+     */
+    int getAvailableMemory() {
+        return memoryLimiter.availablePermits();
+    }
+
+    /**
+     * Return memory of content which is no longer reachable to the limiter
+     */
+    private void releaseUnreachableContents() {
+        Reference<? extends StreamingContent> reference = unreachableContents.poll();
+        while (null != reference) {
+            ContentReference contentReference = (ContentReference) reference;
+            contents.remove(contentReference.messageId, contentReference);
+            memoryLimiter.release(contentReference.heldMemory.getAndSet(0));
+            reference = unreachableContents.poll();
+        }
+    }
+
+    private MessageStore getMessageStore() {
+        if (null != messageStore) {
+            return messageStore;
+        }
+        return AndesContext.getInstance().getMessageStore();
+    }
+
+    /**
+     * Stop reading content ahead of delivery
+     */
+    public void stop() {
+        if (null != readerExecutor) {
+            readerExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Weak reference to the content of a message, keeping the memory the content holds so that it can be released
+     * once the content is no longer reachable
+     */
+    private static final class ContentReference extends WeakReference<StreamingContent> {
+
+        private final long messageId;
+
+        /**
+         * Memory held by the content. Shared with the content.
+         */
+        private final AtomicInteger heldMemory;
+
+        private ContentReference(StreamingContent content, long messageId, AtomicInteger heldMemory,
+                                 ReferenceQueue<StreamingContent> queue) {
+            super(content, queue);
+            this.messageId = messageId;
+            this.heldMemory = heldMemory;
+        }
+    }
+}
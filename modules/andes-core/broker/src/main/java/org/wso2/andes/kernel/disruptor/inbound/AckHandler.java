@@ -26,7 +26,6 @@ import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesUtils;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
-import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.store.AndesTransactionRollbackException;
@@ -45,7 +44,10 @@ public class AckHandler implements StoreHealthListener {
 
     private static Log log = LogFactory.getLog(AckHandler.class);
     
-    private final MessagingEngine messagingEngine;
+    /**
+     * Deletes acknowledged messages from the message store
+     */
+    private final AckedMessageDeleter messageDeleter;
 
     private final AndesSubscriptionManager subscriptionManager;
 
@@ -66,8 +68,8 @@ public class AckHandler implements StoreHealthListener {
      */
     private final List<DeliverableAndesMetadata> messagesToRemove;
     
-    AckHandler(MessagingEngine messagingEngine) {
-        this.messagingEngine = messagingEngine;
+    AckHandler(AckedMessageDeleter messageDeleter) {
+        this.messageDeleter = messageDeleter;
         this.subscriptionManager = AndesContext.getInstance().getAndesSubscriptionManager();
         this.messageStoresUnavailable = false;
         this.messagesToRemove = new ArrayList<>();
@@ -133,7 +135,7 @@ public class AckHandler implements StoreHealthListener {
      */
     private void deleteMessagesFromStore(int numberOfRetriesBefore) throws AndesException {
         try {
-            messagingEngine.deleteMessages(messagesToRemove);
+            messageDeleter.delete(messagesToRemove);
 
             if (log.isTraceEnabled()) {
                 StringBuilder messageIDsString = new StringBuilder();
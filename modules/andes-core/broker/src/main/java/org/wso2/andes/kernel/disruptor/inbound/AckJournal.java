@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Local file of acknowledged messages which are not yet deleted from the message store. Each append is written as
+ * <pre>
+ * | message count (int) | CRC32 of the message IDs (int) | message IDs (long) ... |
+ * </pre>
+ * and flushed to the disk before returning. Appends go to the current file until it is sealed. Sealed files are
+ * deleted once the messages in them are deleted from the message store.
+ * <p/>
+ * Methods are not thread safe. Callers should synchronize.
+ */
+final class AckJournal {
+
+    private static final String FILE_SUFFIX = ".journal";
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final File directory;
+
+    /**
+     * Files found when the journal was opened
+     */
+    private final List<File> recoveredFiles = new ArrayList<>();
+
+    private File currentFile;
+
+    private RandomAccessFile currentRandomAccessFile;
+
+    private long nextFileId;
+
+    /**
+     * Open the journal in the given directory. Files left by a previous run are kept until
+     * {@link #releaseRecovered()} is called.
+     *
+     * @param directory directory of the journal files
+     * @throws IOException if the directory or the first journal file cannot be created
+     */
+    AckJournal(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create acknowledgement journal directory " + directory);
+        }
+
+        File[] files = directory.listFiles();
+        if (null != files) {
+            Arrays.sort(files);
+            for (File file : files) {
+                String fileName = file.getName();
+                if (fileName.endsWith(FILE_SUFFIX)) {
+                    recoveredFiles.add(file);
+                    long fileId = Long.parseLong(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+                    nextFileId = Math.max(nextFileId, fileId + 1);
+                }
+            }
+        }
+        openNewFile();
+    }
+
+    /**
+     * Read message IDs written by a previous run. Reading a file stops at the first incomplete or corrupted record,
+     * which can only be the last record written before a crash.
+     *
+     * @return IDs of acknowledged messages which may not have been deleted
+     * @throws IOException if a journal file cannot be read
+     */
+    LongArrayList readRecovered() throws IOException {
+        LongArrayList messageIds = new LongArrayList();
+        for (File file : recoveredFiles) {
+            try (FileInputStream inputStream = new FileInputStream(file)) {
+                FileChannel channel = inputStream.getChannel();
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Read the whole file
+                }
+                buffer.flip();
+                readRecords(buffer, messageIds);
+            }
+        }
+        return messageIds;
+    }
+
+    /**
+     * Delete the files written by a previous run
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    void releaseRecovered() throws IOException {
+        deleteFiles(recoveredFiles);
+        recoveredFiles.clear();
+    }
+
+    /**
+     * Append IDs of messages and flush them to the disk
+     *
+     * @param messages acknowledged messages
+     * @throws IOException if the IDs cannot be written
+     */
+    void append(List<? extends AndesMessageMetadata> messages) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + messages.size() * 8);
+        buffer.position(RECORD_HEADER_SIZE);
+        for (AndesMessageMetadata message : messages) {
+            buffer.putLong(message.getMessageID());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, messages.size() * 8);
+        buffer.putInt(0, messages.size());
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.rewind();
+
+        FileChannel channel = currentRandomAccessFile.getChannel();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Seal the current file and start a new one. The caller keeps track of the sealed file until it is released.
+     *
+     * @return the sealed file
+     * @throws IOException if the new file cannot be created
+     */
+    File seal() throws IOException {
+        File sealedFile = currentFile;
+        currentRandomAccessFile.close();
+        openNewFile();
+        return sealedFile;
+    }
+
+    /**
+     * Delete sealed files once the messages in them are deleted from the message store
+     *
+     * @param files files returned by {@link #seal()}
+     * @throws IOException if a file cannot be deleted
+     */
+    void release(List<File> files) throws IOException {
+        deleteFiles(files);
+    }
+
+    /**
+     * Close the current file
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    void close() throws IOException {
+        currentRandomAccessFile.close();
+    }
+
+    private void openNewFile() throws IOException {
+        currentFile = new File(directory, String.format("%019d", nextFileId) + FILE_SUFFIX);
+        nextFileId++;
+        currentRandomAccessFile = new RandomAccessFile(currentFile, "rw");
+        currentRandomAccessFile.setLength(0);
+    }
+
+    private static void readRecords(ByteBuffer buffer, LongArrayList messageIds) {
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int count = buffer.getInt();
+            int storedChecksum = buffer.getInt();
+            if (count <= 0 || buffer.remaining() < count * 8L) {
+                return;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), buffer.position(), count * 8);
+            if (storedChecksum != (int) crc.getValue()) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                messageIds.add(buffer.getLong());
+            }
+        }
+    }
+
+    private static void deleteFiles(List<File> files) throws IOException {
+        for (File file : files) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not delete acknowledgement journal file " + file);
+            }
+        }
+    }
+}
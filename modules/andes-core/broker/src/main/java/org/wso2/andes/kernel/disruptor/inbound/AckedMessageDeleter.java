@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.MessageStatus;
+import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.andes.store.FailureObservingStoreManager;
+import org.wso2.andes.store.HealthAwareStore;
+import org.wso2.andes.store.StoreHealthListener;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes acknowledged messages from the message store on behalf of all {@link AckHandler}s.
+ * <p/>
+ * With a deletion interval, acknowledged messages are written to an {@link AckJournal} and deleted together every
+ * interval, or earlier when the number of pending messages reaches the deletion batch size. Messages still in the
+ * journal when the broker starts are deleted before message delivery starts, so that messages acknowledged on this
+ * node are not delivered again after a crash. Without an interval messages are deleted by the calling ack handler.
+ * <p/>
+ * Slot message counts are decremented only after messages are deleted from the store.
+ */
+public class AckedMessageDeleter implements StoreHealthListener {
+
+    private static Log log = LogFactory.getLog(AckedMessageDeleter.class);
+
+    /**
+     * Used to delete acknowledged messages
+     */
+    private final DeletionStore deletionStore;
+
+    /**
+     * Number of pending messages at which deletion starts without waiting for the interval
+     */
+    private final int deletionBatchSize;
+
+    /**
+     * Journal of pending messages. Null if messages are deleted by the ack handlers.
+     */
+    private final AckJournal journal;
+
+    /**
+     * Runs the periodic deletion. Null if messages are deleted by the ack handlers.
+     */
+    private final ScheduledExecutorService deletionExecutor;
+
+    /**
+     * Acknowledged messages waiting to be deleted. Guarded by the journal lock.
+     */
+    private List<DeliverableAndesMetadata> pendingMessages;
+
+    /**
+     * Sealed journal files of pending messages which were put back after a failed deletion. Released together with
+     * the journal file sealed by the next successful deletion. Guarded by the journal lock.
+     */
+    private List<File> pendingSealedFiles = new ArrayList<>();
+
+    /**
+     * Set while a deletion is submitted ahead of the interval, to avoid submitting it again for each ack batch
+     */
+    private boolean deletionSubmitted;
+
+    /**
+     * Indicates if message stores are offline. Set from the thread which observes store failures.
+     */
+    private volatile boolean messageStoresUnavailable;
+
+    private final Runnable deletionTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                deletePendingMessages();
+            } catch (Throwable e) {
+                log.error("Error while deleting acknowledged messages", e);
+            }
+        }
+    };
+
+    /**
+     * Create a deleter which deletes messages in the calling thread
+     *
+     * @param messagingEngine messaging engine used to delete messages
+     */
+    public AckedMessageDeleter(MessagingEngine messagingEngine) {
+        this(deletionStore(messagingEngine));
+    }
+
+    /**
+     * Create a deleter which deletes messages in the calling thread through the given store
+     *
+     * @param deletionStore used to delete messages
+     */
+    AckedMessageDeleter(DeletionStore deletionStore) {
+        this.deletionStore = deletionStore;
+        this.deletionBatchSize = 0;
+        this.journal = null;
+        this.deletionExecutor = null;
+        this.pendingMessages = new ArrayList<>();
+        FailureObservingStoreManager.registerStoreHealthListener(this);
+        MetricManager.gauge(MetricsConstants.ACK_DELETION_BACKLOG, Level.INFO, new DeletionBacklogGauge());
+    }
+
+    /**
+     * Create a deleter which deletes messages periodically. Messages left in the journal directory by a previous run
+     * are deleted from the store before returning.
+     *
+     * @param messagingEngine   messaging engine used to delete messages
+     * @param deletionInterval  interval between deletions in milliseconds
+     * @param deletionBatchSize number of pending messages at which deletion starts without waiting for the interval
+     * @param journalDirectory  directory of the journal of pending messages
+     * @throws AndesException if the journal cannot be opened
+     */
+    public AckedMessageDeleter(MessagingEngine messagingEngine, int deletionInterval, int deletionBatchSize,
+                               File journalDirectory) throws AndesException {
+        this(deletionStore(messagingEngine), deletionInterval, deletionBatchSize, journalDirectory);
+    }
+
+    /**
+     * Create a deleter which deletes messages periodically through the given store
+     *
+     * @param deletionStore     used to delete messages
+     * @param deletionInterval  interval between deletions in milliseconds
+     * @param deletionBatchSize number of pending messages at which deletion starts without waiting for the interval
+     * @param journalDirectory  directory of the journal of pending messages
+     * @throws AndesException if the journal cannot be opened
+     */
+    AckedMessageDeleter(DeletionStore deletionStore, int deletionInterval, int deletionBatchSize,
+                        File journalDirectory) throws AndesException {
+        this.deletionStore = deletionStore;
+        this.deletionBatchSize = deletionBatchSize;
+        this.pendingMessages = new ArrayList<>(deletionBatchSize);
+
+        try {
+            journal = new AckJournal(journalDirectory);
+        } catch (IOException e) {
+            throw new AndesException("Could not open acknowledgement journal in " + journalDirectory, e);
+        }
+        deleteRecoveredMessages();
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("AckedMessageDeleter-%d")
+                .build();
+        deletionExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        deletionExecutor.scheduleWithFixedDelay(deletionTask, deletionInterval, deletionInterval,
+                TimeUnit.MILLISECONDS);
+
+        FailureObservingStoreManager.registerStoreHealthListener(this);
+        MetricManager.gauge(MetricsConstants.ACK_DELETION_BACKLOG, Level.INFO, new DeletionBacklogGauge());
+    }
+
+    /**
+     * Delete acknowledged messages. Without a deletion interval the messages are deleted before returning.
+     * Otherwise they are written to the journal and deleted later.
+     *
+     * @param messages acknowledged messages ready to be removed
+     * @throws AndesException if messages could not be deleted or written to the journal
+     */
+    public void delete(List<DeliverableAndesMetadata> messages) throws AndesException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        if (null == journal) {
+            deletionStore.deleteMessages(messages);
+            decrementSlotMessageCounts(messages);
+            return;
+        }
+
+        synchronized (journal) {
+            try {
+                journal.append(messages);
+            } catch (IOException e) {
+                throw new AndesException("Could not write " + messages.size()
+                        + " acknowledged messages to the journal", e);
+            }
+            pendingMessages.addAll(messages);
+
+            if (pendingMessages.size() >= deletionBatchSize && !deletionSubmitted) {
+                deletionSubmitted = true;
+                deletionExecutor.execute(deletionTask);
+            }
+        }
+    }
+
+    /**
+     * Delete pending messages and shut down the periodic deletion
+     */
+    public void stop() {
+        if (null == deletionExecutor) {
+            return;
+        }
+
+        deletionExecutor.shutdown();
+        try {
+            deletionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            deletePendingMessages();
+            synchronized (journal) {
+                journal.close();
+            }
+        } catch (AndesException | IOException e) {
+            log.warn("Acknowledged messages could not be deleted while stopping. They will be deleted when the "
+                    + "broker starts", e);
+        }
+    }
+
+    /**
+     * Delete the messages pending since the last deletion. Runs only in the deletion thread, or after it stopped.
+     *
+     * @throws AndesException if the journal cannot be sealed
+     */
+    private void deletePendingMessages() throws AndesException {
+        if (messageStoresUnavailable) {
+            return;
+        }
+
+        List<DeliverableAndesMetadata> messages;
+        List<File> sealedFiles;
+        synchronized (journal) {
+            deletionSubmitted = false;
+            if (pendingMessages.isEmpty()) {
+                return;
+            }
+            messages = pendingMessages;
+            pendingMessages = new ArrayList<>(deletionBatchSize);
+            try {
+                File sealedFile = journal.seal();
+                sealedFiles = pendingSealedFiles;
+                sealedFiles.add(sealedFile);
+                pendingSealedFiles = new ArrayList<>();
+            } catch (IOException e) {
+                pendingMessages.addAll(messages);
+                throw new AndesException("Could not seal the acknowledgement journal", e);
+            }
+        }
+
+        try {
+            deletionStore.deleteMessages(messages);
+        } catch (AndesException e) {
+            log.warn("Unable to delete " + messages.size() + " acknowledged messages. Operation will be attempted "
+                    + "again", e);
+            synchronized (journal) {
+                messages.addAll(pendingMessages);
+                pendingMessages = messages;
+                pendingSealedFiles.addAll(sealedFiles);
+            }
+            return;
+        }
+
+        decrementSlotMessageCounts(messages);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Deleted " + messages.size() + " acknowledged messages");
+        }
+
+        try {
+            synchronized (journal) {
+                journal.release(sealedFiles);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete acknowledgement journal files of deleted messages", e);
+        }
+    }
+
+    /**
+     * Delete messages acknowledged but not deleted before the broker stopped
+     */
+    private void deleteRecoveredMessages() throws AndesException {
+        try {
+            LongArrayList messageIds = journal.readRecovered();
+            if (!messageIds.isEmpty()) {
+                List<Long> messageIdList = new ArrayList<>(messageIds.size());
+                for (int i = 0; i < messageIds.size(); i++) {
+                    messageIdList.add(messageIds.get(i));
+                }
+                deletionStore.deleteMessagesById(messageIdList);
+                log.info("Deleted " + messageIds.size() + " messages acknowledged before the broker stopped");
+            }
+            journal.releaseRecovered();
+        } catch (IOException e) {
+            throw new AndesException("Could not recover acknowledged messages from the journal", e);
+        }
+    }
+
+    /**
+     * Update slots of deleted messages so that slots with no pending messages are deleted
+     *
+     * @param messages messages deleted from the store
+     */
+    private void decrementSlotMessageCounts(List<DeliverableAndesMetadata> messages) throws AndesException {
+        for (DeliverableAndesMetadata message : messages) {
+            if (message.getLatestState().equals(MessageStatus.DELETED)) {
+                message.getSlot().decrementPendingMessageCount();
+            }
+        }
+    }
+
+    /**
+     * Create a deletion store deleting messages through the messaging engine
+     */
+    private static DeletionStore deletionStore(final MessagingEngine messagingEngine) {
+        return new DeletionStore() {
+            @Override
+            public void deleteMessages(List<DeliverableAndesMetadata> messages) throws AndesException {
+                messagingEngine.deleteMessages(messages);
+            }
+
+            @Override
+            public void deleteMessagesById(List<Long> messageIds) throws AndesException {
+                messagingEngine.deleteMessagesById(messageIds);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeNonOperational(HealthAwareStore store, Exception ex) {
+        messageStoresUnavailable = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeOperational(HealthAwareStore store) {
+        messageStoresUnavailable = false;
+    }
+
+    /**
+     * Deletes acknowledged messages from the message store
+     */
+    interface DeletionStore {
+
+        /**
+         * Delete acknowledged messages
+         *
+         * @param messages messages to delete
+         * @throws AndesException if the messages could not be deleted
+         */
+        void deleteMessages(List<DeliverableAndesMetadata> messages) throws AndesException;
+
+        /**
+         * Delete messages recovered from the journal
+         *
+         * @param messageIds IDs of the messages to delete
+         * @throws AndesException if the messages could not be deleted
+         */
+        void deleteMessagesById(List<Long> messageIds) throws AndesException;
+    }
+
+    /**
+     * Gauge for the number of acknowledged messages waiting to be deleted
+     */
+    private class DeletionBacklogGauge implements Gauge<Integer> {
+        @Override
+        public Integer getValue() {
+            if (null == journal) {
+                return 0;
+            }
+            synchronized (journal) {
+                return pendingMessages.size();
+            }
+        }
+    }
+}
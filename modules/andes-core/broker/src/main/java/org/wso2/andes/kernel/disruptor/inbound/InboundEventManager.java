@@ -18,7 +18,6 @@
 
 package org.wso2.andes.kernel.disruptor.inbound;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
@@ -28,14 +27,16 @@ import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.kernel.AndesAckData;
 import org.wso2.andes.kernel.AndesAckEvent;
 import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.DisablePubAckImpl;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.disruptor.ConcurrentBatchEventHandler;
+import org.wso2.andes.kernel.disruptor.DisruptorExecutors;
 import org.wso2.andes.kernel.disruptor.InboundEventHandler;
 import org.wso2.andes.kernel.disruptor.LogExceptionHandler;
 import org.wso2.andes.kernel.disruptor.compression.LZ4CompressionHelper;
-import org.wso2.andes.kernel.disruptor.waitStrategy.SleepingBlockingWaitStrategy;
+import org.wso2.andes.kernel.disruptor.waitStrategy.WaitStrategyType;
 import org.wso2.andes.kernel.dtx.DtxBranch;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.tools.utils.MessageTracer;
@@ -43,14 +44,20 @@ import org.wso2.carbon.metrics.manager.Gauge;
 import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.MetricManager;
 
+import java.io.File;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACKNOWLEDGEMENT_HANDLER_BATCH_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACK_DELETION_BATCH_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACK_DELETION_INTERVAL;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACK_DELETION_JOURNAL_DIRECTORY;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLER_COUNT;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_CONTENT_CHUNK_HANDLER_COUNT;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_GROUP_COMMIT_WINDOW_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_GROUP_COMMIT_WINDOW_TIME;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_INBOUND_DEDICATED_HANDLER_THREADS;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_INBOUND_WAIT_STRATEGY;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_WRITER_BATCH_SIZE;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_MESSAGE_WRITERS;
@@ -78,10 +85,20 @@ public class InboundEventManager {
     private final RingBuffer<InboundEventContainer> ringBuffer;
     private AtomicInteger ackedMessageCount = new AtomicInteger();
     private Disruptor<InboundEventContainer> disruptor;
+
+    /**
+     * Runs the event processors of the disruptor. Shut down once the disruptor is shut down.
+     */
+    private final ExecutorService executorPool;
     private final DisablePubAckImpl disablePubAck;
     private LZ4CompressionHelper lz4CompressionHelper;
 
-    public InboundEventManager(MessagingEngine messagingEngine) {
+    /**
+     * Deletes messages acknowledged through the ack handlers
+     */
+    private final AckedMessageDeleter ackedMessageDeleter;
+
+    public InboundEventManager(MessagingEngine messagingEngine) throws AndesException {
 
         Integer bufferSize = AndesConfigurationManager.readValue(
                 PERFORMANCE_TUNING_PUBLISHING_BUFFER_SIZE);
@@ -104,15 +121,22 @@ public class InboundEventManager {
         int contentChunkHandlerCount = AndesConfigurationManager.readValue(
                 PERFORMANCE_TUNING_CONTENT_CHUNK_HANDLER_COUNT);
 
-        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
-                .setNameFormat("DisruptorInboundEventThread-%d").build();
-        ExecutorService executorPool = Executors.newCachedThreadPool(namedThreadFactory);
+        WaitStrategyType waitStrategyType = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_INBOUND_WAIT_STRATEGY);
+        boolean dedicatedHandlerThreads = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_INBOUND_DEDICATED_HANDLER_THREADS);
+
+        // Content chunk handlers, pre processor, batch event handlers and state event handler
+        int eventProcessorCount = contentChunkHandlerCount + 1 + writeHandlerCount + transactionHandlerCount
+                + ackHandlerCount + dtxDbWriterCount + 1;
+        executorPool = DisruptorExecutors.createExecutor("DisruptorInboundEventThread-%d",
+                eventProcessorCount, dedicatedHandlerThreads);
 
         disruptor = new Disruptor<>(InboundEventContainer.getFactory(),
                 bufferSize,
                 executorPool,
                 ProducerType.MULTI,
-                new SleepingBlockingWaitStrategy());
+                waitStrategyType.createWaitStrategy());
 
         disruptor.handleExceptionsWith(new LogExceptionHandler());
 
@@ -131,10 +155,20 @@ public class InboundEventManager {
             }
         }
 
+        // Batches of parallel message writers are stored together only if there is more than one writer to group
+        long groupCommitWindowTime = AndesConfigurationManager.readValue(PERFORMANCE_TUNING_GROUP_COMMIT_WINDOW_TIME);
+        long groupCommitWindowSize = AndesConfigurationManager.readValue(PERFORMANCE_TUNING_GROUP_COMMIT_WINDOW_SIZE);
+        MessageGroupCommitter groupCommitter = null;
+        if (writeHandlerCount > 1 && groupCommitWindowTime > 0) {
+            groupCommitter = new MessageGroupCommitter(messagingEngine, writeHandlerCount, groupCommitWindowTime,
+                    groupCommitWindowSize);
+        }
+
         for (int turn = 0; turn < writeHandlerCount; turn++) {
             batchEventHandlers[turn] =
                     new ConcurrentBatchEventHandler(turn, writeHandlerCount, writerBatchSize, MESSAGE_EVENT,
-                                                    new MessageWriter(messagingEngine, writerBatchSize));
+                                                    new MessageWriter(messagingEngine, writerBatchSize,
+                                                            groupCommitter));
         }
 
         for (int turn = 0; turn < transactionHandlerCount; turn++) {
@@ -145,10 +179,22 @@ public class InboundEventManager {
                             new MessageWriter(messagingEngine, writerBatchSize));
         }
 
+        // Acknowledged messages are deleted by the ack handlers themselves unless a deletion interval is set
+        int ackDeletionInterval = AndesConfigurationManager.readValue(PERFORMANCE_TUNING_ACK_DELETION_INTERVAL);
+        if (ackDeletionInterval > 0) {
+            int ackDeletionBatchSize = AndesConfigurationManager.readValue(PERFORMANCE_TUNING_ACK_DELETION_BATCH_SIZE);
+            String ackJournalDirectory = AndesConfigurationManager.readValue(
+                    PERFORMANCE_TUNING_ACK_DELETION_JOURNAL_DIRECTORY);
+            ackedMessageDeleter = new AckedMessageDeleter(messagingEngine, ackDeletionInterval, ackDeletionBatchSize,
+                    new File(ackJournalDirectory));
+        } else {
+            ackedMessageDeleter = new AckedMessageDeleter(messagingEngine);
+        }
+
         for (int turn = 0; turn < ackHandlerCount; turn++) {
             batchEventHandlers[writeHandlerCount+ transactionHandlerCount + turn] =
                     new AckEventBatchHandler(turn, ackHandlerCount, ackHandlerBatchSize,
-                                             new AckHandler(messagingEngine));
+                                             new AckHandler(ackedMessageDeleter));
         }
 
         for (int turn = 0; turn < dtxDbWriterCount; turn++) {
@@ -421,10 +467,13 @@ public class InboundEventManager {
     }
 
     /**
-     * Stop disruptor. This wait until disruptor process pending events in ring buffer.
+     * Stop disruptor. This wait until disruptor process pending events in ring buffer. Threads of the event
+     * processors are released and acknowledged messages waiting to be deleted are deleted afterwards.
      */
     public void stop() {
         disruptor.shutdown();
+        executorPool.shutdown();
+        ackedMessageDeleter.stop();
     }
 
     /**
@@ -26,7 +26,9 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesKernelBoot;
 import org.wso2.andes.kernel.FlowControlManager;
 import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.kernel.QueueTaskScheduler;
 import org.wso2.andes.kernel.dtx.DtxRegistry;
+import org.wso2.andes.kernel.slot.SlotAvailabilityNotifier;
 import org.wso2.andes.kernel.slot.SlotDeletionExecutor;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
 import org.wso2.andes.server.ClusterResourceHolder;
@@ -222,6 +224,12 @@ public class InboundKernelOpsEvent implements AndesInboundStateEvent {
             // Slot deletion shutdown at this point
             SlotDeletionExecutor.getInstance().stopSlotDeletionExecutor();
 
+            // Complete pending per queue background tasks (i.e slot releases)
+            QueueTaskScheduler.getInstance().shutdown();
+
+            // Stop notifying slot availability to other nodes
+            SlotAvailabilityNotifier.getInstance().stop();
+
             //Stop Slot manager in coordinator
             if (AndesContext.getInstance().isClusteringEnabled() && (AndesContext.getInstance().getClusterAgent().isCoordinator())) {
                 AndesKernelBoot.stopThriftServer();
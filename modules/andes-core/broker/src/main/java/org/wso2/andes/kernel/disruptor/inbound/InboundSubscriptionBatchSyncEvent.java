@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ClusterNotificationListener.SubscriptionChange;
+import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
+import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationBatch;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Inbound event for disruptor applying a batch of subscription change notifications of a remote node. The whole
+ * batch is applied by a single event instead of publishing an {@link InboundSubscriptionSyncEvent} per change.
+ */
+public class InboundSubscriptionBatchSyncEvent implements AndesInboundStateEvent {
+
+    private static Log log = LogFactory.getLog(InboundSubscriptionBatchSyncEvent.class);
+
+    /**
+     * Future to wait for the batch to be applied
+     */
+    private SettableFuture<Boolean> future = SettableFuture.create();
+
+    /**
+     * Reference to subscription manager to update subscriptions
+     */
+    private AndesSubscriptionManager subscriptionManager;
+
+    /**
+     * Subscription changes to apply
+     */
+    private final SubscriptionNotificationBatch batch;
+
+    /**
+     * Create an event applying the given subscription changes
+     *
+     * @param batch subscription changes of a remote node
+     */
+    public InboundSubscriptionBatchSyncEvent(SubscriptionNotificationBatch batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * Prepare the event to publish to disruptor
+     *
+     * @param subscriptionManager AndesSubscriptionManager
+     */
+    public void prepareForRemoteSubscriptionChanges(AndesSubscriptionManager subscriptionManager) {
+        this.subscriptionManager = subscriptionManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A change which cannot be applied is logged and the rest of the batch is applied.
+     */
+    @Override
+    public void updateState() throws AndesException {
+        List<SubscriptionChange> changes = batch.getChanges();
+        List<String> encodedSubscriptions = batch.getEncodedSubscriptions();
+        try {
+            for (int i = 0; i < changes.size(); i++) {
+                InboundSubscriptionSyncEvent subscriptionSyncEvent =
+                        new InboundSubscriptionSyncEvent(encodedSubscriptions.get(i));
+                try {
+                    switch (changes.get(i)) {
+                        case Added:
+                            subscriptionManager.addRemoteSubscription(subscriptionSyncEvent);
+                            break;
+                        case Closed:
+                            subscriptionManager.closeRemoteSubscription(subscriptionSyncEvent);
+                            break;
+                        default:
+                            log.error("Unexpected change type in subscription batch " + changes.get(i));
+                            break;
+                    }
+                } catch (AndesException e) {
+                    log.warn("Error occurred while processing subscription change '" + changes.get(i)
+                            + "' for subscriber " + encodedSubscriptions.get(i), e);
+                }
+            }
+        } finally {
+            future.set(true);
+        }
+    }
+
+    /**
+     * Wait until the batch is applied
+     *
+     * @return true if the batch is applied
+     */
+    public boolean waitForCompletion() {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Error occurred while processing subscription change batch of " + batch.size() + " changes",
+                    e);
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String eventInfo() {
+        return "SYNC_SUBSCRIPTION_BATCH_EVENT";
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer.Context;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Merges the message batches of parallel {@link MessageWriter}s into a single store operation.
+ * <p/>
+ * The first writer to submit a batch opens a group and becomes its leader. Other writers submitting while the group
+ * is open add their batches to it. The leader closes the group when every writer has joined, when the size of the
+ * grouped messages reaches the window size or when the window time elapses, and then stores all the messages with
+ * one call to the message store. Each writer returns only after the group it joined is stored, hence publisher acks,
+ * which are sent after the writers finish, are still sent only for persisted messages.
+ */
+public class MessageGroupCommitter {
+
+    private static Log log = LogFactory.getLog(MessageGroupCommitter.class);
+
+    /**
+     * Used to store the grouped messages
+     */
+    private final GroupStore groupStore;
+
+    /**
+     * Number of writers sharing this committer. A group is closed without waiting once this many writers joined it.
+     */
+    private final int writerCount;
+
+    /**
+     * Maximum time a group is kept open in nanoseconds
+     */
+    private final long windowTimeNanos;
+
+    /**
+     * Size in bytes of grouped messages at which a group is closed without waiting for the window time
+     */
+    private final long windowSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled to the leader when a writer joins the open group
+     */
+    private final Condition writerJoined = lock.newCondition();
+
+    /**
+     * Signalled when a group is stored
+     */
+    private final Condition groupStored = lock.newCondition();
+
+    /**
+     * Group which writers can join. Null if there is no open group. Guarded by the lock.
+     */
+    private Group openGroup;
+
+    /**
+     * Number of messages stored by the last group
+     */
+    private volatile int lastCommitSize;
+
+    /**
+     * Percentage of the window size filled by the last group
+     */
+    private volatile int lastWindowFill;
+
+    /**
+     * Create a group committer
+     *
+     * @param messagingEngine messaging engine used to store messages
+     * @param writerCount     number of message writers sharing the committer
+     * @param windowTime      maximum time in microseconds a group waits for other writers
+     * @param windowSize      size in bytes at which a group is stored without waiting for other writers
+     */
+    public MessageGroupCommitter(final MessagingEngine messagingEngine, int writerCount, long windowTime,
+                                 long windowSize) {
+        this(new GroupStore() {
+            @Override
+            public void store(List<AndesMessage> messages) throws AndesException {
+                messagingEngine.messagesReceived(messages);
+            }
+        }, writerCount, windowTime, windowSize);
+    }
+
+    /**
+     * Create a group committer storing groups through the given store
+     *
+     * @param groupStore  used to store the grouped messages
+     * @param writerCount number of message writers sharing the committer
+     * @param windowTime  maximum time in microseconds a group waits for other writers
+     * @param windowSize  size in bytes at which a group is stored without waiting for other writers
+     */
+    MessageGroupCommitter(GroupStore groupStore, int writerCount, long windowTime, long windowSize) {
+        this.groupStore = groupStore;
+        this.writerCount = writerCount;
+        this.windowTimeNanos = TimeUnit.MICROSECONDS.toNanos(windowTime);
+        this.windowSize = windowSize;
+
+        MetricManager.gauge(MetricsConstants.GROUP_COMMIT_SIZE, Level.INFO, new CommitSizeGauge());
+        MetricManager.gauge(MetricsConstants.GROUP_COMMIT_WINDOW_FILL, Level.INFO, new WindowFillGauge());
+    }
+
+    /**
+     * Store a batch of messages together with the batches of other writers. Returns once the messages are stored.
+     * An empty batch only lets the leader of the open group know that this writer has nothing to add. Writers are
+     * told apart by their thread, hence a writer is counted once per group however many batches it submits.
+     *
+     * @param messageList messages of a writer batch
+     * @throws AndesException if the group of messages could not be stored
+     */
+    public void commit(List<AndesMessage> messageList) throws AndesException {
+        Group group;
+        boolean leader = false;
+
+        lock.lock();
+        try {
+            if (messageList.isEmpty()) {
+                if (null != openGroup && openGroup.join()) {
+                    writerJoined.signal();
+                }
+                return;
+            }
+
+            if (null == openGroup) {
+                openGroup = new Group();
+                leader = true;
+            }
+            group = openGroup;
+            group.add(messageList);
+
+            if (leader) {
+                waitForWriters(group);
+                openGroup = null;
+            } else {
+                writerJoined.signal();
+                while (!group.done) {
+                    groupStored.awaitUninterruptibly();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (leader) {
+            store(group);
+        }
+
+        if (null != group.failure) {
+            throw group.failure;
+        }
+    }
+
+    /**
+     * Wait until the group is full or the window time elapses. Must be called holding the lock.
+     *
+     * @param group group opened by the calling writer
+     */
+    private void waitForWriters(Group group) {
+        long remainingNanos = windowTimeNanos;
+        try {
+            while (group.writers.size() < writerCount && group.size < windowSize && remainingNanos > 0) {
+                remainingNanos = writerJoined.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Store the messages of a closed group and release the writers waiting on it. The writers are released even if
+     * storing fails, and each of them is given the failure.
+     *
+     * @param group group closed by the calling writer
+     */
+    private void store(Group group) {
+        try {
+            Context commitContext = MetricManager.timer(MetricsConstants.GROUP_COMMIT_LATENCY, Level.INFO).start();
+            try {
+                groupStore.store(group.messages);
+            } finally {
+                commitContext.stop();
+            }
+
+            lastCommitSize = group.messages.size();
+            lastWindowFill = (int) Math.min(100, group.size * 100 / Math.max(1, windowSize));
+            if (log.isDebugEnabled()) {
+                log.debug("Stored a group of " + group.messages.size() + " messages from " + group.writers.size()
+                        + " writers");
+            }
+        } catch (AndesException e) {
+            group.failure = e;
+        } catch (RuntimeException e) {
+            group.failure = new AndesException("Error while storing a group of " + group.messages.size()
+                    + " messages", e);
+        } catch (Error e) {
+            group.failure = new AndesException("Error while storing a group of " + group.messages.size()
+                    + " messages", e);
+            throw e;
+        } finally {
+            lock.lock();
+            try {
+                group.done = true;
+                groupStored.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stores the messages of a group
+     */
+    interface GroupStore {
+
+        /**
+         * Store messages of a group
+         *
+         * @param messages messages of all the writers in the group
+         * @throws AndesException if the messages could not be stored
+         */
+        void store(List<AndesMessage> messages) throws AndesException;
+    }
+
+    /**
+     * Messages of writers stored by one call to the message store
+     */
+    private static class Group {
+
+        private final List<AndesMessage> messages = new ArrayList<>();
+
+        /**
+         * Threads of the writers which joined the group
+         */
+        private final Set<Thread> writers = new HashSet<>();
+
+        /**
+         * Size of metadata and content of the messages in bytes
+         */
+        private long size;
+
+        private boolean done;
+
+        private AndesException failure;
+
+        /**
+         * Add the calling writer to the group
+         *
+         * @return true if the writer had not joined the group before
+         */
+        private boolean join() {
+            return writers.add(Thread.currentThread());
+        }
+
+        private void add(List<AndesMessage> messageList) {
+            messages.addAll(messageList);
+            join();
+            for (AndesMessage message : messageList) {
+                size = size + message.getMetadata().getMetadata().length;
+                for (AndesMessagePart part : message.getContentChunkList()) {
+                    size = size + part.getDataLength();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gauge for the number of messages stored by the last group commit
+     */
+    private class CommitSizeGauge implements Gauge<Integer> {
+        @Override
+        public Integer getValue() {
+            return lastCommitSize;
+        }
+    }
+
+    /**
+     * Gauge for the percentage of the window size filled by the last group commit
+     */
+    private class WindowFillGauge implements Gauge<Integer> {
+        @Override
+        public Integer getValue() {
+            return lastWindowFill;
+        }
+    }
+}
@@ -60,8 +60,27 @@ public class MessageWriter implements StoreHealthListener {
      */
     private final MessagingEngine messagingEngine;
 
+    /**
+     * Merges the batches of this writer with batches of other writers before storing. Null if each batch is stored
+     * on its own.
+     */
+    private final MessageGroupCommitter groupCommitter;
+
     public MessageWriter(MessagingEngine messagingEngine, int messageBatchSize) {
+        this(messagingEngine, messageBatchSize, null);
+    }
+
+    /**
+     * Create a message writer which stores batches through a group committer shared with other writers
+     *
+     * @param messagingEngine  messaging engine used to store messages
+     * @param messageBatchSize maximum size of a batch
+     * @param groupCommitter   group committer shared by the writers, or null to store each batch on its own
+     */
+    public MessageWriter(MessagingEngine messagingEngine, int messageBatchSize,
+                         MessageGroupCommitter groupCommitter) {
         this.messagingEngine = messagingEngine;
+        this.groupCommitter = groupCommitter;
         /*
          * For topics the size may be more than messageBatchSize since inbound
          * event might contain more than one message
@@ -96,7 +115,9 @@ public class MessageWriter implements StoreHealthListener {
             }
 
             try {
-                if (!messageList.isEmpty()) {
+                if (null != groupCommitter) {
+                    groupCommitter.commit(messageList);
+                } else if (!messageList.isEmpty()) {
                     messagingEngine.messagesReceived(messageList);
                 }
 
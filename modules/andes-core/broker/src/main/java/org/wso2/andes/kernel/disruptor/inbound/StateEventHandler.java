@@ -21,10 +21,7 @@ package org.wso2.andes.kernel.disruptor.inbound;
 import com.lmax.disruptor.EventHandler;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
-import org.wso2.andes.kernel.DeliverableAndesMetadata;
-import org.wso2.andes.kernel.MessageStatus;
 import org.wso2.andes.kernel.slot.SlotMessageCounter;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.tools.utils.MessageTracer;
@@ -61,7 +58,7 @@ public class StateEventHandler implements EventHandler<InboundEventContainer> {
                 event.clearMessageList(event.getChannel());
                 break;
             case ACKNOWLEDGEMENT_EVENT:
-                updateTrackerWithAck(event);
+                // Slot message counts are updated by the AckedMessageDeleter once messages are deleted
                 break;
             case SAFE_ZONE_DECLARE_EVENT:
                 updateSlotDeleteSafeZone(event);
@@ -79,15 +76,6 @@ public class StateEventHandler implements EventHandler<InboundEventContainer> {
         }
     }
 
-    private void updateTrackerWithAck(InboundEventContainer event) throws AndesException {
-        DeliverableAndesMetadata acknowledgedMessage = event.ackData.getMetadataReference();
-        //we need both conditions to prevent multiple events seeing that message is deleted
-        if (acknowledgedMessage.getLatestState().equals(MessageStatus.DELETED)
-                && event.ackData.isBaringMessageRemovable()) {
-            acknowledgedMessage.getSlot().decrementPendingMessageCount();
-        }
-    }
-
     /**
      * Communicate this node's safe zone to the coordinator for evaluation.
      * @param event event
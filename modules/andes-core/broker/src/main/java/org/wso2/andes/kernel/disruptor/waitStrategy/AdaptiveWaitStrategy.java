@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.waitStrategy;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Wait strategy which busy spins for a while, then yields and finally blocks until a new event is published.
+ * <p/>
+ * Under load the next event is published while the processor is still spinning or yielding, hence events are picked
+ * up without a context switch. When the ring buffer is idle processors block and do not consume CPU. Publishers only
+ * take the lock to wake processors when a processor is actually blocked.
+ */
+public class AdaptiveWaitStrategy implements WaitStrategy {
+
+    /**
+     * Default number of busy spin iterations before yielding
+     */
+    private static final int DEFAULT_SPIN_TRIES = 100;
+
+    /**
+     * Default number of yields before blocking
+     */
+    private static final int DEFAULT_YIELD_TRIES = 100;
+
+    private final int spinTries;
+
+    private final int yieldTries;
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition processorNotifyCondition = lock.newCondition();
+
+    /**
+     * Set by a processor before it blocks, cleared by the publisher which wakes processors
+     */
+    private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+
+    public AdaptiveWaitStrategy() {
+        this(DEFAULT_SPIN_TRIES, DEFAULT_YIELD_TRIES);
+    }
+
+    /**
+     * Create a wait strategy with the given number of tries for each phase
+     *
+     * @param spinTries  number of busy spin iterations before yielding
+     * @param yieldTries number of yields before blocking
+     */
+    public AdaptiveWaitStrategy(int spinTries, int yieldTries) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursorSequence, Sequence dependentSequence, SequenceBarrier barrier)
+            throws AlertException, InterruptedException {
+        long availableSequence;
+        int counter = spinTries + yieldTries;
+
+        while ((availableSequence = dependentSequence.get()) < sequence) {
+            barrier.checkAlert();
+
+            if (counter > yieldTries) {
+                counter--;
+            } else if (counter > 0) {
+                counter--;
+                Thread.yield();
+            } else if (cursorSequence.get() < sequence) {
+                waitForPublish(sequence, cursorSequence, barrier);
+            } else {
+                // Event is published but a dependent processor is still working on it
+                LockSupport.parkNanos(1L);
+            }
+        }
+
+        return availableSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        if (signalNeeded.getAndSet(false)) {
+            lock.lock();
+            try {
+                processorNotifyCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Block until the sequence is published to the ring buffer
+     */
+    private void waitForPublish(long sequence, Sequence cursorSequence, SequenceBarrier barrier)
+            throws AlertException, InterruptedException {
+        lock.lock();
+        try {
+            do {
+                // The flag is set before checking the cursor, hence a publish after the check always signals
+                signalNeeded.set(true);
+                if (cursorSequence.get() >= sequence) {
+                    break;
+                }
+                barrier.checkAlert();
+                processorNotifyCondition.await();
+            } while (cursorSequence.get() < sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
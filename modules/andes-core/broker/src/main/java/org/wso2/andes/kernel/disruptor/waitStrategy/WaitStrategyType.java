@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.waitStrategy;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait strategies event processors of a Disruptor can use while waiting for events. This is configured at
+ * broker.xml under <inboundEvents>/<waitStrategy> and <delivery>/<waitStrategy>
+ */
+public enum WaitStrategyType {
+
+    /**
+     * Block until an event is published and then sleep until dependent processors finish. Lowest CPU usage but
+     * adds a context switch to the latency of each event when the ring buffer is not busy.
+     */
+    SLEEPING_BLOCKING {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new SleepingBlockingWaitStrategy();
+        }
+    },
+
+    /**
+     * Block on a lock until an event is published.
+     */
+    BLOCKING {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new BlockingWaitStrategy();
+        }
+    },
+
+    /**
+     * Busy spin without ever releasing the CPU. Lowest latency, but each event processor keeps a CPU core fully
+     * utilised. Use only when there are more cores than event processors.
+     */
+    BUSY_SPIN {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new BusySpinWaitStrategy();
+        }
+    },
+
+    /**
+     * Spin and then yield the CPU to other threads. Low latency with high CPU usage even when idle.
+     */
+    YIELDING {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new YieldingWaitStrategy();
+        }
+    },
+
+    /**
+     * Spin for a millisecond, yield for a millisecond and then block.
+     */
+    PHASED_BACKOFF {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return PhasedBackoffWaitStrategy.withLiteLock(1, 1, TimeUnit.MILLISECONDS);
+        }
+    },
+
+    /**
+     * Spin and yield for a bounded number of tries and then block. Publishers only signal when a processor is
+     * blocked. Spins under load and parks when idle.
+     */
+    ADAPTIVE {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new AdaptiveWaitStrategy();
+        }
+    };
+
+    /**
+     * Create a new wait strategy of this type. Each Disruptor needs its own instance.
+     *
+     * @return wait strategy
+     */
+    public abstract WaitStrategy createWaitStrategy();
+}
@@ -16,13 +16,15 @@
 package org.wso2.andes.kernel.router;
 
 
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.ProtocolType;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -48,7 +50,8 @@ public class MQTTMessageRouter extends AndesMessageRouter {
      */
     public MQTTMessageRouter(String name, String type, boolean autoDelete) {
         super(name, type, autoDelete);
-        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.MQTT);
+        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.MQTT, (Integer) AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_TOPIC_ROUTING_CACHE_SIZE));
     }
 
     /**
@@ -58,7 +61,8 @@ public class MQTTMessageRouter extends AndesMessageRouter {
      */
     public MQTTMessageRouter(String encodedRouterInfo) {
         super(encodedRouterInfo);
-        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.MQTT);
+        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.MQTT, (Integer) AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_TOPIC_ROUTING_CACHE_SIZE));
     }
 
     /**
@@ -103,13 +107,14 @@ public class MQTTMessageRouter extends AndesMessageRouter {
          * at the moment
          */
         if(0 == qosLevel) {
-            Iterator<StorageQueue> queueIterator = matchingQueues.iterator();
-            while (queueIterator.hasNext()) {
-                StorageQueue matchingQueue = queueIterator.next();
-                if (matchingQueue.isDurable() && matchingQueue.getBoundSubscriptions().isEmpty()) {
-                    queueIterator.remove();
+            // Matched set is shared through the routing cache, hence filtered into a new set
+            Set<StorageQueue> activeQueues = new HashSet<>(matchingQueues.size());
+            for (StorageQueue matchingQueue : matchingQueues) {
+                if (!(matchingQueue.isDurable() && matchingQueue.getBoundSubscriptions().isEmpty())) {
+                    activeQueues.add(matchingQueue);
                 }
             }
+            matchingQueues = activeQueues;
         }
         return matchingQueues;
     }
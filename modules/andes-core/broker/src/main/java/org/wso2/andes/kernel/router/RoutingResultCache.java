@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel.router;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of storage queues matched for concrete routing keys by a {@link TopicRoutingMatcher}.
+ * <p/>
+ * Each binding change increments a generation and records it against the first constituent of the binding key, or
+ * against all routing keys if the binding key starts with a wildcard. A cached result is valid only if it was matched
+ * at or after the last change recorded for the first constituent of its routing key. Hence a binding change costs the
+ * same regardless of the cache size and a result computed concurrently with a binding change never remains valid.
+ */
+final class RoutingResultCache {
+
+    /**
+     * Cache hits of all the routing caches
+     */
+    private static final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Cache misses of all the routing caches
+     */
+    private static final AtomicLong missCount = new AtomicLong();
+
+    private static final AtomicBoolean gaugesRegistered = new AtomicBoolean(false);
+
+    /**
+     * Routing key to the matching storage queues and the generation they were matched at
+     */
+    private final Cache<String, RoutingResult> cache;
+
+    /**
+     * Incremented on each binding change
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * First constituent of binding keys to the generation of the last binding change with that first constituent.
+     * Entries are kept for the lifetime of the cache as there is one per distinct first constituent of binding keys.
+     */
+    private final ConcurrentMap<String, Long> changedGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * Generation of the last binding change starting with a wildcard
+     */
+    private volatile long wildcardChangedGeneration;
+
+    /**
+     * The delimiter between constituents of routing keys
+     */
+    private final char constituentsDelimiter;
+
+    /**
+     * Create a routing cache
+     *
+     * @param maximumSize           maximum number of routing keys to cache
+     * @param constituentsDelimiter delimiter between constituents of routing keys
+     */
+    RoutingResultCache(int maximumSize, char constituentsDelimiter) {
+        this.constituentsDelimiter = constituentsDelimiter;
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+
+        if (gaugesRegistered.compareAndSet(false, true)) {
+            MetricManager.gauge(MetricsConstants.TOPIC_ROUTING_CACHE_HITS, Level.INFO, new HitCountGauge());
+            MetricManager.gauge(MetricsConstants.TOPIC_ROUTING_CACHE_MISSES, Level.INFO, new MissCountGauge());
+        }
+    }
+
+    /**
+     * Get cached storage queues for the routing key
+     *
+     * @param routingKey routing key of the message
+     * @return matching storage queues or null if not cached
+     */
+    Set<StorageQueue> get(String routingKey) {
+        RoutingResult routingResult = cache.getIfPresent(routingKey);
+        if (null != routingResult && !isValid(routingKey, routingResult.generation)) {
+            cache.invalidate(routingKey);
+            routingResult = null;
+        }
+
+        if (null != routingResult) {
+            hitCount.incrementAndGet();
+            return routingResult.matchingQueues;
+        } else {
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Get the current generation. Should be read before matching a routing key which is to be cached.
+     *
+     * @return current generation
+     */
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Cache the storage queues matched for a routing key
+     *
+     * @param routingKey     routing key of the message
+     * @param matchingQueues unmodifiable set of matching storage queues
+     * @param generation     generation read before matching
+     */
+    void put(String routingKey, Set<StorageQueue> matchingQueues, long generation) {
+        // A result matched before a binding change would be dropped by the next get, hence it is not cached at all
+        if (isValid(routingKey, generation)) {
+            cache.put(routingKey, new RoutingResult(matchingQueues, generation));
+        }
+    }
+
+    /**
+     * Invalidate the cached routing keys a binding key may match. Should be called after the bindings are modified.
+     *
+     * @param firstConstituent first constituent of the binding key or null if it is a wildcard, in which case all
+     *                         cached routing keys are invalidated
+     */
+    void onBindingChange(String firstConstituent) {
+        long changedGeneration = generation.incrementAndGet();
+        if (null == firstConstituent) {
+            wildcardChangedGeneration = changedGeneration;
+        } else {
+            changedGenerations.put(firstConstituent, changedGeneration);
+        }
+    }
+
+    /**
+     * Check if a result matched at the given generation is still valid for the routing key
+     *
+     * @param routingKey routing key of the message
+     * @param generation generation read before matching
+     * @return true if no binding change which may match the routing key happened after the generation
+     */
+    private boolean isValid(String routingKey, long generation) {
+        if (wildcardChangedGeneration > generation) {
+            return false;
+        }
+
+        int delimiterIndex = routingKey.indexOf(constituentsDelimiter);
+        String firstConstituent = (delimiterIndex < 0) ? routingKey : routingKey.substring(0, delimiterIndex);
+        Long changedGeneration = changedGenerations.get(firstConstituent);
+        return null == changedGeneration || changedGeneration <= generation;
+    }
+
+    /**
+     * Storage queues matched for a routing key
+     */
+    private static final class RoutingResult {
+
+        /**
+         * Unmodifiable set of matching storage queues
+         */
+        private final Set<StorageQueue> matchingQueues;
+
+        /**
+         * Generation read before matching
+         */
+        private final long generation;
+
+        private RoutingResult(Set<StorageQueue> matchingQueues, long generation) {
+            this.matchingQueues = matchingQueues;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Gauge for hits of routing caches
+     */
+    private static class HitCountGauge implements Gauge<Long> {
+        @Override
+        public Long getValue() {
+            return hitCount.get();
+        }
+    }
+
+    /**
+     * Gauge for misses of routing caches
+     */
+    private static class MissCountGauge implements Gauge<Long> {
+        @Override
+        public Long getValue() {
+            return missCount.get();
+        }
+    }
+}
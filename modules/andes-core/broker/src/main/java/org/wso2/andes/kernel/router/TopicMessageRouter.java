@@ -15,6 +15,8 @@
 
 package org.wso2.andes.kernel.router;
 
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
@@ -46,7 +48,8 @@ public class TopicMessageRouter extends AndesMessageRouter {
      */
     public TopicMessageRouter(String name, String type, boolean autoDelete) {
         super(name, type, autoDelete);
-        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.AMQP, (Integer) AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_TOPIC_ROUTING_CACHE_SIZE));
     }
 
     /**
@@ -56,7 +59,8 @@ public class TopicMessageRouter extends AndesMessageRouter {
      */
     public TopicMessageRouter(String encodedRouterInfo) {
         super(encodedRouterInfo);
-        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        this.topicMatcher = new TopicRoutingMatcher(ProtocolType.AMQP, (Integer) AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_TOPIC_ROUTING_CACHE_SIZE));
     }
 
     /**
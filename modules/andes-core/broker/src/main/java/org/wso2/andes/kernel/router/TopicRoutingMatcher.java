@@ -26,16 +26,26 @@ import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.mqtt.utils.MQTTUtils;
 
 import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Bitmap based topic matcher
+ * Trie based topic matcher. Each node of the trie represents a constituent of binding keys and keeps the storage
+ * queues whose binding key ends at that node. Wildcard constituents are kept apart from the other children of a
+ * node so that matching a routing key only visits the exact constituent and the wildcard branches at each level.
+ * <p/>
+ * Adding and removing storage queues are serialized and only modify the nodes on the path of the binding key. Storage
+ * queues of a node are replaced as a whole (copy-on-write) and children are kept in concurrent maps. Hence matching a
+ * routing key never blocks and never observes a partially updated node.
+ * <p/>
+ * Optionally results of concrete routing keys are kept in a {@link RoutingResultCache}. Adding, updating or removing
+ * a storage queue invalidates only the cached routing keys sharing the first constituent of its binding key, or all of
+ * them if the binding key starts with a wildcard.
  */
 public class TopicRoutingMatcher {
 
@@ -44,7 +54,7 @@ public class TopicRoutingMatcher {
     /**
      * The topic delimiter to differentiate each constituent according to the current protocol type.
      */
-    private String constituentsDelimiter;
+    private char constituentsDelimiter;
 
     /**
      * The multi level matching wildcard according to the current protocol type.
@@ -56,92 +66,75 @@ public class TopicRoutingMatcher {
      */
     private String singleLevelWildCard;
 
-    private ProtocolType protocolType;
-
-    // 'Null' and 'Other' constituents are picked from restricted topic characters
-
-    /**
-     * Constituent name to represent that a constituent is not available at this location.
-     */
-    private static final String NULL_CONSTITUENT = "%null%";
-
     /**
-     * Constituent name to represent any constituent except a wildcard.
+     * Root of the trie. Represents the level before the first constituent.
      */
-    private static final String OTHER_CONSTITUENT = "%other%";
+    private final TrieNode root = new TrieNode();
 
     /**
-     * Keeps all the storage queues.
+     * Keeps all the storage queues with their binding keys broken into constituents.
      */
-    private List<StorageQueue> storageQueueList = new ArrayList<>();
+    private final ConcurrentMap<StorageQueue, String[]> queueConstituents = new ConcurrentHashMap<>();
 
     /**
-     * Keeps all the binding keys of storage queues broken into their constituents.
+     * Cache of matching storage queues for routing keys. Null if caching is disabled.
      */
-    private Map<Integer, String[]> queueConstituents = new HashMap<>();
+    private final RoutingResultCache routingCache;
 
     /**
-     * Keeps all the constituent tables as ListOfConstituentTables <ConstituentPart, BitSet>.
+     * Initialize TopicRoutingMatcher with the protocol type without caching routing results.
+     *
+     * @param protocolType The protocol type to handle
      */
-    private List<Map<String, BitSet>> constituentTables = new ArrayList<>();
+    public TopicRoutingMatcher(ProtocolType protocolType) {
+        this(protocolType, 0);
+    }
 
     /**
-     * Initialize BitMapHandler with the protocol type.
+     * Initialize TopicRoutingMatcher with the protocol type.
      *
-     * @param protocolType The protocol type to handle
+     * @param protocolType     The protocol type to handle
+     * @param routingCacheSize maximum number of routing keys to cache matching storage queues for. Caching is
+     *                         disabled if zero
      */
-    public TopicRoutingMatcher(ProtocolType protocolType) {
+    public TopicRoutingMatcher(ProtocolType protocolType, int routingCacheSize) {
         if (ProtocolType.AMQP == protocolType) {
-            constituentsDelimiter = ".";
-            // AMQPUtils keep wildcard concatenated with constituent delimiter, hence removing them get wildcard only
-            multiLevelWildCard = AMQPUtils.TOPIC_AND_CHILDREN_WILDCARD.replace(constituentsDelimiter, "");
-            singleLevelWildCard = AMQPUtils.IMMEDIATE_CHILDREN_WILDCARD.replace(constituentsDelimiter, "");
+            constituentsDelimiter = '.';
+            multiLevelWildCard = AMQPUtils.TOPIC_AND_CHILDREN_WILDCARD;
+            singleLevelWildCard = AMQPUtils.IMMEDIATE_CHILDREN_WILDCARD;
         } else if (ProtocolType.MQTT == protocolType) {
-            constituentsDelimiter = "/";
+            constituentsDelimiter = '/';
             multiLevelWildCard = MQTTUtils.MULTI_LEVEL_WILDCARD;
             singleLevelWildCard = MQTTUtils.SINGLE_LEVEL_WILDCARD;
         } else {
             throw new RuntimeException("Protocol type " + protocolType + " is not recognized.");
         }
 
-        this.protocolType = protocolType;
+        routingCache = (routingCacheSize > 0) ? new RoutingResultCache(routingCacheSize, constituentsDelimiter) : null;
     }
 
-
-    public void addStorageQueue(StorageQueue storageQueue) throws AndesException {
+    /**
+     * Add a storage queue to be matched by its binding key. If the queue is already added the queue instance is
+     * updated.
+     *
+     * @param storageQueue storage queue to add
+     * @throws AndesException if the binding key of the queue is empty
+     */
+    public synchronized void addStorageQueue(StorageQueue storageQueue) throws AndesException {
         String bindingKey = storageQueue.getMessageRouterBindingKey();
 
         if (StringUtils.isNotEmpty(bindingKey)) {
             if (!isStorageQueueAvailable(storageQueue)) {
-                int newQueueIndex = storageQueueList.size();
-
-                // The index is added to make it clear to which index this is being inserted
-                storageQueueList.add(newQueueIndex, storageQueue);
-
-                String constituents[] = bindingKey.split(Pattern.quote(constituentsDelimiter));
-
-                queueConstituents.put(newQueueIndex, constituents);
+                String[] constituents = splitConstituents(bindingKey);
 
-
-                for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
-                    String constituent = constituents[constituentIndex];
-
-                    Map<String, BitSet> constituentTable;
-
-                    if ((constituentIndex + 1) > constituentTables.size()) {
-                        // No tables exist for this constituent index need to create
-                        constituentTable = addConstituentTable(constituentIndex);
-                    } else {
-                        constituentTable = constituentTables.get(constituentIndex);
-                    }
-
-                    if (!constituentTable.keySet().contains(constituent)) {
-                        // This constituent is not available in this table. Need to add a new row
-                        addConstituentRow(constituent, constituentIndex);
-                    }
+                TrieNode node = root;
+                for (String constituent : constituents) {
+                    node = node.getOrCreateChild(constituent);
                 }
+                node.addStorageQueue(storageQueue);
 
-                addStorageQueueColumn(bindingKey, newQueueIndex);
+                queueConstituents.put(storageQueue, constituents);
+                invalidateRoutingKeysMatchedBy(constituents);
             } else {
                 updateStorageQueue(storageQueue);
             }
@@ -151,413 +144,309 @@ public class TopicRoutingMatcher {
         }
     }
 
-
-
-    public void updateStorageQueue(StorageQueue storageQueue) {
-        if (isStorageQueueAvailable(storageQueue)) {
-            // Need to add the new entry to the same index since bitmap logic is dependent on this index
-            int index = storageQueueList.indexOf(storageQueue);
-
-            // Should not allow to modify this list until the update is complete
-            // Otherwise the storageQueue indexes will be invalid
-            synchronized (storageQueueList) {
-                storageQueueList.remove(index);
-                storageQueueList.add(index, storageQueue);
+    /**
+     * Replace the instance of an already added storage queue
+     *
+     * @param storageQueue storage queue to update
+     */
+    public synchronized void updateStorageQueue(StorageQueue storageQueue) {
+        // Map keys are not replaced by put, hence the entry is removed first to keep the new instance
+        String[] constituents = queueConstituents.remove(storageQueue);
+
+        if (null != constituents) {
+            TrieNode node = findNode(constituents);
+            if (null != node) {
+                node.removeStorageQueue(storageQueue);
+                node.addStorageQueue(storageQueue);
             }
+            queueConstituents.put(storageQueue, constituents);
+            invalidateRoutingKeysMatchedBy(constituents);
         }
     }
 
     /**
-     * @param constituentIndex The index to create the constituent for
-     * @return The created constituent table
+     * Removing a storageQueue from the structure.
+     *
+     * @param storageQueue The storageQueue to remove
      */
-    private Map<String, BitSet> addConstituentTable(int constituentIndex) {
-        Map<String, BitSet> constituentTable = new HashMap<>();
-
-        BitSet nullBitSet = new BitSet(storageQueueList.size());
-        BitSet otherBitSet = new BitSet(storageQueueList.size());
-
-        // Fill null and other constituent values for all available queues
-        for (int queueIndex = 0; queueIndex < storageQueueList.size(); queueIndex++) {
-            String[] constituentsOfQueue = queueConstituents.get(queueIndex);
-
-            if (constituentsOfQueue.length < constituentIndex + 1) {
-                // There is no constituent in this queue for this constituent index
-                nullBitSet.set(queueIndex);
+    public synchronized void removeStorageQueue(StorageQueue storageQueue) {
+        String[] constituents = queueConstituents.remove(storageQueue);
+
+        if (null != constituents) {
+            // Keep the path so that nodes left without queues or children can be detached bottom up
+            TrieNode[] path = new TrieNode[constituents.length + 1];
+            path[0] = root;
+            for (int i = 0; i < constituents.length && null != path[i]; i++) {
+                path[i + 1] = path[i].getChild(constituents[i]);
+            }
 
-                // If last constituent of the queue is multiLevelWildCard, then any other is a match
-                if (multiLevelWildCard.equals(constituentsOfQueue[constituentsOfQueue.length - 1])) {
-                    otherBitSet.set(queueIndex);
-                }
-            } else {
-                String queueConstituent = constituentsOfQueue[constituentIndex];
+            TrieNode node = path[constituents.length];
+            if (null != node) {
+                node.removeStorageQueue(storageQueue);
 
-                // Check if this is a wildcard
-                if (multiLevelWildCard.equals(queueConstituent) ||
-                        singleLevelWildCard.equals(queueConstituent)) {
-                    otherBitSet.set(queueIndex);
+                for (int i = constituents.length; i > 0 && path[i].isEmpty(); i--) {
+                    path[i - 1].removeChild(constituents[i - 1], path[i]);
                 }
             }
+            invalidateRoutingKeysMatchedBy(constituents);
+        } else {
+            log.warn("Storage queue for with name : " + storageQueue.getName() + " is not found to " +
+                    "remove");
         }
+    }
 
-        // Add 'null' and 'other' constituent
-        constituentTable.put(NULL_CONSTITUENT, nullBitSet);
-        constituentTable.put(OTHER_CONSTITUENT, otherBitSet);
-
-        constituentTables.add(constituentIndex, constituentTable);
 
-        return constituentTable;
+    public boolean isStorageQueueAvailable(StorageQueue storageQueue) {
+        return queueConstituents.containsKey(storageQueue);
     }
 
 
     /**
-     * Run through each constituentTable and insert a new column for a new storage queue filling it's values
-     * by comparing constituents.
-     * <p/>
-     * This will only fill values for the already available constituents. Will not add new constituents.
-     *
-     * @param bindingKey The newly subscribed destination
+     * Get storage queues matching to routing key
+     * @param routingKey routing key to match queues
+     * @return unmodifiable set of storage queues
      */
-    private void addStorageQueueColumn(String bindingKey, int queueIndex) throws AndesException {
-
-        String[] bindingKeyConstituents = queueConstituents.get(queueIndex);
-
-        // Create a mock destination with two constituents for 'other' wildcard matching
-        String matchDestinationForOther = OTHER_CONSTITUENT + constituentsDelimiter + OTHER_CONSTITUENT;
-
-        // Create a mock destination with three constituents for 'null' wildcard matching
-        String matchDestinationForNull = NULL_CONSTITUENT + constituentsDelimiter + NULL_CONSTITUENT +
-                constituentsDelimiter + NULL_CONSTITUENT;
-
-        // Loop through each constituent table for the new constituents
-        for (int constituentIndex = 0; constituentIndex < bindingKeyConstituents.length;
-             constituentIndex++) {
-            String currentConstituent = bindingKeyConstituents[constituentIndex];
-            Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-
-            // Loop through each constituent row in the table and fill values
-            for (Map.Entry<String, BitSet> constituentRow : constituentTable.entrySet()) {
-                String constituentOfCurrentRow = constituentRow.getKey();
-                BitSet bitSet = constituentRow.getValue();
-
-                if (constituentOfCurrentRow.equals(currentConstituent)) {
-                    bitSet.set(queueIndex);
-                } else if (NULL_CONSTITUENT.equals(constituentOfCurrentRow)) {
-                    // Check if this constituent being null matches the destination if we match it with
-                    // a null constituent
-                    String wildcardDestination = NULL_CONSTITUENT + constituentsDelimiter +
-                            currentConstituent;
-                    bitSet.set(queueIndex, isMatchForProtocolType(wildcardDestination,
-                            matchDestinationForNull));
-//                    }
-                } else if (OTHER_CONSTITUENT.equals(constituentOfCurrentRow)) {
-                    // Check if other is matched by comparing wildcard through specific wildcard matching
-                    // Create a mock destinations with current constituent added last and check if it match with a
-                    // non-wildcard destination match with the corresponding matching method
-                    String wildCardDestination = OTHER_CONSTITUENT + constituentsDelimiter + currentConstituent;
-
-                    bitSet.set(queueIndex, isMatchForProtocolType(wildCardDestination,
-                            matchDestinationForOther));
-                } else if (singleLevelWildCard.equals(currentConstituent) ||
-                        multiLevelWildCard.equals(currentConstituent)) {
-                    // If there is any wildcard at this position, then this should match.
-                    bitSet.set(queueIndex);
-                } else {
-                    bitSet.set(queueIndex, false);
-                }
-
-            }
-
+    public Set<StorageQueue> getMatchingStorageQueues(String routingKey) {
+        if (StringUtils.isEmpty(routingKey)) {
+            log.warn("Cannot retrieve storage queues via topic matcher since routingKey to match is empty");
+            return Collections.emptySet();
         }
 
-        int noOfMaxConstituents = constituentTables.size();
-
-        if (noOfMaxConstituents > bindingKeyConstituents.length) {
-            // There are more constituent tables to be filled. Wildcard matching is essential here.
-
-            boolean matchingOthers = true;
-            // The OTHER_CONSTITUENT is added here to represent any constituent
-            if (!multiLevelWildCard.equals(bindingKeyConstituents[bindingKeyConstituents.length
-                    - 1])) {
-                String otherConstituentComparer = bindingKey + constituentsDelimiter + OTHER_CONSTITUENT;
-                matchingOthers = isMatchForProtocolType(bindingKey, otherConstituentComparer);
-            } // Else matchingOthers will be true
-
-            for (int constituentIndex = bindingKeyConstituents.length; constituentIndex <
-                    noOfMaxConstituents; constituentIndex++) {
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-
-                // Loop through each constituent row in the table and fill values
-                for (Map.Entry<String, BitSet> constituentRow : constituentTable.entrySet()) {
-                    String constituentOfCurrentRow = constituentRow.getKey();
-                    BitSet bitSet = constituentRow.getValue();
-
-                    if (NULL_CONSTITUENT.equals(constituentOfCurrentRow)) {
-                        // Null constituent is always true here
-                        bitSet.set(queueIndex);
-                    } else {
-                        bitSet.set(queueIndex, matchingOthers);
-                    }
-                }
-            }
+        if (null == routingCache) {
+            return Collections.unmodifiableSet(matchStorageQueues(routingKey));
         }
 
-    }
-
-    /**
-     * Add a new constituent row for the given constituent index table and fill values for already available
-     * queues.
-     *
-     * @param constituent      The constituent to add
-     * @param constituentIndex The index of the constituent
-     */
-    private void addConstituentRow(String constituent, int constituentIndex) {
-        Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-        BitSet bitSet = new BitSet();
-
-        for (int i = 0; i < queueConstituents.size(); i++) {
-            String[] constituentsOfQueue = queueConstituents.get(i);
-
-            if (constituentIndex < constituentsOfQueue.length) {
-                // Get the i'th queue's [constituentIndex]'th constituent
-                String queueConstituent = constituentsOfQueue[constituentIndex];
-                if (queueConstituent.equals(constituent) || multiLevelWildCard.equals(queueConstituent)
-                        || singleLevelWildCard.equals(queueConstituent)) {
-                    // The new constituent matches the queues i'th constituent
-                    bitSet.set(i);
-                } else {
-                    // The new constituent does not match the i'th queues [constituentIndex] constituent
-                    bitSet.set(i, false);
-                }
-            } else {
-                // The queue does not have a constituent for this index
-                // If the last constituent of the queue is multiLevelWildCard we match else false
-                if (multiLevelWildCard.equals(constituentsOfQueue[constituentsOfQueue.length - 1])) {
-                    bitSet.set(i);
-                } else {
-                    bitSet.set(i, false);
-                }
-            }
+        Set<StorageQueue> matchingQueues = routingCache.get(routingKey);
+        if (null == matchingQueues) {
+            long generation = routingCache.getGeneration();
+            matchingQueues = Collections.unmodifiableSet(matchStorageQueues(routingKey));
+            routingCache.put(routingKey, matchingQueues, generation);
         }
 
-        constituentTable.put(constituent, bitSet);
+        return matchingQueues;
     }
 
     /**
-     * Return the match between the given two parameters with respect to the protocol.
+     * Get all the storage queues currently saved.
      *
-     * @param wildCardDestination    The destination with/without wildcard
-     * @param nonWildCardDestination The direct destination without wildcards
-     * @return Match status
-     * @throws AndesException
+     * @return List of all storage queues
      */
-    private boolean isMatchForProtocolType(String wildCardDestination, String nonWildCardDestination) throws
-            AndesException {
-        boolean matching = false;
-
-        if (ProtocolType.AMQP == protocolType) {
-            matching = AMQPUtils.isTargetQueueBoundByMatchingToRoutingKey(wildCardDestination, nonWildCardDestination);
-        } else if (ProtocolType.MQTT == protocolType) {
-            matching = MQTTUtils.isTargetQueueBoundByMatchingToRoutingKey(wildCardDestination, nonWildCardDestination);
-        } else {
-            throw new AndesException("Protocol type " + protocolType + " is not recognized.");
-        }
-
-        return matching;
+    public List<StorageQueue> getAllStorageQueues() {
+        return new ArrayList<>(queueConstituents.keySet());
     }
 
+
     /**
-     * This methods adds a constituent table with only null and other constituents.
-     * This is required when a message comes with more than the available number of constituents. If wildcard
-     * queues are available for those, they should match. Hence need to create these empty constituent tables.
+     * Get all binding keys saved
+     *
+     * @return set of different binding keys
      */
-    private void addEmptyConstituentTable() {
-        int noOfqueues = storageQueueList.size();
-        Map<String, BitSet> constituentTable = new HashMap<>();
-
-        BitSet nullBitSet = new BitSet(noOfqueues);
-        BitSet otherBitSet = new BitSet(noOfqueues);
-
-        if (noOfqueues > 0) {
+    public Set<String> getAllBindingKeys() {
+        Set<String> topics = new HashSet<>();
 
-            // Null constituent will always be true for empty constituents, hence need to flip
-            nullBitSet.flip(0, noOfqueues - 1);
+        for (String[] constituents : queueConstituents.values()) {
 
-            for (int queueIndex = 0; queueIndex < noOfqueues; queueIndex++) {
-                // For 'other', if subscribers last constituent is multi level wild card then matching
-                String[] allConstituent = queueConstituents.get(queueIndex);
-                String lastConstituent = allConstituent[allConstituent.length - 1];
+            StringBuilder topic = new StringBuilder();
 
-                if (multiLevelWildCard.equals(lastConstituent)) {
-                    otherBitSet.set(queueIndex);
+            for (int i = 0; i < constituents.length; i++) {
+                String constituent = constituents[i];
+                // if this is a wildcard constituent, we provide it as 'ANY' in it's place for readability
+                if (multiLevelWildCard.equals(constituent) || singleLevelWildCard.equals(constituent)) {
+                    topic.append("ANY");
                 } else {
-                    otherBitSet.set(queueIndex, false);
+                    topic.append(constituent);
                 }
-            }
-        }
-
-        constituentTable.put(NULL_CONSTITUENT, nullBitSet);
-        constituentTable.put(OTHER_CONSTITUENT, otherBitSet);
-
-        constituentTables.add(constituentTable);
-    }
-
-    /**
-     * Removing a storageQueue from the structure.
-     *
-     * @param storageQueue The storageQueue to remove
-     */
-    public void removeStorageQueue(StorageQueue storageQueue) {
-        int queueIndex = storageQueueList.indexOf(storageQueue);
-
-        if (queueIndex > -1) {
-            for (Map<String, BitSet> constituentTable : constituentTables) {
-                for (Map.Entry<String, BitSet> constituentRow : constituentTable.entrySet()) {
-                    // For every row create a new BitSet with the values for the removed storageQueue removed
-                    String constituent = constituentRow.getKey();
-                    BitSet bitSet = constituentRow.getValue();
-                    BitSet newBitSet = new BitSet();
-
-                    int bitIndex = 0;
-
-                    for (int i = 0; i < bitSet.size(); i++) {
-                        if (bitIndex == queueIndex) {
-                            // If the this is the index to remove then skip this round
-                            bitIndex++;
-                        }
-                        newBitSet.set(i, bitSet.get(bitIndex));
-                        bitIndex++;
-                    }
-
-                    constituentTable.put(constituent, newBitSet);
 
+                // append the delimiter if there are more constituents to come
+                if ((constituents.length - 1) > i) {
+                    topic.append(constituentsDelimiter);
                 }
+
             }
 
-            // Remove the storageQueue from storageQueue list
-            storageQueueList.remove(queueIndex);
-        } else {
-            log.warn("Storage queue for with name : " + storageQueue.getName() + " is not found to " +
-                    "remove");
+            topics.add(topic.toString());
         }
-    }
 
-
-    public boolean isStorageQueueAvailable(StorageQueue storageQueue) {
-        return storageQueueList.contains(storageQueue);
+        return topics;
     }
 
-
     /**
-     * Get storage queues matching to routing key
+     * Match the routing key against the trie
+     *
      * @param routingKey routing key to match queues
      * @return set of storage queues
      */
-    public Set<StorageQueue> getMatchingStorageQueues(String routingKey) {
+    private Set<StorageQueue> matchStorageQueues(String routingKey) {
         Set<StorageQueue> matchingQueues = new HashSet<>();
+        collectMatchingQueues(root, splitConstituents(routingKey), 0, matchingQueues);
+        return matchingQueues;
+    }
 
-        if (StringUtils.isNotEmpty(routingKey)) {
-
-            // constituentDelimiter is quoted to avoid making the delimiter a regex symbol
-            String[] constituents = routingKey.split(Pattern.quote(constituentsDelimiter),-1);
-
-            int noOfCurrentMaxConstituents = constituentTables.size();
-
-            // If given routingKey has more constituents than any subscriber has, then create constituent tables
-            // for those before collecting matching subscribers
-            if (constituents.length > noOfCurrentMaxConstituents) {
-                for (int i = noOfCurrentMaxConstituents; i < constituents.length; i++) {
-                    addEmptyConstituentTable();
-                }
+    /**
+     * Invalidate cached routing keys a binding key may match
+     *
+     * @param bindingConstituents constituents of the binding key which was added, updated or removed
+     */
+    private void invalidateRoutingKeysMatchedBy(String[] bindingConstituents) {
+        if (null != routingCache) {
+            String firstConstituent = bindingConstituents[0];
+            if (multiLevelWildCard.equals(firstConstituent) || singleLevelWildCard.equals(firstConstituent)) {
+                routingCache.onBindingChange(null);
+            } else {
+                routingCache.onBindingChange(firstConstituent);
             }
+        }
+    }
 
-            // Keeps the results of 'AND' operations between each bit sets
-            BitSet andBitSet = new BitSet(storageQueueList.size());
-
-            // Since BitSet is initialized with false for each element we need to flip
-            andBitSet.flip(0, storageQueueList.size());
-
-            // Get corresponding bit set for each constituent in the routingKey and operate bitwise AND operation
-            for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
-                String constituent = constituents[constituentIndex];
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-
-                BitSet bitSetForAnd = constituentTable.get(constituent);
-
-                if (null == bitSetForAnd) {
-                    // The constituent is not found in the table, hence matching with 'other' constituent
-                    bitSetForAnd = constituentTable.get(OTHER_CONSTITUENT);
-                }
-
-                andBitSet.and(bitSetForAnd);
+    /**
+     * Collect queues of the nodes matching the routing key constituents starting from the given index.
+     *
+     * @param node           node matched up to the given constituent index
+     * @param constituents   constituents of the routing key
+     * @param index          index of the next constituent to match
+     * @param matchingQueues set to add matching queues
+     */
+    private void collectMatchingQueues(TrieNode node, String[] constituents, int index,
+                                       Set<StorageQueue> matchingQueues) {
+
+        TrieNode multiLevelNode = node.multiLevelChild;
+        if (null != multiLevelNode) {
+            // Multi level wildcard matches zero or more constituents
+            for (int nextIndex = index; nextIndex <= constituents.length; nextIndex++) {
+                collectMatchingQueues(multiLevelNode, constituents, nextIndex, matchingQueues);
             }
+        }
 
-            // If there are more constituent tables, get the null constituent in each of them and operate bitwise AND
-            for (int constituentIndex = constituents.length; constituentIndex < constituentTables.size();
-                 constituentIndex++) {
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-                andBitSet.and(constituentTable.get(NULL_CONSTITUENT));
+        if (constituents.length == index) {
+            Collections.addAll(matchingQueues, node.storageQueues);
+        } else {
+            TrieNode child = node.children.get(constituents[index]);
+            if (null != child) {
+                collectMatchingQueues(child, constituents, index + 1, matchingQueues);
             }
 
-
-            // Valid queues are filtered, need to pick from queue pool
-            int nextSetBitIndex = andBitSet.nextSetBit(0);
-            while (nextSetBitIndex > -1) {
-                matchingQueues.add(storageQueueList.get(nextSetBitIndex));
-                nextSetBitIndex = andBitSet.nextSetBit(nextSetBitIndex + 1);
+            TrieNode singleLevelNode = node.singleLevelChild;
+            if (null != singleLevelNode) {
+                collectMatchingQueues(singleLevelNode, constituents, index + 1, matchingQueues);
             }
-
-        } else {
-            log.warn("Cannot retrieve storage queues via bitmap handler since routingKey to match is empty");
         }
-
-        return matchingQueues;
     }
 
     /**
-     * Get all the storage queues currently saved.
+     * Find the node of the given binding key constituents
      *
-     * @return List of all storage queues
+     * @param constituents binding key constituents
+     * @return node or null if there is no node for the constituents
      */
-    public List<StorageQueue> getAllStorageQueues() {
-        return storageQueueList;
+    private TrieNode findNode(String[] constituents) {
+        TrieNode node = root;
+        for (int i = 0; i < constituents.length && null != node; i++) {
+            node = node.getChild(constituents[i]);
+        }
+        return node;
     }
 
-
     /**
-     * Get all binding keys saved
+     * Split a binding key or a routing key into constituents by the delimiter of the protocol. Empty constituents are
+     * preserved.
      *
-     * @return set of different binding keys
+     * @param key key to split
+     * @return constituents of the key
      */
-    public Set<String> getAllBindingKeys() {
-        Set<String> topics = new HashSet<>();
+    private String[] splitConstituents(String key) {
+        int constituentCount = 1;
+        for (int i = 0; i < key.length(); i++) {
+            if (constituentsDelimiter == key.charAt(i)) {
+                constituentCount++;
+            }
+        }
 
+        String[] constituents = new String[constituentCount];
+        int start = 0;
+        for (int i = 0; i < constituentCount - 1; i++) {
+            int end = key.indexOf(constituentsDelimiter, start);
+            constituents[i] = key.substring(start, end);
+            start = end + 1;
+        }
+        constituents[constituentCount - 1] = key.substring(start);
 
-        for (Map.Entry<Integer, String[]> subcriberConstituent : queueConstituents.entrySet()) {
+        return constituents;
+    }
 
-            StringBuilder topic = new StringBuilder();
-            String[] constituents =  subcriberConstituent.getValue();
+    /**
+     * Node of the trie representing a binding key constituent. Fields read while matching are either volatile or
+     * thread safe, modifications are done while holding the monitor of the {@link TopicRoutingMatcher}.
+     */
+    private final class TrieNode {
 
-            for (int i = 0; i < constituents.length; i++) {
-                String constituent = constituents[i];
-                // if this is a wildcard constituent, we provide it as 'ANY' in it's place for readability
-                if (multiLevelWildCard.equals(constituent) || singleLevelWildCard.equals(constituent)) {
-                    topic.append("ANY");
-                } else {
-                    topic.append(constituent);
-                }
+        /**
+         * Children for non wildcard constituents
+         */
+        private final ConcurrentMap<String, TrieNode> children = new ConcurrentHashMap<>();
 
-                // append the delimiter if there are more constituents to come
-                if ((constituents.length - 1) > i) {
-                    topic.append(constituentsDelimiter);
+        private volatile TrieNode singleLevelChild;
+
+        private volatile TrieNode multiLevelChild;
+
+        /**
+         * Storage queues whose binding key ends at this node. Replaced on each modification.
+         */
+        private volatile StorageQueue[] storageQueues = new StorageQueue[0];
+
+        private TrieNode getChild(String constituent) {
+            if (singleLevelWildCard.equals(constituent)) {
+                return singleLevelChild;
+            } else if (multiLevelWildCard.equals(constituent)) {
+                return multiLevelChild;
+            } else {
+                return children.get(constituent);
+            }
+        }
+
+        private TrieNode getOrCreateChild(String constituent) {
+            TrieNode child = getChild(constituent);
+            if (null == child) {
+                child = new TrieNode();
+                if (singleLevelWildCard.equals(constituent)) {
+                    singleLevelChild = child;
+                } else if (multiLevelWildCard.equals(constituent)) {
+                    multiLevelChild = child;
+                } else {
+                    children.put(constituent, child);
                 }
+            }
+            return child;
+        }
 
+        private void removeChild(String constituent, TrieNode child) {
+            if (singleLevelWildCard.equals(constituent)) {
+                singleLevelChild = null;
+            } else if (multiLevelWildCard.equals(constituent)) {
+                multiLevelChild = null;
+            } else {
+                children.remove(constituent, child);
             }
+        }
 
-            topics.add(topic.toString());
+        private void addStorageQueue(StorageQueue storageQueue) {
+            StorageQueue[] newStorageQueues = Arrays.copyOf(storageQueues, storageQueues.length + 1);
+            newStorageQueues[storageQueues.length] = storageQueue;
+            storageQueues = newStorageQueues;
         }
 
-        return topics;
+        private void removeStorageQueue(StorageQueue storageQueue) {
+            List<StorageQueue> remainingQueues = new ArrayList<>(Arrays.asList(storageQueues));
+            remainingQueues.remove(storageQueue);
+            storageQueues = remainingQueues.toArray(new StorageQueue[remainingQueues.size()]);
+        }
+
+        /**
+         * @return true if the node neither has storage queues nor children
+         */
+        private boolean isEmpty() {
+            return 0 == storageQueues.length && children.isEmpty()
+                    && null == singleLevelChild && null == multiLevelChild;
+        }
     }
 
 }
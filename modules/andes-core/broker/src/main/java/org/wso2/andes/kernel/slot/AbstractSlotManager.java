@@ -23,6 +23,7 @@ import org.wso2.andes.kernel.AndesException;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * AbstractSlotManager holds the common responsibilities for the standalone slot manager and cluster mode slot manager.
@@ -45,9 +46,53 @@ public abstract class AbstractSlotManager {
      */
     protected int safetySlotCount;
 
+    /**
+     * Listeners notified when a slot becomes available for a queue
+     */
+    private final List<SlotAvailabilityListener> slotAvailabilityListeners;
+
     public AbstractSlotManager() {
-        this.safetySlotCount = AndesConfigurationManager.readValue
-                (AndesConfiguration.PERFORMANCE_TUNING_SAFE_DELETE_REGION_SLOT_COUNT);
+        this(AndesConfigurationManager.<Integer>readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_SAFE_DELETE_REGION_SLOT_COUNT));
+    }
+
+    /**
+     * Create a slot manager with the given safety slot count instead of the configured one
+     *
+     * @param safetySlotCount number of slots kept out of the deletion task's reach
+     */
+    protected AbstractSlotManager(int safetySlotCount) {
+        this.safetySlotCount = safetySlotCount;
+        this.slotAvailabilityListeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Register a listener to be notified when a slot becomes available for a queue
+     *
+     * @param listener listener to register
+     */
+    public void addSlotAvailabilityListener(SlotAvailabilityListener listener) {
+        slotAvailabilityListeners.add(listener);
+    }
+
+    /**
+     * Remove a registered slot availability listener
+     *
+     * @param listener listener to remove
+     */
+    public void removeSlotAvailabilityListener(SlotAvailabilityListener listener) {
+        slotAvailabilityListeners.remove(listener);
+    }
+
+    /**
+     * Notify registered listeners that a slot is available for the given queue
+     *
+     * @param queueName name of the queue slot belongs to
+     */
+    protected void notifySlotAvailable(String queueName) {
+        for (SlotAvailabilityListener listener : slotAvailabilityListeners) {
+            listener.slotAvailable(queueName);
+        }
     }
 
     /**
@@ -87,8 +132,13 @@ public abstract class AbstractSlotManager {
      * Clear the state of current deletion range.
      */
     public void clearDeletionTaskState() {
+        String deletionQueue = this.currentDeletionQueue;
         this.currentDeletionQueue = StringUtils.EMPTY;
         this.currentDeletionRangeLowerBoundId = 0L;
+        // Slots withheld while the deletion task was running can be delivered now
+        if (!deletionQueue.isEmpty()) {
+            notifySlotAvailable(deletionQueue);
+        }
     }
 
     /**
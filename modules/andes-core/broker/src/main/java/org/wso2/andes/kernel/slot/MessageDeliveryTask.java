@@ -24,7 +24,11 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.MessageFlusher;
 
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.task.Task;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.Meter;
+import org.wso2.carbon.metrics.manager.MetricManager;
 
 /**
  * Handle message delivery {@link Task} implementation for a given queue
@@ -154,6 +158,10 @@ final class MessageDeliveryTask extends Task {
      */
     private Slot requestSlot(String storageQueueName) throws ConnectionException {
 
+        //Adding metrics meter for slot request rate
+        Meter slotRequestMeter = MetricManager.meter(MetricsConstants.SLOT_REQUEST_RATE, Level.INFO);
+        slotRequestMeter.mark();
+
         long startTime = System.currentTimeMillis();
         Slot currentSlot = slotCoordinator.getSlot(storageQueueName);
         long endTime = System.currentTimeMillis();
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Keeps track of the slot being filled for each storage queue until it is submitted to the coordinator.
+ * <p/>
+ * Each queue has its own {@link QueueWindow} guarded by its own monitor. Hence writers recording messages of
+ * different queues never contend with each other and sealing the slot of a queue for submission is atomic with
+ * respect to messages being recorded for the same queue. A sealed window is detached from the map and the next message
+ * of the queue opens a new window.
+ * <p/>
+ * Start message IDs of all windows not yet submitted are indexed in a sorted set so that the local safe zone, which is
+ * the minimum start message ID of slots that are not yet submitted, is found without scanning every queue. The start
+ * of a sealed window stays in the index until the slot is released through {@link #release(Slot)} after it is
+ * submitted, so that the safe zone never passes messages of a slot the coordinator has not recorded yet.
+ */
+class PendingSlotCounter {
+
+    /**
+     * Number of messages after which a slot is sealed for submission
+     */
+    private final int slotWindowSize;
+
+    /**
+     * Time in milliseconds after which a slot is sealed for submission regardless of the message count
+     */
+    private final long slotTimeout;
+
+    /**
+     * Open window of each storage queue
+     */
+    private final ConcurrentMap<String, QueueWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Start message IDs of open windows and sealed windows not yet released, sorted in ascending order
+     */
+    private final ConcurrentSkipListSet<WindowStart> windowStarts = new ConcurrentSkipListSet<>();
+
+    /**
+     * Create a counter
+     *
+     * @param slotWindowSize number of messages after which a slot is sealed
+     * @param slotTimeout    time in milliseconds after which a slot is sealed
+     */
+    PendingSlotCounter(int slotWindowSize, long slotTimeout) {
+        this.slotWindowSize = slotWindowSize;
+        this.slotTimeout = slotTimeout;
+    }
+
+    /**
+     * Record a message in the open window of the queue. If the window reaches the slot window size it is sealed and
+     * returned.
+     *
+     * @param storageQueueName name of the storage queue
+     * @param messageId        ID of the message
+     * @return sealed slot if the window is full, null otherwise
+     */
+    Slot record(String storageQueueName, long messageId) {
+        while (true) {
+            QueueWindow window = windows.get(storageQueueName);
+            if (null == window) {
+                QueueWindow newWindow = new QueueWindow(storageQueueName);
+                window = windows.putIfAbsent(storageQueueName, newWindow);
+                if (null == window) {
+                    window = newWindow;
+                }
+            }
+
+            synchronized (window) {
+                // Window might have been sealed by another thread after it was read from the map
+                if (!window.sealed) {
+                    window.add(messageId);
+                    if (window.messageCount >= slotWindowSize) {
+                        return seal(window);
+                    }
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Seal the open window of the queue if the slot window size or the slot timeout is reached
+     *
+     * @param storageQueueName name of the storage queue
+     * @return sealed slot or null if there is no window ready to be submitted
+     */
+    Slot sealIfReady(String storageQueueName) {
+        QueueWindow window = windows.get(storageQueueName);
+        if (null != window) {
+            synchronized (window) {
+                if (!window.sealed && window.messageCount > 0
+                        && (window.messageCount >= slotWindowSize || isTimedOut(window))) {
+                    return seal(window);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get queues whose open window has exceeded the slot timeout
+     *
+     * @return names of the queues
+     */
+    List<String> getTimedOutQueues() {
+        List<String> timedOutQueues = new ArrayList<>();
+        for (QueueWindow window : windows.values()) {
+            if (isTimedOut(window)) {
+                timedOutQueues.add(window.storageQueueName);
+            }
+        }
+        return timedOutQueues;
+    }
+
+    /**
+     * Check if there are windows not yet submitted
+     *
+     * @return true if at least one queue has an open window
+     */
+    boolean hasPendingSlots() {
+        return !windows.isEmpty();
+    }
+
+    /**
+     * Get the minimum start message ID of the windows not yet submitted
+     *
+     * @param defaultValue value returned when there are no such windows
+     * @return minimum start message ID
+     */
+    long getMinimumPendingMessageId(long defaultValue) {
+        WindowStart first = windowStarts.ceiling(WindowStart.MIN);
+        return (null != first) ? Math.min(first.messageId, defaultValue) : defaultValue;
+    }
+
+    /**
+     * Figure out the local safe zone for a sealed slot. If the end message ID of the slot is larger than start message
+     * IDs of other slots not yet submitted, the minimum of those is the local safe zone.
+     *
+     * @param sealedSlot slot returned by {@link #record(String, long)} or {@link #sealIfReady(String)}
+     * @return local safe zone
+     */
+    long getLocalSafeZone(Slot sealedSlot) {
+        WindowStart sealedStart = new WindowStart(sealedSlot.getStartMessageId(), sealedSlot.getStorageQueueName());
+        for (WindowStart windowStart : windowStarts) {
+            // Entries are in ascending order. Hence the first entry of another slot is the minimum.
+            if (!windowStart.equals(sealedStart)) {
+                return Math.min(windowStart.messageId, sealedSlot.getEndMessageId());
+            }
+        }
+        return sealedSlot.getEndMessageId();
+    }
+
+    /**
+     * Stop holding back the local safe zone for a sealed slot. Should be called once the slot is submitted to the
+     * coordinator, or the submit is given up.
+     *
+     * @param sealedSlot slot returned by {@link #record(String, long)} or {@link #sealIfReady(String)}
+     */
+    void release(Slot sealedSlot) {
+        windowStarts.remove(new WindowStart(sealedSlot.getStartMessageId(), sealedSlot.getStorageQueueName()));
+    }
+
+    /**
+     * Check if a window is open for longer than the slot timeout
+     *
+     * @param window window to check
+     * @return true if timed out
+     */
+    private boolean isTimedOut(QueueWindow window) {
+        return (System.currentTimeMillis() - window.creationTime) >= slotTimeout;
+    }
+
+    /**
+     * Detach the window and create the slot to be submitted. Should be called while holding the monitor of the window.
+     * The start of the window is kept in {@link #windowStarts} until the slot is released.
+     *
+     * @param window window to seal
+     * @return slot covering the messages recorded in the window
+     */
+    private Slot seal(QueueWindow window) {
+        window.sealed = true;
+        windows.remove(window.storageQueueName, window);
+
+        Slot slot = new Slot();
+        slot.setStorageQueueName(window.storageQueueName);
+        slot.setStartMessageId(window.start.messageId);
+        slot.setEndMessageId(window.endMessageId);
+        slot.setMessageCount(window.messageCount);
+        return slot;
+    }
+
+    /**
+     * Slot being filled for a single storage queue
+     */
+    private final class QueueWindow {
+
+        private final String storageQueueName;
+
+        private final long creationTime;
+
+        /**
+         * Smallest message ID recorded. Indexed in {@link #windowStarts}
+         */
+        private WindowStart start;
+
+        private long endMessageId;
+
+        private long messageCount;
+
+        private boolean sealed;
+
+        private QueueWindow(String storageQueueName) {
+            this.storageQueueName = storageQueueName;
+            this.creationTime = System.currentTimeMillis();
+        }
+
+        /**
+         * Add a message to the window. Messages of a queue can be recorded out of order by parallel writers, hence
+         * the window covers the minimum and maximum IDs recorded.
+         *
+         * @param messageId ID of the message
+         */
+        private void add(long messageId) {
+            if (null == start || messageId < start.messageId) {
+                WindowStart newStart = new WindowStart(messageId, storageQueueName);
+                windowStarts.add(newStart);
+                if (null != start) {
+                    windowStarts.remove(start);
+                }
+                start = newStart;
+            }
+            if (messageId > endMessageId) {
+                endMessageId = messageId;
+            }
+            messageCount++;
+        }
+    }
+
+    /**
+     * Immutable index entry of the start message ID of a window
+     */
+    private static final class WindowStart implements Comparable<WindowStart> {
+
+        /**
+         * Entry smaller than any other entry
+         */
+        private static final WindowStart MIN = new WindowStart(Long.MIN_VALUE, "");
+
+        private final long messageId;
+
+        private final String storageQueueName;
+
+        private WindowStart(long messageId, String storageQueueName) {
+            this.messageId = messageId;
+            this.storageQueueName = storageQueueName;
+        }
+
+        @Override
+        public int compareTo(WindowStart other) {
+            int result = Long.compare(messageId, other.messageId);
+            return (result != 0) ? result : storageQueueName.compareTo(other.storageQueueName);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof WindowStart && compareTo((WindowStart) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.valueOf(messageId).hashCode() + storageQueueName.hashCode();
+        }
+    }
+}
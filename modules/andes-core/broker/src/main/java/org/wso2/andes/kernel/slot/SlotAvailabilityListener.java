@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel.slot;
+
+/**
+ * Listener interface to listen to slots becoming available for delivery at the slot manager. This is used to wake
+ * up idle message delivery instead of polling the slot manager for new slots.
+ */
+public interface SlotAvailabilityListener {
+
+    /**
+     * Triggered when a new slot is submitted or an existing slot is returned to the slot manager for the given
+     * storage queue. Implementations should return quickly as this is invoked in the slot manager's calling thread.
+     *
+     * @param storageQueueName name of the storage queue slot belongs to
+     */
+    void slotAvailable(String storageQueueName);
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel.slot;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesContextInformationManager;
+import org.wso2.andes.kernel.AndesException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifies the other nodes in the cluster when slots become available at the slot coordinator so that their idle
+ * message delivery tasks are woken up instead of polling the coordinator for slots.
+ * <p/>
+ * Slot availability events are accumulated and sent periodically as a single cluster notification per interval.
+ * A queue receiving many slots within an interval is notified only once.
+ */
+public class SlotAvailabilityNotifier implements SlotAvailabilityListener {
+
+    private static Log log = LogFactory.getLog(SlotAvailabilityNotifier.class);
+
+    /**
+     * Maximum length of the encoded queue names carried by a single cluster notification
+     */
+    private static final int MAX_NOTIFICATION_LENGTH = 1000;
+
+    /**
+     * SlotAvailabilityNotifier instance
+     */
+    private static SlotAvailabilityNotifier instance = new SlotAvailabilityNotifier();
+
+    /**
+     * Queues having slots available since the last notification
+     */
+    private final Set<String> pendingQueues;
+
+    /**
+     * Executor sending accumulated notifications periodically
+     */
+    private ScheduledExecutorService notificationScheduler;
+
+    private SlotAvailabilityNotifier() {
+        pendingQueues = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
+    /**
+     * Return slot availability notifier instance
+     *
+     * @return SlotAvailabilityNotifier object
+     */
+    public static SlotAvailabilityNotifier getInstance() {
+        return instance;
+    }
+
+    /**
+     * Start listening to slot availability at the cluster mode slot manager and notify the cluster periodically
+     *
+     * @param notificationInterval interval in milliseconds between two notifications
+     */
+    public synchronized void start(int notificationInterval) {
+        if (null != notificationScheduler) {
+            return;
+        }
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("SlotAvailabilityNotifier-%d")
+                .build();
+        notificationScheduler = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        notificationScheduler.scheduleWithFixedDelay(new NotificationTask(), notificationInterval,
+                notificationInterval, TimeUnit.MILLISECONDS);
+        SlotManagerClusterMode.getInstance().addSlotAvailabilityListener(this);
+    }
+
+    /**
+     * Stop notifying slot availability to the cluster
+     */
+    public synchronized void stop() {
+        if (null != notificationScheduler) {
+            SlotManagerClusterMode.getInstance().removeSlotAvailabilityListener(this);
+            notificationScheduler.shutdown();
+            notificationScheduler = null;
+            pendingQueues.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void slotAvailable(String storageQueueName) {
+        pendingQueues.add(storageQueueName);
+    }
+
+    /**
+     * Send the accumulated slot availability events to the cluster. Queue names are split into multiple
+     * notifications if they do not fit into a single notification.
+     *
+     * @throws AndesException if notification cannot be sent
+     */
+    private void sendPendingNotifications() throws AndesException {
+        if (pendingQueues.isEmpty()) {
+            return;
+        }
+
+        AndesContextInformationManager contextInformationManager =
+                AndesContext.getInstance().getAndesContextInformationManager();
+        List<String> queuesToNotify = new ArrayList<>();
+        int notificationLength = 0;
+
+        Iterator<String> pendingQueueIterator = pendingQueues.iterator();
+        while (pendingQueueIterator.hasNext()) {
+            String storageQueueName = pendingQueueIterator.next();
+            // Remove before notifying so that a slot submitted meanwhile is notified in the next round
+            pendingQueueIterator.remove();
+
+            if (!queuesToNotify.isEmpty()
+                    && (notificationLength + storageQueueName.length() + 1) > MAX_NOTIFICATION_LENGTH) {
+                contextInformationManager.notifySlotAvailability(queuesToNotify);
+                queuesToNotify = new ArrayList<>();
+                notificationLength = 0;
+            }
+            queuesToNotify.add(storageQueueName);
+            notificationLength = notificationLength + storageQueueName.length() + 1;
+        }
+        if (!queuesToNotify.isEmpty()) {
+            contextInformationManager.notifySlotAvailability(queuesToNotify);
+        }
+    }
+
+    /**
+     * Periodic task sending accumulated slot availability notifications
+     */
+    private class NotificationTask implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                sendPendingNotifications();
+            } catch (Throwable e) {
+                // Delivery tasks of other nodes will find the slots when polling the coordinator
+                log.warn("Error while notifying slot availability to the cluster", e);
+            }
+        }
+    }
+}
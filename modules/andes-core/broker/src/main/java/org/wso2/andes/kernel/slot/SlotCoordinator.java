@@ -18,6 +18,9 @@
 
 package org.wso2.andes.kernel.slot;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * This interface is responsible for coordinating with the SlotManagerClusterMode
  */
@@ -41,6 +44,22 @@ public interface SlotCoordinator {
      */
      void updateMessageId(String queueName,long startMessageId, long endMessageId, long localSafeZone) throws ConnectionException;
 
+    /**
+     * Get slots for several queues from SlotManagerClusterMode with a single request
+     * @param queueNames Names of the queues
+     * @return Slot of each queue. An empty slot is returned for a queue when there is no slot to be assigned
+     * @throws ConnectionException
+     */
+     Map<String, Slot> getSlots(List<String> queueNames) throws ConnectionException;
+
+    /**
+     * Record last message IDs of several slots with a single request
+     * @param slots Slots to be recorded. Storage queue name, start and end message IDs of each slot are used
+     * @param localSafeZone Minimum message ID of the node that is deemed safe
+     * @throws ConnectionException
+     */
+     void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException;
+
     /**
      *  Record safe zone to delete slots by node. This ping comes from nodes as messages are not
      *  published by them so that safe zone value keeps moving ahead.
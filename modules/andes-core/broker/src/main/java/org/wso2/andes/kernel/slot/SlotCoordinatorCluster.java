@@ -24,29 +24,122 @@ import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.server.cluster.error.detection.NetworkPartitionListener;
 import org.wso2.andes.thrift.MBThriftClient;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * This class is responsible of coordinating with the cluster mode Slot Manager
  */
 public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartitionListener {
 
     private static Log log = LogFactory.getLog(SlotCoordinatorCluster.class);
+
+    /**
+     * Default time in milliseconds a delivery task waits for a slot request sent by another task
+     */
+    private static final long DEFAULT_SLOT_REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+
     private String nodeId;
 
+    /**
+     * Time in milliseconds a delivery task waits for a slot request sent by another task
+     */
+    private final long slotRequestTimeout;
+
     private volatile SlotCoordinator instance;
 
+    /**
+     * Slot requests of delivery tasks waiting to be sent to the coordinator
+     */
+    private final Queue<SlotRequest> pendingSlotRequests = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Set while a thread is sending pending slot requests to the coordinator
+     */
+    private final AtomicBoolean sendingSlotRequests = new AtomicBoolean(false);
+
     public SlotCoordinatorCluster(){
         nodeId = AndesContext.getInstance().getClusterAgent().getLocalNodeIdentifier();
         instance = new ThriftSlotCoordinator();
+        slotRequestTimeout = DEFAULT_SLOT_REQUEST_TIMEOUT;
         AndesContext.getInstance().getClusterAgent().addNetworkPartitionListener(30, this);
     }
 
+    /**
+     * Create a slot coordinator which sends requests through the given coordinator
+     *
+     * @param nodeId   ID of the local node
+     * @param instance coordinator the requests are sent through
+     */
+    SlotCoordinatorCluster(String nodeId, SlotCoordinator instance) {
+        this(nodeId, instance, DEFAULT_SLOT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Create a slot coordinator which sends requests through the given coordinator
+     *
+     * @param nodeId             ID of the local node
+     * @param instance           coordinator the requests are sent through
+     * @param slotRequestTimeout time in milliseconds a delivery task waits for a request sent by another task
+     */
+    SlotCoordinatorCluster(String nodeId, SlotCoordinator instance, long slotRequestTimeout) {
+        this.nodeId = nodeId;
+        this.instance = instance;
+        this.slotRequestTimeout = slotRequestTimeout;
+    }
+
 
     /**
      * {@inheritDoc}
      */
     @Override
     public Slot getSlot(String queueName) throws ConnectionException {
-        return instance.getSlot(queueName);
+        SlotRequest slotRequest = new SlotRequest(queueName);
+        pendingSlotRequests.offer(slotRequest);
+
+        // Requests of delivery tasks running in parallel are combined. A thread finding no send in progress sends all
+        // pending requests with a single call to the coordinator. Others only wait for their own request to
+        // complete. The sender checks for requests queued during its call after giving up the send, so a request is
+        // never left pending without a sender.
+        while (!pendingSlotRequests.isEmpty() && sendingSlotRequests.compareAndSet(false, true)) {
+            try {
+                sendPendingSlotRequests();
+            } finally {
+                sendingSlotRequests.set(false);
+            }
+        }
+
+        try {
+            if (!slotRequest.completion.await(slotRequestTimeout, TimeUnit.MILLISECONDS)) {
+                throw new ConnectionException("Timed out after " + slotRequestTimeout
+                        + "ms while requesting a slot for queue " + queueName);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while requesting a slot for queue " + queueName, e);
+        }
+
+        if (null != slotRequest.error) {
+            ConnectionException exception = new ConnectionException("Error while requesting a slot for queue "
+                    + queueName);
+            exception.initCause(slotRequest.error);
+            throw exception;
+        }
+        return slotRequest.slot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Slot> getSlots(List<String> queueNames) throws ConnectionException {
+        return instance.getSlots(queueNames);
     }
 
     /**
@@ -56,6 +149,20 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
     public void updateMessageId(String queueName,
                                 long startMessageId, long endMessageId, long localSafeZone) throws ConnectionException {
         instance.updateMessageId(queueName,startMessageId,endMessageId, localSafeZone);
+        // Coordinator notifies other nodes through the cluster notification channel. Local subscribers need not
+        // wait for that notification to deliver the submitted slot
+        SlotDeliveryWorkerManager.getInstance().wakeUpDeliveryForQueue(queueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+        instance.updateMessageIds(slots, localSafeZone);
+        for (Slot slot : slots) {
+            SlotDeliveryWorkerManager.getInstance().wakeUpDeliveryForQueue(slot.getStorageQueueName());
+        }
     }
 
     /**
@@ -98,6 +205,43 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
         instance.addCoordinatorConnectionListener(listener);
     }
 
+    /**
+     * Send all pending slot requests to the coordinator with a single call and hand over the result to each request.
+     * Should be called only by the thread which set {@link #sendingSlotRequests}. Every request is released
+     * whatever the call throws, and anything thrown is handed to the requests.
+     */
+    private void sendPendingSlotRequests() {
+        List<SlotRequest> slotRequests = new ArrayList<>();
+        List<String> queueNames = new ArrayList<>();
+        SlotRequest slotRequest;
+        while ((slotRequest = pendingSlotRequests.poll()) != null) {
+            slotRequests.add(slotRequest);
+            // A queue is requested only once per call even if several requests are pending for it
+            if (!queueNames.contains(slotRequest.queueName)) {
+                queueNames.add(slotRequest.queueName);
+            }
+        }
+
+        try {
+            Map<String, Slot> slotMap = instance.getSlots(queueNames);
+            for (SlotRequest request : slotRequests) {
+                // Only the first request of a queue gets the assigned slot. Rest get an empty slot.
+                Slot slot = slotMap.remove(request.queueName);
+                request.slot = (null != slot) ? slot : new Slot();
+            }
+        } catch (Throwable e) {
+            // Errors are handed to the requests as well, since throwing them here would leave requests queued
+            // during the call without a sender
+            for (SlotRequest request : slotRequests) {
+                request.error = e;
+            }
+        } finally {
+            for (SlotRequest request : slotRequests) {
+                request.completion.countDown();
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -145,12 +289,22 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
             return thriftClient.getSlot(queueName, nodeId);
         }
 
+        @Override
+        public Map<String, Slot> getSlots(List<String> queueNames) throws ConnectionException {
+            return thriftClient.getSlots(queueNames, nodeId);
+        }
+
         @Override
         public void updateMessageId(String queueName, long startMessageId, long endMessageId,
                                     long localSafeZone) throws ConnectionException {
             thriftClient.updateMessageId(queueName,nodeId,startMessageId,endMessageId, localSafeZone);
         }
 
+        @Override
+        public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+            thriftClient.updateMessageIds(slots, nodeId, localSafeZone);
+        }
+
         @Override
         public void updateSlotDeletionSafeZone(long currentSlotDeleteSafeZone) throws ConnectionException {
             thriftClient.updateSlotDeletionSafeZone(currentSlotDeleteSafeZone, nodeId);
@@ -182,6 +336,28 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
     }
     
 
+    /**
+     * Slot request of a single delivery task. Fields are written by the sending thread before releasing
+     * {@link #completion} and read by the requesting thread after awaiting it.
+     */
+    private static final class SlotRequest {
+
+        private final String queueName;
+
+        private Slot slot;
+
+        private Throwable error;
+
+        /**
+         * Released once the slot or the error is set
+         */
+        private final CountDownLatch completion = new CountDownLatch(1);
+
+        private SlotRequest(String queueName) {
+            this.queueName = queueName;
+        }
+    }
+
     /**
      * Inner class to make all communications disabled with coordinator when
      * there is a cluster error.
@@ -193,12 +369,22 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
             throw new ConnectionException("cluster error detected, not connectng to cooridnator");
         }
 
+        @Override
+        public Map<String, Slot> getSlots(List<String> queueNames) throws ConnectionException {
+            throw new ConnectionException("cluster error detected, not connectng to cooridnator");
+        }
+
         @Override
         public void updateMessageId(String queueName, long startMessageId, long endMessageId,
                                     long localSafeZone) throws ConnectionException {
             throw new ConnectionException("cluster error detected, not connectng to cooridnator");            
         }
 
+        @Override
+        public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+            throw new ConnectionException("cluster error detected, not connectng to cooridnator");
+        }
+
         @Override
         public void updateSlotDeletionSafeZone(long currentSlotDeleteSafeZone) throws ConnectionException {
             throw new ConnectionException("cluster error detected, not connectng to cooridnator");
@@ -18,6 +18,10 @@
 
 package org.wso2.andes.kernel.slot;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class is responsible of coordinating with the Standalone Slot Manager
  */
@@ -49,6 +53,28 @@ public class SlotCoordinatorStandalone implements SlotCoordinator {
         slotManagerStandalone.updateMessageID(queueName,endMessageId);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Slot> getSlots(List<String> queueNames) {
+        Map<String, Slot> slotMap = new HashMap<>(queueNames.size());
+        for (String queueName : queueNames) {
+            slotMap.put(queueName, getSlot(queueName));
+        }
+        return slotMap;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMessageIds(List<Slot> slots, long localSafeZone) {
+        for (Slot slot : slots) {
+            slotManagerStandalone.updateMessageID(slot.getStorageQueueName(), slot.getEndMessageId());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
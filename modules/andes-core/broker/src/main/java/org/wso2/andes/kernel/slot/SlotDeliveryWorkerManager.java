@@ -28,6 +28,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.MessageFlusher;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.server.cluster.coordination.rdbms.ClusterEventBus;
 import org.wso2.andes.server.cluster.error.detection.NetworkPartitionListener;
 import org.wso2.andes.store.FailureObservingStoreManager;
 import org.wso2.andes.store.HealthAwareStore;
@@ -40,15 +41,10 @@ import java.util.concurrent.ThreadFactory;
  * This class is responsible of allocating SloDeliveryWorker threads to each queue
  */
 public final class SlotDeliveryWorkerManager implements StoreHealthListener, NetworkPartitionListener,
-        CoordinatorConnectionListener {
+        CoordinatorConnectionListener, SlotAvailabilityListener {
 
     private static Log log = LogFactory.getLog(SlotDeliveryWorkerManager.class);
 
-    /**
-     * Delay for waiting for an idle task
-     */
-    private static final long IDLE_TASK_DELAY_MILLIS = 100;
-
     /**
      * Slot Delivery Worker Manager instance
      */
@@ -63,7 +59,18 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
         ThreadFactory threadFactory = new ThreadFactoryBuilder()
                 .setNameFormat("MessageDeliveryTaskThreadPool-%d").build();
 
-        taskManager = new TaskExecutorService<>(numberOfThreads, IDLE_TASK_DELAY_MILLIS, threadFactory);
+        // Idle tasks are woken up when slots are available. Hence idle tasks poll the slot manager only as a
+        // safety net, which can be infrequent if wake ups reach the tasks without waiting for a poll
+        int idleTaskDelayMillis;
+        if (areSlotWakeUpsPushed()) {
+            idleTaskDelayMillis = AndesConfigurationManager
+                    .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_IDLE_DELIVERY_FALLBACK_POLLING_INTERVAL);
+        } else {
+            idleTaskDelayMillis = AndesConfigurationManager
+                    .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_IDLE_DELIVERY_POLLING_INTERVAL);
+        }
+
+        taskManager = new TaskExecutorService<>(numberOfThreads, idleTaskDelayMillis, threadFactory);
         taskManager.setExceptionHandler(new DeliveryTaskExceptionHandler());
         AndesContext andesContext = AndesContext.getInstance();
 
@@ -71,11 +78,33 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
             // network partition detection and thrift client works only when clustered.
             andesContext.getClusterAgent().addNetworkPartitionListener(50, this);
             MessagingEngine.getInstance().getSlotCoordinator().addCoordinatorConnectionListener(this);
+            // Slots of this node are notified by the slot manager only if this node is the coordinator. Other nodes
+            // receive them as cluster notifications
+            SlotManagerClusterMode.getInstance().addSlotAvailabilityListener(this);
+        } else {
+            SlotManagerStandalone.getInstance().addSlotAvailabilityListener(this);
         }
 
         FailureObservingStoreManager.registerStoreHealthListener(this);
     }
 
+    /**
+     * Check whether slot wake ups reach the delivery tasks of this node without waiting for a poll. Wake ups of a
+     * standalone node and of the coordinator are delivered in process. Other nodes receive them as cluster
+     * notifications, which are pushed with Hazelcast based event synchronization or when cluster event push is
+     * started, and polled at the event sync interval otherwise.
+     *
+     * @return true if wake ups are pushed
+     */
+    private static boolean areSlotWakeUpsPushed() {
+        if (!AndesContext.getInstance().isClusteringEnabled()) {
+            return true;
+        }
+        Boolean isRDBMSEventSyncEnabled = AndesConfigurationManager
+                .readValue(AndesConfiguration.CLUSTER_EVENT_SYNC_MODE_RDBMS_ENABLED);
+        return !isRDBMSEventSyncEnabled || null != ClusterEventBus.getInstance();
+    }
+
     /**
      * @return SlotDeliveryWorkerManager instance
      */
@@ -95,6 +124,28 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
                                     MessagingEngine.getInstance().getSlotCoordinator(),
                                         MessageFlusher.getInstance());
         taskManager.add(messageDeliveryTask);
+        // If delivery is already running for the queue, messages buffered for delivery can be sent to the new
+        // subscriber without waiting for the idle task delay
+        taskManager.wakeUp(storageQueue.getName());
+    }
+
+    /**
+     * Wake up the delivery task of the given storage queue. An idle delivery task is processed immediately instead
+     * of waiting for the idle task delay. This is called when there is new work for the queue, such as a new slot or
+     * returned subscriber credit.
+     *
+     * @param storageQueueName name of the storage queue
+     */
+    public void wakeUpDeliveryForQueue(String storageQueueName) {
+        taskManager.wakeUp(storageQueueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void slotAvailable(String storageQueueName) {
+        wakeUpDeliveryForQueue(storageQueueName);
     }
 
     /**
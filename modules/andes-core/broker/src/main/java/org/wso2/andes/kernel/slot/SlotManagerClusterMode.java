@@ -47,8 +47,6 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
 
     private static final Log log = LogFactory.getLog(SlotManagerClusterMode.class);
 
-    private static final SlotManagerClusterMode slotManager = new SlotManagerClusterMode();
-
     private static final int SAFE_ZONE_EVALUATION_INTERVAL = 5 * 1000;
 
     //safe zone calculator
@@ -83,11 +81,32 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
 
     }
 
+    /**
+     * Create a slot manager on top of the given slot agent without starting the safe zone calculation.
+     *
+     * @param slotAgent       slot agent storing slot information
+     * @param safetySlotCount number of slots kept out of the deletion task's reach
+     */
+    SlotManagerClusterMode(SlotAgent slotAgent, int safetySlotCount) {
+        super(safetySlotCount);
+        slotDeleteSafeZoneCalc = new SlotDeleteSafeZoneCalc(SAFE_ZONE_EVALUATION_INTERVAL);
+        this.slotAgent = slotAgent;
+        firstMessageId = INITIAL_MESSAGE_ID;
+        slotRecoveryScheduled = new AtomicBoolean(false);
+    }
+
     /**
      * @return SlotManagerClusterMode instance
      */
     public static SlotManagerClusterMode getInstance() {
-        return slotManager;
+        return SlotManagerHolder.INSTANCE;
+    }
+
+    /**
+     * Holder of the singleton, created on first use
+     */
+    private static class SlotManagerHolder {
+        private static final SlotManagerClusterMode INSTANCE = new SlotManagerClusterMode();
     }
 
     /**
@@ -278,12 +297,22 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
             queuesToRecover.remove(queueName);
         }
 
-        // Read message Id set for slots from store
-        TreeSet<Long> messageIdSet;
-        messageIdSet = slotAgent.getSlotBasedMessageIds(queueName);
-
         String lockKey = queueName + SlotManagerClusterMode.class;
         synchronized (lockKey.intern()) {
+            // Read message Id set for slots from store
+            TreeSet<Long> messageIdSet = slotAgent.getSlotBasedMessageIds(queueName);
+
+            // Message IDs are unique across nodes, so an already recorded last message ID means the same slot was
+            // submitted before. A node resubmits slots when a call fails midway, which must not record them twice.
+            if (messageIdSet.contains(lastMessageIdInTheSlot)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Slot " + startMessageIdInTheSlot + " to : " + lastMessageIdInTheSlot + " of node "
+                            + nodeId + " is already recorded for queue " + queueName);
+                }
+                slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
+                return;
+            }
+
             //Get last assigned message id from database
             long lastAssignedMessageId = slotAgent.getQueueToLastAssignedId(queueName);
 
@@ -356,6 +385,8 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
             //record local safe zone
             slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
         }
+
+        notifySlotAvailable(queueName);
     }
 
     /**
@@ -379,6 +410,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
                     log.debug("Returned assigned slot " + slotToBeReAssigned
                               + "from node " + nodeId + " as member left");
                 }
+                notifySlotAvailable(slotToBeReAssigned.getStorageQueueName());
             } else {
                 // Delete empty slots
                 slotToBeReAssigned.setStorageQueue(AndesContext.getInstance().getStorageQueueRegistry()
@@ -399,6 +431,7 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
                     log.debug("Returned overlapped slot " + overlappedSlot
                               + "from node " + nodeId + " as member left");
                 }
+                notifySlotAvailable(overlappedSlot.getStorageQueueName());
             } else {
                 // Delete empty slots
                 slotAgent.deleteSlot(nodeId, overlappedSlot.getStorageQueueName(), overlappedSlot.getStartMessageId(),
@@ -455,6 +488,8 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
                         nodeId);
             }
         }
+        // Released slots can now be delivered by subscribers of the queue in other nodes
+        notifySlotAvailable(queueName);
     }
 
     protected Long getLocalSafeZone(String nodeID) throws AndesException {
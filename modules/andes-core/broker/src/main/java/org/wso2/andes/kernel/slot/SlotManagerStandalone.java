@@ -209,6 +209,7 @@ public class SlotManagerStandalone extends AbstractSlotManager {
 
         }
 
+        notifySlotAvailable(queueName);
     }
 
     /**
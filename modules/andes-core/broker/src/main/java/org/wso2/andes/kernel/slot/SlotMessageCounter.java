@@ -20,7 +20,6 @@ package org.wso2.andes.kernel.slot;
 
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.gs.collections.impl.map.mutable.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
@@ -36,10 +35,9 @@ import org.wso2.andes.store.FailureObservingStoreManager;
 import org.wso2.andes.store.HealthAwareStore;
 import org.wso2.andes.store.StoreHealthListener;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -50,13 +48,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class SlotMessageCounter implements StoreHealthListener {
 
-    private ConcurrentHashMap<String, Slot> queueToSlotMap = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<String, Long> slotTimeOutMap = new ConcurrentHashMap<>();
     /**
-     * Timeout in milliseconds for messages in the slot. When this timeout is exceeded slot will be
-     * submitted to the coordinator
+     * Slots being filled for each queue. Slots are submitted to the coordinator when the slot window size or the
+     * message accumulation timeout is reached
      */
-    private Long timeOutForMessagesInQueue;
+    private final PendingSlotCounter pendingSlotCounter;
 
     /**
      * Executor used for Timeout slot submit task
@@ -65,7 +61,6 @@ public class SlotMessageCounter implements StoreHealthListener {
 
     private Log log = LogFactory.getLog(SlotMessageCounter.class);
     private static SlotMessageCounter slotMessageCounter = new SlotMessageCounter();
-    private final int slotWindowSize;
     private long currentSlotDeleteSafeZone;
 
     private SlotCoordinator slotCoordinator;
@@ -90,12 +85,14 @@ public class SlotMessageCounter implements StoreHealthListener {
         SLOT_SUBMIT_TIMEOUT = AndesConfigurationManager
                 .readValue(AndesConfiguration.PERFORMANCE_TUNING_MAX_SLOT_SUBMIT_DELAY);
 
-        slotWindowSize = AndesConfigurationManager
+        int slotWindowSize = AndesConfigurationManager
                 .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_SLOT_WINDOW_SIZE);
 
-        timeOutForMessagesInQueue = AndesConfigurationManager
+        long timeOutForMessagesInQueue = AndesConfigurationManager
                 .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_MESSAGE_ACCUMULATION_TIMEOUT);
 
+        pendingSlotCounter = new PendingSlotCounter(slotWindowSize, timeOutForMessagesInQueue);
+
         slotCoordinator = MessagingEngine.getInstance().getSlotCoordinator();
 
         messageStoresUnavailable = false;
@@ -134,18 +131,10 @@ public class SlotMessageCounter implements StoreHealthListener {
      * @param metadata AndesMessageMetadata
      */
     private void recordMetadataCountInSlot(AndesMessageMetadata metadata) {
-        String storageQueueName = metadata.getStorageQueueName();
-        Slot currentSlot = updateQueueToSlotMap(metadata);
+        Slot filledSlot = pendingSlotCounter.record(metadata.getStorageQueueName(), metadata.getMessageID());
 
-        if (checkMessageLimitReached(currentSlot)) {
-            try {
-                submitSlot(storageQueueName);
-            } catch (AndesException e) {
-                    /*
-                    We do not do anything here since this operation will be run by timeout thread also
-                     */
-                log.error("Error occurred while connecting to the thrift coordinator " + e.getMessage(), e);
-            }
+        if (null != filledSlot) {
+            submitSlot(filledSlot);
         }
     }
 
@@ -154,78 +143,52 @@ public class SlotMessageCounter implements StoreHealthListener {
     }
 
     /**
-     * Update in-memory queue to slot map. This method is is not synchronized. Single publisher should access this.
-     * Ideally through a disruptor event handler
+     * Submit a sealed slot to SlotManager.
      *
-     * @param metadata Andes metadata whose ID needs to be reported to SlotManager
-     * @return Current slot which this metadata belongs to
+     * @param slot slot sealed by the {@link PendingSlotCounter}
      */
-    private Slot updateQueueToSlotMap(AndesMessageMetadata metadata) {
-        String storageQueueName = metadata.getStorageQueueName();
-        Slot currentSlot = queueToSlotMap.get(storageQueueName);
-        if (currentSlot == null) {
-            currentSlot = new Slot();
-            currentSlot.setStartMessageId(metadata.getMessageID());
-            currentSlot.setEndMessageId(metadata.getMessageID());
-            currentSlot.setMessageCount(1L);
-            queueToSlotMap.put(storageQueueName, currentSlot);
-            slotTimeOutMap.put(storageQueueName, System.currentTimeMillis());
-        } else {
-            long currentMsgCount = currentSlot.getMessageCount();
-            long newMessageCount = currentMsgCount + 1;
-            currentSlot.setMessageCount(newMessageCount);
-            currentSlot.setEndMessageId(metadata.getMessageID());
-            queueToSlotMap.put(storageQueueName, currentSlot);
+    private void submitSlot(Slot slot) {
+        try {
+            slotCoordinator.updateMessageId(slot.getStorageQueueName(), slot.getStartMessageId(),
+                    slot.getEndMessageId(), pendingSlotCounter.getLocalSafeZone(slot));
+        } catch (ConnectionException e) {
+            // we only log here since this is called again from timer task if previous attempt failed
+            log.error("Error occurred while connecting to the thrift coordinator.", e);
+        } finally {
+            pendingSlotCounter.release(slot);
         }
-        return currentSlot;
     }
 
     /**
-     * Submit last message ID in the slot to SlotManager.
+     * Submit slots of several queues to SlotManager with a single request. Slots which have not reached the slot
+     * window size or the slot timeout are skipped.
      *
-     * @param storageQueueName name of the queue which this slot belongs to
+     * @param storageQueueNames names of the queues slots belong to
      */
-    public synchronized void submitSlot(String storageQueueName) throws AndesException {
-        Slot slot = queueToSlotMap.get(storageQueueName);
-        if (null != slot) {
-            Long lastSlotUpdateTime = slotTimeOutMap.get(storageQueueName);
-
-            // Check if the number of messages in slot is greater than or equal to slot window size or slot timeout
-            // has reached. This is to avoid timer task or disruptor creating smaller/overlapping slots.
-            if (checkMessageLimitReached(slot) || checkTimeOutReached(lastSlotUpdateTime)) {
-                try {
-                    long localSafeZone = inferLocalSafeZone(storageQueueName);
-                    slotTimeOutMap.remove(storageQueueName);
-                    queueToSlotMap.remove(storageQueueName);
-                    slotCoordinator.updateMessageId(storageQueueName, slot.getStartMessageId(),
-                            slot.getEndMessageId(), localSafeZone);
-                } catch (ConnectionException e) {
-                    // we only log here since this is called again from timer task if previous attempt failed
-                    log.error("Error occurred while connecting to the thrift coordinator.", e);
-                }
+    public void submitSlots(Collection<String> storageQueueNames) {
+        List<Slot> slotsToSubmit = new ArrayList<>(storageQueueNames.size());
+        long localSafeZone = Long.MAX_VALUE;
+
+        for (String storageQueueName : storageQueueNames) {
+            Slot slot = pendingSlotCounter.sealIfReady(storageQueueName);
+            if (null != slot) {
+                // A single safe zone is submitted for all the slots. Hence the minimum is taken
+                localSafeZone = Math.min(pendingSlotCounter.getLocalSafeZone(slot), localSafeZone);
+                slotsToSubmit.add(slot);
             }
         }
-    }
-
-    /**
-     * Figure out if the currentStorageQueue's endMessageID is larger than startMessageID's of other queues. If yes,
-     * set the minimum startMessageID from those queues as the local safe Zone.
-     *
-     * @param currentStorageQueueName
-     * @return Local Safe Zone
-     */
-    private long inferLocalSafeZone(String currentStorageQueueName) {
-
-        long localSafeZone = queueToSlotMap.get(currentStorageQueueName).getEndMessageId();
-
-        for (Map.Entry<String, Slot> queueSlotEntry : queueToSlotMap.entrySet()) {
 
-            if (!queueSlotEntry.getKey().equals(currentStorageQueueName)) {
-                localSafeZone = Math.min(queueSlotEntry.getValue().getStartMessageId(), localSafeZone);
+        if (!slotsToSubmit.isEmpty()) {
+            try {
+                slotCoordinator.updateMessageIds(slotsToSubmit, localSafeZone);
+            } catch (ConnectionException e) {
+                log.error("Error occurred while connecting to the thrift coordinator.", e);
+            } finally {
+                for (Slot slot : slotsToSubmit) {
+                    pendingSlotCounter.release(slot);
+                }
             }
         }
-
-        return localSafeZone;
     }
 
     public void updateSafeZoneForNode(long currentSafeZoneVal) {
@@ -247,26 +210,6 @@ public class SlotMessageCounter implements StoreHealthListener {
         return slotMessageCounter;
     }
 
-    /**
-     * Check if the slot window size has exceeded
-     *
-     * @param slot Slot
-     * @return true if slot window size has exceeded
-     */
-    private boolean checkMessageLimitReached(Slot slot) {
-        return slot.getMessageCount() >= slotWindowSize;
-    }
-
-    /**
-     * Check if we slot is timed out
-     *
-     * @param lastSlotUpdateTime Last update time of the Slot
-     * @return true if slot is timed-out
-     */
-    private boolean checkTimeOutReached(Long lastSlotUpdateTime) {
-        return (System.currentTimeMillis() - lastSlotUpdateTime) >= timeOutForMessagesInQueue;
-    }
-
     /**
      * Shut down worker threads, submitSlotToCoordinatorExecutor so that server can shut down properly without
      * unexpected behaviour.
@@ -288,9 +231,11 @@ public class SlotMessageCounter implements StoreHealthListener {
                 log.info("Starting publisher slot recovery event with recovery message id " + recoveryMessageId);
                 AndesContextStore contextStore = AndesContext.getInstance().getAndesContextStore();
                 List<StorageQueue> queueList = contextStore.getAllQueuesStored();
+                List<Slot> recoverySlots = new ArrayList<>(queueList.size());
                 for (StorageQueue queue : queueList) {
-                    slotCoordinator.updateMessageId(queue.getName(), recoveryMessageId, recoveryMessageId,
-                            currentSlotDeleteSafeZone);
+                    Slot recoverySlot = new Slot(recoveryMessageId, recoveryMessageId, queue.getName());
+                    recoverySlot.setStorageQueueName(queue.getName());
+                    recoverySlots.add(recoverySlot);
                     // NOTE: Two queues can't have the same message id at the MB_SLOT_MESSAGE_ID table hence incrementing.
 
                     // Get fresh slot logic deletes the current 'last-queue-to-message-id' mapping with only the
@@ -299,6 +244,7 @@ public class SlotMessageCounter implements StoreHealthListener {
                     log.info("Moving last published message id of queue " + queue.getName() + " to "
                              + recoveryMessageId);
                 }
+                slotCoordinator.updateMessageIds(recoverySlots, currentSlotDeleteSafeZone);
                 log.info("Publisher slot recovery event completed for " + queueList.size() +
                          " queue(s). Recovery message id " + recoveryMessageId);
 
@@ -318,10 +264,8 @@ public class SlotMessageCounter implements StoreHealthListener {
         @Override
         public void run() {
             try {
-                Set<Map.Entry<String, Long>> slotTimeoutEntries = slotTimeOutMap.entrySet();
-
-                if (!slotTimeoutEntries.isEmpty()) {
-                    updateCoordinatorWithTimedOutSlots(slotTimeoutEntries);
+                if (pendingSlotCounter.hasPendingSlots()) {
+                    updateCoordinatorWithTimedOutSlots();
                 } else {
                     updateCoordinatorWithCurrentSafezone();
                 }
@@ -333,23 +277,13 @@ public class SlotMessageCounter implements StoreHealthListener {
 
         /**
          * Find and submit timed out slots to slot coordinator
-         *
-         * @param slotTimeoutEntries Set of slot last update time entries
          */
-        private void updateCoordinatorWithTimedOutSlots(Set<Map.Entry<String, Long>> slotTimeoutEntries) {
-            for (Map.Entry<String, Long> entry : slotTimeoutEntries) {
-
-                Long lastSlotUpdateTime = entry.getValue();
-                String storageQueueName = entry.getKey();
-
-                if (checkTimeOutReached(lastSlotUpdateTime)) {
-                    try {
-                        submitSlot(storageQueueName);
-                    } catch (AndesException exception) {
-                        // We do not do anything here since this thread will be run periodically
-                        log.error("Error occurred while connecting to the thrift coordinator ", exception);
-                    }
-                }
+        private void updateCoordinatorWithTimedOutSlots() {
+            List<String> timedOutQueues = pendingSlotCounter.getTimedOutQueues();
+
+            // All timed out slots are submitted with a single request to the coordinator
+            if (!timedOutQueues.isEmpty()) {
+                submitSlots(timedOutQueues);
             }
         }
 
@@ -361,17 +295,10 @@ public class SlotMessageCounter implements StoreHealthListener {
 
             //update current slot Deletion Safe Zone
             try {
-                long evaluatedSafeZone = currentSlotDeleteSafeZone;
-
                 // If there are any slots pending submission to coordinator, we must lower the safe zone to their
                 // starting point.
                 // If we do not consider pending slots at this calculation, safe zone will fly up unexpectedly.
-                for (Map.Entry<String, Slot> slotEntry : queueToSlotMap.entrySet()) {
-                    if (!checkMessageLimitReached(slotEntry.getValue())) {
-                        evaluatedSafeZone = Math.min(slotEntry.getValue().getStartMessageId(),
-                                evaluatedSafeZone);
-                    }
-                }
+                long evaluatedSafeZone = pendingSlotCounter.getMinimumPendingMessageId(currentSlotDeleteSafeZone);
 
                 if (log.isDebugEnabled()) {
                     log.debug("Updating coordinator with local safe zone " + evaluatedSafeZone);
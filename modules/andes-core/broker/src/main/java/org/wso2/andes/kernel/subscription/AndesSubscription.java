@@ -236,6 +236,8 @@ public class AndesSubscription {
      */
     public void onMessageAck(long messageID) throws AndesException {
         subscriberConnection.onMessageAck(messageID);
+        // Subscriber has room for one more message
+        storageQueue.wakeUpMessageDelivery();
     }
 
     /**
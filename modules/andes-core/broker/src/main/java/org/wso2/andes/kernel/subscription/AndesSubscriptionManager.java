@@ -21,6 +21,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.python.antlr.op.And;
 import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesContextInformationManager;
 import org.wso2.andes.kernel.AndesContextStore;
@@ -101,6 +103,11 @@ public class AndesSubscriptionManager implements NetworkPartitionListener, Store
      */
     private ClusterNotificationAgent clusterNotificationAgent;
 
+    /**
+     * Collects local subscription changes to notify them to cluster in batches
+     */
+    private SubscriptionNotificationBatcher subscriptionNotificationBatcher;
+
     /**
      * Persistent store storing message router, queue, binding
      * and subscription information
@@ -132,6 +139,12 @@ public class AndesSubscriptionManager implements NetworkPartitionListener, Store
 
         CoordinationComponentFactory coordinationComponentFactory = new CoordinationComponentFactory();
         this.clusterNotificationAgent = coordinationComponentFactory.createClusterNotificationAgent();
+        int notificationBatchWindow = AndesConfigurationManager.readValue(AndesConfiguration
+                .COORDINATION_SUBSCRIPTION_NOTIFICATION_BATCH_WINDOW);
+        int notificationMaxBatchSize = AndesConfigurationManager.readValue(AndesConfiguration
+                .COORDINATION_SUBSCRIPTION_NOTIFICATION_MAX_BATCH_SIZE);
+        this.subscriptionNotificationBatcher = new SubscriptionNotificationBatcher(clusterNotificationAgent,
+                notificationBatchWindow, notificationMaxBatchSize);
 
         if (AndesContext.getInstance().isClusteringEnabled()) {
             // network partition detection works only when clustered.
@@ -191,7 +204,7 @@ public class AndesSubscriptionManager implements NetworkPartitionListener, Store
         }
         log.info("Add Local subscription " + subscription.getProtocolType() + " " + subscription.toString());
 
-        clusterNotificationAgent.notifySubscriptionsChange(subscription,
+        subscriptionNotificationBatcher.notifySubscriptionChange(subscription,
                 ClusterNotificationListener.SubscriptionChange.Added);
 
     }
@@ -262,12 +275,15 @@ public class AndesSubscriptionManager implements NetworkPartitionListener, Store
             log.warn("Cannot not remove subscription from store since the store is non-operational");
         }
 
-        clusterNotificationAgent.notifySubscriptionsChange(subscription,
+        subscriptionNotificationBatcher.notifySubscriptionChange(subscription,
                 ClusterNotificationListener.SubscriptionChange.Closed);
 
         // If there are no subscriptions for this queue, then delete it
         if (!storageQueue.isDurable() && storageQueue.getBoundSubscriptions().isEmpty() ) {
 
+            // Other nodes need to close the subscription before the queue is deleted
+            subscriptionNotificationBatcher.flush();
+
             AndesContextInformationManager contextInformationManager = AndesContext.getInstance()
                     .getAndesContextInformationManager();
 
@@ -871,6 +887,7 @@ public class AndesSubscriptionManager implements NetworkPartitionListener, Store
             //simulate a local subscription remove. Notify the cluster
             removeLocalSubscriptionAndNotify(subscription);
         }
+        subscriptionNotificationBatcher.flush();
     }
 
     public void closeAllActiveLocalSubscriptions() throws AndesException {
@@ -881,6 +898,7 @@ public class AndesSubscriptionManager implements NetworkPartitionListener, Store
             sub.closeConnection(channelID, localNodeId);
             removeLocalSubscriptionAndNotify(sub);
         }
+        subscriptionNotificationBatcher.flush();
     }
 
     /**
@@ -889,6 +907,7 @@ public class AndesSubscriptionManager implements NetworkPartitionListener, Store
      * @throws AndesException
      */
     public void updateSubscriptionsAfterClusterMerge() throws AndesException {
+        subscriptionNotificationBatcher.flush();
         clusterNotificationAgent.notifyAnyDBChange();
     }
 
@@ -377,6 +377,15 @@ public class StorageQueue {
      */
     public void bufferMessageForDelivery(DeliverableAndesMetadata message) {
         messageHandler.bufferMessage(message);
+        messageHandler.wakeUpMessageDelivery();
+    }
+
+    /**
+     * Wake up message delivery of the queue. This is called when subscribers have room to accept more messages or
+     * new messages are available for the queue.
+     */
+    public void wakeUpMessageDelivery() {
+        messageHandler.wakeUpMessageDelivery();
     }
 
     /**
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.subscription;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ClusterNotificationListener.SubscriptionChange;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects local subscription changes over a time window and notifies them to the cluster as a single notification.
+ * When many clients reconnect at once the cluster handles a notification per window instead of one per
+ * subscription. A subscription added and closed within the same window is not notified at all. Changes which could
+ * not be notified are collected again and notified with the next window.
+ */
+class SubscriptionNotificationBatcher {
+
+    private static Log log = LogFactory.getLog(SubscriptionNotificationBatcher.class);
+
+    /**
+     * Agent notifying the collected changes to the cluster
+     */
+    private final ClusterNotificationAgent clusterNotificationAgent;
+
+    /**
+     * Time window changes are collected over in milliseconds
+     */
+    private final int window;
+
+    /**
+     * Number of collected changes notified without waiting for the window to end
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Notifies collected changes at the end of the window. Null if changes are notified as they happen.
+     */
+    private final ScheduledExecutorService flushScheduler;
+
+    /**
+     * Lock keeping notifications in the order the changes were collected
+     */
+    private final Object notificationLock = new Object();
+
+    /**
+     * Changes collected in the current window in the order they were made
+     */
+    private List<PendingChange> pendingChanges = new ArrayList<>();
+
+    /**
+     * Additions collected in the current window by protocol channel of the subscription
+     */
+    private Map<UUID, PendingChange> pendingAdditions = new HashMap<>();
+
+    /**
+     * Create a batcher notifying changes through the given agent
+     *
+     * @param clusterNotificationAgent agent notifying changes to the cluster
+     * @param window                   time window changes are collected over in milliseconds. Changes are
+     *                                 notified as they happen if this is not positive.
+     * @param maxBatchSize             maximum number of changes notified in a single notification
+     */
+    SubscriptionNotificationBatcher(ClusterNotificationAgent clusterNotificationAgent, int window,
+                                    int maxBatchSize) {
+        this.clusterNotificationAgent = clusterNotificationAgent;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        if (window > 0) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("SubscriptionNotificationBatcher-%d").setDaemon(true).build());
+        } else {
+            flushScheduler = null;
+        }
+    }
+
+    /**
+     * Collect a subscription change to be notified to the cluster. A closure cancels an addition of the same
+     * subscription which is not notified yet.
+     *
+     * @param subscription subscription
+     * @param changeType   change made
+     * @throws AndesException if the changes are notified right away and the notification fails
+     */
+    void notifySubscriptionChange(AndesSubscription subscription, SubscriptionChange changeType)
+            throws AndesException {
+        if (null == flushScheduler) {
+            clusterNotificationAgent.notifySubscriptionsChange(subscription, changeType);
+            return;
+        }
+
+        boolean isBatchFull;
+        synchronized (this) {
+            PendingChange change = new PendingChange(subscription, changeType);
+            if (SubscriptionChange.Closed == changeType) {
+                PendingChange pendingAddition = pendingAdditions.remove(change.protocolChannel);
+                if (null != pendingAddition) {
+                    pendingAddition.isCancelled = true;
+                    return;
+                }
+            }
+
+            pendingChanges.add(change);
+            if (SubscriptionChange.Added == changeType) {
+                pendingAdditions.put(change.protocolChannel, change);
+            }
+
+            if (1 == pendingChanges.size()) {
+                flushScheduler.schedule(new FlushTask(), window, TimeUnit.MILLISECONDS);
+            }
+            isBatchFull = pendingChanges.size() >= maxBatchSize;
+        }
+
+        if (isBatchFull) {
+            flush();
+        }
+    }
+
+    /**
+     * Notify the collected changes to the cluster without waiting for the window to end. Called before changes
+     * which other nodes need to receive after the subscription changes, such as deleting the queue of a closed
+     * subscription. If the notification fails the changes are collected again to be notified with the next window.
+     *
+     * @throws AndesException if the notification fails
+     */
+    void flush() throws AndesException {
+        synchronized (notificationLock) {
+            List<PendingChange> changes;
+            synchronized (this) {
+                if (pendingChanges.isEmpty()) {
+                    return;
+                }
+                changes = pendingChanges;
+                pendingChanges = new ArrayList<>();
+                pendingAdditions = new HashMap<>();
+            }
+
+            List<PendingChange> changesToNotify = new ArrayList<>(changes.size());
+            for (PendingChange change : changes) {
+                if (!change.isCancelled) {
+                    changesToNotify.add(change);
+                }
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Notifying " + changesToNotify.size() + " subscription changes. "
+                        + (changes.size() - changesToNotify.size()) + " additions were cancelled by closures.");
+            }
+
+            try {
+                if (1 == changesToNotify.size()) {
+                    PendingChange change = changesToNotify.get(0);
+                    clusterNotificationAgent.notifySubscriptionsChange(change.subscription, change.changeType);
+                } else if (!changesToNotify.isEmpty()) {
+                    SubscriptionNotificationBatch batch = new SubscriptionNotificationBatch();
+                    for (PendingChange change : changesToNotify) {
+                        batch.add(change.changeType, change.encodedSubscription);
+                    }
+                    clusterNotificationAgent.notifySubscriptionBatch(batch);
+                }
+            } catch (AndesException | RuntimeException e) {
+                requeue(changesToNotify);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Collect changes which could not be notified again, ahead of the changes collected since. Re-collected
+     * additions can still be cancelled by a closure.
+     *
+     * @param changes changes in the order they were made
+     */
+    private synchronized void requeue(List<PendingChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        boolean isFlushScheduled = !pendingChanges.isEmpty();
+        List<PendingChange> requeuedChanges = new ArrayList<>(changes.size() + pendingChanges.size());
+        requeuedChanges.addAll(changes);
+        requeuedChanges.addAll(pendingChanges);
+        pendingChanges = requeuedChanges;
+
+        for (PendingChange change : changes) {
+            if (SubscriptionChange.Added == change.changeType
+                    && !pendingAdditions.containsKey(change.protocolChannel)) {
+                pendingAdditions.put(change.protocolChannel, change);
+            }
+        }
+
+        if (!isFlushScheduled) {
+            flushScheduler.schedule(new FlushTask(), window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * A subscription change waiting to be notified
+     */
+    private static class PendingChange {
+
+        private final AndesSubscription subscription;
+
+        private final SubscriptionChange changeType;
+
+        /**
+         * Protocol channel of the subscription
+         */
+        private final UUID protocolChannel;
+
+        /**
+         * Subscription encoded when the change was made
+         */
+        private final String encodedSubscription;
+
+        /**
+         * True if a closure of the subscription cancelled this addition
+         */
+        private boolean isCancelled;
+
+        PendingChange(AndesSubscription subscription, SubscriptionChange changeType) {
+            this.subscription = subscription;
+            this.changeType = changeType;
+            this.protocolChannel = subscription.getSubscriberConnection().getProtocolChannelID();
+            this.encodedSubscription = subscription.encodeAsStr();
+        }
+    }
+
+    /**
+     * Notifies the changes collected when the window ends
+     */
+    private class FlushTask implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (Throwable e) {
+                log.error("Error while notifying subscription changes to the cluster. The changes will be notified "
+                        + "with the next window.", e);
+            }
+        }
+    }
+}
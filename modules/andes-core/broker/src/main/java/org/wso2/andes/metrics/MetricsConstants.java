@@ -150,11 +150,78 @@ public class MetricsConstants {
      */
     public static final String DISRUPTOR_MESSAGE_ACK = PREFIX + "inbound.disruptor.ack.count";
 
+    /**
+     * At a given time the number of acknowledged messages waiting to be deleted from the message store
+     */
+    public static final String ACK_DELETION_BACKLOG = PREFIX + "inbound.ack.deletion.backlog.count";
+
     /**
      * At a given time the number of messages in the outbound ring
      */
     public static final String DISRUPTOR_OUTBOUND_RING = PREFIX + "outbound.disruptor.message.count";
 
+    /**
+     * At a given time the number of per queue background tasks waiting in the queue task scheduler
+     */
+    public static final String QUEUE_TASK_SCHEDULER_PENDING_TASKS = PREFIX + "queue.task.scheduler.pending.count";
+
+    /**
+     * Time taken from submission to completion of a per queue background task
+     */
+    public static final String QUEUE_TASK_SCHEDULER_TASK_LATENCY = PREFIX + "queue.task.scheduler.task.latency";
+
+    /**
+     * Number of messages stored by the last group commit of the message writers
+     */
+    public static final String GROUP_COMMIT_SIZE = PREFIX + "inbound.group.commit.message.count";
+
+    /**
+     * Percentage of the group commit window size filled by the last group commit of the message writers
+     */
+    public static final String GROUP_COMMIT_WINDOW_FILL = PREFIX + "inbound.group.commit.window.fill";
+
+    /**
+     * Time taken to store a group of messages merged from the message writers
+     */
+    public static final String GROUP_COMMIT_LATENCY = PREFIX + "inbound.group.commit.latency";
+
+    /*Content cache*/
+
+    /**
+     * Percentage of content lookups of the delivery path served from the assembled content of the delivery tier
+     */
+    public static final String CONTENT_CACHE_DELIVERY_TIER_HIT_RATIO = PREFIX + "content.cache.delivery.hit.ratio";
+
+    /**
+     * Percentage of content lookups reaching the message tier which were served without reading the message store
+     */
+    public static final String CONTENT_CACHE_MESSAGE_TIER_HIT_RATIO = PREFIX + "content.cache.message.hit.ratio";
+
+    /*Routing*/
+
+    /**
+     * Number of routing key lookups served from the topic routing cache
+     */
+    public static final String TOPIC_ROUTING_CACHE_HITS = PREFIX + "topic.routing.cache.hit.count";
+
+    /**
+     * Number of routing key lookups which had to be matched against the bindings
+     */
+    public static final String TOPIC_ROUTING_CACHE_MISSES = PREFIX + "topic.routing.cache.miss.count";
+
+    /*Slot coordination*/
+
+    /**
+     * Number of slot requests sent by message delivery tasks of this node per second. In cluster mode each request
+     * is a call to the slot coordinator
+     */
+    public static final String SLOT_REQUEST_RATE = PREFIX + "slot.request";
+
+    /**
+     * Number of slot requests served by the slot coordinator per second
+     */
+    public static final String COORDINATOR_SLOT_REQUEST_RATE = PREFIX + "coordinator.slot.request";
+
     /**
      * At a given time number of queue subscribers
      */
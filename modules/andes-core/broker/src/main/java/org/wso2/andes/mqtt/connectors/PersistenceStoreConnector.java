@@ -20,6 +20,8 @@ package org.wso2.andes.mqtt.connectors;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dna.mqtt.wso2.QOSLevel;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.*;
 import org.wso2.andes.kernel.disruptor.inbound.InboundBindingEvent;
 import org.wso2.andes.kernel.disruptor.inbound.InboundQueueEvent;
@@ -38,12 +40,12 @@ import org.wso2.andes.mqtt.utils.MQTTUtils;
 import org.wso2.andes.server.ClusterResourceHolder;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -59,16 +61,22 @@ public class PersistenceStoreConnector implements MQTTConnector {
     /**
      * Will maintain the relation between the publisher client identifiers vs the id generated cluster wide
      * Key of the map would be the mqtt specific client id and the value would be the cluster uuid
+     * Publishers of different clients are added in parallel by the MQTT inbound event handlers
      */
-    //TODO state the usage of a hash-map instead of using concurrent hashmap
-    private Map<String, MQTTPublisherChannel> publisherTopicCorrelate = new HashMap<>();
+    private Map<String, MQTTPublisherChannel> publisherTopicCorrelate = new ConcurrentHashMap<>();
 
     /**
      * Will maintain retain message identification (message id + channel id) until ack received
      * by the subscriber.
      * Retain message acks will not handle in andes level.
      */
-    private Set<String> retainMessageIdSet = new HashSet<>();
+    private Set<String> retainMessageIdSet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Maximum content chunk size stored by Andes. Published content is chunked to this size.
+     */
+    private final int maxChunkSize = AndesConfigurationManager.readValue(
+            AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
 
     /**
      * {@inheritDoc}
@@ -96,58 +104,55 @@ public class PersistenceStoreConnector implements MQTTConnector {
      * {@inheritDoc}
      */
     public void addMessage(MQTTMessageContext messageContext) throws MQTTException {
-        if (messageContext.getMessage().hasArray()) {
-
-            MQTTPublisherChannel publisher = publisherTopicCorrelate.get(messageContext.getPublisherID());
-            if (null == publisher) {
-                //We need to create a new publisher
-                publisher = new MQTTPublisherChannel(messageContext.getChannel());
-                publisherTopicCorrelate.put(messageContext.getPublisherID(), publisher);
-                //Finally will register the publisher channel for flow controlling
-
-                String andesChannelId = MQTTUtils.DEFAULT_ANDES_CHANNEL_IDENTIFIER;
-                if (null != messageContext.getChannel()) {
-                    andesChannelId = messageContext.getChannel().remoteAddress().toString().substring(1);
-                }
-                
-                AndesChannel publisherChannel = null;
-                try {
-                    publisherChannel = Andes.getInstance().createChannel(andesChannelId, publisher);
-                } catch (AndesException ex) {
-                    throw new MQTTException("unable to create a new channel " , ex);
-                }
- 
-                //Set channel details
-                //Substring to remove leading slash character from remote address
-                publisherChannel.setDestination(messageContext.getTopic());
-                publisher.setChannel(publisherChannel);
+        MQTTPublisherChannel publisher = publisherTopicCorrelate.get(messageContext.getPublisherID());
+        if (null == publisher) {
+            //We need to create a new publisher
+            publisher = new MQTTPublisherChannel(messageContext.getChannel());
+            publisherTopicCorrelate.put(messageContext.getPublisherID(), publisher);
+            //Finally will register the publisher channel for flow controlling
+
+            String andesChannelId = MQTTUtils.DEFAULT_ANDES_CHANNEL_IDENTIFIER;
+            if (null != messageContext.getChannel()) {
+                andesChannelId = messageContext.getChannel().remoteAddress().toString().substring(1);
             }
-
-            //Will get the bytes of the message
-            byte[] messageData = messageContext.getMessage().array();
-            long messageID = 0L; // unique message Id will be generated By Andes.
-            //Will start converting the message body
-            AndesMessagePart messagePart = MQTTUtils.convertToAndesMessage(messageData, messageID);
-            //Will Create the Andes Header
-            AndesMessageMetadata messageHeader = MQTTUtils.convertToAndesHeader(messageID, messageContext.getTopic(),
-                    messageContext.getQosLevel().getValue(), messageData.length, messageContext.isRetain(),
-                    publisher, messageContext.isCompressed());
-
-            // Add properties to be used for publisher acks
-            messageHeader.addProperty(MQTTUtils.CLIENT_ID, messageContext.getPublisherID());
-            messageHeader.addProperty(MQTTUtils.MESSAGE_ID, messageContext.getMqttLocalMessageID());
-            messageHeader.addProperty(MQTTUtils.QOSLEVEL, messageContext.getQosLevel().getValue());
-
-            // Publish to Andes core
-            AndesMessage andesMessage = new MQTTMessage(messageHeader);
-            andesMessage.addMessagePart(messagePart);
-            Andes.getInstance().messageReceived(andesMessage, publisher.getChannel(), messageContext.getPubAckHandler());
-            if (log.isDebugEnabled()) {
-                log.debug(" Message added with message id " + messageContext.getMqttLocalMessageID());
+            
+            AndesChannel publisherChannel = null;
+            try {
+                publisherChannel = Andes.getInstance().createChannel(andesChannelId, publisher);
+            } catch (AndesException ex) {
+                throw new MQTTException("unable to create a new channel " , ex);
             }
+ 
+            //Set channel details
+            //Substring to remove leading slash character from remote address
+            publisherChannel.setDestination(messageContext.getTopic());
+            publisher.setChannel(publisherChannel);
+        }
 
-        } else {
-            throw new MQTTException("Message content is not backed by an array, or the array is read-only.");
+        int contentLength = messageContext.getMessage().remaining();
+        long messageID = 0L; // unique message Id will be generated By Andes.
+        //Will start converting the message body. The content is copied from the inbound buffer straight into chunks
+        //stored by Andes, hence the message need not be backed by an array.
+        List<AndesMessagePart> messageParts = MQTTUtils.convertToAndesMessageParts(messageContext.getMessage(),
+                messageID, maxChunkSize);
+        //Will Create the Andes Header
+        AndesMessageMetadata messageHeader = MQTTUtils.convertToAndesHeader(messageID, messageContext.getTopic(),
+                messageContext.getQosLevel().getValue(), contentLength, messageContext.isRetain(),
+                publisher, messageContext.isCompressed());
+
+        // Add properties to be used for publisher acks
+        messageHeader.addProperty(MQTTUtils.CLIENT_ID, messageContext.getPublisherID());
+        messageHeader.addProperty(MQTTUtils.MESSAGE_ID, messageContext.getMqttLocalMessageID());
+        messageHeader.addProperty(MQTTUtils.QOSLEVEL, messageContext.getQosLevel().getValue());
+
+        // Publish to Andes core
+        AndesMessage andesMessage = new MQTTMessage(messageHeader);
+        for (AndesMessagePart messagePart : messageParts) {
+            andesMessage.addMessagePart(messagePart);
+        }
+        Andes.getInstance().messageReceived(andesMessage, publisher.getChannel(), messageContext.getPubAckHandler());
+        if (log.isDebugEnabled()) {
+            log.debug(" Message added with message id " + messageContext.getMqttLocalMessageID());
         }
     }
 
@@ -35,6 +35,8 @@ import org.wso2.andes.server.store.MessageMetaDataType;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -82,6 +84,36 @@ public class MQTTUtils {
         return messageBody;
     }
 
+    /**
+     * The published message content will be copied into AndesMessageParts of at most the maximum chunk size. Since
+     * the parts are already of the size stored by Andes, the content is not copied again when chunked by the kernel.
+     * The position of the given buffer is not changed.
+     *
+     * @param message      the message contents, need not be backed by an array
+     * @param messageID    the message identifier
+     * @param maxChunkSize maximum content chunk size stored by Andes
+     * @return content chunks of the message, a single empty chunk if the message is empty
+     */
+    public static List<AndesMessagePart> convertToAndesMessageParts(ByteBuffer message, long messageID,
+                                                                    int maxChunkSize) {
+        ByteBuffer content = message.duplicate();
+        List<AndesMessagePart> messageParts = new ArrayList<>(content.remaining() / maxChunkSize + 1);
+        int offset = 0;
+        do {
+            byte[] data = new byte[Math.min(content.remaining(), maxChunkSize)];
+            content.get(data);
+
+            AndesMessagePart messagePart = new AndesMessagePart();
+            messagePart.setOffSet(offset);
+            messagePart.setData(data);
+            messagePart.setMessageID(messageID);
+            messageParts.add(messagePart);
+
+            offset = offset + data.length;
+        } while (content.hasRemaining());
+        return messageParts;
+    }
+
     /**
      * The data about the message (meta information) will be constructed at this phase Andes requires the meta data as a
      * byte stream, The method basically collects all the relevant information necessary to construct the bytes stream
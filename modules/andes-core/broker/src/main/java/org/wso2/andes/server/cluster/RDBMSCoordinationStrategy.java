@@ -23,6 +23,7 @@ import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesContextStore;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.server.cluster.coordination.rdbms.ClusterEventBus;
 import org.wso2.andes.server.cluster.coordination.rdbms.MembershipEventType;
 import org.wso2.andes.server.cluster.coordination.rdbms.RDBMSMembershipEventingEngine;
 import org.wso2.andes.server.cluster.coordination.rdbms.RDBMSMembershipListener;
@@ -162,6 +163,7 @@ class RDBMSCoordinationStrategy implements CoordinationStrategy, RDBMSMembership
      */
     @Override
     public void memberAdded(String nodeID) {
+        refreshEventBusPeers();
         configurableClusterAgent.memberAdded(nodeID);
     }
 
@@ -170,6 +172,7 @@ class RDBMSCoordinationStrategy implements CoordinationStrategy, RDBMSMembership
      */
     @Override
     public void memberRemoved(String nodeID) {
+        refreshEventBusPeers();
         try {
             configurableClusterAgent.memberRemoved(nodeID);
         } catch (AndesException e) {
@@ -203,6 +206,9 @@ class RDBMSCoordinationStrategy implements CoordinationStrategy, RDBMSMembership
         contextStore = AndesContext.getInstance().getAndesContextStore();
         this.configurableClusterAgent = configurableClusterAgent;
 
+        // Event push needs to be started before the listeners so that they subscribe to pushed signals
+        ClusterEventBus.start(nodeId, hazelcastAddress);
+
         membershipEventingEngine = new RDBMSMembershipEventingEngine();
         membershipEventingEngine.start(nodeId);
 
@@ -310,11 +316,22 @@ class RDBMSCoordinationStrategy implements CoordinationStrategy, RDBMSMembership
         }
 
         membershipEventingEngine.stop();
+        ClusterEventBus.stop();
         coordinatorElectionTask.stop();
         threadExecutor.shutdown();
         scheduledExecutorService.shutdown();
     }
 
+    /**
+     * Update the nodes cluster event signals are pushed to after a membership change
+     */
+    private void refreshEventBusPeers() {
+        ClusterEventBus eventBus = ClusterEventBus.getInstance();
+        if (null != eventBus) {
+            eventBus.refreshPeers();
+        }
+    }
+
     /**
      * Return a list of node ids from the heartbeat data list
      *
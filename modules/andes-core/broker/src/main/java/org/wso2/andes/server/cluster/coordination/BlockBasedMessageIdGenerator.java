@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.server.cluster.coordination;
+
+import org.wso2.andes.server.ClusterResourceHolder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free message ID generator which hands out blocks of IDs to each calling thread.
+ * <p/>
+ * Generated IDs use the same bit layout as {@link TimeStampBasedMessageIdGenerator}
+ * <p/>
+ * [1 sign bit][45bits for time spent from reference time in milliseconds][8bit node id][10 bit offset]
+ * <p/>
+ * Time stamp and offset are treated together as a single logical clock value (timestamp * 1024 + offset) which is
+ * held in an {@link AtomicLong}. A thread reserves a range of this logical clock with a single CAS and then serves IDs
+ * from the range without touching shared state. When more than 1024 IDs are requested within the same millisecond
+ * the logical clock simply moves into the next millisecond (borrowing from the next tick) instead of failing. If the
+ * system clock goes backwards the logical clock keeps moving forward from the last reserved value, hence IDs
+ * generated by this class are always unique and monotonically increasing for a given thread.
+ * <p/>
+ * The logical clock is only held in memory. It is never allowed to run more than {@link #MAX_CLOCK_DRIFT}
+ * milliseconds ahead of the system clock, and a thread needing a block beyond that waits for the system clock to catch
+ * up. Hence a node restarting after that long does not reuse IDs it issued before the restart. A node restarting
+ * after its clock was set back by more than that can still reuse IDs.
+ * <p/>
+ * Block size is adapted per thread. A thread that exhausts its block within the same millisecond doubles the next
+ * block size up to {@link #maxBlockSize}, while a thread that is idle long enough for its block to become stale falls
+ * back to a small block. This keeps the amount of logical clock wasted by idle threads low.
+ * <p/>
+ * This generator can be enabled by setting persistence/idGenerator to the fully qualified name of this class.
+ */
+public class BlockBasedMessageIdGenerator implements MessageIdGenerator {
+
+    /**
+     * Reference time used by {@link TimeStampBasedMessageIdGenerator}. This is 2011
+     */
+    private static final long REFERENCE_START = 41L * 365L * 24L * 60L * 60L * 1000L;
+
+    /**
+     * Number of bits used for the offset within a single millisecond
+     */
+    private static final int OFFSET_BITS = 10;
+
+    /**
+     * Number of bits used for the node id
+     */
+    private static final int NODE_ID_BITS = 8;
+
+    /**
+     * Mask to extract the offset from the logical clock value
+     */
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    /**
+     * Mask to extract the node id
+     */
+    private static final int NODE_ID_MASK = (1 << NODE_ID_BITS) - 1;
+
+    /**
+     * Default maximum number of IDs reserved by a thread at once
+     */
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 128;
+
+    /**
+     * Maximum time in milliseconds the logical clock can run ahead of the system clock. Much shorter than the time a
+     * node takes to restart.
+     */
+    static final long MAX_CLOCK_DRIFT = 1000;
+
+    /**
+     * Last reserved logical clock value. (time since reference start in milliseconds * 1024 + offset)
+     */
+    private final AtomicLong lastReservedTick = new AtomicLong();
+
+    /**
+     * Maximum number of IDs a single thread can reserve at once
+     */
+    private final int maxBlockSize;
+
+    /**
+     * ID block currently held by each thread
+     */
+    private final ThreadLocal<IdBlock> threadLocalBlock = new ThreadLocal<IdBlock>() {
+        @Override
+        protected IdBlock initialValue() {
+            return new IdBlock();
+        }
+    };
+
+    public BlockBasedMessageIdGenerator() {
+        this(DEFAULT_MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a generator with the given maximum block size
+     *
+     * @param maxBlockSize maximum number of IDs a thread can reserve with a single CAS operation. Should be in the
+     *                     range of 1 to 1024
+     */
+    public BlockBasedMessageIdGenerator(int maxBlockSize) {
+        if (maxBlockSize < 1 || maxBlockSize > (1 << OFFSET_BITS)) {
+            throw new IllegalArgumentException("Block size should be between 1 and " + (1 << OFFSET_BITS)
+                    + ". Given " + maxBlockSize);
+        }
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNextId() {
+        IdBlock block = threadLocalBlock.get();
+        long now = currentTimeMillis() - REFERENCE_START;
+
+        if (block.next >= block.end) {
+            // Block fully used. Thread is busy, hence ask for a larger block next time
+            reserveBlock(block, now, Math.min(block.size * 2, maxBlockSize));
+        } else if ((block.next >>> OFFSET_BITS) < now) {
+            // Block is stale. Discard the remaining IDs so that generated IDs keep up with the clock
+            int used = (int) (block.next - block.start);
+            reserveBlock(block, now, Math.max(used, 1));
+        }
+
+        long tick = block.next++;
+        return ((tick >>> OFFSET_BITS) << (NODE_ID_BITS + OFFSET_BITS))
+                | ((long) block.nodeId << OFFSET_BITS)
+                | (tick & OFFSET_MASK);
+    }
+
+    /**
+     * Reserve a new range from the logical clock for the given block
+     *
+     * @param block     block to be updated
+     * @param now       current time since reference start in milliseconds
+     * @param blockSize number of IDs to reserve
+     */
+    private void reserveBlock(IdBlock block, long now, int blockSize) {
+        long start;
+        long current;
+        while (true) {
+            current = lastReservedTick.get();
+            // If the clock went backwards or many IDs were requested within this millisecond, continue from the
+            // last reserved tick
+            start = Math.max(current, now << OFFSET_BITS);
+            if (start + blockSize > (now + MAX_CLOCK_DRIFT) << OFFSET_BITS) {
+                // Logical clock is too far ahead of the system clock
+                waitForClock();
+                now = currentTimeMillis() - REFERENCE_START;
+            } else if (lastReservedTick.compareAndSet(current, start + blockSize)) {
+                break;
+            }
+        }
+
+        block.start = start;
+        block.next = start;
+        block.end = start + blockSize;
+        block.size = blockSize;
+        // id might change at runtime. Hence reading the value for each block
+        block.nodeId = getUniqueIdForLocalNode() & NODE_ID_MASK;
+    }
+
+    /**
+     * Get current time in milliseconds
+     *
+     * @return current time
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Wait for the system clock to move forward
+     */
+    void waitForClock() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the unique id assigned to the local node within the cluster
+     *
+     * @return node id
+     */
+    int getUniqueIdForLocalNode() {
+        return ClusterResourceHolder.getInstance().getClusterManager().getUniqueIdForLocalNode();
+    }
+
+    /**
+     * Range of the logical clock reserved by a single thread
+     */
+    private static final class IdBlock {
+
+        /**
+         * First tick of the block
+         */
+        private long start;
+
+        /**
+         * Next tick to be used to generate an ID
+         */
+        private long next;
+
+        /**
+         * Tick after the last tick of the block
+         */
+        private long end;
+
+        /**
+         * Number of ticks reserved for the block
+         */
+        private int size = 1;
+
+        /**
+         * Node id at the time the block is reserved
+         */
+        private int nodeId;
+    }
+}
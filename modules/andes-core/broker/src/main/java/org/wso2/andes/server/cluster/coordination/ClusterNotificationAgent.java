@@ -23,6 +23,8 @@ import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 
+import java.util.Collection;
+
 /**
  * Interface for implementations notifying message router, queue, binding and subscription
  * changes to cluster. Any handler listening to these notifications should
@@ -70,6 +72,14 @@ public interface ClusterNotificationAgent {
     void notifySubscriptionsChange(AndesSubscription subscription,
                                    ClusterNotificationListener.SubscriptionChange changeType) throws AndesException;
 
+    /**
+     * Notify a batch of subscription changes as a single notification
+     *
+     * @param batch subscription changes
+     * @throws AndesException
+     */
+    void notifySubscriptionBatch(SubscriptionNotificationBatch batch) throws AndesException;
+
     /**
      * Notify any DB change in general
      *
@@ -77,4 +87,12 @@ public interface ClusterNotificationAgent {
      */
     void notifyAnyDBChange() throws AndesException;
 
+    /**
+     * Notify that slots are available for delivery for the given storage queues
+     *
+     * @param storageQueueNames names of storage queues
+     * @throws AndesException
+     */
+    void notifySlotAvailability(Collection<String> storageQueueNames) throws AndesException;
+
 }
@@ -56,6 +56,11 @@ public final class CoordinationConstants {
      */
     public static String HAZELCAST_CLUSTER_EVENT_NOTIFIER_TOPIC_NAME = "CLUSTER_EVENT";
 
+    /**
+     * Separator used to encode multiple storage queue names into a single slot availability notification
+     */
+    public static final String SLOT_AVAILABILITY_QUEUE_NAME_SEPARATOR = "\n";
+
     /**
      * Distributed lock name used to initialize the slot map
      */
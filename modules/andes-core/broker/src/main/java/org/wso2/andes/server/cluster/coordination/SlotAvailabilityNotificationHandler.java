@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.ClusterNotificationListener;
+import org.wso2.andes.kernel.slot.SlotDeliveryWorkerManager;
+
+/**
+ * ClusterNotificationListener implementation listening for slot availability notifications sent by the slot
+ * coordinator and waking up message delivery of the notified queues
+ */
+public class SlotAvailabilityNotificationHandler implements ClusterNotificationListener {
+
+    private static Log log = LogFactory.getLog(SlotAvailabilityNotificationHandler.class);
+
+    @Override
+    public void handleClusterNotification(ClusterNotification notification) {
+        String[] storageQueueNames = StringUtils.split(notification.getEncodedObjectAsString(),
+                CoordinationConstants.SLOT_AVAILABILITY_QUEUE_NAME_SEPARATOR);
+        if (log.isDebugEnabled()) {
+            log.debug("Slots available for " + storageQueueNames.length + " queues");
+        }
+        SlotDeliveryWorkerManager slotDeliveryWorkerManager = SlotDeliveryWorkerManager.getInstance();
+        for (String storageQueueName : storageQueueNames) {
+            slotDeliveryWorkerManager.wakeUpDeliveryForQueue(storageQueueName);
+        }
+    }
+}
@@ -23,6 +23,8 @@ import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 
+import java.util.Collection;
+
 /**
  * This class represents a ClusterNotificationAgent which does nothing.
  * Usually this is set when operating in standalone mode
@@ -65,6 +67,14 @@ public class StandaloneMockNotificationAgent implements ClusterNotificationAgent
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifySubscriptionBatch(SubscriptionNotificationBatch batch) throws AndesException {
+
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -72,4 +82,9 @@ public class StandaloneMockNotificationAgent implements ClusterNotificationAgent
     public void notifyAnyDBChange() throws AndesException {
 
     }
+
+    @Override
+    public void notifySlotAvailability(Collection<String> storageQueueNames) throws AndesException {
+
+    }
 }
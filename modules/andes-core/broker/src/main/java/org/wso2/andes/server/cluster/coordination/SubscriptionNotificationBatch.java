@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.apache.commons.codec.binary.Base64;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ClusterNotificationListener.SubscriptionChange;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Subscription changes of a node sent to the cluster as a single notification. Encoded subscriptions of a batch
+ * share most of their content, hence the batch is compressed before it is encoded as a string.
+ */
+public class SubscriptionNotificationBatch {
+
+    /**
+     * Changes of the batch in the order they were made
+     */
+    private final List<SubscriptionChange> changes;
+
+    /**
+     * Encoded subscriptions of the changes
+     */
+    private final List<String> encodedSubscriptions;
+
+    /**
+     * Create an empty batch
+     */
+    public SubscriptionNotificationBatch() {
+        changes = new ArrayList<>();
+        encodedSubscriptions = new ArrayList<>();
+    }
+
+    /**
+     * Add a change to the batch
+     *
+     * @param changeType          change made
+     * @param encodedSubscription encoded subscription information of the changed subscription
+     */
+    public void add(SubscriptionChange changeType, String encodedSubscription) {
+        changes.add(changeType);
+        encodedSubscriptions.add(encodedSubscription);
+    }
+
+    /**
+     * Get the changes of the batch
+     *
+     * @return changes in the order they were made
+     */
+    public List<SubscriptionChange> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Get the encoded subscriptions of the changes
+     *
+     * @return encoded subscriptions in the order of the changes
+     */
+    public List<String> getEncodedSubscriptions() {
+        return Collections.unmodifiableList(encodedSubscriptions);
+    }
+
+    /**
+     * Get the number of changes in the batch
+     *
+     * @return number of changes
+     */
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * Encode the batch as a string to send in a {@link ClusterNotification}
+     *
+     * @return compressed batch encoded in base64
+     * @throws AndesException if the batch cannot be encoded
+     */
+    public String encodeAsString() throws AndesException {
+        return encode(0, changes.size());
+    }
+
+    /**
+     * Encode the batch as strings no longer than the given length. The batch is split into consecutive parts, each
+     * decoded as a batch of its own. A single change longer than the given length is encoded on its own.
+     *
+     * @param maxLength maximum length of an encoded part
+     * @return encoded parts in the order of the changes
+     * @throws AndesException if the batch cannot be encoded
+     */
+    public List<String> encodeAsStrings(int maxLength) throws AndesException {
+        List<String> encodedParts = new ArrayList<>();
+        encodeParts(0, changes.size(), maxLength, encodedParts);
+        return encodedParts;
+    }
+
+    private void encodeParts(int from, int to, int maxLength, List<String> encodedParts) throws AndesException {
+        String encodedPart = encode(from, to);
+        if (encodedPart.length() <= maxLength || to - from <= 1) {
+            encodedParts.add(encodedPart);
+        } else {
+            int middle = (from + to) >>> 1;
+            encodeParts(from, middle, maxLength, encodedParts);
+            encodeParts(middle, to, maxLength, encodedParts);
+        }
+    }
+
+    private String encode(int from, int to) throws AndesException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(new DeflaterOutputStream(byteStream))) {
+            outputStream.writeInt(to - from);
+            for (int i = from; i < to; i++) {
+                byte[] subscriptionBytes = encodedSubscriptions.get(i).getBytes(StandardCharsets.UTF_8);
+                outputStream.writeByte(changes.get(i).ordinal());
+                outputStream.writeInt(subscriptionBytes.length);
+                outputStream.write(subscriptionBytes);
+            }
+        } catch (IOException e) {
+            throw new AndesException("Error while encoding subscription notification batch", e);
+        }
+        return new String(Base64.encodeBase64(byteStream.toByteArray()), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Decode a batch encoded with {@link #encodeAsString()}
+     *
+     * @param encodedBatch encoded batch
+     * @return decoded batch
+     * @throws AndesException if the batch cannot be decoded
+     */
+    public static SubscriptionNotificationBatch decode(String encodedBatch) throws AndesException {
+        byte[] compressedBytes = Base64.decodeBase64(encodedBatch.getBytes(StandardCharsets.US_ASCII));
+        SubscriptionChange[] changeTypes = SubscriptionChange.values();
+        SubscriptionNotificationBatch batch = new SubscriptionNotificationBatch();
+        try (DataInputStream inputStream =
+                     new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressedBytes)))) {
+            int size = inputStream.readInt();
+            for (int i = 0; i < size; i++) {
+                SubscriptionChange changeType = changeTypes[inputStream.readUnsignedByte()];
+                byte[] subscriptionBytes = new byte[inputStream.readInt()];
+                inputStream.readFully(subscriptionBytes);
+                batch.add(changeType, new String(subscriptionBytes, StandardCharsets.UTF_8));
+            }
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            throw new AndesException("Error while decoding subscription notification batch", e);
+        }
+        return batch;
+    }
+}
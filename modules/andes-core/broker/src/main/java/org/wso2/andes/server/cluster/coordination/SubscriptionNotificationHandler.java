@@ -19,6 +19,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.ClusterNotificationListener;
 import org.wso2.andes.kernel.disruptor.inbound.InboundEventManager;
+import org.wso2.andes.kernel.disruptor.inbound.InboundSubscriptionBatchSyncEvent;
 import org.wso2.andes.kernel.disruptor.inbound.InboundSubscriptionSyncEvent;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 
@@ -65,6 +66,13 @@ public class SubscriptionNotificationHandler implements ClusterNotificationListe
                     inboundEventManager.publishStateEvent(subscriptionSyncEvent);
                     subscriptionSyncEvent.waitForCompletion();
                     break;
+                case Batch:
+                    InboundSubscriptionBatchSyncEvent batchSyncEvent = new InboundSubscriptionBatchSyncEvent(
+                            SubscriptionNotificationBatch.decode(notification.getEncodedObjectAsString()));
+                    batchSyncEvent.prepareForRemoteSubscriptionChanges(subscriptionManager);
+                    inboundEventManager.publishStateEvent(batchSyncEvent);
+                    batchSyncEvent.waitForCompletion();
+                    break;
             }
         } catch (Exception e) {
             log.error("Error while handling subscription notification", e);
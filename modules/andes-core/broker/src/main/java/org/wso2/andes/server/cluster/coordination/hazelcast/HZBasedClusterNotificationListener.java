@@ -26,6 +26,7 @@ import org.wso2.andes.server.cluster.coordination.BindingNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ExchangeNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.QueueNotificationHandler;
+import org.wso2.andes.server.cluster.coordination.SlotAvailabilityNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationHandler;
 
 import java.util.ArrayList;
@@ -59,6 +60,11 @@ public class HZBasedClusterNotificationListener implements MessageListener {
      */
     private List<SubscriptionNotificationHandler> subscriptionNotificationHandlerList = new ArrayList<>();
 
+    /**
+     * Listeners interested in slot availability changes.
+     */
+    private List<SlotAvailabilityNotificationHandler> slotAvailabilityNotificationHandlerList = new ArrayList<>();
+
     /**
      * Register a listener interested in exchange(message router) changes within the cluster.
      *
@@ -95,6 +101,15 @@ public class HZBasedClusterNotificationListener implements MessageListener {
         subscriptionNotificationHandlerList.add(handler);
     }
 
+    /**
+     * Register a listener interested in slots becoming available within the cluster.
+     *
+     * @param handler listener to be registered
+     */
+    public void addSlotAvailabilityNotificationHandler(SlotAvailabilityNotificationHandler handler) {
+        slotAvailabilityNotificationHandlerList.add(handler);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -130,6 +145,11 @@ public class HZBasedClusterNotificationListener implements MessageListener {
                         handler.handleClusterNotification(clusterNotification);
                     }
                     break;
+                case "SlotAvailability":
+                    for (SlotAvailabilityNotificationHandler handler : slotAvailabilityNotificationHandlerList) {
+                        handler.handleClusterNotification(clusterNotification);
+                    }
+                    break;
                 default:
                     log.error("Unknown cluster event type: " + clusterNotification.getNotifiedArtifact());
                     break;
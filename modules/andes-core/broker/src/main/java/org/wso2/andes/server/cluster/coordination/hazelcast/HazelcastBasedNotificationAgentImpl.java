@@ -16,6 +16,7 @@
 package org.wso2.andes.server.cluster.coordination.hazelcast;
 
 import com.hazelcast.core.ITopic;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.*;
@@ -25,6 +26,10 @@ import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.CoordinationConstants;
+import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationBatch;
+
+import java.util.Collection;
 
 /**
  * This class represents a ClusterNotificationAgent implementation which uses
@@ -185,6 +190,32 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifySubscriptionBatch(SubscriptionNotificationBatch batch) throws AndesException {
+
+        ClusterNotification clusterNotification = new ClusterNotification(
+                batch.encodeAsString(),
+                ClusterNotificationListener.NotifiedArtifact.Subscription.toString(),
+                ClusterNotificationListener.SubscriptionChange.Batch.toString(),
+                "Subscription Notification Message : " + batch.size() + " changes",
+                localNodeID);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Sending subscription change batch GOSSIP: " + batch.size() + " changes");
+        }
+        try {
+            clusterNotificationChannel.publish(clusterNotification);
+        } catch (Exception ex) {
+            log.error("Error while sending subscription change batch notification of " + batch.size()
+                    + " changes", ex);
+            throw new AndesException("Error while sending subscription change batch notification of "
+                    + batch.size() + " changes", ex);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -204,4 +235,24 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
                     + clusterNotification.getEncodedObjectAsString(), e);
         }
     }
+
+    @Override
+    public void notifySlotAvailability(Collection<String> storageQueueNames) throws AndesException {
+        ClusterNotification clusterNotification = new ClusterNotification(
+                StringUtils.join(storageQueueNames, CoordinationConstants.SLOT_AVAILABILITY_QUEUE_NAME_SEPARATOR),
+                ClusterNotificationListener.NotifiedArtifact.SlotAvailability.toString(),
+                "",
+                "SlotAvailabilityEvent",
+                localNodeID);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Sending slot availability notification for " + storageQueueNames.size() + " queues");
+        }
+        try {
+            clusterNotificationChannel.publish(clusterNotification);
+        } catch (Exception e) {
+            log.error("Error while sending slot availability notification", e);
+            throw new AndesException("Error while sending slot availability notification", e);
+        }
+    }
 }
@@ -32,6 +32,7 @@ import org.wso2.andes.server.cluster.coordination.CoordinationConstants;
 import org.wso2.andes.server.cluster.coordination.DBSyncNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.ExchangeNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.QueueNotificationHandler;
+import org.wso2.andes.server.cluster.coordination.SlotAvailabilityNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationHandler;
 
 public class HazelcastClusterNotificationListenerImpl implements ClusterNotificationListenerManager {
@@ -156,6 +157,8 @@ public class HazelcastClusterNotificationListenerImpl implements ClusterNotifica
                 (contextInformationManager, inboundEventManager));
         hzBasedClusterNotificationListener.addQueueNotificationHandler(new QueueNotificationHandler
                 (contextInformationManager, inboundEventManager));
+        hzBasedClusterNotificationListener.addSlotAvailabilityNotificationHandler(
+                new SlotAvailabilityNotificationHandler());
 
         clusterEventListenerId = checkAndRegisterListerToTopic(clusterNotifierChannel,
                 hzBasedClusterNotificationListener, clusterEventListenerId);
@@ -0,0 +1,941 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.server.cluster.NodeHeartBeatData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes signals to the other nodes of the cluster when cluster events or membership events are written to the
+ * database. The database stays the source of truth for the events. A signal only tells the receiving node to read
+ * the database now rather than at the next poll, hence a lost or duplicated signal costs at most a poll interval or
+ * a database read.
+ * <p>
+ * Each node listens on its Hazelcast port plus a configured offset. Peers are taken from the node heartbeat table and
+ * are connected by a single sender thread. A connection starts with the node ID of the sender, and each signal is
+ * acknowledged by the receiver. Signals not acknowledged when a connection is lost are sent again over a new
+ * connection. A connection with signals not acknowledged in time is taken as lost, since a peer which went down
+ * without closing it leaves it open on the sending side. Signals published while a send is pending are sent together.
+ * <p>
+ * Connections are only accepted from the nodes in the heartbeat table, and only from the address a node is listed
+ * with. Outbound connections are made from the address of the local node for that reason. A connection from a node
+ * which is not known yet waits for the handshake timeout for the peers to be updated, since a node joining the cluster
+ * connects before the other nodes read its heartbeat. Connections from a node are closed once it leaves the heartbeat
+ * table.
+ * <p>
+ * Nodes keep polling the database at the regular interval until every other node is connected to push signals, see
+ * {@link #pollerFor(Runnable, long, long)}.
+ */
+public class ClusterEventBus {
+
+    /**
+     * Types of events a signal is pushed for. A signal is a single byte with a bit set for each type.
+     */
+    public enum EventType {
+        CLUSTER_NOTIFICATION(0x1),
+        MEMBERSHIP(0x2);
+
+        private final int mask;
+
+        EventType(int mask) {
+            this.mask = mask;
+        }
+    }
+
+    /**
+     * Class logger
+     */
+    private static final Logger log = Logger.getLogger(ClusterEventBus.class);
+
+    /**
+     * Time to wait for a connection to a peer in milliseconds
+     */
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    /**
+     * Time to wait before connecting again to a peer that could not be reached, in milliseconds
+     */
+    private static final long RECONNECT_DELAY = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Time to wait for the node ID of a node opening a connection in milliseconds
+     */
+    private static final int HANDSHAKE_TIMEOUT = 5000;
+
+    /**
+     * Time to wait for the acknowledgement of a signal in milliseconds before the connection is taken as lost
+     */
+    private static final int ACK_TIMEOUT = 3000;
+
+    /**
+     * Time to wait before accepting connections again after accepting failed, in milliseconds. Doubled on each
+     * consecutive failure up to the reconnect delay.
+     */
+    private static final long ACCEPT_RETRY_DELAY = 100;
+
+    /**
+     * Maximum number of receiver threads. Each inbound connection and each outbound connection takes a thread, hence
+     * this bounds the connections of a node. Connections over the limit are closed.
+     */
+    private static final int MAX_RECEIVER_THREADS = 64;
+
+    /**
+     * Event bus of the node, null if event push is not started
+     */
+    private static volatile ClusterEventBus instance;
+
+    /**
+     * Node ID of the local node
+     */
+    private final String localNodeId;
+
+    /**
+     * Offset added to the Hazelcast port of a node to get its signal port
+     */
+    private final int portOffset;
+
+    /**
+     * Socket signals from other nodes are accepted on
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Runs the acceptor, a reader for each inbound connection and a monitor for each outbound connection
+     */
+    private final ExecutorService receiverExecutor;
+
+    /**
+     * Sends signals and maintains the peers. Peers are only accessed from this thread.
+     */
+    private final ExecutorService senderExecutor;
+
+    /**
+     * Connections to other nodes by node ID
+     */
+    private final Map<String, Peer> peers = new HashMap<>();
+
+    /**
+     * Inbound connections from other nodes
+     */
+    private final Set<Socket> inboundSockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+
+    /**
+     * Node IDs of the inbound connections which completed the handshake
+     */
+    private final Map<Socket, String> inboundNodeIds = new ConcurrentHashMap<>();
+
+    /**
+     * Addresses of the other nodes of the cluster by node ID, null until the nodes are read. The address is null if
+     * the host of the node cannot be resolved.
+     */
+    private volatile Map<String, InetAddress> peerAddresses;
+
+    /**
+     * Lock held while the peer addresses are updated and while an inbound connection is checked against them,
+     * notified on each update
+     */
+    private final Object peersUpdateLock = new Object();
+
+    /**
+     * Listeners notified when a signal is received
+     */
+    private final Map<EventType, Runnable> eventListeners = new ConcurrentHashMap<>();
+
+    /**
+     * Bits of the event types published but not sent yet
+     */
+    private final AtomicInteger pendingSignals = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    /**
+     * Create an event bus listening on the signal port of the given cluster agent address
+     *
+     * @param localNodeId         node ID of the local node
+     * @param clusterAgentAddress Hazelcast address of the local node
+     * @param portOffset          offset added to Hazelcast ports to get signal ports
+     * @throws IOException if the signal port cannot be bound
+     */
+    ClusterEventBus(String localNodeId, InetSocketAddress clusterAgentAddress, int portOffset) throws IOException {
+        this.localNodeId = localNodeId;
+        this.portOffset = portOffset;
+
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(clusterAgentAddress.getAddress(),
+                clusterAgentAddress.getPort() + portOffset));
+
+        receiverExecutor = new ThreadPoolExecutor(0, MAX_RECEIVER_THREADS, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("ClusterEventBusReceiver-%d").setDaemon(true).build());
+        senderExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("ClusterEventBusSender-%d").setDaemon(true).build());
+
+        receiverExecutor.execute(new Acceptor());
+    }
+
+    /**
+     * Start event push for the local node if it is enabled. Nodes keep polling the database at the configured sync
+     * intervals if event push cannot be started.
+     *
+     * @param localNodeId         node ID of the local node
+     * @param clusterAgentAddress Hazelcast address of the local node
+     */
+    public static synchronized void start(String localNodeId, InetSocketAddress clusterAgentAddress) {
+        Boolean isEnabled = AndesConfigurationManager.readValue(AndesConfiguration.CLUSTER_EVENT_PUSH_ENABLED);
+        if (!isEnabled || null != instance) {
+            return;
+        }
+
+        int portOffset = AndesConfigurationManager.readValue(AndesConfiguration.CLUSTER_EVENT_PUSH_PORT_OFFSET);
+        try {
+            ClusterEventBus eventBus = new ClusterEventBus(localNodeId, clusterAgentAddress, portOffset);
+            eventBus.refreshPeers();
+            instance = eventBus;
+            log.info("Cluster event push started on port " + eventBus.getPort() + ".");
+        } catch (IOException e) {
+            log.warn("Could not start cluster event push on port " + (clusterAgentAddress.getPort() + portOffset)
+                    + ". Cluster events will only be read by polling the database.", e);
+        }
+    }
+
+    /**
+     * Stop event push for the local node
+     */
+    public static synchronized void stop() {
+        if (null != instance) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Get the event bus of the local node
+     *
+     * @return event bus, null if event push is not started
+     */
+    public static ClusterEventBus getInstance() {
+        return instance;
+    }
+
+    /**
+     * Create an event listener which runs the given task on the given executor. Signals received while the task is
+     * waiting to run are served by that run.
+     *
+     * @param executor executor to run the task on
+     * @param task     task reading the events from the database
+     * @return event listener
+     */
+    public static Runnable listenerFor(final Executor executor, final Runnable task) {
+        final AtomicBoolean isScheduled = new AtomicBoolean(false);
+        final Runnable scheduledTask = new Runnable() {
+            @Override
+            public void run() {
+                isScheduled.set(false);
+                task.run();
+            }
+        };
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (isScheduled.compareAndSet(false, true)) {
+                    try {
+                        executor.execute(scheduledTask);
+                    } catch (RejectedExecutionException e) {
+                        isScheduled.set(false);
+                        log.debug("Event listener task rejected since the executor is shut down.", e);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Create a poll task for the given task reading events from the database. The poll task is scheduled at the
+     * regular sync interval. It reads the events on every run until every other node of the cluster is connected to
+     * push signals, and only once per fallback interval after that. Reads are therefore not delayed by nodes which do
+     * not push signals, such as nodes with event push disabled or nodes which cannot reach this node.
+     *
+     * @param task             task reading the events from the database
+     * @param syncInterval     interval the poll task is scheduled at in milliseconds
+     * @param fallbackInterval interval of the reads while signals are pushed by all other nodes in milliseconds
+     * @return poll task
+     */
+    public Runnable pollerFor(final Runnable task, final long syncInterval, final long fallbackInterval) {
+        return new Runnable() {
+
+            /**
+             * Time of the last read. Only accessed from the thread the poll task is scheduled on.
+             */
+            private long lastReadTime;
+
+            private boolean wasPushActive;
+
+            @Override
+            public void run() {
+                long currentTime = System.currentTimeMillis();
+                boolean isPushActive = isPushActive();
+                if (isPushActive != wasPushActive) {
+                    wasPushActive = isPushActive;
+                    log.info("Cluster events are read every " + (isPushActive ? fallbackInterval : syncInterval)
+                            + "ms since signals are " + (isPushActive ? "" : "not ") + "pushed by all other nodes.");
+                }
+                if (!isPushActive || currentTime - lastReadTime >= fallbackInterval) {
+                    lastReadTime = currentTime;
+                    task.run();
+                }
+            }
+        };
+    }
+
+    /**
+     * Check whether every other node of the cluster is connected to push signals to this node
+     *
+     * @return true if signals from all other nodes are received
+     */
+    boolean isPushActive() {
+        Map<String, InetAddress> addresses = peerAddresses;
+        return null != addresses && new HashSet<>(inboundNodeIds.values()).containsAll(addresses.keySet());
+    }
+
+    /**
+     * Set the listener notified when a signal of the given type is received from another node
+     *
+     * @param eventType event type
+     * @param listener  listener to notify
+     */
+    public void addEventListener(EventType eventType, Runnable listener) {
+        eventListeners.put(eventType, listener);
+    }
+
+    /**
+     * Remove the listener of the given type
+     *
+     * @param eventType event type
+     */
+    public void removeEventListener(EventType eventType) {
+        eventListeners.remove(eventType);
+    }
+
+    /**
+     * Signal the other nodes that events of the given type were written to the database. Signals are sent
+     * asynchronously.
+     *
+     * @param eventType type of the written events
+     */
+    public void publish(EventType eventType) {
+        int previousSignals;
+        do {
+            previousSignals = pendingSignals.get();
+        } while (!pendingSignals.compareAndSet(previousSignals, previousSignals | eventType.mask));
+
+        if (0 == previousSignals) {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    sendSignals(pendingSignals.getAndSet(0));
+                }
+            });
+        }
+    }
+
+    /**
+     * Read the nodes of the cluster from the heartbeat table and update the peers signals are sent to
+     */
+    public void refreshPeers() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    applyPeers(AndesContext.getInstance().getAndesContextStore().getAllHeartBeatData());
+                } catch (AndesException e) {
+                    log.warn("Could not read cluster nodes for cluster event push. Peers will be updated on the "
+                            + "next membership change.", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Update the peers signals are sent to
+     *
+     * @param heartBeatData heartbeat entries of the cluster nodes
+     */
+    void updatePeers(final List<NodeHeartBeatData> heartBeatData) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                applyPeers(heartBeatData);
+            }
+        });
+    }
+
+    /**
+     * Get the port signals are received on
+     *
+     * @return signal port
+     */
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Close all connections and stop the bus threads
+     */
+    void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.debug("Error while closing cluster event push server socket.", e);
+        }
+        for (Socket socket : inboundSockets) {
+            closeQuietly(socket);
+        }
+        inboundNodeIds.clear();
+        receiverExecutor.shutdownNow();
+
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Peer peer : peers.values()) {
+                    peer.disconnect();
+                }
+                peers.clear();
+            }
+        });
+        senderExecutor.shutdown();
+    }
+
+    private void execute(Runnable task) {
+        try {
+            senderExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Cluster event push task rejected since the event bus is stopped.", e);
+        }
+    }
+
+    private void applyPeers(List<NodeHeartBeatData> heartBeatData) {
+        Map<String, InetAddress> addresses = new HashMap<>(heartBeatData.size());
+        for (NodeHeartBeatData nodeData : heartBeatData) {
+            String nodeId = nodeData.getNodeId();
+            InetSocketAddress clusterAgentAddress = nodeData.getClusterAgentAddress();
+            if (localNodeId.equals(nodeId) || null == clusterAgentAddress) {
+                continue;
+            }
+
+            InetSocketAddress signalAddress = new InetSocketAddress(clusterAgentAddress.getHostString(),
+                    clusterAgentAddress.getPort() + portOffset);
+            addresses.put(nodeId, signalAddress.getAddress());
+            Peer peer = peers.get(nodeId);
+            if (null == peer || !peer.address.equals(signalAddress)) {
+                if (null != peer) {
+                    peer.disconnect();
+                }
+                peers.put(nodeId, new Peer(nodeId, signalAddress));
+            }
+        }
+
+        Iterator<Map.Entry<String, Peer>> peerIterator = peers.entrySet().iterator();
+        while (peerIterator.hasNext()) {
+            Map.Entry<String, Peer> entry = peerIterator.next();
+            if (!addresses.containsKey(entry.getKey())) {
+                entry.getValue().disconnect();
+                peerIterator.remove();
+            }
+        }
+        synchronized (peersUpdateLock) {
+            peerAddresses = Collections.unmodifiableMap(addresses);
+            for (Map.Entry<Socket, String> entry : inboundNodeIds.entrySet()) {
+                if (!isPeerConnection(entry.getValue(), entry.getKey())) {
+                    log.info("Closing cluster event push connection from node " + entry.getValue()
+                            + " since the node is no longer in the cluster at " + entry.getKey().getInetAddress()
+                            + ".");
+                    closeQuietly(entry.getKey());
+                }
+            }
+            peersUpdateLock.notifyAll();
+        }
+
+        // Connect right away so that the peers stop polling at the regular interval without waiting for an event
+        for (Peer peer : peers.values()) {
+            peer.ensureConnected();
+        }
+    }
+
+    /**
+     * Send signals lost with a closed connection to the peer again
+     *
+     * @param peer    peer the connection was made to
+     * @param signals bits of the signals not acknowledged by the peer
+     */
+    private void resend(final Peer peer, final int signals) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                if (peers.get(peer.nodeId) == peer) {
+                    peer.send(signals);
+                }
+            }
+        });
+    }
+
+    private void sendSignals(int signals) {
+        if (0 == signals) {
+            return;
+        }
+        for (Peer peer : peers.values()) {
+            peer.send(signals);
+        }
+    }
+
+    /**
+     * Check whether a connection is from the node it claims to be from
+     *
+     * @param nodeId node ID sent by the node opening the connection
+     * @param socket connection
+     * @return true if the node is another node of the cluster and the connection is from its address
+     */
+    private boolean isPeerConnection(String nodeId, Socket socket) {
+        Map<String, InetAddress> addresses = peerAddresses;
+        if (null == addresses) {
+            return false;
+        }
+        InetAddress address = addresses.get(nodeId);
+        return null != address && address.equals(socket.getInetAddress());
+    }
+
+    private void dispatchSignals(int signals) {
+        for (EventType eventType : EventType.values()) {
+            if (0 != (signals & eventType.mask)) {
+                Runnable listener = eventListeners.get(eventType);
+                if (null != listener) {
+                    try {
+                        listener.run();
+                    } catch (Throwable e) {
+                        log.warn("Error while notifying the " + eventType + " listener of cluster event push.", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Error while closing cluster event push socket.", e);
+        }
+    }
+
+    /**
+     * Connection to another node of the cluster
+     */
+    private class Peer {
+
+        private final String nodeId;
+
+        private final InetSocketAddress address;
+
+        private Socket socket;
+
+        private OutputStream outputStream;
+
+        /**
+         * Monitor of the current connection
+         */
+        private ConnectionMonitor monitor;
+
+        /**
+         * Time of the last failed attempt to connect or send to the peer
+         */
+        private long lastFailureTime;
+
+        Peer(String nodeId, InetSocketAddress address) {
+            this.nodeId = nodeId;
+            this.address = address;
+        }
+
+        /**
+         * Send signals to the peer. A send over an existing connection is retried once over a new connection since
+         * the peer may have restarted since the last signal. Signals of the failed connection which were not
+         * acknowledged are sent along.
+         *
+         * @param signals bits of the signalled event types
+         */
+        void send(int signals) {
+            if (null != monitor && monitor.isClosed()) {
+                disconnect();
+            }
+            boolean isRetry = null == socket;
+            while (true) {
+                try {
+                    if (null == socket) {
+                        if (System.currentTimeMillis() - lastFailureTime < RECONNECT_DELAY) {
+                            return;
+                        }
+                        connect();
+                    }
+                    if (!monitor.sent(signals)) {
+                        throw new IOException("Connection closed by " + address);
+                    }
+                    outputStream.write(signals);
+                    outputStream.flush();
+                    return;
+                } catch (IOException e) {
+                    if (null != monitor) {
+                        signals |= monitor.takeUnacknowledged();
+                    }
+                    disconnect();
+                    if (isRetry) {
+                        lastFailureTime = System.currentTimeMillis();
+                        if (log.isDebugEnabled()) {
+                            log.debug("Could not push cluster event signal to node " + nodeId + " at " + address
+                                    + ". The node will read the events at its next poll.", e);
+                        }
+                        return;
+                    }
+                    isRetry = true;
+                }
+            }
+        }
+
+        /**
+         * Connect to the peer if it is not connected and was not found unreachable recently
+         */
+        void ensureConnected() {
+            if (null != monitor && monitor.isClosed()) {
+                disconnect();
+            }
+            if (null != socket || System.currentTimeMillis() - lastFailureTime < RECONNECT_DELAY) {
+                return;
+            }
+            try {
+                connect();
+            } catch (IOException e) {
+                lastFailureTime = System.currentTimeMillis();
+                if (log.isDebugEnabled()) {
+                    log.debug("Could not connect to node " + nodeId + " at " + address + " for cluster event push.",
+                            e);
+                }
+            }
+        }
+
+        private void connect() throws IOException {
+            Socket newSocket = new Socket();
+            try {
+                newSocket.setTcpNoDelay(true);
+                newSocket.setKeepAlive(true);
+                InetAddress localAddress = serverSocket.getInetAddress();
+                if (!localAddress.isAnyLocalAddress()) {
+                    newSocket.bind(new InetSocketAddress(localAddress, 0));
+                }
+                newSocket.connect(address, CONNECT_TIMEOUT);
+                DataOutputStream newOutputStream = new DataOutputStream(newSocket.getOutputStream());
+                newOutputStream.writeUTF(localNodeId);
+                newOutputStream.flush();
+                ConnectionMonitor newMonitor = new ConnectionMonitor(this, newSocket);
+                receiverExecutor.execute(newMonitor);
+                socket = newSocket;
+                outputStream = newOutputStream;
+                monitor = newMonitor;
+            } catch (IOException | RejectedExecutionException e) {
+                closeQuietly(newSocket);
+                throw new IOException("Could not connect to " + address, e);
+            }
+        }
+
+        /**
+         * Close the connection to the peer. Signals not acknowledged over the connection are not sent again.
+         */
+        void disconnect() {
+            if (null != socket) {
+                monitor.takeUnacknowledged();
+                closeQuietly(socket);
+                socket = null;
+                outputStream = null;
+                monitor = null;
+            }
+        }
+    }
+
+    /**
+     * Reads the acknowledgements of a connection to a peer and detects the connection being closed by the peer.
+     * Signals not acknowledged when the connection is closed are sent again over a new connection, since a write to
+     * a connection to a restarted peer may succeed locally while the signal is lost. The connection is closed if a
+     * signal is not acknowledged within {@link #ACK_TIMEOUT}.
+     */
+    private class ConnectionMonitor implements Runnable {
+
+        private final Peer peer;
+
+        private final Socket socket;
+
+        /**
+         * Number of signals sent and not acknowledged yet. Guarded by the monitor.
+         */
+        private int unacknowledgedCount;
+
+        /**
+         * Bits of the signals sent since all signals were acknowledged. Guarded by the monitor.
+         */
+        private int unacknowledgedSignals;
+
+        /**
+         * Time since which signals are waiting for an acknowledgement. Guarded by the monitor.
+         */
+        private long unacknowledgedSince;
+
+        private volatile boolean isClosed;
+
+        ConnectionMonitor(Peer peer, Socket socket) {
+            this.peer = peer;
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket.setSoTimeout(ACK_TIMEOUT / 4);
+                InputStream inputStream = socket.getInputStream();
+                while (true) {
+                    try {
+                        if (inputStream.read() == -1) {
+                            break;
+                        }
+                        acknowledged();
+                    } catch (SocketTimeoutException e) {
+                        if (isAcknowledgementOverdue()) {
+                            throw new IOException("Signals not acknowledged within " + ACK_TIMEOUT + "ms.", e);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Cluster event push connection to node " + peer.nodeId + " closed.", e);
+            } finally {
+                int lostSignals = close();
+                if (0 != lostSignals && running) {
+                    resend(peer, lostSignals);
+                }
+            }
+        }
+
+        boolean isClosed() {
+            return isClosed;
+        }
+
+        /**
+         * Record signals about to be sent over the connection
+         *
+         * @param signals bits of the signals
+         * @return false if the connection is already closed
+         */
+        synchronized boolean sent(int signals) {
+            if (isClosed) {
+                return false;
+            }
+            if (0 == unacknowledgedCount) {
+                unacknowledgedSince = System.currentTimeMillis();
+            }
+            unacknowledgedCount++;
+            unacknowledgedSignals |= signals;
+            return true;
+        }
+
+        /**
+         * Remove the signals not acknowledged yet so that they are not sent again when the connection is closed
+         *
+         * @return bits of the signals not acknowledged
+         */
+        synchronized int takeUnacknowledged() {
+            int signals = unacknowledgedSignals;
+            unacknowledgedCount = 0;
+            unacknowledgedSignals = 0;
+            return signals;
+        }
+
+        private synchronized void acknowledged() {
+            if (unacknowledgedCount > 0) {
+                if (--unacknowledgedCount == 0) {
+                    unacknowledgedSignals = 0;
+                } else {
+                    unacknowledgedSince = System.currentTimeMillis();
+                }
+            }
+        }
+
+        private synchronized boolean isAcknowledgementOverdue() {
+            return unacknowledgedCount > 0 && System.currentTimeMillis() - unacknowledgedSince >= ACK_TIMEOUT;
+        }
+
+        private synchronized int close() {
+            isClosed = true;
+            return takeUnacknowledged();
+        }
+    }
+
+    /**
+     * Accepts connections from other nodes
+     */
+    private class Acceptor implements Runnable {
+
+        @Override
+        public void run() {
+            long retryDelay = ACCEPT_RETRY_DELAY;
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (!running) {
+                        return;
+                    }
+                    log.warn("Error while accepting a cluster event push connection. Retrying in " + retryDelay
+                            + "ms.", e);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(retryDelay);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    retryDelay = Math.min(retryDelay * 2, RECONNECT_DELAY);
+                    continue;
+                }
+
+                retryDelay = ACCEPT_RETRY_DELAY;
+                inboundSockets.add(socket);
+                try {
+                    socket.setTcpNoDelay(true);
+                    socket.setKeepAlive(true);
+                    receiverExecutor.execute(new SignalReader(socket));
+                } catch (IOException | RejectedExecutionException e) {
+                    inboundSockets.remove(socket);
+                    closeQuietly(socket);
+                    if (running) {
+                        log.warn("Closed cluster event push connection from " + socket.getRemoteSocketAddress()
+                                + " since it cannot be served.", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads signals from a connection, notifies the listeners and acknowledges each signal
+     */
+    private class SignalReader implements Runnable {
+
+        private final Socket socket;
+
+        SignalReader(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try {
+                DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+                OutputStream outputStream = socket.getOutputStream();
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+                String nodeId = inputStream.readUTF();
+                socket.setSoTimeout(0);
+                if (!register(nodeId)) {
+                    log.warn("Closed cluster event push connection from " + socket.getRemoteSocketAddress()
+                            + " since node " + nodeId + " is not a node of the cluster at that address.");
+                    return;
+                }
+
+                int signals;
+                while ((signals = inputStream.read()) != -1) {
+                    dispatchSignals(signals);
+                    outputStream.write(signals);
+                    outputStream.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                if (running && log.isDebugEnabled()) {
+                    log.debug("Cluster event push connection from " + socket.getRemoteSocketAddress()
+                            + " closed.", e);
+                }
+            } finally {
+                inboundNodeIds.remove(socket);
+                inboundSockets.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+
+        /**
+         * Register the connection for the given node if it is from that node. Waits up to the handshake timeout for
+         * the peers to be updated if the node is not known.
+         *
+         * @param nodeId node ID sent by the node opening the connection
+         * @return false if the connection is not from a node of the cluster
+         * @throws InterruptedException if interrupted while waiting for the peers to be updated
+         */
+        private boolean register(String nodeId) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + HANDSHAKE_TIMEOUT;
+            synchronized (peersUpdateLock) {
+                while (!isPeerConnection(nodeId, socket)) {
+                    Map<String, InetAddress> addresses = peerAddresses;
+                    long remainingTime = deadline - System.currentTimeMillis();
+                    if ((null != addresses && addresses.containsKey(nodeId)) || remainingTime <= 0) {
+                        return false;
+                    }
+                    peersUpdateLock.wait(remainingTime);
+                }
+                inboundNodeIds.put(socket, nodeId);
+                return true;
+            }
+        }
+    }
+}
@@ -16,7 +16,10 @@
 package org.wso2.andes.server.cluster.coordination.rdbms;
 
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesBinding;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesContextStore;
@@ -28,7 +31,10 @@ import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.CoordinationConstants;
+import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationBatch;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -53,6 +59,11 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
      */
     private String localNodeID;
 
+    /**
+     * Maximum length of the encoded object stored for a notification
+     */
+    private int maxEventDetailsLength;
+
     /**
      * Create a RDBMS based ClusterNotificationAgent
      *
@@ -61,6 +72,8 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     public RDBMSBasedNotificationAgentImpl(AndesContextStore contextStore) {
         this.contextStore = contextStore;
         this.localNodeID = ClusterResourceHolder.getInstance().getClusterManager().getMyNodeID();
+        this.maxEventDetailsLength = AndesConfigurationManager.readValue(AndesConfiguration
+                .CLUSTER_EVENT_MAX_DETAILS_LENGTH);
     }
 
     /**
@@ -143,6 +156,28 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
         publishNotificationToDB(clusterNotification);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifySubscriptionBatch(SubscriptionNotificationBatch batch) throws AndesException {
+        // A batch is split into notifications fitting the event details column
+        List<String> encodedParts = batch.encodeAsStrings(maxEventDetailsLength);
+        if (log.isDebugEnabled()) {
+            log.debug("Sending subscription change batch GOSSIP: " + batch.size() + " changes in "
+                    + encodedParts.size() + " notifications");
+        }
+        for (String encodedPart : encodedParts) {
+            ClusterNotification clusterNotification = new ClusterNotification(
+                    encodedPart,
+                    ClusterNotificationListener.NotifiedArtifact.Subscription.toString(),
+                    ClusterNotificationListener.SubscriptionChange.Batch.toString(),
+                    "Subscription Notification Message : " + ClusterNotificationListener.SubscriptionChange.Batch,
+                    localNodeID);
+            publishNotificationToDB(clusterNotification);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -153,9 +188,28 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
         publishNotificationToDB(clusterNotification);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifySlotAvailability(Collection<String> storageQueueNames) throws AndesException {
+        ClusterNotification clusterNotification = new ClusterNotification(
+                StringUtils.join(storageQueueNames, CoordinationConstants.SLOT_AVAILABILITY_QUEUE_NAME_SEPARATOR),
+                ClusterNotificationListener.NotifiedArtifact.SlotAvailability.toString(),
+                "",
+                "SlotAvailabilityEvent",
+                localNodeID);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Sending slot availability notification for " + storageQueueNames.size() + " queues");
+        }
+        publishNotificationToDB(clusterNotification);
+    }
+
     /**
      * Store notification in the DB. Duplicate the cluster notification for all nodes in
-     * the cluster and store them destined to the respective  to each node.
+     * the cluster and store them destined to the respective  to each node. Other nodes are
+     * signalled to read the notification if cluster event push is started.
      *
      * @param event notification to store
      * @throws AndesException
@@ -164,6 +218,10 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
         List<String> clusterNodes = AndesContext.getInstance().getClusterAgent().getAllNodeIdentifiers();
         contextStore.storeClusterNotification(clusterNodes, localNodeID, event.getNotifiedArtifact(), event
                 .getChangeType(), event.getEncodedObjectAsString(), event.getDescription());
+        ClusterEventBus eventBus = ClusterEventBus.getInstance();
+        if (null != eventBus) {
+            eventBus.publish(ClusterEventBus.EventType.CLUSTER_NOTIFICATION);
+        }
         if (log.isDebugEnabled()) {
             log.debug("Cluster notification " + event.getEncodedObjectAsString() + " stored in Database");
         }
@@ -33,6 +33,7 @@ import org.wso2.andes.server.cluster.coordination.ClusterNotificationListenerMan
 import org.wso2.andes.server.cluster.coordination.DBSyncNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.ExchangeNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.QueueNotificationHandler;
+import org.wso2.andes.server.cluster.coordination.SlotAvailabilityNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationHandler;
 
 import java.util.HashMap;
@@ -46,7 +47,8 @@ import java.util.concurrent.TimeUnit;
 /**
  * This is the ClusterNotificationListenerManager implementation for RDBMS. It periodically polls
  * events from DB and trigger necessary handlers. Changes related to Message routers, queues, bindings
- * and subscriptions are listened and handled.
+ * and subscriptions are listened and handled. When cluster event push is started events are also read
+ * as soon as another node signals that it stored an event.
  */
 public class RDBMSClusterNotificationListenerImpl implements ClusterNotificationListenerManager {
 
@@ -86,7 +88,7 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
 
         this.andesContextStore = contextStore;
         this.nodeID = ClusterResourceHolder.getInstance().getClusterManager().getMyNodeID();
-        clusterNotificationListeners = new HashMap<>(5);
+        clusterNotificationListeners = new HashMap<>(6);
     }
 
     /**
@@ -170,6 +172,8 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
                 new SubscriptionNotificationHandler(subscriptionManager, inboundEventManager));
         registerNotificationHandler(ClusterNotificationListener.NotifiedArtifact.DBUpdate,
                 new DBSyncNotificationHandler());
+        registerNotificationHandler(ClusterNotificationListener.NotifiedArtifact.SlotAvailability,
+                new SlotAvailabilityNotificationHandler());
 
         //and schedule a periodic task to read cluster events
         // from the store if cluster event sync mode is set to RDBMS.
@@ -177,7 +181,20 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
         int clusterEventReaderInterval = AndesConfigurationManager.readValue(AndesConfiguration
                 .CLUSTER_EVENT_SYNC_INTERVAL);
         scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(threadFactory);
-        scheduledExecutorService.scheduleWithFixedDelay(new ClusterEventReaderTask(),
+        ClusterEventReaderTask clusterEventReaderTask = new ClusterEventReaderTask();
+        Runnable pollTask = clusterEventReaderTask;
+
+        // Once all other nodes push a signal for each stored event, polling only catches up on lost signals
+        ClusterEventBus eventBus = ClusterEventBus.getInstance();
+        if (null != eventBus) {
+            int fallbackInterval = AndesConfigurationManager.readValue(AndesConfiguration
+                    .CLUSTER_EVENT_PUSH_FALLBACK_SYNC_INTERVAL);
+            pollTask = eventBus.pollerFor(clusterEventReaderTask, clusterEventReaderInterval, fallbackInterval);
+            eventBus.addEventListener(ClusterEventBus.EventType.CLUSTER_NOTIFICATION,
+                    ClusterEventBus.listenerFor(scheduledExecutorService, clusterEventReaderTask));
+        }
+
+        scheduledExecutorService.scheduleWithFixedDelay(pollTask,
                 clusterEventReaderInterval, clusterEventReaderInterval, TimeUnit.MILLISECONDS);
         log.info("RDBMS cluster event listener started with an interval of: " + clusterEventReaderInterval + "ms.");
     }
@@ -199,6 +216,10 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
      */
     @Override
     public void stopListener() throws AndesException {
+        ClusterEventBus eventBus = ClusterEventBus.getInstance();
+        if (null != eventBus) {
+            eventBus.removeEventListener(ClusterEventBus.EventType.CLUSTER_NOTIFICATION);
+        }
         scheduledExecutorService.shutdown();
         log.info("RDBMS cluster event listener stopped.");
     }
@@ -58,6 +58,12 @@ public class RDBMSMembershipEventingEngine {
      */
     private MembershipListenerTask membershipListenerTask;
 
+    /**
+     * Runs the membership listener task right away when membership events are stored. Null if cluster event push is
+     * not started.
+     */
+    private Runnable membershipEventListener;
+
     /**
      * Default constructor
      */
@@ -79,7 +85,19 @@ public class RDBMSMembershipEventingEngine {
         int scheduledPeriod = AndesConfigurationManager
                 .readValue(AndesConfiguration.RDBMS_BASED_EVENT_POLLING_INTERVAL);
 
-        clusterMembershipReaderTaskScheduler.scheduleWithFixedDelay(membershipListenerTask, scheduledPeriod,
+        Runnable pollTask = membershipListenerTask;
+
+        ClusterEventBus eventBus = ClusterEventBus.getInstance();
+        if (null != eventBus) {
+            int fallbackPeriod = AndesConfigurationManager
+                    .readValue(AndesConfiguration.CLUSTER_EVENT_PUSH_FALLBACK_SYNC_INTERVAL);
+            pollTask = eventBus.pollerFor(membershipListenerTask, scheduledPeriod, fallbackPeriod);
+            membershipEventListener = ClusterEventBus.listenerFor(clusterMembershipReaderTaskScheduler,
+                    membershipListenerTask);
+            eventBus.addEventListener(ClusterEventBus.EventType.MEMBERSHIP, membershipEventListener);
+        }
+
+        clusterMembershipReaderTaskScheduler.scheduleWithFixedDelay(pollTask, scheduledPeriod,
                 scheduledPeriod, TimeUnit.MILLISECONDS);
         logger.info("RDBMS cluster event listener started.");
     }
@@ -88,11 +106,17 @@ public class RDBMSMembershipEventingEngine {
      * Method to stop the membership listener task.
      */
     public void stop() {
+        ClusterEventBus eventBus = ClusterEventBus.getInstance();
+        if (null != eventBus) {
+            eventBus.removeEventListener(ClusterEventBus.EventType.MEMBERSHIP);
+        }
+        membershipEventListener = null;
         clusterMembershipReaderTaskScheduler.shutdown();
     }
 
     /**
-     * Method to store membership event destined to be read by each node.
+     * Method to store membership event destined to be read by each node. If cluster event push is started the events
+     * are read right away by this node and the other nodes are signalled to read them.
      *
      * @param membershipEventType the type of the membership event as an int
      * @param nodeID              the node id which triggered the event
@@ -101,6 +125,11 @@ public class RDBMSMembershipEventingEngine {
     public void notifyMembershipEvent(List<String> nodes, MembershipEventType membershipEventType, String nodeID)
             throws AndesException {
         contextStore.storeMembershipEvent(nodes, membershipEventType.getCode(), nodeID);
+        ClusterEventBus eventBus = ClusterEventBus.getInstance();
+        if (null != eventBus && null != membershipEventListener) {
+            eventBus.publish(ClusterEventBus.EventType.MEMBERSHIP);
+            membershipEventListener.run();
+        }
     }
 
     /**
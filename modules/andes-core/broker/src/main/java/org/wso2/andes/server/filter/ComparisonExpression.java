@@ -73,12 +73,18 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
         Pattern likePattern;
 
+        private final String like;
+
+        private final int escape;
+
         /**
          * @param right
          */
         public LikeExpression(Expression right, String like, int escape)
         {
             super(right);
+            this.like = like;
+            this.escape = escape;
 
             StringBuffer regexp = new StringBuffer(like.length() * 2);
             regexp.append("\\A"); // The beginning of the input
@@ -130,6 +136,23 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
             return "LIKE";
         }
 
+        /**
+         * Include the pattern and the escape character, since expressions are compared and shared by their string
+         * form.
+         */
+        public String toString()
+        {
+            StringBuilder answer = new StringBuilder();
+            answer.append("(").append(getRight()).append(" ").append(getExpressionSymbol()).append(" ");
+            answer.append(ConstantExpression.encodeString(like));
+            if (escape != -1)
+            {
+                answer.append(" ESCAPE ").append(ConstantExpression.encodeString(String.valueOf((char) escape)));
+            }
+            answer.append(")");
+            return answer.toString();
+        }
+
         /**
          *  org.apache.activemq.filter.Expression#evaluate(MessageEvaluationContext)
          */
@@ -41,16 +41,12 @@ public class FilterManagerFactory
 
 
 
-            if(filters.containsKey(AMQPFilterTypes.JMS_SELECTOR.getValue()))
-            {
-                String selector =  filters.getString(AMQPFilterTypes.JMS_SELECTOR.getValue());
-
-                if (selector != null && !selector.equals(""))
-                {
-                    manager = new SimpleFilterManager();
-                    manager.add(new JMSSelectorFilter(selector));
-                }
+            String selector = getSelector(filters);
 
+            if (selector != null)
+            {
+                manager = new SimpleFilterManager();
+                manager.add(new JMSSelectorFilter(selector));
             }
 
 
@@ -69,4 +65,24 @@ public class FilterManagerFactory
     {
         return createManager(FieldTable.convertToFieldTable(map));
     }
+
+    /**
+     * Get the JMS selector given in the filter arguments of a subscription
+     *
+     * @param filters filter arguments of the subscription
+     * @return the selector, null if no selector is given
+     */
+    public static String getSelector(FieldTable filters)
+    {
+        if (filters != null && filters.containsKey(AMQPFilterTypes.JMS_SELECTOR.getValue()))
+        {
+            String selector = filters.getString(AMQPFilterTypes.JMS_SELECTOR.getValue());
+
+            if (selector != null && !selector.equals(""))
+            {
+                return selector;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.server.filter;
+
+import org.wso2.andes.server.queue.Filterable;
+
+/**
+ * Compiles a parsed selector into a tree of conditions specialized for the operands of each comparison. Comparisons
+ * of a property with a constant compare primitive values without boxing the result, the numeric JMS header fields are
+ * read without boxing them, and sub expressions without properties are evaluated once at compile time.
+ * <p>
+ * Compiled conditions give the same results as the parsed expression, including the unknown result of comparisons
+ * with missing properties. Expressions the compiler has no specialized condition for, such as LIKE, IN and arithmetic
+ * over properties, are evaluated by the parsed expression itself.
+ */
+public final class SelectorCompiler
+{
+    /**
+     * Results of a compiled condition
+     */
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+    private static final int UNKNOWN = 2;
+
+    /**
+     * Comparison operators
+     */
+    private static final int EQUAL = 0;
+    private static final int GREATER = 1;
+    private static final int GREATER_OR_EQUAL = 2;
+    private static final int LESS = 3;
+    private static final int LESS_OR_EQUAL = 4;
+
+    /**
+     * Marker for expressions which cannot be evaluated at compile time
+     */
+    private static final Object NOT_CONSTANT = new Object();
+
+    private SelectorCompiler()
+    {
+    }
+
+    /**
+     * Compile a parsed selector
+     *
+     * @param expression parsed selector
+     * @return selector giving the same results as the parsed selector
+     */
+    public static BooleanExpression compile(BooleanExpression expression)
+    {
+        return new CompiledSelector(expression, compileCondition(expression));
+    }
+
+    private static Condition compileCondition(BooleanExpression expression)
+    {
+        if (isConstant(expression))
+        {
+            Object value = evaluateConstant(expression);
+            if (value != NOT_CONSTANT)
+            {
+                return new ConstantCondition(toResult((Boolean) value));
+            }
+        }
+
+        if (expression instanceof LogicExpression)
+        {
+            LogicExpression logicExpression = (LogicExpression) expression;
+            Condition left = compileCondition((BooleanExpression) logicExpression.getLeft());
+            Condition right = compileCondition((BooleanExpression) logicExpression.getRight());
+
+            if ("AND".equals(logicExpression.getExpressionSymbol()))
+            {
+                if (left instanceof ConstantCondition)
+                {
+                    return ((ConstantCondition) left).result == TRUE ? right : left;
+                }
+                return new AndCondition(left, right);
+            }
+            else if ("OR".equals(logicExpression.getExpressionSymbol()))
+            {
+                // An OR expression gives the result of the right side unless the left side is true
+                if (left instanceof ConstantCondition)
+                {
+                    return ((ConstantCondition) left).result == TRUE ? left : right;
+                }
+                return new OrCondition(left, right);
+            }
+        }
+        else if (expression instanceof UnaryExpression)
+        {
+            UnaryExpression unaryExpression = (UnaryExpression) expression;
+
+            if ("NOT".equals(unaryExpression.getExpressionSymbol()))
+            {
+                return new NotCondition(compileCondition((BooleanExpression) unaryExpression.getRight()));
+            }
+            else if ("".equals(unaryExpression.getExpressionSymbol()))
+            {
+                return new BooleanCastCondition(unaryExpression.getRight());
+            }
+        }
+        else if (expression instanceof ComparisonExpression)
+        {
+            Condition condition = compileComparison((ComparisonExpression) expression);
+            if (condition != null)
+            {
+                return condition;
+            }
+        }
+
+        return new InterpretedCondition(expression);
+    }
+
+    /**
+     * Compile a comparison of a property with a constant
+     *
+     * @param comparison parsed comparison
+     * @return compiled comparison, null if there is no specialized condition for the comparison
+     */
+    private static Condition compileComparison(ComparisonExpression comparison)
+    {
+        int operator = getOperator(comparison.getExpressionSymbol());
+        if (operator < 0 || !(comparison.getLeft() instanceof PropertyExpression))
+        {
+            return null;
+        }
+
+        PropertyExpression property = (PropertyExpression) comparison.getLeft();
+        Object constant = evaluateConstant(comparison.getRight());
+        if (constant == NOT_CONSTANT)
+        {
+            return null;
+        }
+
+        if (constant == null)
+        {
+            // Only IS NULL compares with a null constant
+            return operator == EQUAL ? new IsNullCondition(property) : null;
+        }
+
+        Class<?> constantType = constant.getClass();
+        if (constantType == Integer.class || constantType == Long.class)
+        {
+            long value = ((Number) constant).longValue();
+            NumericHeaderField headerField = NumericHeaderField.forProperty(property.getName());
+            if (headerField != null)
+            {
+                return new HeaderFieldComparison(headerField, value, operator);
+            }
+            return new IntegralComparison(property, value, operator);
+        }
+        else if (constantType == Double.class)
+        {
+            return new DoubleComparison(property, (Double) constant, operator);
+        }
+        else if (operator == EQUAL && (constantType == String.class || constantType == Boolean.class))
+        {
+            // Values of other types never equal a string or a boolean
+            return new EqualsCondition(property, constant);
+        }
+
+        return null;
+    }
+
+    private static int getOperator(String symbol)
+    {
+        if ("=".equals(symbol))
+        {
+            return EQUAL;
+        }
+        else if (">".equals(symbol))
+        {
+            return GREATER;
+        }
+        else if (">=".equals(symbol))
+        {
+            return GREATER_OR_EQUAL;
+        }
+        else if ("<".equals(symbol))
+        {
+            return LESS;
+        }
+        else if ("<=".equals(symbol))
+        {
+            return LESS_OR_EQUAL;
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether an expression does not depend on the message
+     */
+    private static boolean isConstant(Expression expression)
+    {
+        if (expression instanceof ConstantExpression)
+        {
+            return true;
+        }
+        else if (expression instanceof BinaryExpression)
+        {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            return isConstant(binaryExpression.getLeft()) && isConstant(binaryExpression.getRight());
+        }
+        else if (expression instanceof UnaryExpression)
+        {
+            return isConstant(((UnaryExpression) expression).getRight());
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate an expression which does not depend on the message
+     *
+     * @return value of the expression, {@link #NOT_CONSTANT} if the expression cannot be evaluated at compile time
+     */
+    private static Object evaluateConstant(Expression expression)
+    {
+        if (!isConstant(expression))
+        {
+            return NOT_CONSTANT;
+        }
+
+        try
+        {
+            return expression.evaluate(null);
+        }
+        catch (RuntimeException e)
+        {
+            // Leave errors such as invalid arithmetic to the evaluation of messages
+            return NOT_CONSTANT;
+        }
+    }
+
+    private static int toResult(Boolean value)
+    {
+        if (value == null)
+        {
+            return UNKNOWN;
+        }
+        return value ? TRUE : FALSE;
+    }
+
+    private static int toResult(boolean value)
+    {
+        return value ? TRUE : FALSE;
+    }
+
+    private static int compare(int operator, int comparison)
+    {
+        switch (operator)
+        {
+            case EQUAL:
+                return toResult(comparison == 0);
+            case GREATER:
+                return toResult(comparison > 0);
+            case GREATER_OR_EQUAL:
+                return toResult(comparison >= 0);
+            case LESS:
+                return toResult(comparison < 0);
+            default:
+                return toResult(comparison <= 0);
+        }
+    }
+
+    private static boolean isIntegral(Class<?> type)
+    {
+        return type == Integer.class || type == Long.class || type == Short.class || type == Byte.class;
+    }
+
+    /**
+     * Selector evaluated through its compiled condition
+     */
+    private static final class CompiledSelector implements BooleanExpression
+    {
+        private final BooleanExpression expression;
+
+        private final Condition condition;
+
+        private CompiledSelector(BooleanExpression expression, Condition condition)
+        {
+            this.expression = expression;
+            this.condition = condition;
+        }
+
+        public boolean matches(Filterable message)
+        {
+            return condition.evaluate(message) == TRUE;
+        }
+
+        public Object evaluate(Filterable message)
+        {
+            switch (condition.evaluate(message))
+            {
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                default:
+                    return null;
+            }
+        }
+
+        public String toString()
+        {
+            return expression.toString();
+        }
+    }
+
+    private abstract static class Condition
+    {
+        /**
+         * @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN}
+         */
+        abstract int evaluate(Filterable message);
+    }
+
+    private static final class ConstantCondition extends Condition
+    {
+        private final int result;
+
+        private ConstantCondition(int result)
+        {
+            this.result = result;
+        }
+
+        int evaluate(Filterable message)
+        {
+            return result;
+        }
+    }
+
+    private static final class AndCondition extends Condition
+    {
+        private final Condition left;
+        private final Condition right;
+
+        private AndCondition(Condition left, Condition right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        int evaluate(Filterable message)
+        {
+            int result = left.evaluate(message);
+            if (result != TRUE)
+            {
+                return result;
+            }
+            return right.evaluate(message);
+        }
+    }
+
+    private static final class OrCondition extends Condition
+    {
+        private final Condition left;
+        private final Condition right;
+
+        private OrCondition(Condition left, Condition right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        int evaluate(Filterable message)
+        {
+            if (left.evaluate(message) == TRUE)
+            {
+                return TRUE;
+            }
+            return right.evaluate(message);
+        }
+    }
+
+    private static final class NotCondition extends Condition
+    {
+        private final Condition condition;
+
+        private NotCondition(Condition condition)
+        {
+            this.condition = condition;
+        }
+
+        int evaluate(Filterable message)
+        {
+            int result = condition.evaluate(message);
+            if (result == UNKNOWN)
+            {
+                return UNKNOWN;
+            }
+            return result == TRUE ? FALSE : TRUE;
+        }
+    }
+
+    private static final class BooleanCastCondition extends Condition
+    {
+        private final Expression expression;
+
+        private BooleanCastCondition(Expression expression)
+        {
+            this.expression = expression;
+        }
+
+        int evaluate(Filterable message)
+        {
+            Object value = expression.evaluate(message);
+            if (value == null)
+            {
+                return UNKNOWN;
+            }
+            return toResult(Boolean.TRUE.equals(value));
+        }
+    }
+
+    private static final class IsNullCondition extends Condition
+    {
+        private final PropertyExpression property;
+
+        private IsNullCondition(PropertyExpression property)
+        {
+            this.property = property;
+        }
+
+        int evaluate(Filterable message)
+        {
+            return toResult(property.evaluate(message) == null);
+        }
+    }
+
+    private static final class EqualsCondition extends Condition
+    {
+        private final PropertyExpression property;
+        private final Object constant;
+
+        private EqualsCondition(PropertyExpression property, Object constant)
+        {
+            this.property = property;
+            this.constant = constant;
+        }
+
+        int evaluate(Filterable message)
+        {
+            return toResult(constant.equals(property.evaluate(message)));
+        }
+    }
+
+    /**
+     * Comparison of a property with an integer constant. Integral values are compared as longs, floating point values
+     * are compared after converting the constant to the type of the value, as the parsed comparison does.
+     */
+    private static final class IntegralComparison extends Condition
+    {
+        private final PropertyExpression property;
+        private final long constant;
+        private final int operator;
+
+        private IntegralComparison(PropertyExpression property, long constant, int operator)
+        {
+            this.property = property;
+            this.constant = constant;
+            this.operator = operator;
+        }
+
+        int evaluate(Filterable message)
+        {
+            Object value = property.evaluate(message);
+            if (value == null)
+            {
+                // A missing property is not equal to a constant, but cannot be ordered against it
+                return operator == EQUAL ? FALSE : UNKNOWN;
+            }
+
+            Class<?> type = value.getClass();
+            if (isIntegral(type))
+            {
+                return compare(operator, Long.compare(((Number) value).longValue(), constant));
+            }
+            else if (type == Double.class)
+            {
+                return compare(operator, Double.compare((Double) value, (double) constant));
+            }
+            else if (type == Float.class)
+            {
+                return compare(operator, Float.compare((Float) value, (float) constant));
+            }
+            return FALSE;
+        }
+    }
+
+    /**
+     * Comparison of a property with a floating point constant. All numeric values are compared as doubles.
+     */
+    private static final class DoubleComparison extends Condition
+    {
+        private final PropertyExpression property;
+        private final double constant;
+        private final int operator;
+
+        private DoubleComparison(PropertyExpression property, double constant, int operator)
+        {
+            this.property = property;
+            this.constant = constant;
+            this.operator = operator;
+        }
+
+        int evaluate(Filterable message)
+        {
+            Object value = property.evaluate(message);
+            if (value == null)
+            {
+                return operator == EQUAL ? FALSE : UNKNOWN;
+            }
+
+            Class<?> type = value.getClass();
+            if (isIntegral(type) || type == Double.class || type == Float.class)
+            {
+                return compare(operator, Double.compare(((Number) value).doubleValue(), constant));
+            }
+            return FALSE;
+        }
+    }
+
+    /**
+     * Comparison of a numeric JMS header field with an integer constant
+     */
+    private static final class HeaderFieldComparison extends Condition
+    {
+        private final NumericHeaderField headerField;
+        private final long constant;
+        private final int operator;
+
+        private HeaderFieldComparison(NumericHeaderField headerField, long constant, int operator)
+        {
+            this.headerField = headerField;
+            this.constant = constant;
+            this.operator = operator;
+        }
+
+        int evaluate(Filterable message)
+        {
+            return compare(operator, Long.compare(headerField.getValue(message), constant));
+        }
+    }
+
+    /**
+     * JMS header fields which are never null and are read as primitive values
+     */
+    private enum NumericHeaderField
+    {
+        PRIORITY
+        {
+            long getValue(Filterable message)
+            {
+                return message.getMessageHeader().getPriority();
+            }
+        },
+        TIMESTAMP
+        {
+            long getValue(Filterable message)
+            {
+                return message.getMessageHeader().getTimestamp();
+            }
+        },
+        EXPIRATION
+        {
+            long getValue(Filterable message)
+            {
+                return message.getMessageHeader().getExpiration();
+            }
+        };
+
+        abstract long getValue(Filterable message);
+
+        static NumericHeaderField forProperty(String name)
+        {
+            if ("JMSPriority".equals(name))
+            {
+                return PRIORITY;
+            }
+            else if ("JMSTimestamp".equals(name))
+            {
+                return TIMESTAMP;
+            }
+            else if ("JMSExpiration".equals(name))
+            {
+                return EXPIRATION;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Condition evaluated by the parsed expression
+     */
+    private static final class InterpretedCondition extends Condition
+    {
+        private final BooleanExpression expression;
+
+        private InterpretedCondition(BooleanExpression expression)
+        {
+            this.expression = expression;
+        }
+
+        int evaluate(Filterable message)
+        {
+            return toResult((Boolean) expression.evaluate(message));
+        }
+    }
+}
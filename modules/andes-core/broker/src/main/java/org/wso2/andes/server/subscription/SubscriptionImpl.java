@@ -357,6 +357,8 @@ public abstract class SubscriptionImpl implements Subscription, FlowCreditManage
 
     private FilterManager _filters;
 
+    private final String _selector;
+
     private final Boolean _autoClose;
 
 
@@ -386,6 +388,7 @@ public abstract class SubscriptionImpl implements Subscription, FlowCreditManage
 
 
         _filters = FilterManagerFactory.createManager(arguments);
+        _selector = FilterManagerFactory.getSelector(arguments);
 
         _deliveryMethod = deliveryMethod;
         _recordMethod = recordMethod;
@@ -574,6 +577,16 @@ public abstract class SubscriptionImpl implements Subscription, FlowCreditManage
         return (_filters == null) || _filters.allAllow(msg);
     }
 
+    /**
+     * Get the JMS selector messages are filtered with
+     *
+     * @return the selector, null if messages are not filtered by a selector
+     */
+    public String getSelector()
+    {
+        return _selector;
+    }
+
     public boolean isAutoClose()
     {
         return _autoClose;
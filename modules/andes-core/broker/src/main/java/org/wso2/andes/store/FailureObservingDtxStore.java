@@ -115,4 +115,12 @@ public class FailureObservingDtxStore extends FailureObservingStore<DtxStore> im
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isPrepareSupported() {
+        return wrappedInstance.isPrepareSupported();
+    }
+
 }
@@ -29,6 +29,7 @@ import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.DtxStore;
 import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.MessageExpiryIndex;
 import org.wso2.andes.kernel.MessageStore;
 import org.wso2.andes.kernel.slot.RecoverySlotCreator;
 import org.wso2.andes.kernel.slot.Slot;
@@ -104,6 +105,19 @@ public class FailureObservingMessageStore extends FailureObservingStore<MessageS
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessagePart> getContent(long messageId, int startOffset, int endOffset) throws AndesException {
+        try {
+            return wrappedInstance.getContent(messageId, startOffset, endOffset);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -377,6 +391,20 @@ public class FailureObservingMessageStore extends FailureObservingStore<MessageS
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExpiryData(long expirationTimeUpperBound, MessageExpiryIndex expiryIndex)
+            throws AndesException {
+        try {
+            wrappedInstance.readExpiryData(expirationTimeUpperBound, expiryIndex);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
 
     /**
      * {@inheritDoc}
@@ -77,22 +77,29 @@ public class GuavaBasedMessageCacheImpl implements AndesMessageCache {
     private static int DEFAULT_CONTENT_CHUNK_SIZE;
 
     public GuavaBasedMessageCacheImpl() {
+        this(AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE),
+                1024L * 1024L * ((int) AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE)),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_CONCURRENCY_LEVEL),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_EXPIRY_SECONDS),
+                AndesConfigurationManager.<String>readValue(AndesConfiguration.PERSISTENCE_CACHE_VALUE_REFERENCE_TYPE),
+                AndesConfigurationManager.<Boolean>readValue(AndesConfiguration.PERSISTENCE_CACHE_PRINT_STATS));
+    }
 
-        DEFAULT_CONTENT_CHUNK_SIZE = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
-
-        long cacheSizeInBytes =
-                1024L * 1024L * ((int) AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE));
-
-        int cacheConcurrency = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERSISTENCE_CACHE_CONCURRENCY_LEVEL);
-
-        int cacheExpirySeconds = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERSISTENCE_CACHE_EXPIRY_SECONDS);
+    /**
+     * Create a cache with the given settings instead of reading them from the configuration
+     *
+     * @param contentChunkSize   max chunk size of the stored content
+     * @param cacheSizeInBytes   maximum total content size of cached messages
+     * @param cacheConcurrency   expected number of threads updating the cache concurrently
+     * @param cacheExpirySeconds seconds a message is kept after it was last accessed
+     * @param valueRefType       reference type used to hold messages, strong or weak
+     * @param printStats         whether to print cache statistics to the log
+     */
+    public GuavaBasedMessageCacheImpl(int contentChunkSize, long cacheSizeInBytes, int cacheConcurrency,
+                                      int cacheExpirySeconds, String valueRefType, boolean printStats) {
 
-        String valueRefType = AndesConfigurationManager
-                .readValue(AndesConfiguration.PERSISTENCE_CACHE_VALUE_REFERENCE_TYPE);
-        printStats = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_PRINT_STATS);
+        DEFAULT_CONTENT_CHUNK_SIZE = contentChunkSize;
+        this.printStats = printStats;
 
         CacheBuilder<Long, AndesMessage> builder = CacheBuilder.newBuilder().concurrencyLevel(cacheConcurrency)
                 .expireAfterAccess(cacheExpirySeconds, TimeUnit.SECONDS).maximumWeight(cacheSizeInBytes)
@@ -28,12 +28,17 @@ import org.wso2.andes.configuration.enums.AndesConfiguration;
 public class MessageCacheFactory {
 
     
+    /**
+     * Cache type which keeps messages in direct memory
+     */
+    private static final String CACHE_TYPE_OFF_HEAP = "offHeap";
+
     /***
      * Create a {@link AndesMessageCache} with the configurations passed.
-     * currently it will either returns a {@link GuavaBasedMessageCacheImpl} or
-     * {@link DisabledMessageCacheImpl} if cacheSize is configured as '0' in
-     * broker.xml
-     * 
+     * currently it will either returns a {@link GuavaBasedMessageCacheImpl}, an {@link OffHeapMessageCacheImpl}
+     * if the cache type is configured as 'offHeap' or {@link DisabledMessageCacheImpl} if cacheSize is configured
+     * as '0' in broker.xml
+     *
      * @param connectionProperties
      *            configuration options
      * @return a {@link AndesMessageCache}
@@ -41,16 +46,39 @@ public class MessageCacheFactory {
     public AndesMessageCache create() {
 
         int cacheSizeInMegaBytes = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE);
-                                    
+        String cacheType = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_TYPE);
+
         AndesMessageCache cache = null;
         
         if ( cacheSizeInMegaBytes <= 0){
             cache = new DisabledMessageCacheImpl();
+        } else if (CACHE_TYPE_OFF_HEAP.equalsIgnoreCase(cacheType)) {
+            cache = new OffHeapMessageCacheImpl();
         } else {
             cache = new GuavaBasedMessageCacheImpl();
         }
         
         return cache;
     }
-    
+
+    /**
+     * Create the {@link TieredContentCache} shared by the message store and the delivery path, with a message tier
+     * created by {@link #create()}
+     *
+     * @return a {@link TieredContentCache}
+     */
+    public TieredContentCache createTieredCache() {
+
+        int maxChunkSize = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
+        int deliveryTierSize = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_CACHE_MAXIMUM_SIZE);
+        int deliveryTierExpiry = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_CACHE_EXPIRY_TIME);
+        int contentReaders = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_PARALLEL_CONTENT_READERS);
+
+        return new TieredContentCache(create(), maxChunkSize, deliveryTierSize, deliveryTierExpiry, contentReaders);
+    }
+
 }
@@ -0,0 +1,589 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Message cache which keeps metadata and content of messages in direct memory, outside the Java heap.
+ * <p/>
+ * Memory is divided into equally sized slabs which are filled one after the other. When the last slab is full the
+ * oldest slab is reused and the messages in it are evicted, hence the cache keeps the most recently added messages
+ * that fit into the configured size. Removing a message only removes it from the index. Its memory is reclaimed
+ * when its slab is reused. Slabs with outstanding {@link ContentView}s are skipped until the views are released, so
+ * the direct memory used never exceeds the cache size.
+ * <p/>
+ * The index maps primitive message IDs to the location of the message in a slab. Only the index entries are kept on
+ * the heap.
+ */
+public class OffHeapMessageCacheImpl implements AndesMessageCache {
+
+    private static final Logger log = Logger.getLogger(OffHeapMessageCacheImpl.class);
+
+    /**
+     * Number of slabs the cache size is divided into, unless slabs would be out of the allowed slab size range
+     */
+    private static final int PREFERRED_SLAB_COUNT = 32;
+
+    private static final int MIN_SLAB_SIZE = 1024 * 1024;
+
+    private static final int MAX_SLAB_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Index segments, each guarded by its own lock
+     */
+    private final IndexSegment[] segments;
+
+    private final Slab[] slabs;
+
+    private final int slabSize;
+
+    /**
+     * Time in milliseconds a message is kept after it is added
+     */
+    private final long expiryMillis;
+
+    /**
+     * Max chunk size of the stored content. Used to find the index of a chunk from its offset.
+     */
+    private final int contentChunkSize;
+
+    /**
+     * Guards adding messages to slabs. Index of the slab messages are added to is guarded by this lock.
+     */
+    private final Object writeLock = new Object();
+
+    private int currentSlabIndex;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    public OffHeapMessageCacheImpl() {
+        this(AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE),
+                1024L * 1024L * ((int) AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE)),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_CONCURRENCY_LEVEL),
+                AndesConfigurationManager.<Integer>readValue(AndesConfiguration.PERSISTENCE_CACHE_EXPIRY_SECONDS));
+    }
+
+    /**
+     * Create a cache with the given settings instead of reading them from the configuration
+     *
+     * @param contentChunkSize   max chunk size of the stored content
+     * @param cacheSizeInBytes   direct memory used by the cache
+     * @param cacheConcurrency   expected number of threads accessing the cache concurrently
+     * @param cacheExpirySeconds seconds a message is kept after it is added
+     */
+    public OffHeapMessageCacheImpl(int contentChunkSize, long cacheSizeInBytes, int cacheConcurrency,
+                                   int cacheExpirySeconds) {
+        this.contentChunkSize = contentChunkSize;
+        this.expiryMillis = cacheExpirySeconds * 1000L;
+
+        long preferredSlabSize = cacheSizeInBytes / PREFERRED_SLAB_COUNT;
+        slabSize = (int) Math.max(MIN_SLAB_SIZE, Math.min(MAX_SLAB_SIZE, preferredSlabSize));
+        int slabCount = (int) Math.max(2, cacheSizeInBytes / slabSize);
+        slabs = new Slab[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            slabs[i] = new Slab(slabSize);
+        }
+
+        int segmentCount = Integer.highestOneBit(Math.max(1, cacheConcurrency) * 4 - 1) << 1;
+        segments = new IndexSegment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new IndexSegment();
+        }
+
+        log.info("Off heap message cache created with " + slabCount + " slabs of " + slabSize + " bytes");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Messages larger than a slab are not cached. Neither are messages added while every other slab has outstanding
+     * content views.
+     */
+    @Override
+    public void addToCache(AndesMessage message) {
+        AndesMessageMetadata metadata = message.getMetadata();
+        byte[] metadataBytes = metadata.getMetadata();
+        List<AndesMessagePart> parts = message.getContentChunkList();
+
+        int size = metadataBytes.length;
+        int[] partOffsets = new int[parts.size()];
+        int[] partLengths = new int[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            AndesMessagePart part = parts.get(i);
+            partOffsets[i] = part.getOffset();
+            partLengths[i] = part.getDataLength();
+            size = size + part.getDataLength();
+        }
+
+        if (size > slabSize) {
+            return;
+        }
+
+        long messageId = metadata.getMessageID();
+        synchronized (writeLock) {
+            Slab slab = slabs[currentSlabIndex];
+            if (slab.writePosition + size > slabSize) {
+                slab = nextWritableSlab();
+                if (null == slab) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Message " + messageId + " is not cached since all slabs have content views");
+                    }
+                    return;
+                }
+            }
+
+            int position = slab.writePosition;
+            ByteBuffer writeBuffer = slab.buffer.duplicate();
+            writeBuffer.position(position);
+            writeBuffer.put(metadataBytes);
+            for (AndesMessagePart part : parts) {
+                writeBuffer.put(part.getData());
+            }
+            slab.writePosition = position + size;
+            slab.messageIds.add(messageId);
+
+            CacheEntry entry = new CacheEntry(slab, slab.generation, position, metadataBytes.length, partOffsets,
+                    partLengths, System.currentTimeMillis());
+
+            // Indexed while holding the write lock so that the slab cannot be reused before the entry is visible
+            IndexSegment segment = segmentFor(messageId);
+            synchronized (segment) {
+                segment.entries.put(messageId, entry);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromCache(LongArrayList messagesToRemove) {
+        for (int i = 0; i < messagesToRemove.size(); i++) {
+            removeFromCache(messagesToRemove.get(i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromCache(long messageToRemove) {
+        IndexSegment segment = segmentFor(messageToRemove);
+        synchronized (segment) {
+            segment.entries.remove(messageToRemove);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessage getMessageFromCache(long messageId) {
+        CacheEntry entry = getEntry(messageId);
+        if (null == entry) {
+            return null;
+        }
+
+        Slab slab = entry.slab;
+        slab.pins.incrementAndGet();
+        try {
+            if (slab.generation != entry.generation) {
+                missCount.incrementAndGet();
+                return null;
+            }
+
+            ByteBuffer readBuffer = slab.buffer.duplicate();
+            readBuffer.position(entry.position);
+            byte[] metadataBytes = new byte[entry.metadataLength];
+            readBuffer.get(metadataBytes);
+
+            AndesMessage message = new AndesMessage(new AndesMessageMetadata(messageId, metadataBytes, true));
+            for (int i = 0; i < entry.partOffsets.length; i++) {
+                message.addMessagePart(readPart(readBuffer, messageId, entry.partOffsets[i], entry.partLengths[i]));
+            }
+            hitCount.incrementAndGet();
+            return message;
+        } finally {
+            slab.pins.decrementAndGet();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void fillContentFromCache(LongArrayList messageIDList,
+                                     LongObjectHashMap<List<AndesMessagePart>> contentList) {
+        int index = 0;
+        while (index < messageIDList.size()) {
+            long messageId = messageIDList.get(index);
+            List<AndesMessagePart> parts = getContent(messageId);
+            if (null != parts) {
+                contentList.put(messageId, parts);
+                messageIDList.removeAtIndex(index);
+            } else {
+                index++;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContentFromCache(long messageId, int offsetValue) {
+        CacheEntry entry = getEntry(messageId);
+        if (null == entry) {
+            return null;
+        }
+
+        // Offsets are multiples of the content chunk size, hence the index of the chunk is derived from the offset
+        int partIndex = offsetValue / contentChunkSize;
+        if (partIndex >= entry.partOffsets.length) {
+            return null;
+        }
+
+        Slab slab = entry.slab;
+        slab.pins.incrementAndGet();
+        try {
+            if (slab.generation != entry.generation) {
+                missCount.incrementAndGet();
+                return null;
+            }
+
+            ByteBuffer readBuffer = slab.buffer.duplicate();
+            readBuffer.position(entry.partPosition(partIndex));
+            hitCount.incrementAndGet();
+            return readPart(readBuffer, messageId, entry.partOffsets[partIndex], entry.partLengths[partIndex]);
+        } finally {
+            slab.pins.decrementAndGet();
+        }
+    }
+
+    /**
+     * Return a read only view of a content chunk without copying it to the heap. The slab holding the chunk is
+     * not reused until the view is released, hence views should be released as soon as the content is written out.
+     *
+     * @param messageId   id of the message
+     * @param offsetValue offset of the chunk
+     * @return view of the chunk or null if the message is not in the cache
+     */
+    public ContentView getContentBuffer(long messageId, int offsetValue) {
+        CacheEntry entry = getEntry(messageId);
+        if (null == entry) {
+            return null;
+        }
+
+        int partIndex = offsetValue / contentChunkSize;
+        if (partIndex >= entry.partOffsets.length) {
+            return null;
+        }
+
+        Slab slab = entry.slab;
+        slab.pins.incrementAndGet();
+        try {
+            if (slab.generation != entry.generation) {
+                missCount.incrementAndGet();
+                return null;
+            }
+
+            // Counted while pinned, so that a slab being reused either sees the view or is not read by this call
+            slab.views.incrementAndGet();
+            ByteBuffer view = slab.buffer.asReadOnlyBuffer();
+            int position = entry.partPosition(partIndex);
+            view.limit(position + entry.partLengths[partIndex]);
+            view.position(position);
+            hitCount.incrementAndGet();
+            return new ContentView(slab, view.slice());
+        } finally {
+            slab.pins.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of lookups which found the message in the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of lookups which did not find the message in the cache
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private List<AndesMessagePart> getContent(long messageId) {
+        CacheEntry entry = getEntry(messageId);
+        if (null == entry) {
+            return null;
+        }
+
+        Slab slab = entry.slab;
+        slab.pins.incrementAndGet();
+        try {
+            if (slab.generation != entry.generation) {
+                missCount.incrementAndGet();
+                return null;
+            }
+
+            ByteBuffer readBuffer = slab.buffer.duplicate();
+            readBuffer.position(entry.position + entry.metadataLength);
+            List<AndesMessagePart> parts = new ArrayList<>(entry.partOffsets.length);
+            for (int i = 0; i < entry.partOffsets.length; i++) {
+                parts.add(readPart(readBuffer, messageId, entry.partOffsets[i], entry.partLengths[i]));
+            }
+            hitCount.incrementAndGet();
+            return parts;
+        } finally {
+            slab.pins.decrementAndGet();
+        }
+    }
+
+    /**
+     * Find the index entry of a message. Expired entries are removed.
+     *
+     * @param messageId id of the message
+     * @return index entry or null if the message is not in the cache
+     */
+    private CacheEntry getEntry(long messageId) {
+        IndexSegment segment = segmentFor(messageId);
+        CacheEntry entry;
+        synchronized (segment) {
+            entry = segment.entries.get(messageId);
+            if (null != entry && System.currentTimeMillis() - entry.addedTime > expiryMillis) {
+                segment.entries.remove(messageId);
+                entry = null;
+            }
+        }
+
+        if (null == entry) {
+            missCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    private static AndesMessagePart readPart(ByteBuffer readBuffer, long messageId, int offset, int length) {
+        byte[] data = new byte[length];
+        readBuffer.get(data);
+        AndesMessagePart part = new AndesMessagePart();
+        part.setMessageID(messageId);
+        part.setOffSet(offset);
+        part.setData(data);
+        return part;
+    }
+
+    /**
+     * Move to the next slab which can be reused, skipping slabs with outstanding content views. Must be called
+     * holding the write lock.
+     *
+     * @return emptied slab to write to, or null if every other slab has content views
+     */
+    private Slab nextWritableSlab() {
+        for (int i = 1; i < slabs.length; i++) {
+            int slabIndex = (currentSlabIndex + i) % slabs.length;
+            if (recycle(slabs[slabIndex])) {
+                currentSlabIndex = slabIndex;
+                return slabs[slabIndex];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evict the messages of a slab so that it can be filled again. A slab with content views is not reused. Must be
+     * called holding the write lock.
+     *
+     * @param slab slab to reuse
+     * @return true if the slab was emptied
+     */
+    private boolean recycle(Slab slab) {
+        if (slab.views.get() > 0) {
+            return false;
+        }
+
+        // Readers check the generation after pinning the slab, hence once it is changed and there are no pins no
+        // reader can see the old content
+        slab.generation = slab.generation + 1;
+        while (slab.pins.get() > 0) {
+            Thread.yield();
+        }
+
+        for (int i = 0; i < slab.messageIds.size(); i++) {
+            long messageId = slab.messageIds.get(i);
+            IndexSegment segment = segmentFor(messageId);
+            synchronized (segment) {
+                CacheEntry entry = segment.entries.get(messageId);
+                if (null != entry && entry.slab == slab) {
+                    segment.entries.remove(messageId);
+                }
+            }
+        }
+        slab.messageIds.clear();
+
+        // A view taken before the generation changed still reads the old content. The slab is emptied once it is
+        // released.
+        if (slab.views.get() > 0) {
+            slab.writePosition = slabSize;
+            return false;
+        }
+        slab.writePosition = 0;
+        return true;
+    }
+
+    private IndexSegment segmentFor(long messageId) {
+        int hash = (int) ((messageId * 0x9E3779B97F4A7C15L) >>> 32);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * Direct memory region messages are written to one after the other
+     */
+    private static final class Slab {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * Incremented each time the slab is reused. Index entries of an older generation are stale.
+         */
+        private volatile int generation;
+
+        /**
+         * Number of readers copying from the slab
+         */
+        private final AtomicInteger pins = new AtomicInteger();
+
+        /**
+         * Number of content views of the slab memory which are not released
+         */
+        private final AtomicInteger views = new AtomicInteger();
+
+        /**
+         * Position after the last written message. Guarded by the write lock.
+         */
+        private int writePosition;
+
+        /**
+         * IDs of messages written to the slab. Guarded by the write lock.
+         */
+        private final LongArrayList messageIds = new LongArrayList();
+
+        private Slab(int size) {
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+    }
+
+    /**
+     * Read only view of a cached content chunk. The slab holding the chunk is not reused until the view is released.
+     */
+    public static final class ContentView {
+
+        private final Slab slab;
+
+        private final ByteBuffer buffer;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ContentView(Slab slab, ByteBuffer buffer) {
+            this.slab = slab;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return content of the chunk. Must not be read after the view is released.
+         */
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Let the slab holding the chunk be reused. Releasing a view more than once has no effect.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                slab.views.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Location of a cached message
+     */
+    private static final class CacheEntry {
+
+        private final Slab slab;
+
+        private final int generation;
+
+        private final int position;
+
+        private final int metadataLength;
+
+        private final int[] partOffsets;
+
+        private final int[] partLengths;
+
+        private final long addedTime;
+
+        private CacheEntry(Slab slab, int generation, int position, int metadataLength, int[] partOffsets,
+                           int[] partLengths, long addedTime) {
+            this.slab = slab;
+            this.generation = generation;
+            this.position = position;
+            this.metadataLength = metadataLength;
+            this.partOffsets = partOffsets;
+            this.partLengths = partLengths;
+            this.addedTime = addedTime;
+        }
+
+        private int partPosition(int partIndex) {
+            int partPosition = position + metadataLength;
+            for (int i = 0; i < partIndex; i++) {
+                partPosition = partPosition + partLengths[i];
+            }
+            return partPosition;
+        }
+    }
+
+    /**
+     * Part of the index guarded by its own lock
+     */
+    private static final class IndexSegment {
+
+        private final LongObjectHashMap<CacheEntry> entries = new LongObjectHashMap<>();
+    }
+}
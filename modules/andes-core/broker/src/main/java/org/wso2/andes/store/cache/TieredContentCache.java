@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.DisruptorCachedContent;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content cache shared by the message store, which adds messages as they are published, and all content readers of
+ * the delivery path. It has two tiers.
+ * <ul>
+ * <li>The delivery tier keeps content assembled for delivery, so that a message delivered to many subscribers, as
+ * with non-durable topics, is assembled once whichever content reader reads it.</li>
+ * <li>The message tier is the {@link AndesMessageCache} of published messages. Content missing in the delivery tier
+ * is assembled from this tier without reading the message store.</li>
+ * </ul>
+ * Content assembled from the message tier refers to the same message parts, hence the bytes of a message are held
+ * once. Removing a message, which the message store does when it is acknowledged, removes it from both tiers.
+ */
+public class TieredContentCache implements AndesMessageCache {
+
+    /**
+     * Published messages
+     */
+    private final AndesMessageCache messageTier;
+
+    /**
+     * Content assembled for delivery
+     */
+    private final Cache<Long, DisruptorCachedContent> deliveryTier;
+
+    /**
+     * Maximum chunk size of the stored content
+     */
+    private final int maxChunkSize;
+
+    private final AtomicLong deliveryTierHits = new AtomicLong();
+
+    private final AtomicLong deliveryTierMisses = new AtomicLong();
+
+    private final AtomicLong messageTierHits = new AtomicLong();
+
+    private final AtomicLong messageTierMisses = new AtomicLong();
+
+    /**
+     * Create a tiered cache over the given message cache
+     *
+     * @param messageTier          cache of published messages
+     * @param maxChunkSize         maximum chunk size of the stored content
+     * @param deliveryTierSize     maximum number of messages in the delivery tier
+     * @param deliveryTierExpiry   seconds a message is kept in the delivery tier after it is assembled
+     * @param deliveryTierReaders  number of content readers using the delivery tier concurrently
+     */
+    public TieredContentCache(AndesMessageCache messageTier, int maxChunkSize, int deliveryTierSize,
+                              int deliveryTierExpiry, int deliveryTierReaders) {
+        this.messageTier = messageTier;
+        this.maxChunkSize = maxChunkSize;
+        deliveryTier = CacheBuilder.newBuilder().expireAfterWrite(deliveryTierExpiry, TimeUnit.SECONDS)
+                .maximumSize(deliveryTierSize).concurrencyLevel(Math.max(1, deliveryTierReaders)).build();
+
+        MetricManager.gauge(MetricsConstants.CONTENT_CACHE_DELIVERY_TIER_HIT_RATIO, Level.INFO,
+                new HitRatioGauge(deliveryTierHits, deliveryTierMisses));
+        MetricManager.gauge(MetricsConstants.CONTENT_CACHE_MESSAGE_TIER_HIT_RATIO, Level.INFO,
+                new HitRatioGauge(messageTierHits, messageTierMisses));
+    }
+
+    /**
+     * Get content of a message for delivery. Content missing in the delivery tier is assembled from the message tier
+     * and kept in the delivery tier.
+     *
+     * @param messageId     id of the message
+     * @param contentLength length of the message content
+     * @return content of the message, or null if the content should be read from the message store
+     */
+    public DisruptorCachedContent getDeliveryContent(long messageId, int contentLength) {
+        DisruptorCachedContent content = deliveryTier.getIfPresent(messageId);
+        if (null != content) {
+            deliveryTierHits.incrementAndGet();
+            return content;
+        }
+        deliveryTierMisses.incrementAndGet();
+
+        AndesMessage message = messageTier.getMessageFromCache(messageId);
+        if (null == message) {
+            messageTierMisses.incrementAndGet();
+            return null;
+        }
+        messageTierHits.incrementAndGet();
+
+        content = assemble(message.getContentChunkList(), contentLength);
+        deliveryTier.put(messageId, content);
+        return content;
+    }
+
+    /**
+     * Keep content read from the message store in the delivery tier
+     *
+     * @param messageId     id of the message
+     * @param contentList   content chunks read from the message store
+     * @param contentLength length of the message content
+     * @return content of the message
+     */
+    public DisruptorCachedContent putDeliveryContent(long messageId, List<AndesMessagePart> contentList,
+                                                     int contentLength) {
+        DisruptorCachedContent content = assemble(contentList, contentLength);
+        deliveryTier.put(messageId, content);
+        return content;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToCache(AndesMessage message) {
+        messageTier.addToCache(message);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Messages are removed from both tiers.
+     */
+    @Override
+    public void removeFromCache(LongArrayList messagesToRemove) {
+        for (int i = 0; i < messagesToRemove.size(); i++) {
+            deliveryTier.invalidate(messagesToRemove.get(i));
+        }
+        messageTier.removeFromCache(messagesToRemove);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The message is removed from both tiers.
+     */
+    @Override
+    public void removeFromCache(long messageToRemove) {
+        deliveryTier.invalidate(messageToRemove);
+        messageTier.removeFromCache(messageToRemove);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessage getMessageFromCache(long messageId) {
+        return messageTier.getMessageFromCache(messageId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void fillContentFromCache(LongArrayList messageIDList,
+                                     LongObjectHashMap<List<AndesMessagePart>> contentList) {
+        int requested = messageIDList.size();
+        messageTier.fillContentFromCache(messageIDList, contentList);
+        messageTierHits.addAndGet(requested - messageIDList.size());
+        messageTierMisses.addAndGet(messageIDList.size());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContentFromCache(long messageId, int offsetValue) {
+        return messageTier.getContentFromCache(messageId, offsetValue);
+    }
+
+    private DisruptorCachedContent assemble(List<AndesMessagePart> contentList, int contentLength) {
+        Map<Integer, AndesMessagePart> messagePartMap = new HashMap<>(contentList.size());
+        for (AndesMessagePart messagePart : contentList) {
+            messagePartMap.put(messagePart.getOffset(), messagePart);
+        }
+        return new DisruptorCachedContent(messagePartMap, contentLength, maxChunkSize);
+    }
+
+    /**
+     * Gauge for the percentage of lookups served by a tier
+     */
+    private static class HitRatioGauge implements Gauge<Double> {
+
+        private final AtomicLong hits;
+
+        private final AtomicLong misses;
+
+        HitRatioGauge(AtomicLong hits, AtomicLong misses) {
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        @Override
+        public Double getValue() {
+            long hitCount = hits.get();
+            long lookupCount = hitCount + misses.get();
+            if (0 == lookupCount) {
+                return 0.0;
+            }
+            return hitCount * 100.0 / lookupCount;
+        }
+    }
+}
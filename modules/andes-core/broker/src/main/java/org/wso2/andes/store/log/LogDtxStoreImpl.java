@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import org.wso2.andes.dtx.XidImpl;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.DtxStore;
+import org.wso2.andes.kernel.dtx.AndesPreparedMessageMetadata;
+import org.wso2.andes.kernel.dtx.DtxBranch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.transaction.xa.Xid;
+
+/**
+ * Distributed transaction store of the {@link LogMessageStoreImpl}. Prepared transaction branches are not
+ * persisted by the log store, hence distributed transactions are rejected when they are started. Methods of the
+ * prepare stage fail if called regardless.
+ */
+public class LogDtxStoreImpl implements DtxStore {
+
+    private static final String TWO_PHASE_NOT_SUPPORTED =
+            "Preparing distributed transactions is not supported by the log message store";
+
+    private final LogMessageStoreImpl messageStore;
+
+    LogDtxStoreImpl(LogMessageStoreImpl messageStore) {
+        this.messageStore = messageStore;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long storeDtxRecords(Xid xid, List<AndesMessage> enqueueRecords,
+                                List<? extends AndesMessageMetadata> dequeueRecords) throws AndesException {
+        throw new AndesException(TWO_PHASE_NOT_SUPPORTED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateOnCommit(long internalXid, List<AndesMessage> enqueueRecords) throws AndesException {
+        throw new AndesException(TWO_PHASE_NOT_SUPPORTED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateOnOnePhaseCommit(List<AndesMessage> enqueueRecords,
+                                       List<AndesPreparedMessageMetadata> dequeueRecordsMetadata)
+            throws AndesException {
+        messageStore.storeMessagesAndDelete(enqueueRecords, dequeueRecordsMetadata);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateOnRollback(long internalXid, List<AndesPreparedMessageMetadata> messagesToRestore)
+            throws AndesException {
+        throw new AndesException(TWO_PHASE_NOT_SUPPORTED);
+    }
+
+    /**
+     * Branches are never prepared, hence there is nothing to recover
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public long recoverBranchData(DtxBranch branch, String nodeId) throws AndesException {
+        return DtxBranch.NULL_XID;
+    }
+
+    /**
+     * Branches are never prepared, hence there are no stored xids
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<XidImpl> getStoredXidSet(String nodeId) throws AndesException {
+        return Collections.emptySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOperational(String testString, long testTime) {
+        return messageStore.isOperational(testString, testTime);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isPrepareSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,1821 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesContextStore;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.DtxStore;
+import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.MessageExpiryIndex;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.slot.RecoverySlotCreator;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.server.queue.DLCQueueUtils;
+import org.wso2.andes.tools.utils.MessageTracer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Message store which appends messages to a memory mapped log on the local file system instead of a database.
+ * <p/>
+ * Metadata and content of messages are appended as records to a {@link MessageLog}. Each queue has a
+ * {@link QueueIndex} file which lists the messages of the queue with the location of their metadata records. The
+ * locations of content records are recovered by scanning the log at startup. Acknowledging a message only appends a
+ * removal to the queue index. Log segments without any live record are deleted, while live records of sparse
+ * segments are copied to the end of the log by a periodic compaction task so that the segments can be deleted.
+ * <p/>
+ * Writes are serialised by a lock. Flushing to the disk is done outside the lock, and writes done while a flush is in
+ * progress are flushed together by the next one.
+ * <p/>
+ * The store is local to a node and is meant for standalone deployments. It is configured at broker.xml with
+ * <pre>
+ * &lt;messageStore class="org.wso2.andes.store.log.LogMessageStoreImpl"&gt;
+ *     &lt;property name="directory"&gt;repository/database/message-log&lt;/property&gt;
+ * &lt;/messageStore&gt;
+ * </pre>
+ * Limitations
+ * <ul>
+ * <li>The store refuses to start when clustering is enabled, since other nodes cannot read the local log.</li>
+ * <li>Distributed transactions are rejected when started, since prepared branches are not persisted. See
+ * {@link LogDtxStoreImpl}.</li>
+ * <li>There is no log based context store. The context store stays on an RDBMS implementation such as the default
+ * H2 store.</li>
+ * </ul>
+ */
+public class LogMessageStoreImpl implements MessageStore {
+
+    private static final Log log = LogFactory.getLog(LogMessageStoreImpl.class);
+
+    /**
+     * Directory the log and index files are written to
+     */
+    public static final String PROPERTY_DIRECTORY = "directory";
+
+    /**
+     * Size of a log segment file in megabytes
+     */
+    public static final String PROPERTY_SEGMENT_SIZE = "segmentSize";
+
+    /**
+     * Whether writes are flushed to the disk before returning
+     */
+    public static final String PROPERTY_FSYNC = "fsync";
+
+    /**
+     * Percentage of live records below which a segment is compacted
+     */
+    public static final String PROPERTY_COMPACTION_THRESHOLD = "compactionThreshold";
+
+    /**
+     * Interval between compactions in seconds
+     */
+    public static final String PROPERTY_COMPACTION_INTERVAL = "compactionInterval";
+
+    private static final String DEFAULT_DIRECTORY = "repository/database/message-log";
+
+    private static final int DEFAULT_SEGMENT_SIZE_MB = 64;
+
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 25;
+
+    private static final int DEFAULT_COMPACTION_INTERVAL_SECONDS = 60;
+
+    private static final String INDEX_DIRECTORY = "index";
+
+    private static final String RETAINED_DIRECTORY = "retained";
+
+    /**
+     * Name of the retained index. Retained destinations are topic names, which cannot contain '#'
+     */
+    private static final String RETAINED_INDEX_NAME = "#retained";
+
+    static final byte METADATA_RECORD = 1;
+
+    static final byte CONTENT_RECORD = 2;
+
+    static final byte RETAINED_METADATA_RECORD = 3;
+
+    static final byte RETAINED_CONTENT_RECORD = 4;
+
+    private File directory;
+
+    private File indexDirectory;
+
+    private boolean fsync;
+
+    private double compactionThreshold;
+
+    private MessageLog messageLog;
+
+    /**
+     * Index of each queue and dead letter channel by name
+     */
+    private final ConcurrentMap<String, QueueIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * All stored messages by message ID
+     */
+    private final ConcurrentMap<Long, MessageEntry> messages = new ConcurrentHashMap<>();
+
+    private QueueIndex retainedIndex;
+
+    /**
+     * Retained messages by destination
+     */
+    private final ConcurrentMap<String, MessageEntry> retainedMessages = new ConcurrentHashMap<>();
+
+    /**
+     * Retained messages by message ID
+     */
+    private final ConcurrentMap<Long, MessageEntry> retainedMessagesById = new ConcurrentHashMap<>();
+
+    /**
+     * Serialises writes to the log and the indexes
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Sequence of index changes. Guarded by the write lock.
+     */
+    private long sequence;
+
+    /**
+     * Indexes changed since the last flush. Guarded by the write lock.
+     */
+    private final Set<QueueIndex> dirtyIndexes = new HashSet<>();
+
+    /**
+     * Number of writes done. Guarded by the write lock.
+     */
+    private long writeVersion;
+
+    /**
+     * Serialises flushes so that concurrent writers share a single flush
+     */
+    private final Object syncMonitor = new Object();
+
+    /**
+     * Number of writes flushed to the disk. Guarded by the sync monitor.
+     */
+    private long syncedVersion;
+
+    private ScheduledExecutorService compactionExecutor;
+
+    private DtxStore dtxStore;
+
+    private volatile boolean closed;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DurableStoreConnection initializeMessageStore(AndesContextStore contextStore,
+            ConfigurationProperties connectionProperties) throws AndesException {
+
+        if (AndesContext.getInstance().isClusteringEnabled()) {
+            throw new AndesException("Log message store is local to a node and cannot be used when clustering is "
+                    + "enabled");
+        }
+
+        directory = new File(connectionProperties.getProperty(PROPERTY_DIRECTORY, DEFAULT_DIRECTORY));
+        indexDirectory = new File(directory, INDEX_DIRECTORY);
+        File retainedDirectory = new File(directory, RETAINED_DIRECTORY);
+        int segmentSize = connectionProperties.getProperty(PROPERTY_SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE_MB) * 1024 * 1024;
+        fsync = connectionProperties.getProperty(PROPERTY_FSYNC, true);
+        compactionThreshold = connectionProperties.getProperty(PROPERTY_COMPACTION_THRESHOLD,
+                DEFAULT_COMPACTION_THRESHOLD) / 100.0;
+        int compactionInterval = connectionProperties.getProperty(PROPERTY_COMPACTION_INTERVAL,
+                DEFAULT_COMPACTION_INTERVAL_SECONDS);
+
+        for (File requiredDirectory : new File[]{directory, indexDirectory, retainedDirectory}) {
+            if (!requiredDirectory.isDirectory() && !requiredDirectory.mkdirs()) {
+                throw new AndesException("Could not create message store directory " + requiredDirectory);
+            }
+        }
+
+        messageLog = new MessageLog(directory, segmentSize);
+        try {
+            retainedIndex = QueueIndex.open(retainedDirectory, RETAINED_INDEX_NAME);
+            recover();
+        } catch (IOException e) {
+            throw new AndesException("Error while recovering message store at " + directory, e);
+        }
+
+        dtxStore = new LogDtxStoreImpl(this);
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("LogMessageStoreCompactor-%d")
+                .setDaemon(true).build();
+        compactionExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                compact();
+            }
+        }, compactionInterval, compactionInterval, TimeUnit.SECONDS);
+
+        closed = false;
+        log.info("Message Store initialised at " + directory.getAbsolutePath() + " with " + messages.size()
+                + " messages");
+        return new LogStoreConnection(this, directory);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessagePart(List<AndesMessagePart> partList) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (AndesMessagePart part : partList) {
+                MessageEntry entry = messages.get(part.getMessageID());
+                if (null == entry) {
+                    throw new AndesException("Metadata of message " + part.getMessageID() + " is not stored");
+                }
+                appendContent(entry, CONTENT_RECORD, part);
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while storing message parts", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContent(long messageId, int offsetValue) throws AndesException {
+        MessageEntry entry = messages.get(messageId);
+        if (null == entry) {
+            return null;
+        }
+        return readContent(entry, offsetValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessagePart> getContent(long messageId, int startOffset, int endOffset) throws AndesException {
+        List<AndesMessagePart> partList = new ArrayList<>();
+        MessageEntry entry = messages.get(messageId);
+        if (null == entry) {
+            return partList;
+        }
+
+        long[] content = entry.getContent();
+        for (int j = 0; j < content.length; j = j + 2) {
+            if (content[j] >= startOffset && content[j] < endOffset) {
+                AndesMessagePart part = readContent(entry, (int) content[j]);
+                if (null != part) {
+                    partList.add(part);
+                }
+            }
+        }
+        return partList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIDList) throws AndesException {
+        LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>(messageIDList.size());
+        for (int i = 0; i < messageIDList.size(); i++) {
+            long messageId = messageIDList.get(i);
+            MessageEntry entry = messages.get(messageId);
+            if (null == entry) {
+                continue;
+            }
+
+            long[] content = entry.getContent();
+            List<AndesMessagePart> partList = new ArrayList<>(content.length / 2);
+            for (int j = 0; j < content.length; j = j + 2) {
+                AndesMessagePart part = readContent(entry, (int) content[j]);
+                if (null != part) {
+                    partList.add(part);
+                }
+            }
+            if (!partList.isEmpty()) {
+                contentList.put(messageId, partList);
+            }
+        }
+        return contentList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessages(List<AndesMessage> messageList) throws AndesException {
+        storeMessagesAndDelete(messageList, Collections.<AndesMessageMetadata>emptyList());
+    }
+
+    /**
+     * Store messages and delete messages with a single flush. If writing fails, messages of the batch stored so far
+     * are removed again. Messages are deleted only after all the messages are stored, and deleting is idempotent,
+     * hence a failed batch can be retried as a whole.
+     *
+     * @param messageList      messages to store
+     * @param messagesToRemove messages to delete
+     * @throws AndesException if the log cannot be written
+     */
+    void storeMessagesAndDelete(List<AndesMessage> messageList,
+                                Collection<? extends AndesMessageMetadata> messagesToRemove) throws AndesException {
+        long version;
+        List<MessageEntry> storedEntries = new ArrayList<>(messageList.size());
+        writeLock.lock();
+        try {
+            for (AndesMessage message : messageList) {
+                storedEntries.add(storeMessage(message));
+            }
+            for (AndesMessageMetadata metadata : messagesToRemove) {
+                MessageEntry entry = messages.get(metadata.getMessageID());
+                if (null != entry) {
+                    removeEntry(entry);
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            removeStoredEntries(storedEntries);
+            throw new AndesException("Error while storing messages", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToQueue(long messageId, String currentQueueName, String targetQueueName)
+            throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            MessageEntry entry = messages.get(messageId);
+            if (null != entry && currentQueueName.equals(entry.getQueueName())) {
+                relist(entry, targetQueueName, entry.getDlcQueueName(), entry.getMetadataLocation());
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while moving message " + messageId + " to queue " + targetQueueName, e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(long messageId, String dlcQueueName) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            moveToDLC(messageId, dlcQueueName);
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while moving message " + messageId + " to dead letter channel", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(List<AndesMessageMetadata> messages, String dlcQueueName) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (AndesMessageMetadata metadata : messages) {
+                moveToDLC(metadata.getMessageID(), dlcQueueName);
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while moving messages to dead letter channel", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMetadataInformation(String currentQueueName, List<AndesMessageMetadata> metadataList)
+            throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (AndesMessageMetadata metadata : metadataList) {
+                MessageEntry entry = messages.get(metadata.getMessageID());
+                if (null == entry || !currentQueueName.equals(entry.getQueueName())) {
+                    continue;
+                }
+                long previousLocation = entry.getMetadataLocation();
+                long location = messageLog.append(METADATA_RECORD,
+                        encodeMetadata(entry.getMessageId(), entry.getExpirationTime(), metadata.getMetadata()));
+                relist(entry, metadata.getStorageQueueName(), entry.getDlcQueueName(), location);
+                messageLog.release(previousLocation);
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while updating message metadata list", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessageMetadata getMetadata(long messageId) throws AndesException {
+        MessageEntry entry = messages.get(messageId);
+        if (null == entry) {
+            return null;
+        }
+        byte[] metadata = readMetadata(entry);
+        return null == metadata ? null : new AndesMessageMetadata(messageId, metadata, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getMetadataList(Slot slot, final String storageQueueName, long firstMsgId,
+            long lastMsgID) throws AndesException {
+        List<DeliverableAndesMetadata> metadataList = new ArrayList<>();
+        QueueIndex index = indexes.get(storageQueueName);
+        if (null == index) {
+            return metadataList;
+        }
+
+        for (MessageEntry entry : index.getEntries().subMap(firstMsgId, true, lastMsgID, true).values()) {
+            if (null != entry.getDlcQueueName()) {
+                continue;
+            }
+            byte[] metadata = readMetadata(entry);
+            if (null != metadata) {
+                DeliverableAndesMetadata md = new DeliverableAndesMetadata(slot, entry.getMessageId(), metadata, true);
+                md.setStorageQueueName(storageQueueName);
+                metadataList.add(md);
+                //Tracing message
+                MessageTracer.trace(md, slot, MessageTracer.METADATA_READ_FROM_DB);
+            }
+        }
+        return metadataList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInRange(final String storageQueueName, long firstMessageId, long lastMessageId)
+            throws AndesException {
+        QueueIndex index = indexes.get(storageQueueName);
+        if (null == index) {
+            return 0;
+        }
+
+        long count = 0;
+        for (MessageEntry entry : index.getEntries().subMap(firstMessageId, true, lastMessageId, true).values()) {
+            if (null == entry.getDlcQueueName()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int recoverSlotsForQueue(final String storageQueueName, long firstMsgId, int messageLimitPerSlot,
+                                    RecoverySlotCreator.CallBack callBack) throws AndesException {
+        QueueIndex index = indexes.get(storageQueueName);
+        if (null == index) {
+            return 0;
+        }
+
+        int restoreMessagesCounter = 0;
+        long batchStartMessageID = 0;
+        int currentBatchCount = 0;
+        long currentMessageId = 0;
+        try {
+            for (MessageEntry entry : index.getEntries().tailMap(firstMsgId, true).values()) {
+                if (null != entry.getDlcQueueName()) {
+                    continue;
+                }
+                currentMessageId = entry.getMessageId();
+                if (currentBatchCount == 0) {
+                    batchStartMessageID = currentMessageId;
+                }
+
+                currentBatchCount++;
+
+                if (currentBatchCount == messageLimitPerSlot) {
+                    callBack.initializeSlotMapForQueue(storageQueueName, batchStartMessageID, currentMessageId,
+                            messageLimitPerSlot);
+                    restoreMessagesCounter = restoreMessagesCounter + currentBatchCount;
+                    currentBatchCount = 0;
+                }
+            }
+
+            if (currentBatchCount > 0) {
+                restoreMessagesCounter = restoreMessagesCounter + currentBatchCount;
+                callBack.initializeSlotMapForQueue(storageQueueName, batchStartMessageID, currentMessageId,
+                        messageLimitPerSlot);
+            }
+        } catch (SQLException e) {
+            throw new AndesException("Error while recovering slots for queue " + storageQueueName, e);
+        }
+        return restoreMessagesCounter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromQueue(final String storageQueueName, long firstMsgId,
+            int count) throws AndesException {
+        return readMetadataFromIndex(storageQueueName, null, firstMsgId, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataForQueueFromDLC(final String storageQueueName,
+            String dlcQueueName, long firstMsgId, int count) throws AndesException {
+        return readMetadataFromIndex(dlcQueueName, storageQueueName, firstMsgId, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count)
+            throws AndesException {
+        return readMetadataFromIndex(dlcQueueName, null, firstMsgId, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessageMetadataFromQueue(final String storageQueueName,
+            List<AndesMessageMetadata> messagesToRemove) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (AndesMessageMetadata metadata : messagesToRemove) {
+                MessageEntry entry = messages.get(metadata.getMessageID());
+                if (null != entry && storageQueueName.equals(entry.getQueueName())) {
+                    removeEntry(entry);
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while deleting messages from queue " + storageQueueName, e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(Collection<? extends AndesMessageMetadata> messagesToRemove) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (AndesMessageMetadata metadata : messagesToRemove) {
+                MessageEntry entry = messages.get(metadata.getMessageID());
+                if (null != entry) {
+                    removeEntry(entry);
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while deleting messages", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(List<Long> messagesToRemove) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (Long messageId : messagesToRemove) {
+                MessageEntry entry = messages.get(messageId);
+                if (null != entry) {
+                    removeEntry(entry);
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while deleting messages", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteDLCMessages(List<AndesMessageMetadata> messagesToRemove) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (AndesMessageMetadata metadata : messagesToRemove) {
+                MessageEntry entry = messages.get(metadata.getMessageID());
+                if (null != entry && null != entry.getDlcQueueName()) {
+                    removeEntry(entry);
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while deleting messages from dead letter channel", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessages(long lowerBoundMessageID, String queueName) throws AndesException {
+        List<Long> expiredMessages = new ArrayList<>();
+        QueueIndex index = indexes.get(queueName);
+        if (null == index) {
+            return expiredMessages;
+        }
+
+        long now = System.currentTimeMillis();
+        for (MessageEntry entry : index.getEntries().tailMap(lowerBoundMessageID, true).values()) {
+            if (isExpired(entry, now)) {
+                expiredMessages.add(entry.getMessageId());
+            }
+        }
+        return expiredMessages;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessagesFromDLC(long messageCount) throws AndesException {
+        List<Long> expiredMessages = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (QueueIndex index : indexes.values()) {
+            if (!DLCQueueUtils.isDeadLetterQueue(index.getName())) {
+                continue;
+            }
+            for (MessageEntry entry : index.getEntries().values()) {
+                if (expiredMessages.size() == messageCount) {
+                    return expiredMessages;
+                }
+                if (null != entry.getDlcQueueName() && isExpired(entry, now)) {
+                    expiredMessages.add(entry.getMessageId());
+                }
+            }
+        }
+        return expiredMessages;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExpiryData(long expirationTimeUpperBound, MessageExpiryIndex expiryIndex)
+            throws AndesException {
+        for (QueueIndex index : indexes.values()) {
+            if (DLCQueueUtils.isDeadLetterQueue(index.getName())) {
+                continue;
+            }
+            for (MessageEntry entry : index.getEntries().values()) {
+                long expirationTime = entry.getExpirationTime();
+                if (expirationTime > 0 && expirationTime < expirationTimeUpperBound) {
+                    expiryIndex.add(entry.getMessageId(), entry.getQueueName(), expirationTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expiration time is stored with the metadata record
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public void addMessageToExpiryQueue(Long messageId, Long expirationTime, boolean isMessageForTopic,
+            String destination) throws AndesException {
+        // Nothing to do. Expiration time is stored with the metadata
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteAllMessageMetadata(String storageQueueName) throws AndesException {
+        int deletedMessageCount = 0;
+        long version;
+        writeLock.lock();
+        try {
+            QueueIndex index = indexes.get(storageQueueName);
+            if (null != index) {
+                for (MessageEntry entry : index.getEntries().values()) {
+                    removeEntry(entry);
+                    deletedMessageCount++;
+                }
+            }
+            // Messages of the queue which are in a dead letter channel are deleted as well
+            for (QueueIndex dlcIndex : indexes.values()) {
+                if (dlcIndex == index || !DLCQueueUtils.isDeadLetterQueue(dlcIndex.getName())) {
+                    continue;
+                }
+                for (MessageEntry entry : dlcIndex.getEntries().values()) {
+                    if (storageQueueName.equals(entry.getQueueName())) {
+                        removeEntry(entry);
+                        deletedMessageCount++;
+                    }
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while deleting messages of queue " + storageQueueName, e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+        return deletedMessageCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int clearDLCQueue(String dlcQueueName) throws AndesException {
+        int deletedMessageCount = 0;
+        long version;
+        writeLock.lock();
+        try {
+            QueueIndex index = indexes.get(dlcQueueName);
+            if (null != index) {
+                for (MessageEntry entry : index.getEntries().values()) {
+                    removeEntry(entry);
+                    deletedMessageCount++;
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while clearing dead letter channel " + dlcQueueName, e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+        return deletedMessageCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongArrayList getMessageIDsAddressedToQueue(String storageQueueName, Long startMessageID)
+            throws AndesException {
+        LongArrayList messageIDs = new LongArrayList();
+        QueueIndex index = indexes.get(storageQueueName);
+        if (null == index) {
+            return messageIDs;
+        }
+
+        long firstMessageId = null == startMessageID ? 0 : startMessageID;
+        for (Long messageId : index.getEntries().tailMap(firstMessageId, true).keySet()) {
+            messageIDs.add(messageId);
+        }
+        return messageIDs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addQueue(String storageQueueName) throws AndesException {
+        writeLock.lock();
+        try {
+            getOrCreateIndex(storageQueueName);
+        } catch (IOException e) {
+            throw new AndesException("Error while creating index of queue " + storageQueueName, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> getMessageCountForAllQueues(List<String> queueNames) throws AndesException {
+        Map<String, Integer> queueMessageCountForName = new HashMap<>();
+        for (String queueName : queueNames) {
+            QueueIndex index = indexes.get(queueName);
+            if (null != index && !DLCQueueUtils.isDeadLetterQueue(queueName)) {
+                queueMessageCountForName.put(queueName, index.size());
+            }
+        }
+        return queueMessageCountForName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueue(String storageQueueName) throws AndesException {
+        QueueIndex index = indexes.get(storageQueueName);
+        return null == index ? 0 : index.size();
+    }
+
+    /**
+     * Message counts are kept in memory, hence the count is exact
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public long getApproximateQueueMessageCount(String storageQueueName) throws AndesException {
+        return getMessageCountForQueue(storageQueueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInDLC(String storageQueueName, String dlcQueueName) throws AndesException {
+        QueueIndex index = indexes.get(dlcQueueName);
+        if (null == index) {
+            return 0;
+        }
+
+        long count = 0;
+        for (MessageEntry entry : index.getEntries().values()) {
+            if (storageQueueName.equals(entry.getQueueName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForDLCQueue(String dlcQueueName) throws AndesException {
+        return getMessageCountForQueue(dlcQueueName);
+    }
+
+    /**
+     * Message counts are derived from the indexes
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetMessageCounterForQueue(String storageQueueName) throws AndesException {
+        // Nothing to do. Message counts are derived from the indexes
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeQueue(String storageQueueName) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            QueueIndex index = indexes.remove(storageQueueName);
+            if (null != index) {
+                for (MessageEntry entry : index.getEntries().values()) {
+                    messages.remove(entry.getMessageId(), entry);
+                    release(entry);
+                }
+                dirtyIndexes.remove(index);
+                index.delete();
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while removing queue " + storageQueueName, e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeLocalQueueData(String storageQueueName) {
+        // Nothing to do. There is no queue data apart from the index
+    }
+
+    /**
+     * Message counts are derived from the indexes
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementMessageCountForQueue(String storageQueueName, long incrementBy) throws AndesException {
+        // Nothing to do. Message counts are derived from the indexes
+    }
+
+    /**
+     * Message counts are derived from the indexes
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrementMessageCountForQueue(String storageQueueName, long decrementBy) throws AndesException {
+        // Nothing to do. Message counts are derived from the indexes
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeRetainedMessages(Map<String, AndesMessage> retainMap) throws AndesException {
+        long version;
+        writeLock.lock();
+        try {
+            for (AndesMessage message : retainMap.values()) {
+                String destination = message.getMetadata().getDestination();
+                MessageEntry existingEntry = retainedMessages.get(destination);
+                List<AndesMessagePart> contentChunks = message.getContentChunkList();
+                // Retain message shouldn't create a retain entry if it receives an empty payload, and an empty
+                // payload removes an existing retain entry
+                boolean emptyPayload = contentChunks.isEmpty() || contentChunks.get(0).getDataLength() == 0;
+
+                if (null != existingEntry) {
+                    removeRetainedEntry(existingEntry);
+                }
+                if (!emptyPayload) {
+                    storeRetainedMessage(message, destination);
+                }
+            }
+            version = ++writeVersion;
+        } catch (IOException e) {
+            throw new AndesException("Error while storing retained messages", e);
+        } finally {
+            writeLock.unlock();
+        }
+        sync(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllRetainedTopics() throws AndesException {
+        return new ArrayList<>(retainedMessages.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, AndesMessagePart> getRetainedContentParts(long messageID) throws AndesException {
+        Map<Integer, AndesMessagePart> contentParts = new HashMap<>();
+        MessageEntry entry = retainedMessagesById.get(messageID);
+        if (null == entry) {
+            return contentParts;
+        }
+
+        long[] content = entry.getContent();
+        for (int i = 0; i < content.length; i = i + 2) {
+            AndesMessagePart part = readContent(entry, (int) content[i]);
+            if (null != part) {
+                contentParts.put(part.getOffset(), part);
+            }
+        }
+        return contentParts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeliverableAndesMetadata getRetainedMetadata(String destination) throws AndesException {
+        MessageEntry entry = retainedMessages.get(destination);
+        if (null == entry) {
+            return null;
+        }
+        byte[] metadata = readMetadata(entry);
+        return null == metadata ? null : new DeliverableAndesMetadata(null, entry.getMessageId(), metadata, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getMessageIdsInDLCForQueue(String sourceQueueName, String dlcQueueName, long startMessageId,
+            int messageLimit) throws AndesException {
+        List<Long> messageIDs = new ArrayList<>();
+        QueueIndex index = indexes.get(dlcQueueName);
+        if (null == index) {
+            return messageIDs;
+        }
+
+        for (MessageEntry entry : index.getEntries().tailMap(startMessageId, false).values()) {
+            if (messageIDs.size() == messageLimit) {
+                break;
+            }
+            if (sourceQueueName.equals(entry.getQueueName())) {
+                messageIDs.add(entry.getMessageId());
+            }
+        }
+        return messageIDs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getMessageIdsInDLC(String dlcQueueName, long startMessageId, int messageLimit)
+            throws AndesException {
+        List<Long> messageIDs = new ArrayList<>();
+        QueueIndex index = indexes.get(dlcQueueName);
+        if (null == index) {
+            return messageIDs;
+        }
+
+        for (Long messageId : index.getEntries().tailMap(startMessageId, false).keySet()) {
+            if (messageIDs.size() == messageLimit) {
+                break;
+            }
+            messageIDs.add(messageId);
+        }
+        return messageIDs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        compactionExecutor.shutdownNow();
+
+        writeLock.lock();
+        try {
+            messageLog.close();
+            for (QueueIndex index : indexes.values()) {
+                closeIndex(index);
+            }
+            closeIndex(retainedIndex);
+            indexes.clear();
+            messages.clear();
+            retainedMessages.clear();
+            retainedMessagesById.clear();
+            dirtyIndexes.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DtxStore getDtxStore() {
+        return dtxStore;
+    }
+
+    /**
+     * {@inheritDoc} The store is operational while it is open and its directory is writable.
+     */
+    @Override
+    public boolean isOperational(String testString, long testTime) {
+        return !closed && directory.canWrite();
+    }
+
+    /**
+     * Append the records of a message and add it to the index of its queue. Records appended before a failure are
+     * released. Must be called while holding the write lock.
+     *
+     * @return entry of the stored message
+     */
+    private MessageEntry storeMessage(AndesMessage message) throws IOException {
+        AndesMessageMetadata metadata = message.getMetadata();
+        long messageId = metadata.getMessageID();
+        long expirationTime = metadata.isExpirationDefined() ? metadata.getExpirationTime() : 0;
+
+        MessageEntry existingEntry = messages.get(messageId);
+        if (null != existingEntry) {
+            removeEntry(existingEntry);
+        }
+
+        long location = messageLog.append(METADATA_RECORD,
+                encodeMetadata(messageId, expirationTime, metadata.getMetadata()));
+        MessageEntry entry = new MessageEntry(messageId, metadata.getStorageQueueName(), location, ++sequence);
+        entry.setExpirationTime(expirationTime);
+        QueueIndex index;
+        try {
+            for (AndesMessagePart part : message.getContentChunkList()) {
+                appendContent(entry, CONTENT_RECORD, part);
+            }
+
+            index = getOrCreateIndex(entry.getIndexName());
+            index.write(QueueIndex.ADD, entry.getSequence(), messageId, location, index.sourceOf(entry));
+        } catch (IOException e) {
+            release(entry);
+            throw e;
+        }
+        dirtyIndexes.add(index);
+        messages.put(messageId, entry);
+        index.put(entry);
+        return entry;
+    }
+
+    /**
+     * Remove messages of a batch which failed to be written. The removals are flushed with the next write. Must be
+     * called while holding the write lock.
+     *
+     * @param storedEntries entries stored by the batch
+     */
+    private void removeStoredEntries(List<MessageEntry> storedEntries) {
+        for (int i = storedEntries.size() - 1; i >= 0; i--) {
+            MessageEntry entry = storedEntries.get(i);
+            try {
+                removeEntry(entry);
+            } catch (IOException e) {
+                log.error("Error while removing message " + entry.getMessageId() + " of a failed batch from the "
+                        + "index of " + entry.getIndexName(), e);
+            }
+        }
+        ++writeVersion;
+    }
+
+    /**
+     * Append the records of a retained message and add it to the retained index. Must be called while holding the
+     * write lock.
+     */
+    private void storeRetainedMessage(AndesMessage message, String destination) throws IOException {
+        AndesMessageMetadata metadata = message.getMetadata();
+        long messageId = metadata.getMessageID();
+        long location = messageLog.append(RETAINED_METADATA_RECORD,
+                encodeMetadata(messageId, 0, metadata.getMetadata()));
+        MessageEntry entry = new MessageEntry(messageId, destination, location, ++sequence);
+        for (AndesMessagePart part : message.getContentChunkList()) {
+            appendContent(entry, RETAINED_CONTENT_RECORD, part);
+        }
+
+        retainedIndex.write(QueueIndex.ADD, entry.getSequence(), messageId, location, destination);
+        dirtyIndexes.add(retainedIndex);
+        retainedIndex.put(entry);
+        retainedMessages.put(destination, entry);
+        retainedMessagesById.put(messageId, entry);
+    }
+
+    /**
+     * Append a content record of a message. Must be called while holding the write lock.
+     */
+    private void appendContent(MessageEntry entry, byte recordType, AndesMessagePart part) throws IOException {
+        long location = messageLog.append(recordType,
+                encodeContent(entry.getMessageId(), part.getOffset(), part.getData()));
+        long replacedLocation = entry.putContent(part.getOffset(), location);
+        if (replacedLocation >= 0) {
+            messageLog.release(replacedLocation);
+        }
+    }
+
+    /**
+     * Move a message to a dead letter channel. Must be called while holding the write lock.
+     */
+    private void moveToDLC(long messageId, String dlcQueueName) throws IOException {
+        MessageEntry entry = messages.get(messageId);
+        if (null != entry) {
+            relist(entry, entry.getQueueName(), dlcQueueName, entry.getMetadataLocation());
+        }
+    }
+
+    /**
+     * Change the queue, dead letter channel or metadata location of a message. An entry is added to the index the
+     * message is listed under before the message is removed from its previous index, so that the message is not lost
+     * if only one of the changes is flushed. Must be called while holding the write lock.
+     */
+    private void relist(MessageEntry entry, String queueName, String dlcQueueName, long metadataLocation)
+            throws IOException {
+        QueueIndex previousIndex = indexes.get(entry.getIndexName());
+        if (null != previousIndex) {
+            previousIndex.remove(entry.getMessageId());
+        }
+
+        entry.setQueueName(queueName);
+        entry.setDlcQueueName(dlcQueueName);
+        entry.setMetadataLocation(metadataLocation);
+        entry.setSequence(++sequence);
+
+        QueueIndex index = getOrCreateIndex(entry.getIndexName());
+        index.write(QueueIndex.ADD, entry.getSequence(), entry.getMessageId(), metadataLocation,
+                index.sourceOf(entry));
+        dirtyIndexes.add(index);
+        index.put(entry);
+
+        if (null != previousIndex && previousIndex != index) {
+            previousIndex.write(QueueIndex.REMOVE, ++sequence, entry.getMessageId(), metadataLocation, "");
+            dirtyIndexes.add(previousIndex);
+        }
+    }
+
+    /**
+     * Remove a message from its index and release its records. Must be called while holding the write lock.
+     */
+    private void removeEntry(MessageEntry entry) throws IOException {
+        QueueIndex index = indexes.get(entry.getIndexName());
+        if (null != index && null != index.remove(entry.getMessageId())) {
+            index.write(QueueIndex.REMOVE, ++sequence, entry.getMessageId(), entry.getMetadataLocation(), "");
+            dirtyIndexes.add(index);
+        }
+        messages.remove(entry.getMessageId(), entry);
+        release(entry);
+    }
+
+    /**
+     * Remove a retained message from the retained index and release its records. Must be called while holding the
+     * write lock.
+     */
+    private void removeRetainedEntry(MessageEntry entry) throws IOException {
+        if (null != retainedIndex.remove(entry.getMessageId())) {
+            retainedIndex.write(QueueIndex.REMOVE, ++sequence, entry.getMessageId(), entry.getMetadataLocation(), "");
+            dirtyIndexes.add(retainedIndex);
+        }
+        retainedMessages.remove(entry.getQueueName(), entry);
+        retainedMessagesById.remove(entry.getMessageId(), entry);
+        release(entry);
+    }
+
+    /**
+     * Release the metadata and content records of a message
+     */
+    private void release(MessageEntry entry) {
+        messageLog.release(entry.getMetadataLocation());
+        long[] content = entry.getContent();
+        for (int i = 0; i < content.length; i = i + 2) {
+            messageLog.release(content[i + 1]);
+        }
+    }
+
+    /**
+     * Get the index of a queue, creating the index file if it does not exist. Must be called while holding the write
+     * lock.
+     */
+    private QueueIndex getOrCreateIndex(String queueName) throws IOException {
+        QueueIndex index = indexes.get(queueName);
+        if (null == index) {
+            index = QueueIndex.open(indexDirectory, queueName);
+            indexes.put(queueName, index);
+        }
+        return index;
+    }
+
+    /**
+     * Flush writes to the disk unless they were already flushed by another writer. Segments which became unused
+     * before the flush are deleted once the records replacing them are flushed.
+     *
+     * @param version write version to flush up to
+     * @throws AndesException if flushing fails
+     */
+    private void sync(long version) throws AndesException {
+        synchronized (syncMonitor) {
+            if (syncedVersion >= version) {
+                return;
+            }
+
+            long targetVersion;
+            List<QueueIndex> indexesToForce;
+            List<LogSegment> unusedSegments;
+            writeLock.lock();
+            try {
+                if (closed) {
+                    throw new AndesException("Message store at " + directory + " is closed");
+                }
+                targetVersion = writeVersion;
+                indexesToForce = new ArrayList<>(dirtyIndexes);
+                dirtyIndexes.clear();
+                unusedSegments = messageLog.getUnusedSegments();
+            } finally {
+                writeLock.unlock();
+            }
+
+            if (fsync) {
+                try {
+                    messageLog.force();
+                    for (QueueIndex index : indexesToForce) {
+                        forceIndex(index);
+                    }
+                } catch (IOException e) {
+                    throw new AndesException("Error while flushing message store at " + directory, e);
+                }
+            }
+
+            messageLog.deleteSegments(unusedSegments);
+            syncedVersion = targetVersion;
+        }
+    }
+
+    /**
+     * Flush an index. An index closed meanwhile was either deleted or rewritten, and a rewritten index is flushed
+     * when it is written.
+     */
+    private void forceIndex(QueueIndex index) throws IOException {
+        try {
+            index.force();
+        } catch (ClosedChannelException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Index " + index + " was closed before it was flushed", e);
+            }
+        }
+    }
+
+    /**
+     * Copy live records of sparse segments to the end of the log and rewrite index files which mostly hold removed
+     * entries
+     */
+    void compact() {
+        try {
+            for (LogSegment segment : messageLog.getSparseSegments(compactionThreshold)) {
+                long version;
+                writeLock.lock();
+                try {
+                    if (closed) {
+                        return;
+                    }
+                    relocate(segment);
+                    version = ++writeVersion;
+                } finally {
+                    writeLock.unlock();
+                }
+                sync(version);
+            }
+
+            long version;
+            writeLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                for (QueueIndex index : indexes.values()) {
+                    if (index.needsRewrite()) {
+                        index.rewrite();
+                    }
+                }
+                if (retainedIndex.needsRewrite()) {
+                    retainedIndex.rewrite();
+                }
+                version = ++writeVersion;
+            } finally {
+                writeLock.unlock();
+            }
+            sync(version);
+        } catch (AndesException | IOException | RuntimeException e) {
+            log.error("Error while compacting message store at " + directory, e);
+        }
+    }
+
+    /**
+     * Copy the live records of a segment to the end of the log. Must be called while holding the write lock.
+     */
+    private void relocate(LogSegment segment) throws IOException {
+        final LongArrayList livePositions = new LongArrayList();
+        segment.forEach(new LogSegment.RecordVisitor() {
+            @Override
+            public void visit(LogSegment segment, int position, byte type, byte[] body) {
+                if (null != findOwner(MessageLog.toLocation(segment.getSegmentId(), position), type, body)) {
+                    livePositions.add(position);
+                }
+            }
+        });
+
+        for (int i = 0; i < livePositions.size(); i++) {
+            int position = (int) livePositions.get(i);
+            long location = MessageLog.toLocation(segment.getSegmentId(), position);
+            byte type = segment.readType(position);
+            byte[] body = segment.readBody(position);
+            MessageEntry entry = findOwner(location, type, body);
+            long newLocation = messageLog.append(type, body);
+
+            if (METADATA_RECORD == type) {
+                relist(entry, entry.getQueueName(), entry.getDlcQueueName(), newLocation);
+            } else if (RETAINED_METADATA_RECORD == type) {
+                retainedIndex.remove(entry.getMessageId());
+                entry.setMetadataLocation(newLocation);
+                entry.setSequence(++sequence);
+                retainedIndex.write(QueueIndex.ADD, entry.getSequence(), entry.getMessageId(), newLocation,
+                        entry.getQueueName());
+                dirtyIndexes.add(retainedIndex);
+                retainedIndex.put(entry);
+            } else {
+                entry.putContent(ByteBuffer.wrap(body).getInt(8), newLocation);
+            }
+            messageLog.release(location);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Relocated " + livePositions.size() + " records of message log segment " + segment);
+        }
+    }
+
+    /**
+     * Find the message a record belongs to
+     *
+     * @return message entry or null if the record is not live
+     */
+    private MessageEntry findOwner(long location, byte type, byte[] body) {
+        long messageId = ByteBuffer.wrap(body).getLong(0);
+        boolean retained = RETAINED_METADATA_RECORD == type || RETAINED_CONTENT_RECORD == type;
+        MessageEntry entry = retained ? retainedMessagesById.get(messageId) : messages.get(messageId);
+        if (null == entry) {
+            return null;
+        }
+
+        if (METADATA_RECORD == type || RETAINED_METADATA_RECORD == type) {
+            return entry.getMetadataLocation() == location ? entry : null;
+        }
+        return entry.getContentLocation(ByteBuffer.wrap(body).getInt(8)) == location ? entry : null;
+    }
+
+    /**
+     * Rebuild the in memory state from the index files and the log
+     */
+    private void recover() throws IOException {
+        final long[] maxSequence = new long[1];
+
+        // Replay the index files. A later change of a message ID within an index replaces earlier ones
+        File[] indexFiles = indexDirectory.listFiles();
+        if (null != indexFiles) {
+            for (File indexFile : indexFiles) {
+                if (!QueueIndex.isIndexFile(indexFile)) {
+                    continue;
+                }
+                QueueIndex index = QueueIndex.open(indexDirectory, QueueIndex.queueNameOf(indexFile));
+                indexes.put(index.getName(), index);
+                index.recover(new QueueIndex.EntryVisitor() {
+                    @Override
+                    public void visit(QueueIndex index, byte operation, long entrySequence, long messageId,
+                                      long location, String source) {
+                        maxSequence[0] = Math.max(maxSequence[0], entrySequence);
+                        if (QueueIndex.ADD == operation) {
+                            MessageEntry entry = new MessageEntry(messageId,
+                                    source.isEmpty() ? index.getName() : source, location, entrySequence);
+                            if (!source.isEmpty()) {
+                                entry.setDlcQueueName(index.getName());
+                            }
+                            index.put(entry);
+                        } else {
+                            index.remove(messageId);
+                        }
+                    }
+                });
+            }
+        }
+
+        retainedIndex.recover(new QueueIndex.EntryVisitor() {
+            @Override
+            public void visit(QueueIndex index, byte operation, long entrySequence, long messageId, long location,
+                              String source) {
+                maxSequence[0] = Math.max(maxSequence[0], entrySequence);
+                if (QueueIndex.ADD == operation) {
+                    index.put(new MessageEntry(messageId, source, location, entrySequence));
+                } else {
+                    index.remove(messageId);
+                }
+            }
+        });
+        sequence = maxSequence[0];
+
+        // A message left in two indexes by a move which was partly flushed belongs to the later one
+        for (QueueIndex index : indexes.values()) {
+            for (MessageEntry entry : index.getEntries().values()) {
+                MessageEntry existingEntry = messages.get(entry.getMessageId());
+                if (null == existingEntry) {
+                    messages.put(entry.getMessageId(), entry);
+                } else if (existingEntry.getSequence() < entry.getSequence()) {
+                    messages.put(entry.getMessageId(), entry);
+                    dropIndexEntry(existingEntry);
+                } else {
+                    dropIndexEntry(entry);
+                }
+            }
+        }
+        for (MessageEntry entry : retainedIndex.getEntries().values()) {
+            MessageEntry existingEntry = retainedMessages.get(entry.getQueueName());
+            if (null == existingEntry || existingEntry.getSequence() < entry.getSequence()) {
+                retainedMessages.put(entry.getQueueName(), entry);
+            }
+        }
+        for (MessageEntry entry : retainedMessages.values()) {
+            retainedMessagesById.put(entry.getMessageId(), entry);
+        }
+
+        // Scan the log to validate metadata locations and find the content records
+        final Set<Long> validMessages = new HashSet<>();
+        final Set<Long> validRetainedMessages = new HashSet<>();
+        messageLog.recover(new LogSegment.RecordVisitor() {
+            @Override
+            public void visit(LogSegment segment, int position, byte type, byte[] body) {
+                long location = MessageLog.toLocation(segment.getSegmentId(), position);
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                long messageId = buffer.getLong(0);
+                boolean retained = RETAINED_METADATA_RECORD == type || RETAINED_CONTENT_RECORD == type;
+                MessageEntry entry = retained ? retainedMessagesById.get(messageId) : messages.get(messageId);
+                if (null == entry) {
+                    return;
+                }
+
+                if (METADATA_RECORD == type || RETAINED_METADATA_RECORD == type) {
+                    if (entry.getMetadataLocation() == location) {
+                        entry.setExpirationTime(buffer.getLong(8));
+                        (retained ? validRetainedMessages : validMessages).add(messageId);
+                    }
+                } else {
+                    // Records relocated by compaction are written later, hence replace earlier copies
+                    entry.putContent(buffer.getInt(8), location);
+                }
+            }
+        });
+
+        // Drop messages whose index entry was flushed without their records, and mark the records of the rest live
+        for (MessageEntry entry : new ArrayList<>(messages.values())) {
+            if (validMessages.contains(entry.getMessageId())) {
+                retain(entry);
+            } else {
+                log.warn("Metadata of message " + entry.getMessageId() + " in queue " + entry.getIndexName()
+                        + " is missing in the message log. Message is dropped.");
+                messages.remove(entry.getMessageId());
+                dropIndexEntry(entry);
+            }
+        }
+        for (MessageEntry entry : new ArrayList<>(retainedMessages.values())) {
+            if (validRetainedMessages.contains(entry.getMessageId())) {
+                retain(entry);
+            } else {
+                retainedMessages.remove(entry.getQueueName());
+                retainedMessagesById.remove(entry.getMessageId());
+            }
+        }
+        for (MessageEntry entry : new ArrayList<>(retainedIndex.getEntries().values())) {
+            if (retainedMessagesById.get(entry.getMessageId()) != entry) {
+                retainedIndex.remove(entry.getMessageId());
+                retainedIndex.write(QueueIndex.REMOVE, ++sequence, entry.getMessageId(), entry.getMetadataLocation(),
+                        "");
+            }
+        }
+
+        messageLog.deleteSegments(messageLog.getUnusedSegments());
+
+        for (QueueIndex index : indexes.values()) {
+            if (index.needsRewrite()) {
+                index.rewrite();
+            }
+            index.force();
+        }
+        if (retainedIndex.needsRewrite()) {
+            retainedIndex.rewrite();
+        }
+        retainedIndex.force();
+    }
+
+    /**
+     * Remove an entry from its index while recovering
+     */
+    private void dropIndexEntry(MessageEntry entry) throws IOException {
+        QueueIndex index = indexes.get(entry.getIndexName());
+        if (index.get(entry.getMessageId()) == entry) {
+            index.remove(entry.getMessageId());
+            index.write(QueueIndex.REMOVE, ++sequence, entry.getMessageId(), entry.getMetadataLocation(), "");
+        }
+    }
+
+    /**
+     * Mark the records of a recovered message live
+     */
+    private void retain(MessageEntry entry) {
+        messageLog.retain(entry.getMetadataLocation());
+        long[] content = entry.getContent();
+        for (int i = 0; i < content.length; i = i + 2) {
+            messageLog.retain(content[i + 1]);
+        }
+    }
+
+    /**
+     * Read metadata of messages in an index in message ID order
+     *
+     * @param indexName        queue or dead letter channel
+     * @param storageQueueName if not null only messages of this queue are read
+     * @param firstMsgId       first message ID to read
+     * @param count            maximum number of messages to read
+     * @return metadata list
+     */
+    private List<AndesMessageMetadata> readMetadataFromIndex(String indexName, String storageQueueName,
+                                                             long firstMsgId, int count) {
+        List<AndesMessageMetadata> mdList = new ArrayList<>(count);
+        QueueIndex index = indexes.get(indexName);
+        if (null == index) {
+            return mdList;
+        }
+
+        for (MessageEntry entry : index.getEntries().tailMap(firstMsgId, true).values()) {
+            if (mdList.size() == count) {
+                break;
+            }
+            if (null != storageQueueName && !storageQueueName.equals(entry.getQueueName())) {
+                continue;
+            }
+            byte[] metadata = readMetadata(entry);
+            if (null != metadata) {
+                AndesMessageMetadata md = new AndesMessageMetadata(entry.getMessageId(), metadata, true);
+                md.setStorageQueueName(entry.getQueueName());
+                mdList.add(md);
+            }
+        }
+        return mdList;
+    }
+
+    /**
+     * Read the metadata of a message. The read is retried if the metadata record is relocated meanwhile.
+     *
+     * @return metadata or null if the message was deleted meanwhile
+     */
+    private byte[] readMetadata(MessageEntry entry) {
+        long location = entry.getMetadataLocation();
+        byte[] body = messageLog.read(location);
+        if (null == body && location != entry.getMetadataLocation()) {
+            body = messageLog.read(entry.getMetadataLocation());
+        }
+        if (null == body) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        byte[] metadata = new byte[buffer.getInt(16)];
+        buffer.position(20);
+        buffer.get(metadata);
+        return metadata;
+    }
+
+    /**
+     * Read a content record of a message. The read is retried if the content record is relocated meanwhile.
+     *
+     * @param entry  message the content belongs to
+     * @param offset offset of the content chunk
+     * @return message part or null if the message has no chunk at the offset or was deleted meanwhile
+     * @throws AndesException if the record of a message which is not deleted cannot be read
+     */
+    private AndesMessagePart readContent(MessageEntry entry, int offset) throws AndesException {
+        long location = entry.getContentLocation(offset);
+        if (location < 0) {
+            return null;
+        }
+        byte[] body = messageLog.read(location);
+        while (null == body) {
+            // Compaction relocates live records before deleting their segment, hence a record which cannot be read
+            // has a new location unless its message was deleted
+            long relocatedLocation = entry.getContentLocation(offset);
+            if (relocatedLocation == location) {
+                if (isDeleted(entry)) {
+                    return null;
+                }
+                throw new AndesException("Content of message " + entry.getMessageId() + " at offset " + offset
+                        + " could not be read from location " + location);
+            }
+            if (relocatedLocation < 0) {
+                return null;
+            }
+            location = relocatedLocation;
+            body = messageLog.read(location);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        AndesMessagePart part = new AndesMessagePart();
+        part.setMessageID(buffer.getLong());
+        part.setOffSet(buffer.getInt());
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        part.setData(data);
+        return part;
+    }
+
+    /**
+     * Check if a message or retained message is no longer kept by the store
+     */
+    private boolean isDeleted(MessageEntry entry) {
+        return messages.get(entry.getMessageId()) != entry && retainedMessagesById.get(entry.getMessageId()) != entry;
+    }
+
+    private static boolean isExpired(MessageEntry entry, long now) {
+        long expirationTime = entry.getExpirationTime();
+        return expirationTime > 0 && expirationTime < now;
+    }
+
+    private void closeIndex(QueueIndex index) {
+        try {
+            index.force();
+            index.close();
+        } catch (IOException e) {
+            log.error("Error while closing index " + index, e);
+        }
+    }
+
+    /**
+     * Encode a metadata record as | message ID | expiration time | metadata length | metadata |
+     */
+    private static byte[] encodeMetadata(long messageId, long expirationTime, byte[] metadata) {
+        ByteBuffer buffer = ByteBuffer.allocate(20 + metadata.length);
+        buffer.putLong(messageId);
+        buffer.putLong(expirationTime);
+        buffer.putInt(metadata.length);
+        buffer.put(metadata);
+        return buffer.array();
+    }
+
+    /**
+     * Encode a content record as | message ID | offset | data length | data |
+     */
+    private static byte[] encodeContent(long messageId, int offset, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(16 + data.length);
+        buffer.putLong(messageId);
+        buffer.putInt(offset);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        return buffer.array();
+    }
+}
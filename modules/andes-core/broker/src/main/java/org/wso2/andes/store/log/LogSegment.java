@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append only file of records mapped to memory. Each record is written as
+ * <pre>
+ * | body length (int) | CRC32 of type and body (int) | type (byte) | body |
+ * </pre>
+ * The file is created with its full size, hence a zero body length marks the end of the written records. Records
+ * which fail the checksum, such as records partially written before a crash, are treated as the end of the segment.
+ * <p/>
+ * Appends must be done by a single thread at a time. Records can be read concurrently once they are appended.
+ * Deleting the segment unmaps the file, after which reading a record body gives null.
+ */
+final class LogSegment {
+
+    private static final Log log = LogFactory.getLog(LogSegment.class);
+
+    /**
+     * Size of the header written before the body of a record
+     */
+    static final int RECORD_HEADER_SIZE = 9;
+
+    private static final String FILE_SUFFIX = ".segment";
+
+    private final int segmentId;
+
+    private final File file;
+
+    private final RandomAccessFile randomAccessFile;
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Held for reading while record bodies are read concurrently and for writing while the buffer is unmapped, since
+     * accessing an unmapped buffer crashes the JVM
+     */
+    private final ReadWriteLock unmapLock = new ReentrantReadWriteLock();
+
+    /**
+     * Set once the buffer is unmapped. Guarded by the unmap lock.
+     */
+    private boolean unmapped;
+
+    /**
+     * Position after the last written record
+     */
+    private volatile int writePosition;
+
+    /**
+     * Total size of records which are still referenced. Guarded by the {@link MessageLog}
+     */
+    private long liveBytes;
+
+    private LogSegment(int segmentId, File file, int capacity) throws IOException {
+        this.segmentId = segmentId;
+        this.file = file;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        if (randomAccessFile.length() < capacity) {
+            randomAccessFile.setLength(capacity);
+        }
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length());
+    }
+
+    /**
+     * Create a new empty segment file
+     *
+     * @param directory directory of segment files
+     * @param segmentId ID of the segment. IDs should increase in the order segments are created.
+     * @param capacity  size of the segment file in bytes
+     * @return created segment
+     * @throws IOException if the file cannot be created
+     */
+    static LogSegment create(File directory, int segmentId, int capacity) throws IOException {
+        File file = new File(directory, String.format("%010d", segmentId) + FILE_SUFFIX);
+        if (file.exists()) {
+            throw new IOException("Segment file " + file + " already exists");
+        }
+        return new LogSegment(segmentId, file, capacity);
+    }
+
+    /**
+     * Open an existing segment file. Records should be read with {@link #recover(RecordVisitor)} before appending.
+     *
+     * @param file segment file
+     * @return opened segment
+     * @throws IOException if the file cannot be opened
+     */
+    static LogSegment open(File file) throws IOException {
+        String fileName = file.getName();
+        int segmentId = Integer.parseInt(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+        return new LogSegment(segmentId, file, 0);
+    }
+
+    /**
+     * Check whether the file is a segment file
+     *
+     * @param file file in the log directory
+     * @return true if the file is a segment file
+     */
+    static boolean isSegmentFile(File file) {
+        return file.getName().endsWith(FILE_SUFFIX);
+    }
+
+    /**
+     * Append a record
+     *
+     * @param type type of the record
+     * @param body body of the record
+     * @return position of the record or -1 if the segment does not have enough space
+     */
+    int append(byte type, byte[] body) {
+        int position = writePosition;
+        int recordSize = RECORD_HEADER_SIZE + body.length;
+        if (position + recordSize > buffer.capacity()) {
+            return -1;
+        }
+
+        ByteBuffer writeBuffer = buffer.duplicate();
+        writeBuffer.position(position + 4);
+        writeBuffer.putInt(checksum(type, body, 0, body.length));
+        writeBuffer.put(type);
+        writeBuffer.put(body);
+        // Length is written last, since a non zero length marks a written record
+        writeBuffer.putInt(position, body.length);
+
+        writePosition = position + recordSize;
+        return position;
+    }
+
+    /**
+     * Read the type of a record
+     *
+     * @param position position of the record
+     * @return record type
+     */
+    byte readType(int position) {
+        return buffer.get(position + 8);
+    }
+
+    /**
+     * Read the body of a record
+     *
+     * @param position position of the record
+     * @return record body or null if the segment is deleted
+     */
+    byte[] readBody(int position) {
+        unmapLock.readLock().lock();
+        try {
+            return unmapped ? null : copyBody(position);
+        } finally {
+            unmapLock.readLock().unlock();
+        }
+    }
+
+    private byte[] copyBody(int position) {
+        ByteBuffer readBuffer = buffer.duplicate();
+        int bodyLength = readBuffer.getInt(position);
+        byte[] body = new byte[bodyLength];
+        readBuffer.position(position + RECORD_HEADER_SIZE);
+        readBuffer.get(body);
+        return body;
+    }
+
+    /**
+     * Size of a record including the header
+     *
+     * @param position position of the record
+     * @return record size in bytes
+     */
+    int recordSize(int position) {
+        return RECORD_HEADER_SIZE + buffer.getInt(position);
+    }
+
+    /**
+     * Read all the valid records from the start of the segment and set the write position after the last one
+     *
+     * @param visitor visitor called for each record
+     */
+    void recover(RecordVisitor visitor) {
+        ByteBuffer readBuffer = buffer.duplicate();
+        int position = 0;
+
+        while (position + RECORD_HEADER_SIZE <= readBuffer.capacity()) {
+            int bodyLength = readBuffer.getInt(position);
+            if (bodyLength <= 0 || position + RECORD_HEADER_SIZE + bodyLength > readBuffer.capacity()) {
+                break;
+            }
+
+            int storedChecksum = readBuffer.getInt(position + 4);
+            byte type = readBuffer.get(position + 8);
+            byte[] body = new byte[bodyLength];
+            readBuffer.position(position + RECORD_HEADER_SIZE);
+            readBuffer.get(body);
+            if (storedChecksum != checksum(type, body, 0, bodyLength)) {
+                break;
+            }
+
+            visitor.visit(this, position, type, body);
+            position = position + RECORD_HEADER_SIZE + bodyLength;
+        }
+
+        // Clear what is left of a partially written record so that it is not mistaken for a record later
+        if (position + 4 <= readBuffer.capacity()) {
+            readBuffer.putInt(position, 0);
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Read the records written to the segment without validating them. Nothing is read if the segment is deleted.
+     *
+     * @param visitor visitor called for each record
+     */
+    void forEach(RecordVisitor visitor) {
+        unmapLock.readLock().lock();
+        try {
+            int end = unmapped ? 0 : writePosition;
+            int position = 0;
+            while (position < end) {
+                visitor.visit(this, position, readType(position), copyBody(position));
+                position = position + recordSize(position);
+            }
+        } finally {
+            unmapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flush the written records to the disk
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Close the segment file. Buffers already read stay valid.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+    /**
+     * Close, unmap and delete the segment file. Reads in progress are completed first.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        close();
+        unmapLock.writeLock().lock();
+        try {
+            if (!unmapped) {
+                unmapped = true;
+                unmap(buffer);
+            }
+        } finally {
+            unmapLock.writeLock().unlock();
+        }
+        if (!file.delete()) {
+            throw new IOException("Could not delete segment file " + file);
+        }
+    }
+
+    int getSegmentId() {
+        return segmentId;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes(long bytes) {
+        liveBytes = liveBytes + bytes;
+    }
+
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+
+    /**
+     * Release the memory mapping of a buffer without waiting for it to be garbage collected. Otherwise deleted
+     * segments keep their address space and disk blocks, and the files cannot be deleted on Windows. The buffer must
+     * not be accessed afterwards.
+     *
+     * @param buffer buffer to unmap
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (NoSuchMethodException e) {
+            // Java 8 and earlier
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (null != cleaner) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            } catch (ReflectiveOperationException | RuntimeException cleanerError) {
+                log.warn("Could not unmap segment buffer. It is released when garbage collected.", cleanerError);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Could not unmap segment buffer. It is released when garbage collected.", e);
+        }
+    }
+
+    private static int checksum(byte type, byte[] body, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(body, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Callback for records read while recovering a segment
+     */
+    interface RecordVisitor {
+
+        /**
+         * Called for each valid record in the order they were written
+         *
+         * @param segment  segment of the record
+         * @param position position of the record in the segment
+         * @param type     record type
+         * @param body     record body
+         */
+        void visit(LogSegment segment, int position, byte type, byte[] body);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import org.wso2.andes.kernel.DurableStoreConnection;
+
+import java.io.File;
+
+/**
+ * Connection of the {@link LogMessageStoreImpl}. The log store has no connection as such, hence this only exposes
+ * the directory the store writes to.
+ */
+public class LogStoreConnection extends DurableStoreConnection {
+
+    private final LogMessageStoreImpl messageStore;
+
+    private final File directory;
+
+    LogStoreConnection(LogMessageStoreImpl messageStore, File directory) {
+        this.messageStore = messageStore;
+        this.directory = directory;
+    }
+
+    /**
+     * Close the message store
+     */
+    @Override
+    public void close() {
+        messageStore.close();
+    }
+
+    /**
+     * @return directory of the message store
+     */
+    @Override
+    public Object getConnection() {
+        return directory;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import java.util.Arrays;
+
+/**
+ * In memory reference to a message stored in the {@link MessageLog}. Holds the location of the metadata record and
+ * the locations of the content records of the message.
+ * <p/>
+ * Entries are changed only while holding the lock of the store, but can be read concurrently.
+ */
+final class MessageEntry {
+
+    private static final long[] NO_CONTENT = new long[0];
+
+    private final long messageId;
+
+    /**
+     * Storage queue of a message, or the destination of a retained message
+     */
+    private volatile String queueName;
+
+    /**
+     * Dead letter channel the message is in, or null
+     */
+    private volatile String dlcQueueName;
+
+    private volatile long metadataLocation;
+
+    /**
+     * Sequence of the index entry which added this entry
+     */
+    private volatile long sequence;
+
+    private volatile long expirationTime;
+
+    /**
+     * Offset and location pairs of the content records, ordered by offset. Replaced on each change so that readers
+     * always see a consistent array.
+     */
+    private volatile long[] content = NO_CONTENT;
+
+    MessageEntry(long messageId, String queueName, long metadataLocation, long sequence) {
+        this.messageId = messageId;
+        this.queueName = queueName;
+        this.metadataLocation = metadataLocation;
+        this.sequence = sequence;
+    }
+
+    long getMessageId() {
+        return messageId;
+    }
+
+    String getQueueName() {
+        return queueName;
+    }
+
+    void setQueueName(String queueName) {
+        this.queueName = queueName;
+    }
+
+    String getDlcQueueName() {
+        return dlcQueueName;
+    }
+
+    void setDlcQueueName(String dlcQueueName) {
+        this.dlcQueueName = dlcQueueName;
+    }
+
+    /**
+     * Name of the index the message is listed under
+     *
+     * @return dead letter channel if the message is in one, or else the storage queue
+     */
+    String getIndexName() {
+        String dlc = dlcQueueName;
+        return null == dlc ? queueName : dlc;
+    }
+
+    long getMetadataLocation() {
+        return metadataLocation;
+    }
+
+    void setMetadataLocation(long metadataLocation) {
+        this.metadataLocation = metadataLocation;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    long getExpirationTime() {
+        return expirationTime;
+    }
+
+    void setExpirationTime(long expirationTime) {
+        this.expirationTime = expirationTime;
+    }
+
+    /**
+     * Set the location of a content record. Replaces the location of an existing record with the same offset.
+     *
+     * @param offset   offset of the content chunk
+     * @param location location of the content record
+     * @return replaced location or -1 if there was no record for the offset
+     */
+    long putContent(int offset, long location) {
+        long[] current = content;
+        int index = indexOf(current, offset);
+        long[] updated;
+        if (index >= 0) {
+            long replaced = current[index + 1];
+            updated = current.clone();
+            updated[index + 1] = location;
+            content = updated;
+            return replaced;
+        }
+
+        int insertAt = -(index + 1);
+        updated = new long[current.length + 2];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = offset;
+        updated[insertAt + 1] = location;
+        System.arraycopy(current, insertAt, updated, insertAt + 2, current.length - insertAt);
+        content = updated;
+        return -1;
+    }
+
+    /**
+     * Get the location of a content record
+     *
+     * @param offset offset of the content chunk
+     * @return location or -1 if there is no record for the offset
+     */
+    long getContentLocation(int offset) {
+        long[] current = content;
+        int index = indexOf(current, offset);
+        return index >= 0 ? current[index + 1] : -1;
+    }
+
+    /**
+     * Offset and location pairs of all the content records ordered by offset. Should not be modified.
+     *
+     * @return content offsets and locations
+     */
+    long[] getContent() {
+        return content;
+    }
+
+    /**
+     * Find the array index of an offset using binary search over the offset positions
+     *
+     * @return index of the offset, or -(insertion point + 1) if not found
+     */
+    private static int indexOf(long[] pairs, int offset) {
+        int low = 0;
+        int high = pairs.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleOffset = pairs[middle * 2];
+            if (middleOffset < offset) {
+                low = middle + 1;
+            } else if (middleOffset > offset) {
+                high = middle - 1;
+            } else {
+                return middle * 2;
+            }
+        }
+        return -(low * 2 + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "MessageEntry{messageId=" + messageId + ", queue=" + queueName + ", dlc=" + dlcQueueName
+                + ", content=" + Arrays.toString(content) + "}";
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Log of message records spread over {@link LogSegment}s. Records are appended to the active segment and a new
+ * segment is started when it is full.
+ * <p/>
+ * A record is addressed by its location, which holds the segment ID in the upper 32 bits and the position within
+ * the segment in the lower 32 bits. The log keeps track of the bytes of each segment which are still referenced.
+ * Segments without any referenced record can be deleted.
+ * <p/>
+ * Appending and releasing records must be done while holding the lock of the store. Records can be read
+ * concurrently.
+ */
+final class MessageLog {
+
+    private static final Log log = LogFactory.getLog(MessageLog.class);
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final ConcurrentMap<Integer, LogSegment> segments = new ConcurrentHashMap<>();
+
+    private volatile LogSegment activeSegment;
+
+    /**
+     * Create a log. Existing segments should be loaded with {@link #recover(LogSegment.RecordVisitor)} before use.
+     *
+     * @param directory   directory of segment files
+     * @param segmentSize size of a segment file in bytes
+     */
+    MessageLog(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Open the existing segments and read all their records in the order they were written
+     *
+     * @param visitor visitor called for each record
+     * @throws IOException if a segment cannot be read
+     */
+    void recover(LogSegment.RecordVisitor visitor) throws IOException {
+        File[] files = directory.listFiles();
+        List<LogSegment> recoveredSegments = new ArrayList<>();
+        if (null != files) {
+            for (File file : files) {
+                if (LogSegment.isSegmentFile(file)) {
+                    recoveredSegments.add(LogSegment.open(file));
+                }
+            }
+        }
+
+        LogSegment[] orderedSegments = recoveredSegments.toArray(new LogSegment[recoveredSegments.size()]);
+        Arrays.sort(orderedSegments, new Comparator<LogSegment>() {
+            @Override
+            public int compare(LogSegment first, LogSegment second) {
+                return Integer.compare(first.getSegmentId(), second.getSegmentId());
+            }
+        });
+
+        for (LogSegment segment : orderedSegments) {
+            segment.recover(visitor);
+            segments.put(segment.getSegmentId(), segment);
+        }
+
+        if (orderedSegments.length > 0) {
+            activeSegment = orderedSegments[orderedSegments.length - 1];
+        } else {
+            activeSegment = LogSegment.create(directory, 0, segmentSize);
+            segments.put(activeSegment.getSegmentId(), activeSegment);
+        }
+    }
+
+    /**
+     * Append a record which is referenced until it is released
+     *
+     * @param type type of the record
+     * @param body body of the record
+     * @return location of the record
+     * @throws IOException if a new segment cannot be created
+     */
+    long append(byte type, byte[] body) throws IOException {
+        int position = activeSegment.append(type, body);
+        if (position < 0) {
+            roll(body.length);
+            position = activeSegment.append(type, body);
+        }
+        activeSegment.addLiveBytes(LogSegment.RECORD_HEADER_SIZE + body.length);
+        return toLocation(activeSegment.getSegmentId(), position);
+    }
+
+    /**
+     * Read the body of a record
+     *
+     * @param location location of the record
+     * @return record body or null if the segment of the record is deleted
+     */
+    byte[] read(long location) {
+        LogSegment segment = segments.get(segmentIdOf(location));
+        if (null == segment) {
+            return null;
+        }
+        return segment.readBody(positionOf(location));
+    }
+
+    /**
+     * Mark a record recovered from the log as referenced
+     *
+     * @param location location of the record
+     */
+    void retain(long location) {
+        LogSegment segment = segments.get(segmentIdOf(location));
+        segment.addLiveBytes(segment.recordSize(positionOf(location)));
+    }
+
+    /**
+     * Mark a record as not referenced any more. The segment of the record is not deleted until
+     * {@link #deleteSegments(List)} is called, so that records which replace it can be flushed first.
+     *
+     * @param location location of the record
+     */
+    void release(long location) {
+        LogSegment segment = segments.get(segmentIdOf(location));
+        if (null != segment) {
+            segment.addLiveBytes(-segment.recordSize(positionOf(location)));
+        }
+    }
+
+    /**
+     * Get the segments, apart from the active segment, without any referenced record. Since only the active
+     * segment is appended to, these segments will not be referenced again.
+     *
+     * @return unused segments
+     */
+    List<LogSegment> getUnusedSegments() {
+        List<LogSegment> unusedSegments = new ArrayList<>();
+        for (LogSegment segment : segments.values()) {
+            if (segment != activeSegment && segment.getLiveBytes() <= 0) {
+                unusedSegments.add(segment);
+            }
+        }
+        return unusedSegments;
+    }
+
+    /**
+     * Delete segments returned by {@link #getUnusedSegments()}
+     *
+     * @param unusedSegments segments to delete
+     */
+    void deleteSegments(List<LogSegment> unusedSegments) {
+        for (LogSegment segment : unusedSegments) {
+            segments.remove(segment.getSegmentId());
+            try {
+                segment.delete();
+                if (log.isDebugEnabled()) {
+                    log.debug("Deleted message log segment " + segment);
+                }
+            } catch (IOException e) {
+                log.error("Error while deleting message log segment " + segment, e);
+            }
+        }
+    }
+
+    /**
+     * Get the segments, apart from the active segment, where the referenced bytes are less than the given ratio of
+     * the segment size
+     *
+     * @param liveRatio ratio of referenced bytes to segment size
+     * @return sparse segments in the order they were created
+     */
+    List<LogSegment> getSparseSegments(double liveRatio) {
+        List<LogSegment> sparseSegments = new ArrayList<>();
+        for (LogSegment segment : segments.values()) {
+            if (segment != activeSegment && segment.getLiveBytes() < segment.getCapacity() * liveRatio) {
+                sparseSegments.add(segment);
+            }
+        }
+        return sparseSegments;
+    }
+
+    /**
+     * Flush the records of the active segment to the disk. Segments are flushed when they become inactive.
+     */
+    void force() {
+        activeSegment.force();
+    }
+
+    /**
+     * Close all the segments
+     */
+    void close() {
+        for (LogSegment segment : segments.values()) {
+            try {
+                segment.force();
+                segment.close();
+            } catch (IOException e) {
+                log.error("Error while closing message log segment " + segment, e);
+            }
+        }
+        segments.clear();
+    }
+
+    static long toLocation(int segmentId, int position) {
+        return ((long) segmentId << 32) | (position & 0xFFFFFFFFL);
+    }
+
+    static int segmentIdOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    static int positionOf(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Start a new active segment
+     *
+     * @param bodyLength length of the record which did not fit the active segment
+     */
+    private void roll(int bodyLength) throws IOException {
+        if (LogSegment.RECORD_HEADER_SIZE + bodyLength > segmentSize) {
+            throw new IOException("Record of " + bodyLength + " bytes does not fit in a segment of "
+                    + segmentSize + " bytes");
+        }
+
+        LogSegment previousSegment = activeSegment;
+        previousSegment.force();
+        activeSegment = LogSegment.create(directory, previousSegment.getSegmentId() + 1, segmentSize);
+        segments.put(activeSegment.getSegmentId(), activeSegment);
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Index of the messages listed under a queue. Changes are appended to an index file as entries,
+ * <pre>
+ * | length (int) | CRC32 (int) | operation (byte) | sequence (long) | message ID (long) | location (long) |
+ * | source length (short) | source (UTF-8) |
+ * </pre>
+ * where the location points to the metadata record in the {@link MessageLog}. The source holds the original queue
+ * of a message in a dead letter channel and the destination of a retained message. It is empty otherwise.
+ * <p/>
+ * The live entries are held in memory ordered by message ID. The index file is rewritten with only the live entries
+ * once removed entries outnumber them. Changes must be done while holding the lock of the store.
+ */
+final class QueueIndex {
+
+    static final byte ADD = 1;
+
+    static final byte REMOVE = 2;
+
+    private static final String FILE_SUFFIX = ".idx";
+
+    private static final int ENTRY_HEADER_SIZE = 8;
+
+    private static final int ENTRY_FIXED_SIZE = 1 + 8 + 8 + 8 + 2;
+
+    /**
+     * Number of removed entries tolerated in the index file before it is rewritten, regardless of the live entries
+     */
+    private static final int REWRITE_SLACK = 1000;
+
+    private final String name;
+
+    private final File file;
+
+    private FileChannel channel;
+
+    private long writePosition;
+
+    /**
+     * Number of entries written to the index file
+     */
+    private long entryCount;
+
+    private final ConcurrentNavigableMap<Long, MessageEntry> entries = new ConcurrentSkipListMap<>();
+
+    /**
+     * Number of live entries, kept separately since the size of a skip list is not a constant time operation
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private QueueIndex(String name, File file) {
+        this.name = name;
+        this.file = file;
+    }
+
+    /**
+     * Open the index file of a queue, creating it if it does not exist. Entries should be read with
+     * {@link #recover(EntryVisitor)} before adding.
+     *
+     * @param directory directory of index files
+     * @param name      queue name
+     * @return opened index
+     * @throws IOException if the file cannot be opened
+     */
+    static QueueIndex open(File directory, String name) throws IOException {
+        QueueIndex index = new QueueIndex(name, new File(directory, encodeName(name) + FILE_SUFFIX));
+        index.channel = new RandomAccessFile(index.file, "rw").getChannel();
+        return index;
+    }
+
+    /**
+     * Check whether the file is an index file
+     *
+     * @param file file in the index directory
+     * @return true if the file is an index file
+     */
+    static boolean isIndexFile(File file) {
+        return file.getName().endsWith(FILE_SUFFIX);
+    }
+
+    /**
+     * Get the queue name of an index file
+     *
+     * @param file index file
+     * @return queue name
+     */
+    static String queueNameOf(File file) {
+        String fileName = file.getName();
+        try {
+            return URLDecoder.decode(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()),
+                    StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+
+    /**
+     * Read all the valid entries of the index file in the order they were written. The file is truncated after the
+     * last valid entry.
+     *
+     * @param visitor visitor called for each entry
+     * @throws IOException if the file cannot be read
+     */
+    void recover(EntryVisitor visitor) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+        long position = 0;
+        CRC32 crc = new CRC32();
+
+        while (position + ENTRY_HEADER_SIZE <= fileSize) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int storedChecksum = header.getInt();
+            if (length < ENTRY_FIXED_SIZE || position + ENTRY_HEADER_SIZE + length > fileSize) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            channel.read(body, position + ENTRY_HEADER_SIZE);
+            body.flip();
+            crc.reset();
+            crc.update(body.array(), 0, length);
+            if (storedChecksum != (int) crc.getValue()) {
+                break;
+            }
+
+            byte operation = body.get();
+            long sequence = body.getLong();
+            long messageId = body.getLong();
+            long location = body.getLong();
+            byte[] source = new byte[body.getShort()];
+            body.get(source);
+
+            visitor.visit(this, operation, sequence, messageId, location, new String(source, StandardCharsets.UTF_8));
+            position = position + ENTRY_HEADER_SIZE + length;
+            entryCount++;
+        }
+
+        channel.truncate(position);
+        writePosition = position;
+    }
+
+    /**
+     * Append an entry to the index file. The in memory entries are not changed.
+     *
+     * @param operation {@link #ADD} or {@link #REMOVE}
+     * @param sequence  sequence of the change
+     * @param messageId message ID
+     * @param location  location of the metadata record
+     * @param source    original queue or retained destination, or empty
+     * @throws IOException if the entry cannot be written
+     */
+    void write(byte operation, long sequence, long messageId, long location, String source) throws IOException {
+        ByteBuffer entry = encode(operation, sequence, messageId, location, source);
+        writePosition = writePosition + writeFully(channel, entry, writePosition);
+        entryCount++;
+    }
+
+    /**
+     * Check whether the index file holds enough removed entries to be worth rewriting
+     *
+     * @return true if the index file should be rewritten
+     */
+    boolean needsRewrite() {
+        return entryCount > 2L * size.get() + REWRITE_SLACK;
+    }
+
+    /**
+     * Replace the index file with a file holding an {@link #ADD} entry for each live entry
+     *
+     * @throws IOException if the file cannot be rewritten
+     */
+    void rewrite() throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        long position = 0;
+        long count = 0;
+
+        try (FileChannel tempChannel = new RandomAccessFile(tempFile, "rw").getChannel()) {
+            tempChannel.truncate(0);
+            for (MessageEntry entry : entries.values()) {
+                ByteBuffer encoded = encode(ADD, entry.getSequence(), entry.getMessageId(),
+                        entry.getMetadataLocation(), sourceOf(entry));
+                position = position + writeFully(tempChannel, encoded, position);
+                count++;
+            }
+            tempChannel.force(true);
+        }
+
+        channel.close();
+        if (!tempFile.renameTo(file)) {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            throw new IOException("Could not replace index file " + file);
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        writePosition = position;
+        entryCount = count;
+    }
+
+    /**
+     * Flush the written entries to the disk
+     *
+     * @throws IOException if the entries cannot be flushed
+     */
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Close and delete the index file
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        close();
+        if (!file.delete()) {
+            throw new IOException("Could not delete index file " + file);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Get the source written for an entry of this index. The source is the queue of the message when the message
+     * is listed under a different name.
+     *
+     * @param entry entry of the index
+     * @return queue of the message or empty
+     */
+    String sourceOf(MessageEntry entry) {
+        return name.equals(entry.getQueueName()) ? "" : entry.getQueueName();
+    }
+
+    /**
+     * Add or replace a live entry. The index file is not changed.
+     *
+     * @param entry entry to add
+     */
+    void put(MessageEntry entry) {
+        if (null == entries.put(entry.getMessageId(), entry)) {
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove a live entry. The index file is not changed.
+     *
+     * @param messageId message ID
+     * @return removed entry or null if there was no entry for the ID
+     */
+    MessageEntry remove(long messageId) {
+        MessageEntry removed = entries.remove(messageId);
+        if (null != removed) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    MessageEntry get(long messageId) {
+        return entries.get(messageId);
+    }
+
+    /**
+     * Live entries of the index ordered by message ID. Should not be modified directly.
+     *
+     * @return live entries
+     */
+    ConcurrentNavigableMap<Long, MessageEntry> getEntries() {
+        return entries;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+
+    private static ByteBuffer encode(byte operation, long sequence, long messageId, long location, String source) {
+        byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+        int length = ENTRY_FIXED_SIZE + sourceBytes.length;
+
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_SIZE + length);
+        entry.position(ENTRY_HEADER_SIZE);
+        entry.put(operation);
+        entry.putLong(sequence);
+        entry.putLong(messageId);
+        entry.putLong(location);
+        entry.putShort((short) sourceBytes.length);
+        entry.put(sourceBytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), ENTRY_HEADER_SIZE, length);
+        entry.putInt(0, length);
+        entry.putInt(4, (int) crc.getValue());
+        entry.flip();
+        return entry;
+    }
+
+    private static int writeFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written = written + fileChannel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /**
+     * Queue names may contain characters which are not allowed in file names, such as '/' and '*'
+     */
+    private static String encodeName(String name) {
+        try {
+            return URLEncoder.encode(name, StandardCharsets.UTF_8.name()).replace("*", "%2A");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+
+    /**
+     * Callback for entries read while recovering an index
+     */
+    interface EntryVisitor {
+
+        /**
+         * Called for each valid entry in the order they were written
+         *
+         * @param index     index of the entry
+         * @param operation {@link #ADD} or {@link #REMOVE}
+         * @param sequence  sequence of the change
+         * @param messageId message ID
+         * @param location  location of the metadata record
+         * @param source    original queue or retained destination, or empty
+         */
+        void visit(QueueIndex index, byte operation, long sequence, long messageId, long location, String source);
+    }
+}
@@ -190,6 +190,14 @@ public class RDBMSConstants {
             + " WHERE " + MESSAGE_ID + "=?"
             + " AND " + MSG_OFFSET + "=?";
 
+    protected static final String PS_RETRIEVE_MESSAGE_PART_RANGE =
+            "SELECT " + MSG_OFFSET + "," + MESSAGE_CONTENT
+            + " FROM " + CONTENT_TABLE
+            + " WHERE " + MESSAGE_ID + "=?"
+            + " AND " + MSG_OFFSET + ">=?"
+            + " AND " + MSG_OFFSET + "<?"
+            + " ORDER BY " + MSG_OFFSET;
+
     /**
      * We need to select rows that have the DLC_QUEUE_ID = -1 indicating that the message is not moved
      * into the dead letter channel
@@ -357,6 +365,12 @@ public class RDBMSConstants {
             + " WHERE " + EXPIRATION_TIME + "<?"
             + " AND " + DLC_QUEUE_ID + " != -1";
 
+    protected static final String PS_SELECT_EXPIRY_DATA =
+            "SELECT " + MESSAGE_ID + "," + EXPIRATION_TIME + "," + DESTINATION_QUEUE
+            + " FROM " + EXPIRATION_TABLE
+            + " WHERE " + EXPIRATION_TIME + "<?"
+            + " AND " + DLC_QUEUE_ID + " = -1";
+
 
     protected static final String PS_SELECT_QUEUE_ID =
             "SELECT " + QUEUE_ID
@@ -1195,6 +1209,7 @@ public class RDBMSConstants {
     protected static final String TASK_CLEARING_DLC_QUEUE = "clearing dlc queue. " ;
     protected static final String TASK_RESETTING_MESSAGE_COUNTER = "Resetting message counter for queue";
     protected static final String TASK_RETRIEVING_EXPIRED_MESSAGES = "retrieving expired messages.";
+    protected static final String TASK_RETRIEVING_EXPIRY_DATA = "retrieving expiry data.";
 
     protected static final String TASK_RETRIEVING_QUEUE_ID = "retrieving queue id for queue. ";
     protected static final String TASK_CREATING_QUEUE = "creating queue. ";
@@ -539,4 +539,12 @@ public class RDBMSDtxStoreImpl implements DtxStore {
     public boolean isOperational(String testString, long testTime) {
         return rdbmsMessageStore.isOperational(testString, testTime);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isPrepareSupported() {
+        return true;
+    }
 }
@@ -26,6 +26,7 @@ import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import org.apache.log4j.Logger;
 import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesContextStore;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
@@ -34,6 +35,7 @@ import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.DtxStore;
 import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.MessageExpiryIndex;
 import org.wso2.andes.kernel.MessageStore;
 import org.wso2.andes.kernel.slot.RecoverySlotCreator;
 import org.wso2.andes.kernel.slot.Slot;
@@ -62,6 +64,7 @@ import java.util.concurrent.ExecutionException;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.CONTENT_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_CONTENT;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_ID;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.METADATA_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MSG_OFFSET;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_EXPIRY_DATA;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_MESSAGE_PART;
@@ -106,6 +109,24 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                     " FROM " + CONTENT_TABLE +
                     " WHERE " + MESSAGE_ID + " IN (";
 
+    /**
+     * Partially created prepared statement to delete metadata of multiple messages using IN operator. Content is
+     * deleted along with the metadata through the foreign key.
+     */
+    private static final String PS_DELETE_METADATA_PART =
+            "DELETE FROM " + METADATA_TABLE + " WHERE " + MESSAGE_ID + " IN (";
+
+    /**
+     * Number of message IDs set to the IN operator of a single delete statement. Batches of message IDs are deleted
+     * in lists of this size so that the same prepared statement is used for every list.
+     */
+    static final int DELETE_ID_LIST_SIZE = 100;
+
+    /**
+     * Prepared statement to delete metadata of {@link #DELETE_ID_LIST_SIZE} messages
+     */
+    private static final String PS_DELETE_METADATA_LIST = createDeleteMetadataStatement();
+
     /**
      * The cache which holds the queue mappings(queue name to queue id) in memory
      * In the absence of a queried queue name in the cache, the queue id is loaded from the database
@@ -129,7 +150,13 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         this.rdbmsConnection.initialize(connectionProperties);
         this.rdbmsStoreUtils = new RDBMSStoreUtils(connectionProperties);
 
-        this.messageCache = (new MessageCacheFactory()).create();
+        // Share the content cache with the delivery path when the store is initialised by the kernel
+        AndesMessageCache contentCache = AndesContext.getInstance().getContentCache();
+        if (null != contentCache) {
+            this.messageCache = contentCache;
+        } else {
+            this.messageCache = (new MessageCacheFactory()).create();
+        }
         initializeQueueMappingCache();
         dtxStore = new RDBMSDtxStoreImpl(this, rdbmsStoreUtils);
         log.info("Message Store initialised");
@@ -277,6 +304,67 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         return messagePart;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessagePart> getContent(long messageId, int startOffset, int endOffset) throws AndesException {
+
+        List<AndesMessagePart> partList = new ArrayList<>();
+        Context messageContentRetrievalContext = MetricManager.timer(MetricsConstants.GET_CONTENT, Level.INFO).start();
+        try {
+            AndesMessage cachedMessage = getMessageFromCache(messageId);
+            if (null != cachedMessage) {
+                for (AndesMessagePart part : cachedMessage.getContentChunkList()) {
+                    if (part.getOffset() >= startOffset && part.getOffset() < endOffset) {
+                        partList.add(part);
+                    }
+                }
+                return partList;
+            }
+            fillContentRangeFromStorage(messageId, startOffset, endOffset, partList);
+        } finally {
+            messageContentRetrievalContext.stop();
+        }
+        return partList;
+    }
+
+    /**
+     * Util method to retrieve content chunks of a message with offsets in the given range from database
+     *
+     * @param messageId   message id
+     * @param startOffset offset of the first chunk
+     * @param endOffset   offset after the last chunk
+     * @param partList    this list will be filled with content retrieved from database
+     * @throws AndesException an error
+     */
+    private void fillContentRangeFromStorage(long messageId, int startOffset, int endOffset,
+                                             List<AndesMessagePart> partList) throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet results = null;
+
+        Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_RETRIEVE_MESSAGE_PART_RANGE);
+            preparedStatement.setLong(1, messageId);
+            preparedStatement.setInt(2, startOffset);
+            preparedStatement.setInt(3, endOffset);
+            results = preparedStatement.executeQuery();
+
+            while (results.next()) {
+                partList.add(createMessagePart(results, messageId, results.getInt(MSG_OFFSET)));
+            }
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while retrieving message content from DB" +
+                    " [msg_id= " + messageId + ", offsets= " + startOffset + "-" + endOffset + " ]", e);
+        } finally {
+            contextRead.stop();
+            close(connection, preparedStatement, results, RDBMSConstants.TASK_RETRIEVING_MESSAGE_PARTS);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1164,35 +1252,69 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     void prepareToDeleteMessages(Connection connection, Collection<? extends AndesMessageMetadata> messagesToRemove)
             throws AndesException, SQLException {
 
-        PreparedStatement metadataRemovalPreparedStatement = null;
+        LongArrayList messageIDsToRemove = new LongArrayList(messagesToRemove.size());
+        for (AndesMessageMetadata message : messagesToRemove) {
+            messageIDsToRemove.add(message.getMessageID());
+        }
 
-        try {
-            LongArrayList messageIDsToRemoveFromCache = new LongArrayList();
+        removeFromCache(messageIDsToRemove);
+        deleteMetadata(connection, messageIDsToRemove);
+    }
 
+    /**
+     * Delete metadata of the given messages with IN operator statements of {@link #DELETE_ID_LIST_SIZE} IDs. The
+     * last list is filled by repeating its last ID.
+     *
+     * @param connection JDBC {@link Connection}
+     * @param messageIDs IDs of the messages to delete
+     * @throws SQLException throws {@link SQLException} on JDBC driver related exception
+     */
+    void deleteMetadata(Connection connection, LongArrayList messageIDs) throws SQLException {
+        if (messageIDs.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement metadataRemovalPreparedStatement = null;
+        try {
             //Since referential integrity is imposed on the two tables: message content and metadata,
             //deleting message metadata will cause message content to be automatically deleted
-            metadataRemovalPreparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA);
+            metadataRemovalPreparedStatement = connection.prepareStatement(PS_DELETE_METADATA_LIST);
 
-            for (AndesMessageMetadata message : messagesToRemove) {
-                //add parameters to delete metadata
-                messageIDsToRemoveFromCache.add(message.getMessageID());
-                metadataRemovalPreparedStatement.setLong(1, message.getMessageID());
+            for (int listStart = 0; listStart < messageIDs.size(); listStart = listStart + DELETE_ID_LIST_SIZE) {
+                int lastIndex = Math.min(listStart + DELETE_ID_LIST_SIZE, messageIDs.size()) - 1;
+                for (int parameter = 0; parameter < DELETE_ID_LIST_SIZE; parameter++) {
+                    int index = Math.min(listStart + parameter, lastIndex);
+                    metadataRemovalPreparedStatement.setLong(parameter + 1, messageIDs.get(index));
+                }
                 metadataRemovalPreparedStatement.addBatch();
             }
 
-            removeFromCache(messageIDsToRemoveFromCache);
             metadataRemovalPreparedStatement.executeBatch();
         } finally {
             close(metadataRemovalPreparedStatement, TASK_DELETING_METADATA);
         }
     }
 
+    /**
+     * Create the prepared statement to delete metadata of {@link #DELETE_ID_LIST_SIZE} messages
+     *
+     * @return Prepared Statement
+     */
+    private static String createDeleteMetadataStatement() {
+        StringBuilder stmtBuilder = new StringBuilder(PS_DELETE_METADATA_PART);
+        for (int i = 0; i < DELETE_ID_LIST_SIZE - 1; i++) {
+            stmtBuilder.append("?,");
+        }
+
+        stmtBuilder.append("?)");
+        return stmtBuilder.toString();
+    }
+
     /**
      * {@inheritDoc}
      */
     public void deleteMessages(List<Long> messagesToRemove) throws AndesException {
         Connection connection = null;
-        PreparedStatement metadataRemovalPreparedStatement = null;
 
         Context messageDeletionContext = MetricManager
                 .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT).start();
@@ -1200,22 +1322,14 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
 
-            LongArrayList messageIDsToRemoveFromCache = new LongArrayList();
-            connection = getConnection();
-
-            //Since referential integrity is imposed on the two tables: message content and metadata,
-            //deleting message metadata will cause message content to be automatically deleted
-            metadataRemovalPreparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA);
-
+            LongArrayList messageIDsToRemove = new LongArrayList(messagesToRemove.size());
             for (long messageID : messagesToRemove) {
-                //add parameters to delete metadata
-                messageIDsToRemoveFromCache.add(messageID);
-                metadataRemovalPreparedStatement.setLong(1, messageID);
-                metadataRemovalPreparedStatement.addBatch();
+                messageIDsToRemove.add(messageID);
             }
+            connection = getConnection();
 
-            removeFromCache(messageIDsToRemoveFromCache);
-            metadataRemovalPreparedStatement.executeBatch();
+            removeFromCache(messageIDsToRemove);
+            deleteMetadata(connection, messageIDsToRemove);
             connection.commit();
 
             if (log.isDebugEnabled()) {
@@ -1228,7 +1342,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         } finally {
             messageDeletionContext.stop();
             contextWrite.stop();
-            close(connection, metadataRemovalPreparedStatement, RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
+            close(connection, RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
         }
     }
 
@@ -1343,6 +1457,38 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExpiryData(long expirationTimeUpperBound, MessageExpiryIndex expiryIndex)
+            throws AndesException {
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
+
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_EXPIRY_DATA);
+            preparedStatement.setLong(1, expirationTimeUpperBound);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                expiryIndex.add(resultSet.getLong(RDBMSConstants.MESSAGE_ID),
+                        resultSet.getString(RDBMSConstants.DESTINATION_QUEUE),
+                        resultSet.getLong(RDBMSConstants.EXPIRATION_TIME));
+            }
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("error occurred while retrieving expiry data.", e);
+        } finally {
+            contextRead.stop();
+            close(connection, preparedStatement, resultSet, RDBMSConstants.TASK_RETRIEVING_EXPIRY_DATA);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -43,9 +43,10 @@ public final class TaskExecutorService<T extends Task> {
     private static Log log = LogFactory.getLog(TaskExecutorService.class);
 
     /**
-     * {@link DelayQueue} used by processors to schedule tasks. Idle task will be processed after a delay
+     * {@link DelayQueue} used by processors to schedule tasks. Idle task will be processed after a delay or when
+     * woken up
      */
-    private final DelayQueue<TaskHolder> taskHolderDelayQueue;
+    private final DelayQueue<TaskSchedule> taskHolderDelayQueue;
 
     /**
      * Mapping of registered tasks with its task id
@@ -127,6 +128,23 @@ public final class TaskExecutorService<T extends Task> {
         taskUpdateExecutorService.submit(new RemoveRequest(id));
     }
 
+    /**
+     * Wake up the {@link Task} with the given task id. If the task is waiting due to an IDLE
+     * {@link org.wso2.andes.task.Task.TaskHint} it is processed without waiting for the idle task delay. If the task
+     * is running at the moment it is not delayed after the current run.
+     *
+     * @param id ID of the {@link Task} to wake up
+     */
+    public void wakeUp(String id) {
+        TaskHolder<T> taskHolder = taskHolderRegistry.get(id);
+        if (null != taskHolder) {
+            TaskSchedule taskSchedule = taskHolder.wakeUp();
+            if (null != taskSchedule) {
+                taskHolderDelayQueue.add(taskSchedule);
+            }
+        }
+    }
+
     /**
      * Returns the {@link Task} implementation relevant to the task id
      *
@@ -145,7 +163,7 @@ public final class TaskExecutorService<T extends Task> {
      * Stop processing the tasks
      */
     public synchronized void stop() {
-        log.info("Stopping task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Stopping task manager. Task count " + taskHolderRegistry.size());
         for (TaskProcessor taskProcessor : taskProcessorQueue) {
             taskProcessor.deactivate();
         }
@@ -181,7 +199,7 @@ public final class TaskExecutorService<T extends Task> {
      * Start processing the tasks
      */
     public synchronized void start() {
-        log.info("Starting task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Starting task manager. Task count " + taskHolderRegistry.size());
 
         for (int i = 0; i < workerCount; i++) {
             TaskProcessor taskProcessor =
@@ -221,9 +239,9 @@ public final class TaskExecutorService<T extends Task> {
                 task.onAdd(); // Invoke task callback before adding the task to the taskHolderDelayQueue
                               // to be processed
                 taskHolderRegistry.put(task.getId(), taskHolder);
-                taskHolderDelayQueue.add(taskHolder);
+                taskHolderDelayQueue.add(taskHolder.schedule(0, TimeUnit.MILLISECONDS));
                 if (log.isDebugEnabled()) {
-                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderRegistry.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while adding Task " + task, e);
@@ -247,8 +265,13 @@ public final class TaskExecutorService<T extends Task> {
             try {
                 TaskHolder taskHolder = taskHolderRegistry.remove(id);
                 taskHolder.disableProcessing(); // disable processors from processing the task
+                // Wake up a parked task so that it is removed without waiting for the idle task delay
+                TaskSchedule taskSchedule = taskHolder.wakeUp();
+                if (null != taskSchedule) {
+                    taskHolderDelayQueue.add(taskSchedule);
+                }
                 if (log.isDebugEnabled()) {
-                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderRegistry.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while removing task. Task id " + id, e);
@@ -18,15 +18,38 @@
 
 package org.wso2.andes.task;
 
-import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Holds a single {@link Task}. Has references to the next and previous {@link TaskHolder} of the {@link TaskHolder}
- * ring
+ * Holds a single {@link Task} and its scheduling state.
+ * <p>
+ * A task returning {@link Task.TaskHint#IDLE} is parked with a delay. A parked task can be woken up through
+ * {@link #wakeUp()} which schedules it to be processed immediately, superseding the delayed schedule.
  */
-final class TaskHolder<T extends Task> implements Delayed {
+final class TaskHolder<T extends Task> {
+
+    /**
+     * Task is scheduled to run or running
+     */
+    private static final int RUNNING = 0;
+
+    /**
+     * Task is waiting for the idle delay to expire or a wake up
+     */
+    private static final int PARKED = 1;
+
+    /**
+     * A wake up was requested while the task was running. Task should not be parked after the current run
+     */
+    private static final int SIGNALLED = 2;
+
+    /**
+     * Task is removed from processing. Wake ups are ignored
+     */
+    private static final int REMOVED = 3;
 
     /**
      * {@link Task} implementation related to this {@link TaskHolder}
@@ -44,10 +67,15 @@ final class TaskHolder<T extends Task> implements Delayed {
     private AtomicBoolean isProcessing;
 
     /**
-     * Task expiry time in milliseconds. Expired messages will be picked from the
-     * {@link java.util.concurrent.DelayQueue} by the {@link TaskProcessor}s
+     * Epoch of the latest {@link TaskSchedule} created for this task. Only the schedule with the latest epoch is
+     * processed
+     */
+    private final AtomicLong scheduleEpoch;
+
+    /**
+     * Wake up state of the task. One of RUNNING, PARKED, SIGNALLED or REMOVED
      */
-    private long expiryTime;
+    private final AtomicInteger wakeUpState;
 
     /**
      * Create a {@link TaskHolder} instance with a {@link Task} implementation
@@ -57,7 +85,8 @@ final class TaskHolder<T extends Task> implements Delayed {
         this.task = task;
         this.isDisabled = new AtomicBoolean(false);
         this.isProcessing = new AtomicBoolean(false);
-        expiryTime = System.currentTimeMillis();
+        this.scheduleEpoch = new AtomicLong(0);
+        this.wakeUpState = new AtomicInteger(RUNNING);
     }
 
     /**
@@ -128,69 +157,92 @@ final class TaskHolder<T extends Task> implements Delayed {
     }
 
     /**
-     * {@inheritDoc}
+     * Create a new {@link TaskSchedule} for this task. Any previously created schedule becomes stale.
+     *
+     * @param delay    delay
+     * @param timeUnit {@link TimeUnit}
+     * @return new {@link TaskSchedule}
      */
-    @Override
-    public long getDelay(TimeUnit unit) {
-        return unit.convert(expiryTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    TaskSchedule schedule(long delay, TimeUnit timeUnit) {
+        return new TaskSchedule(this, scheduleEpoch.incrementAndGet(),
+                TimeUnit.MILLISECONDS.convert(delay, timeUnit));
     }
 
     /**
-     * Set the expiry time for the {@link Delayed}
-     * @param delay delay
-     * @param timeUnit {@link TimeUnit}
+     * Check whether the given schedule is the latest schedule of this task and mark the task as running. A wake up
+     * requested before this point is satisfied by the run that follows. A parked task whose idle delay elapsed is
+     * marked as running as well so that it can be parked again after the run.
+     *
+     * @param taskSchedule schedule taken from the queue
+     * @return true if the task should be processed, false if the schedule is stale
      */
-    void setDelay(long delay, TimeUnit timeUnit) {
-        this.expiryTime = System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(delay, timeUnit);
+    boolean claim(TaskSchedule taskSchedule) {
+        if (taskSchedule.getEpoch() != scheduleEpoch.get()) {
+            return false;
+        }
+        if (!wakeUpState.compareAndSet(SIGNALLED, RUNNING)) {
+            wakeUpState.compareAndSet(PARKED, RUNNING);
+        }
+        return true;
     }
 
     /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
+     * Park the task after an idle run. Parking fails if a wake up was requested while the task was running.
      *
-     * {@inheritDoc}
+     * @return true if parked, false if the task should be re-scheduled immediately
      */
-    @Override
-    public int compareTo(Delayed delayedObject) {
-
-        int order = Long.compare(expiryTime, ((TaskHolder)delayedObject).expiryTime); // order by expiryTime
-        if (order == 0 ) {
-            order = getId().compareTo(((TaskHolder) delayedObject).getId()); // order by string id
+    boolean park() {
+        if (wakeUpState.compareAndSet(RUNNING, PARKED)) {
+            return true;
         }
-        return order;
+        wakeUpState.compareAndSet(SIGNALLED, RUNNING);
+        return false;
     }
 
     /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
+     * Request the task to be processed without waiting for the idle delay.
      *
+     * @return a {@link TaskSchedule} to be added to the queue if the task was parked, null otherwise
+     */
+    TaskSchedule wakeUp() {
+        while (true) {
+            int state = wakeUpState.get();
+            if (PARKED == state) {
+                if (wakeUpState.compareAndSet(PARKED, RUNNING)) {
+                    return schedule(0, TimeUnit.MILLISECONDS);
+                }
+            } else if (RUNNING == state) {
+                if (wakeUpState.compareAndSet(RUNNING, SIGNALLED)) {
+                    return null;
+                }
+            } else {
+                // Already signalled or removed
+                return null;
+            }
+        }
+    }
+
+    /**
      * {@inheritDoc}
      */
     @Override
     public boolean equals(Object obj) {
-        boolean isEqual;
-        if ( obj instanceof TaskHolder) {
-            isEqual = ((TaskHolder) obj).getId().compareTo(getId()) == 0;
-        } else {
-            isEqual = this.equals(obj);
-        }
-        return isEqual;
+        return obj instanceof TaskHolder && ((TaskHolder) obj).getId().equals(getId());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return getId().hashCode();
     }
 
     /**
      * Ready to remove task. Invoke the {@link Task} callback #onRemove
      */
     void onRemoveTask() {
+        wakeUpState.set(REMOVED);
         task.onRemove();
     }
 }
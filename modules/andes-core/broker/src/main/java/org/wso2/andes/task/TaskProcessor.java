@@ -37,9 +37,9 @@ final class TaskProcessor implements Callable<Boolean> {
     private static Log log = LogFactory.getLog(TaskProcessor.class);
 
     /**
-     * Reference to {@link TaskHolder} queue
+     * Reference to {@link TaskSchedule} queue
      */
-    private DelayQueue<TaskHolder> taskHolderQueue;
+    private DelayQueue<TaskSchedule> taskHolderQueue;
 
     /**
      * Whether the processor is active or not
@@ -56,7 +56,7 @@ final class TaskProcessor implements Callable<Boolean> {
      */
     private final long idleWaitTimeMillis;
 
-    TaskProcessor(DelayQueue<TaskHolder> taskQueue, TaskExceptionHandler exceptionHandler, long idleWaitTimeMillis) {
+    TaskProcessor(DelayQueue<TaskSchedule> taskQueue, TaskExceptionHandler exceptionHandler, long idleWaitTimeMillis) {
         isActive = new AtomicBoolean(false);
         this.taskExceptionHandler = exceptionHandler;
         this.taskHolderQueue = taskQueue;
@@ -79,13 +79,14 @@ final class TaskProcessor implements Callable<Boolean> {
             }
             while (isActive.get()) {
                 TaskHolder taskHolder = null;
-                long delay = 0; // No delay
+                Task.TaskHint hint = Task.TaskHint.ACTIVE;
                 try {
-                    taskHolder = taskHolderQueue.take(); // Wait if queue is empty
-                    Task.TaskHint hint = taskHolder.executeTask();
-                    if (hint == Task.TaskHint.IDLE) {
-                        delay = idleWaitTimeMillis;
+                    TaskSchedule taskSchedule = taskHolderQueue.take(); // Wait if queue is empty
+                    if (!taskSchedule.getTaskHolder().claim(taskSchedule)) {
+                        continue; // Superseded by a later schedule of the same task. i.e. task was woken up
                     }
+                    taskHolder = taskSchedule.getTaskHolder();
+                    hint = taskHolder.executeTask();
                 } catch (InterruptedException e) {
                     if (isActive.get()) {
                         taskExceptionHandler.handleException(e, "null");
@@ -105,10 +106,7 @@ final class TaskProcessor implements Callable<Boolean> {
                         if (taskHolder.isDisabled() ) {
                             taskHolder.onRemoveTask();
                         } else {
-                            // Add a delay when adding back to the queue. This ensures the TaskHolder is added to the
-                            // end of the queue. If not TaskHolder will be added to front of the queue
-                            taskHolder.setDelay(delay, TimeUnit.MILLISECONDS);
-                            taskHolderQueue.put(taskHolder);
+                            reschedule(taskHolder, hint);
                         }
                     }
                 }
@@ -120,4 +118,24 @@ final class TaskProcessor implements Callable<Boolean> {
         }
         return true;
     }
+
+    /**
+     * Add the task back to the queue. An IDLE task is parked with a delay unless it was woken up while running.
+     * A new {@link TaskSchedule} is always added so that the task is added to the end of the queue.
+     *
+     * @param taskHolder {@link TaskHolder} processed
+     * @param hint       hint returned by the task
+     */
+    private void reschedule(TaskHolder taskHolder, Task.TaskHint hint) {
+        if (hint == Task.TaskHint.IDLE) {
+            // Schedule is created before parking. A wake up after parking creates a newer schedule making this one
+            // stale
+            TaskSchedule idleSchedule = taskHolder.schedule(idleWaitTimeMillis, TimeUnit.MILLISECONDS);
+            if (taskHolder.park()) {
+                taskHolderQueue.put(idleSchedule);
+                return;
+            }
+        }
+        taskHolderQueue.put(taskHolder.schedule(0, TimeUnit.MILLISECONDS));
+    }
 }
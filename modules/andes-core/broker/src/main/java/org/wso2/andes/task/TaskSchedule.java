@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.task;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An entry of the {@link java.util.concurrent.DelayQueue} used by {@link TaskProcessor}s. Each time a
+ * {@link TaskHolder} is scheduled a new {@link TaskSchedule} is created with a newer schedule epoch. Only the entry
+ * with the latest epoch of a {@link TaskHolder} is processed. Older entries are discarded when taken from the queue.
+ * This allows a waiting task to be brought forward (woken up) without searching the queue.
+ */
+final class TaskSchedule implements Delayed {
+
+    /**
+     * {@link TaskHolder} scheduled by this entry
+     */
+    private final TaskHolder taskHolder;
+
+    /**
+     * Schedule epoch of the {@link TaskHolder} at the time of creating this entry
+     */
+    private final long epoch;
+
+    /**
+     * Time in milliseconds at which the entry can be taken from the queue
+     */
+    private final long expiryTime;
+
+    /**
+     * Create a schedule entry
+     *
+     * @param taskHolder {@link TaskHolder} to schedule
+     * @param epoch      schedule epoch of the {@link TaskHolder}
+     * @param delay      delay in milliseconds
+     */
+    TaskSchedule(TaskHolder taskHolder, long epoch, long delay) {
+        this.taskHolder = taskHolder;
+        this.epoch = epoch;
+        this.expiryTime = System.currentTimeMillis() + delay;
+    }
+
+    /**
+     * {@link TaskHolder} scheduled by this entry
+     *
+     * @return {@link TaskHolder}
+     */
+    TaskHolder getTaskHolder() {
+        return taskHolder;
+    }
+
+    /**
+     * Schedule epoch of the {@link TaskHolder} at the time of creating this entry
+     *
+     * @return epoch
+     */
+    long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiryTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>
+     * Note: this class has a natural ordering that is inconsistent with equals.
+     * </p>
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo(Delayed delayedObject) {
+        TaskSchedule other = (TaskSchedule) delayedObject;
+        int order = Long.compare(expiryTime, other.expiryTime); // order by expiryTime
+        if (order == 0) {
+            order = taskHolder.getId().compareTo(other.taskHolder.getId()); // order by string id
+        }
+        if (order == 0) {
+            order = Long.compare(epoch, other.epoch);
+        }
+        return order;
+    }
+}
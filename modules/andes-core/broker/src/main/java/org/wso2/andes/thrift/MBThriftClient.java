@@ -33,6 +33,10 @@ import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.thrift.slot.gen.SlotInfo;
 import org.wso2.andes.thrift.slot.gen.SlotManagementService;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
@@ -114,6 +118,48 @@ public class MBThriftClient {
         throw new ConnectionException("Coordinator has changed");
     }
 
+    /**
+     * Request slots for a set of queues with a single call to the coordinator. Queues for which the coordinator
+     * could not assign a slot are mapped to an empty slot.
+     *
+     * @param queueNames names of the queues
+     * @param nodeId     of this node
+     * @return map of queue name to slot
+     * @throws ConnectionException Throws when thrift connection fails
+     */
+    public Map<String, Slot> getSlots(List<String> queueNames, String nodeId) throws ConnectionException {
+        Map<String, SlotInfo> slotInfoMap;
+
+        for (int i = 0; i <= RETRY_COUNT; i++) {
+            SlotManagementService.Client client = null;
+
+            try {
+                client = getServiceClient();
+                slotInfoMap = client.getSlotInfos(queueNames, nodeId);
+                Map<String, Slot> slotMap = new HashMap<>(queueNames.size());
+                for (String queueName : queueNames) {
+                    SlotInfo slotInfo = slotInfoMap.get(queueName);
+                    if (null != slotInfo) {
+                        slotMap.put(queueName, convertSlotInforToSlot(slotInfo));
+                    } else {
+                        slotMap.put(queueName, new Slot());
+                    }
+                }
+                return slotMap;
+            } catch (TException e) {
+                invalidateServiceClient(client);
+                log.error("Attempt " + i + " failed requesting slots from coordinator", e);
+            } finally {
+                if (client != null) {
+                    returnServiceClient(client);
+                }
+            }
+        }
+
+        handleCoordinatorChanges();
+        throw new ConnectionException("Coordinator has changed");
+    }
+
     /**
      * Add Thrift connection listener
      *
@@ -178,6 +224,48 @@ public class MBThriftClient {
         }
     }
 
+    /**
+     * Pass locally chosen slot ranges of several queues to the SlotManagerClusterMode with a single call.
+     *
+     * @param slots         locally chosen slots. Storage queue name, start and end message IDs of each slot are
+     *                      submitted
+     * @param nodeId        unique hazelcast identifier of node.
+     * @param localSafeZone Minimum message ID of the node that is deemed safe.
+     * @throws ConnectionException in case of an connection error
+     */
+    public synchronized void updateMessageIds(List<Slot> slots, String nodeId, long localSafeZone)
+            throws ConnectionException {
+
+        List<SlotInfo> slotInfoList = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            SlotInfo slotInfo = new SlotInfo();
+            slotInfo.setQueueName(slot.getStorageQueueName());
+            slotInfo.setStartMessageId(slot.getStartMessageId());
+            slotInfo.setEndMessageId(slot.getEndMessageId());
+            slotInfoList.add(slotInfo);
+        }
+
+        for (int i = 0; i <= RETRY_COUNT; i++) {
+            SlotManagementService.Client client = null;
+
+            try {
+                client = getServiceClient();
+                client.updateMessageIds(nodeId, slotInfoList, localSafeZone);
+                return;
+            } catch (TException e) {
+                invalidateServiceClient(client);
+                log.error("Attempt " + i + " failed updating message Ids", e);
+            } finally {
+                if (client != null) {
+                    returnServiceClient(client);
+                }
+            }
+        }
+
+        handleCoordinatorChanges();
+        throw new ConnectionException("Coordinator has changed");
+    }
+
     /**
      * Delete the slot from SlotAssignmentMap when all the messages in the slot has been sent and
      * all the acks are received.
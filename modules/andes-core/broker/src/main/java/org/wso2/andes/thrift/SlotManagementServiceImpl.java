@@ -18,13 +18,23 @@
 
 package org.wso2.andes.thrift;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.thrift.TException;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
+import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.thrift.slot.gen.SlotInfo;
 import org.wso2.andes.thrift.slot.gen.SlotManagementService;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.Meter;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This is the implementation of SlotManagementService interface. This class contains operations
@@ -34,10 +44,16 @@ import org.wso2.andes.thrift.slot.gen.SlotManagementService;
 
 public class SlotManagementServiceImpl implements SlotManagementService.Iface {
 
+    private static Log log = LogFactory.getLog(SlotManagementServiceImpl.class);
+
     private static SlotManagerClusterMode slotManager = SlotManagerClusterMode.getInstance();
 
     @Override
     public SlotInfo getSlotInfo(String queueName, String nodeId) throws TException {
+        //Adding metrics meter for slot requests served by the coordinator
+        Meter slotRequestMeter = MetricManager.meter(MetricsConstants.COORDINATOR_SLOT_REQUEST_RATE, Level.INFO);
+        slotRequestMeter.mark();
+
         if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
             SlotInfo slotInfo = new SlotInfo();
             try {
@@ -125,4 +141,59 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A failure to assign a slot for one queue does not fail the whole batch since slots already assigned for other
+     * queues in the batch would then be lost to the requesting node. Such queues are left out of the result and the
+     * node requests again in its next delivery attempt.
+     */
+    @Override
+    public Map<String, SlotInfo> getSlotInfos(List<String> queueNames, String nodeId) throws TException {
+        //Adding metrics meter for slot requests served by the coordinator
+        Meter slotRequestMeter = MetricManager.meter(MetricsConstants.COORDINATOR_SLOT_REQUEST_RATE, Level.INFO);
+        slotRequestMeter.mark(queueNames.size());
+
+        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+            Map<String, SlotInfo> slotInfoMap = new HashMap<>(queueNames.size());
+            for (String queueName : queueNames) {
+                try {
+                    Slot slot = slotManager.getSlot(queueName, nodeId);
+                    if (null != slot) {
+                        slotInfoMap.put(queueName, new SlotInfo(slot.getStartMessageId(), slot.getEndMessageId(),
+                                slot.getStorageQueueName(), nodeId, slot.isAnOverlappingSlot()));
+                    }
+                } catch (AndesException e) {
+                    log.error("Failed to get slot info for queue: " + queueName + " nodeId: " + nodeId, e);
+                }
+            }
+            return slotInfoMap;
+        } else {
+            throw new TException("This node is not the slot coordinator right now");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Slots are recorded one by one. A failure stops the batch and the node retries the whole batch, in which
+     * slots recorded by the failed call are skipped by the slot manager.
+     */
+    @Override
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone) throws TException {
+        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+            for (SlotInfo slotInfo : slots) {
+                try {
+                    slotManager.updateMessageID(slotInfo.getQueueName(), nodeId, slotInfo.getStartMessageId(),
+                            slotInfo.getEndMessageId(), localSafeZone);
+                } catch (AndesException e) {
+                    throw new TException("Failed to update message id for queue: " + slotInfo.getQueueName()
+                                         + " nodeId: " + nodeId, e);
+                }
+            }
+        } else {
+            throw new TException("This node is not the slot coordinator right now");
+        }
+    }
+
 }
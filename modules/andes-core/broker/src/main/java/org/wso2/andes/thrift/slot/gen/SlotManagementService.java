@@ -2,6 +2,9 @@
  * Autogenerated by Thrift Compiler (0.7.0)
  *
  * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING
+ *
+ * getSlotInfos and updateMessageIds were written by hand to match the output of Thrift Compiler 0.7.0 for
+ * resources/slot.thrift. Regenerate with "thrift-0.7.0 --gen java slot.thrift" after changing the IDL.
  */
 package org.wso2.andes.thrift.slot.gen;
 
@@ -43,6 +46,25 @@ public class SlotManagementService {
      */
     public void clearAllActiveSlotRelationsToQueue(String queueName) throws org.apache.thrift.TException;
 
+    /**
+     * Batch variant of getSlotInfo. Request slots for a set of queues with a single call. Only the queues a slot
+     * could be assigned to are present in the returned map.
+     * 
+     * @param queueNames
+     * @param nodeId
+     */
+    public Map<String,SlotInfo> getSlotInfos(List<String> queueNames, String nodeId) throws org.apache.thrift.TException;
+
+    /**
+     * Batch variant of updateMessageId. Submit slots of several queues published through the node with a single
+     * call. queueName, startMessageId and endMessageId of each SlotInfo are used.
+     * 
+     * @param nodeId
+     * @param slots
+     * @param localSafeZone
+     */
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone) throws org.apache.thrift.TException;
+
   }
 
   public interface AsyncIface {
@@ -59,6 +81,10 @@ public class SlotManagementService {
 
     public void clearAllActiveSlotRelationsToQueue(String queueName, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.clearAllActiveSlotRelationsToQueue_call> resultHandler) throws org.apache.thrift.TException;
 
+    public void getSlotInfos(List<String> queueNames, String nodeId, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.getSlotInfos_call> resultHandler) throws org.apache.thrift.TException;
+
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.updateMessageIds_call> resultHandler) throws org.apache.thrift.TException;
+
   }
 
   public static class Client extends org.apache.thrift.TServiceClient implements Iface {
@@ -219,6 +245,52 @@ public class SlotManagementService {
       return;
     }
 
+    public Map<String,SlotInfo> getSlotInfos(List<String> queueNames, String nodeId) throws org.apache.thrift.TException
+    {
+      send_getSlotInfos(queueNames, nodeId);
+      return recv_getSlotInfos();
+    }
+
+    public void send_getSlotInfos(List<String> queueNames, String nodeId) throws org.apache.thrift.TException
+    {
+      getSlotInfos_args args = new getSlotInfos_args();
+      args.setQueueNames(queueNames);
+      args.setNodeId(nodeId);
+      sendBase("getSlotInfos", args);
+    }
+
+    public Map<String,SlotInfo> recv_getSlotInfos() throws org.apache.thrift.TException
+    {
+      getSlotInfos_result result = new getSlotInfos_result();
+      receiveBase(result, "getSlotInfos");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "getSlotInfos failed: unknown result");
+    }
+
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone) throws org.apache.thrift.TException
+    {
+      send_updateMessageIds(nodeId, slots, localSafeZone);
+      recv_updateMessageIds();
+    }
+
+    public void send_updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone) throws org.apache.thrift.TException
+    {
+      updateMessageIds_args args = new updateMessageIds_args();
+      args.setNodeId(nodeId);
+      args.setSlots(slots);
+      args.setLocalSafeZone(localSafeZone);
+      sendBase("updateMessageIds", args);
+    }
+
+    public void recv_updateMessageIds() throws org.apache.thrift.TException
+    {
+      updateMessageIds_result result = new updateMessageIds_result();
+      receiveBase(result, "updateMessageIds");
+      return;
+    }
+
   }
   public static class AsyncClient extends org.apache.thrift.async.TAsyncClient implements AsyncIface {
     public static class Factory implements org.apache.thrift.async.TAsyncClientFactory<AsyncClient> {
@@ -456,6 +528,79 @@ public class SlotManagementService {
       }
     }
 
+    public void getSlotInfos(List<String> queueNames, String nodeId, org.apache.thrift.async.AsyncMethodCallback<getSlotInfos_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      getSlotInfos_call method_call = new getSlotInfos_call(queueNames, nodeId, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class getSlotInfos_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private List<String> queueNames;
+      private String nodeId;
+      public getSlotInfos_call(List<String> queueNames, String nodeId, org.apache.thrift.async.AsyncMethodCallback<getSlotInfos_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.queueNames = queueNames;
+        this.nodeId = nodeId;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("getSlotInfos", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        getSlotInfos_args args = new getSlotInfos_args();
+        args.setQueueNames(queueNames);
+        args.setNodeId(nodeId);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public Map<String,SlotInfo> getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_getSlotInfos();
+      }
+    }
+
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<updateMessageIds_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      updateMessageIds_call method_call = new updateMessageIds_call(nodeId, slots, localSafeZone, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class updateMessageIds_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private String nodeId;
+      private List<SlotInfo> slots;
+      private long localSafeZone;
+      public updateMessageIds_call(String nodeId, List<SlotInfo> slots, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<updateMessageIds_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.nodeId = nodeId;
+        this.slots = slots;
+        this.localSafeZone = localSafeZone;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("updateMessageIds", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        updateMessageIds_args args = new updateMessageIds_args();
+        args.setNodeId(nodeId);
+        args.setSlots(slots);
+        args.setLocalSafeZone(localSafeZone);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public void getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        (new Client(prot)).recv_updateMessageIds();
+      }
+    }
+
   }
 
   public static class Processor<I extends Iface> extends org.apache.thrift.TBaseProcessor implements org.apache.thrift.TProcessor {
@@ -475,6 +620,8 @@ public class SlotManagementService {
       processMap.put("reAssignSlotWhenNoSubscribers", new reAssignSlotWhenNoSubscribers());
       processMap.put("updateCurrentMessageIdForSafeZone", new updateCurrentMessageIdForSafeZone());
       processMap.put("clearAllActiveSlotRelationsToQueue", new clearAllActiveSlotRelationsToQueue());
+      processMap.put("getSlotInfos", new getSlotInfos());
+      processMap.put("updateMessageIds", new updateMessageIds());
       return processMap;
     }
 
@@ -607,6 +754,48 @@ public class SlotManagementService {
       }
     }
 
+    private static class getSlotInfos<I extends Iface> extends org.apache.thrift.ProcessFunction<I, getSlotInfos_args> {
+      public getSlotInfos() {
+        super("getSlotInfos");
+      }
+
+      public getSlotInfos_args getEmptyArgsInstance() {
+        return new getSlotInfos_args();
+      }
+
+        @Override
+        protected boolean isOneway() {
+            return false;
+        }
+
+      public getSlotInfos_result getResult(I iface, getSlotInfos_args args) throws org.apache.thrift.TException {
+        getSlotInfos_result result = new getSlotInfos_result();
+        result.success = iface.getSlotInfos(args.queueNames, args.nodeId);
+        return result;
+      }
+    }
+
+    private static class updateMessageIds<I extends Iface> extends org.apache.thrift.ProcessFunction<I, updateMessageIds_args> {
+      public updateMessageIds() {
+        super("updateMessageIds");
+      }
+
+      public updateMessageIds_args getEmptyArgsInstance() {
+        return new updateMessageIds_args();
+      }
+
+        @Override
+        protected boolean isOneway() {
+            return false;
+        }
+
+      public updateMessageIds_result getResult(I iface, updateMessageIds_args args) throws org.apache.thrift.TException {
+        updateMessageIds_result result = new updateMessageIds_result();
+        iface.updateMessageIds(args.nodeId, args.slots, args.localSafeZone);
+        return result;
+      }
+    }
+
   }
 
   public static class getSlotInfo_args implements org.apache.thrift.TBase<getSlotInfo_args, getSlotInfo_args._Fields>, java.io.Serializable, Cloneable   {
@@ -4675,4 +4864,1483 @@ public class SlotManagementService {
 
   }
 
+  public static class getSlotInfos_args implements org.apache.thrift.TBase<getSlotInfos_args, getSlotInfos_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("getSlotInfos_args");
+
+    private static final org.apache.thrift.protocol.TField QUEUE_NAMES_FIELD_DESC = new org.apache.thrift.protocol.TField("queueNames", org.apache.thrift.protocol.TType.LIST, (short)1);
+    private static final org.apache.thrift.protocol.TField NODE_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("nodeId", org.apache.thrift.protocol.TType.STRING, (short)2);
+
+    public List<String> queueNames; // required
+    public String nodeId; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      QUEUE_NAMES((short)1, "queueNames"),
+      NODE_ID((short)2, "nodeId");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // QUEUE_NAMES
+            return QUEUE_NAMES;
+          case 2: // NODE_ID
+            return NODE_ID;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.QUEUE_NAMES, new org.apache.thrift.meta_data.FieldMetaData("queueNames", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+      tmpMap.put(_Fields.NODE_ID, new org.apache.thrift.meta_data.FieldMetaData("nodeId", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(getSlotInfos_args.class, metaDataMap);
+    }
+
+    public getSlotInfos_args() {
+    }
+
+    public getSlotInfos_args(
+      List<String> queueNames,
+      String nodeId)
+    {
+      this();
+      this.queueNames = queueNames;
+      this.nodeId = nodeId;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public getSlotInfos_args(getSlotInfos_args other) {
+      if (other.isSetQueueNames()) {
+        List<String> __this__queueNames = new ArrayList<String>();
+        for (String other_element : other.queueNames) {
+          __this__queueNames.add(other_element);
+        }
+        this.queueNames = __this__queueNames;
+      }
+      if (other.isSetNodeId()) {
+        this.nodeId = other.nodeId;
+      }
+    }
+
+    public getSlotInfos_args deepCopy() {
+      return new getSlotInfos_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.queueNames = null;
+      this.nodeId = null;
+    }
+
+    public int getQueueNamesSize() {
+      return (this.queueNames == null) ? 0 : this.queueNames.size();
+    }
+
+    public java.util.Iterator<String> getQueueNamesIterator() {
+      return (this.queueNames == null) ? null : this.queueNames.iterator();
+    }
+
+    public void addToQueueNames(String elem) {
+      if (this.queueNames == null) {
+        this.queueNames = new ArrayList<String>();
+      }
+      this.queueNames.add(elem);
+    }
+
+    public List<String> getQueueNames() {
+      return this.queueNames;
+    }
+
+    public getSlotInfos_args setQueueNames(List<String> queueNames) {
+      this.queueNames = queueNames;
+      return this;
+    }
+
+    public void unsetQueueNames() {
+      this.queueNames = null;
+    }
+
+    /** Returns true if field queueNames is set (has been assigned a value) and false otherwise */
+    public boolean isSetQueueNames() {
+      return this.queueNames != null;
+    }
+
+    public void setQueueNamesIsSet(boolean value) {
+      if (!value) {
+        this.queueNames = null;
+      }
+    }
+
+    public String getNodeId() {
+      return this.nodeId;
+    }
+
+    public getSlotInfos_args setNodeId(String nodeId) {
+      this.nodeId = nodeId;
+      return this;
+    }
+
+    public void unsetNodeId() {
+      this.nodeId = null;
+    }
+
+    /** Returns true if field nodeId is set (has been assigned a value) and false otherwise */
+    public boolean isSetNodeId() {
+      return this.nodeId != null;
+    }
+
+    public void setNodeIdIsSet(boolean value) {
+      if (!value) {
+        this.nodeId = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case QUEUE_NAMES:
+        if (value == null) {
+          unsetQueueNames();
+        } else {
+          setQueueNames((List<String>)value);
+        }
+        break;
+
+      case NODE_ID:
+        if (value == null) {
+          unsetNodeId();
+        } else {
+          setNodeId((String)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case QUEUE_NAMES:
+        return getQueueNames();
+
+      case NODE_ID:
+        return getNodeId();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case QUEUE_NAMES:
+        return isSetQueueNames();
+      case NODE_ID:
+        return isSetNodeId();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof getSlotInfos_args)
+        return this.equals((getSlotInfos_args)that);
+      return false;
+    }
+
+    public boolean equals(getSlotInfos_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_queueNames = true && this.isSetQueueNames();
+      boolean that_present_queueNames = true && that.isSetQueueNames();
+      if (this_present_queueNames || that_present_queueNames) {
+        if (!(this_present_queueNames && that_present_queueNames))
+          return false;
+        if (!this.queueNames.equals(that.queueNames))
+          return false;
+      }
+
+      boolean this_present_nodeId = true && this.isSetNodeId();
+      boolean that_present_nodeId = true && that.isSetNodeId();
+      if (this_present_nodeId || that_present_nodeId) {
+        if (!(this_present_nodeId && that_present_nodeId))
+          return false;
+        if (!this.nodeId.equals(that.nodeId))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(getSlotInfos_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      getSlotInfos_args typedOther = (getSlotInfos_args)other;
+
+      lastComparison = Boolean.valueOf(isSetQueueNames()).compareTo(typedOther.isSetQueueNames());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetQueueNames()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.queueNames, typedOther.queueNames);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetNodeId()).compareTo(typedOther.isSetNodeId());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetNodeId()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.nodeId, typedOther.nodeId);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 1: // QUEUE_NAMES
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list0 = iprot.readListBegin();
+                this.queueNames = new ArrayList<String>(_list0.size);
+                for (int _i1 = 0; _i1 < _list0.size; ++_i1)
+                {
+                  String _elem2; // required
+                  _elem2 = iprot.readString();
+                  this.queueNames.add(_elem2);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2: // NODE_ID
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.nodeId = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      validate();
+
+      oprot.writeStructBegin(STRUCT_DESC);
+      if (this.queueNames != null) {
+        oprot.writeFieldBegin(QUEUE_NAMES_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, this.queueNames.size()));
+          for (String _iter3 : this.queueNames)
+          {
+            oprot.writeString(_iter3);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      if (this.nodeId != null) {
+        oprot.writeFieldBegin(NODE_ID_FIELD_DESC);
+        oprot.writeString(this.nodeId);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("getSlotInfos_args(");
+      boolean first = true;
+
+      sb.append("queueNames:");
+      if (this.queueNames == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.queueNames);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("nodeId:");
+      if (this.nodeId == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.nodeId);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class getSlotInfos_result implements org.apache.thrift.TBase<getSlotInfos_result, getSlotInfos_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("getSlotInfos_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.MAP, (short)0);
+
+    public Map<String,SlotInfo> success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, 
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING), 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, SlotInfo.class))));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(getSlotInfos_result.class, metaDataMap);
+    }
+
+    public getSlotInfos_result() {
+    }
+
+    public getSlotInfos_result(
+      Map<String,SlotInfo> success)
+    {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public getSlotInfos_result(getSlotInfos_result other) {
+      if (other.isSetSuccess()) {
+        Map<String,SlotInfo> __this__success = new HashMap<String,SlotInfo>();
+        for (Map.Entry<String, SlotInfo> other_element : other.success.entrySet()) {
+
+          String other_element_key = other_element.getKey();
+          SlotInfo other_element_value = other_element.getValue();
+
+          String __this__success_copy_key = other_element_key;
+
+          SlotInfo __this__success_copy_value = new SlotInfo(other_element_value);
+
+          __this__success.put(__this__success_copy_key, __this__success_copy_value);
+        }
+        this.success = __this__success;
+      }
+    }
+
+    public getSlotInfos_result deepCopy() {
+      return new getSlotInfos_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public int getSuccessSize() {
+      return (this.success == null) ? 0 : this.success.size();
+    }
+
+    public void putToSuccess(String key, SlotInfo val) {
+      if (this.success == null) {
+        this.success = new HashMap<String,SlotInfo>();
+      }
+      this.success.put(key, val);
+    }
+
+    public Map<String,SlotInfo> getSuccess() {
+      return this.success;
+    }
+
+    public getSlotInfos_result setSuccess(Map<String,SlotInfo> success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((Map<String,SlotInfo>)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof getSlotInfos_result)
+        return this.equals((getSlotInfos_result)that);
+      return false;
+    }
+
+    public boolean equals(getSlotInfos_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(getSlotInfos_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      getSlotInfos_result typedOther = (getSlotInfos_result)other;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(typedOther.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, typedOther.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 0: // SUCCESS
+            if (field.type == org.apache.thrift.protocol.TType.MAP) {
+              {
+                org.apache.thrift.protocol.TMap _map4 = iprot.readMapBegin();
+                this.success = new HashMap<String,SlotInfo>(2*_map4.size);
+                for (int _i5 = 0; _i5 < _map4.size; ++_i5)
+                {
+                  String _key6; // required
+                  SlotInfo _val7; // required
+                  _key6 = iprot.readString();
+                  _val7 = new SlotInfo();
+                  _val7.read(iprot);
+                  this.success.put(_key6, _val7);
+                }
+                iprot.readMapEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      oprot.writeStructBegin(STRUCT_DESC);
+
+      if (this.isSetSuccess()) {
+        oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+        {
+          oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.STRUCT, this.success.size()));
+          for (Map.Entry<String, SlotInfo> _iter8 : this.success.entrySet())
+          {
+            oprot.writeString(_iter8.getKey());
+            _iter8.getValue().write(oprot);
+          }
+          oprot.writeMapEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("getSlotInfos_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class updateMessageIds_args implements org.apache.thrift.TBase<updateMessageIds_args, updateMessageIds_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("updateMessageIds_args");
+
+    private static final org.apache.thrift.protocol.TField NODE_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("nodeId", org.apache.thrift.protocol.TType.STRING, (short)1);
+    private static final org.apache.thrift.protocol.TField SLOTS_FIELD_DESC = new org.apache.thrift.protocol.TField("slots", org.apache.thrift.protocol.TType.LIST, (short)2);
+    private static final org.apache.thrift.protocol.TField LOCAL_SAFE_ZONE_FIELD_DESC = new org.apache.thrift.protocol.TField("localSafeZone", org.apache.thrift.protocol.TType.I64, (short)3);
+
+    public String nodeId; // required
+    public List<SlotInfo> slots; // required
+    public long localSafeZone; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      NODE_ID((short)1, "nodeId"),
+      SLOTS((short)2, "slots"),
+      LOCAL_SAFE_ZONE((short)3, "localSafeZone");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // NODE_ID
+            return NODE_ID;
+          case 2: // SLOTS
+            return SLOTS;
+          case 3: // LOCAL_SAFE_ZONE
+            return LOCAL_SAFE_ZONE;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __LOCALSAFEZONE_ISSET_ID = 0;
+    private BitSet __isset_bit_vector = new BitSet(1);
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.NODE_ID, new org.apache.thrift.meta_data.FieldMetaData("nodeId", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.SLOTS, new org.apache.thrift.meta_data.FieldMetaData("slots", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, SlotInfo.class))));
+      tmpMap.put(_Fields.LOCAL_SAFE_ZONE, new org.apache.thrift.meta_data.FieldMetaData("localSafeZone", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(updateMessageIds_args.class, metaDataMap);
+    }
+
+    public updateMessageIds_args() {
+    }
+
+    public updateMessageIds_args(
+      String nodeId,
+      List<SlotInfo> slots,
+      long localSafeZone)
+    {
+      this();
+      this.nodeId = nodeId;
+      this.slots = slots;
+      this.localSafeZone = localSafeZone;
+      setLocalSafeZoneIsSet(true);
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public updateMessageIds_args(updateMessageIds_args other) {
+      __isset_bit_vector.clear();
+      __isset_bit_vector.or(other.__isset_bit_vector);
+      if (other.isSetNodeId()) {
+        this.nodeId = other.nodeId;
+      }
+      if (other.isSetSlots()) {
+        List<SlotInfo> __this__slots = new ArrayList<SlotInfo>();
+        for (SlotInfo other_element : other.slots) {
+          __this__slots.add(new SlotInfo(other_element));
+        }
+        this.slots = __this__slots;
+      }
+      this.localSafeZone = other.localSafeZone;
+    }
+
+    public updateMessageIds_args deepCopy() {
+      return new updateMessageIds_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.nodeId = null;
+      this.slots = null;
+      setLocalSafeZoneIsSet(false);
+      this.localSafeZone = 0;
+    }
+
+    public String getNodeId() {
+      return this.nodeId;
+    }
+
+    public updateMessageIds_args setNodeId(String nodeId) {
+      this.nodeId = nodeId;
+      return this;
+    }
+
+    public void unsetNodeId() {
+      this.nodeId = null;
+    }
+
+    /** Returns true if field nodeId is set (has been assigned a value) and false otherwise */
+    public boolean isSetNodeId() {
+      return this.nodeId != null;
+    }
+
+    public void setNodeIdIsSet(boolean value) {
+      if (!value) {
+        this.nodeId = null;
+      }
+    }
+
+    public int getSlotsSize() {
+      return (this.slots == null) ? 0 : this.slots.size();
+    }
+
+    public java.util.Iterator<SlotInfo> getSlotsIterator() {
+      return (this.slots == null) ? null : this.slots.iterator();
+    }
+
+    public void addToSlots(SlotInfo elem) {
+      if (this.slots == null) {
+        this.slots = new ArrayList<SlotInfo>();
+      }
+      this.slots.add(elem);
+    }
+
+    public List<SlotInfo> getSlots() {
+      return this.slots;
+    }
+
+    public updateMessageIds_args setSlots(List<SlotInfo> slots) {
+      this.slots = slots;
+      return this;
+    }
+
+    public void unsetSlots() {
+      this.slots = null;
+    }
+
+    /** Returns true if field slots is set (has been assigned a value) and false otherwise */
+    public boolean isSetSlots() {
+      return this.slots != null;
+    }
+
+    public void setSlotsIsSet(boolean value) {
+      if (!value) {
+        this.slots = null;
+      }
+    }
+
+    public long getLocalSafeZone() {
+      return this.localSafeZone;
+    }
+
+    public updateMessageIds_args setLocalSafeZone(long localSafeZone) {
+      this.localSafeZone = localSafeZone;
+      setLocalSafeZoneIsSet(true);
+      return this;
+    }
+
+    public void unsetLocalSafeZone() {
+      __isset_bit_vector.clear(__LOCALSAFEZONE_ISSET_ID);
+    }
+
+    /** Returns true if field localSafeZone is set (has been assigned a value) and false otherwise */
+    public boolean isSetLocalSafeZone() {
+      return __isset_bit_vector.get(__LOCALSAFEZONE_ISSET_ID);
+    }
+
+    public void setLocalSafeZoneIsSet(boolean value) {
+      __isset_bit_vector.set(__LOCALSAFEZONE_ISSET_ID, value);
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case NODE_ID:
+        if (value == null) {
+          unsetNodeId();
+        } else {
+          setNodeId((String)value);
+        }
+        break;
+
+      case SLOTS:
+        if (value == null) {
+          unsetSlots();
+        } else {
+          setSlots((List<SlotInfo>)value);
+        }
+        break;
+
+      case LOCAL_SAFE_ZONE:
+        if (value == null) {
+          unsetLocalSafeZone();
+        } else {
+          setLocalSafeZone((Long)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case NODE_ID:
+        return getNodeId();
+
+      case SLOTS:
+        return getSlots();
+
+      case LOCAL_SAFE_ZONE:
+        return Long.valueOf(getLocalSafeZone());
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case NODE_ID:
+        return isSetNodeId();
+      case SLOTS:
+        return isSetSlots();
+      case LOCAL_SAFE_ZONE:
+        return isSetLocalSafeZone();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof updateMessageIds_args)
+        return this.equals((updateMessageIds_args)that);
+      return false;
+    }
+
+    public boolean equals(updateMessageIds_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_nodeId = true && this.isSetNodeId();
+      boolean that_present_nodeId = true && that.isSetNodeId();
+      if (this_present_nodeId || that_present_nodeId) {
+        if (!(this_present_nodeId && that_present_nodeId))
+          return false;
+        if (!this.nodeId.equals(that.nodeId))
+          return false;
+      }
+
+      boolean this_present_slots = true && this.isSetSlots();
+      boolean that_present_slots = true && that.isSetSlots();
+      if (this_present_slots || that_present_slots) {
+        if (!(this_present_slots && that_present_slots))
+          return false;
+        if (!this.slots.equals(that.slots))
+          return false;
+      }
+
+      boolean this_present_localSafeZone = true;
+      boolean that_present_localSafeZone = true;
+      if (this_present_localSafeZone || that_present_localSafeZone) {
+        if (!(this_present_localSafeZone && that_present_localSafeZone))
+          return false;
+        if (this.localSafeZone != that.localSafeZone)
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(updateMessageIds_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      updateMessageIds_args typedOther = (updateMessageIds_args)other;
+
+      lastComparison = Boolean.valueOf(isSetNodeId()).compareTo(typedOther.isSetNodeId());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetNodeId()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.nodeId, typedOther.nodeId);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetSlots()).compareTo(typedOther.isSetSlots());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSlots()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.slots, typedOther.slots);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetLocalSafeZone()).compareTo(typedOther.isSetLocalSafeZone());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetLocalSafeZone()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.localSafeZone, typedOther.localSafeZone);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 1: // NODE_ID
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.nodeId = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2: // SLOTS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list9 = iprot.readListBegin();
+                this.slots = new ArrayList<SlotInfo>(_list9.size);
+                for (int _i10 = 0; _i10 < _list9.size; ++_i10)
+                {
+                  SlotInfo _elem11; // required
+                  _elem11 = new SlotInfo();
+                  _elem11.read(iprot);
+                  this.slots.add(_elem11);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 3: // LOCAL_SAFE_ZONE
+            if (field.type == org.apache.thrift.protocol.TType.I64) {
+              this.localSafeZone = iprot.readI64();
+              setLocalSafeZoneIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      validate();
+
+      oprot.writeStructBegin(STRUCT_DESC);
+      if (this.nodeId != null) {
+        oprot.writeFieldBegin(NODE_ID_FIELD_DESC);
+        oprot.writeString(this.nodeId);
+        oprot.writeFieldEnd();
+      }
+      if (this.slots != null) {
+        oprot.writeFieldBegin(SLOTS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.slots.size()));
+          for (SlotInfo _iter12 : this.slots)
+          {
+            _iter12.write(oprot);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldBegin(LOCAL_SAFE_ZONE_FIELD_DESC);
+      oprot.writeI64(this.localSafeZone);
+      oprot.writeFieldEnd();
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("updateMessageIds_args(");
+      boolean first = true;
+
+      sb.append("nodeId:");
+      if (this.nodeId == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.nodeId);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("slots:");
+      if (this.slots == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.slots);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("localSafeZone:");
+      sb.append(this.localSafeZone);
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bit_vector = new BitSet(1);
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class updateMessageIds_result implements org.apache.thrift.TBase<updateMessageIds_result, updateMessageIds_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("updateMessageIds_result");
+
+
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+;
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(updateMessageIds_result.class, metaDataMap);
+    }
+
+    public updateMessageIds_result() {
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public updateMessageIds_result(updateMessageIds_result other) {
+    }
+
+    public updateMessageIds_result deepCopy() {
+      return new updateMessageIds_result(this);
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof updateMessageIds_result)
+        return this.equals((updateMessageIds_result)that);
+      return false;
+    }
+
+    public boolean equals(updateMessageIds_result that) {
+      if (that == null)
+        return false;
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(updateMessageIds_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      updateMessageIds_result typedOther = (updateMessageIds_result)other;
+
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      oprot.writeStructBegin(STRUCT_DESC);
+
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("updateMessageIds_result(");
+      boolean first = true;
+
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
 }
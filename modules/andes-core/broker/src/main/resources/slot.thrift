@@ -1,5 +1,8 @@
 namespace java org.wso2.andes.thrift.slot.gen
 
+// Java code in org.wso2.andes.thrift.slot.gen is generated with Thrift Compiler 0.7.0
+// thrift-0.7.0 --gen java slot.thrift
+
 //typedef i64 long
 
 /* A Slot consists of followings
@@ -50,6 +53,18 @@ service SlotManagementService {
      *
      * @param queueName name of destination queue
      */
-    void clearAllActiveSlotRelationsToQueue(1: string queueName)
+    void clearAllActiveSlotRelationsToQueue(1: string queueName),
+
+    /**
+     * Batch variant of getSlotInfo. Request slots for a set of queues with a single call. Only the queues a slot
+     * could be assigned to are present in the returned map.
+     */
+    map<string, SlotInfo> getSlotInfos(1: list<string> queueNames, 2: string nodeId),
+
+    /**
+     * Batch variant of updateMessageId. Submit slots of several queues published through the node with a single
+     * call. queueName, startMessageId and endMessageId of each SlotInfo are used.
+     */
+    void updateMessageIds(1: string nodeId, 2: list<SlotInfo> slots, 3: i64 localSafeZone)
 
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.dna.mqtt.moquette.messaging.spi.impl;
+
+import com.lmax.disruptor.EventHandler;
+import org.dna.mqtt.moquette.messaging.spi.impl.events.LostConnectionEvent;
+import org.dna.mqtt.moquette.messaging.spi.impl.events.MessagingEvent;
+import org.dna.mqtt.moquette.messaging.spi.impl.events.StopEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link ClientShardEventHandler}
+ * Events of several clients are published to every handler the way the inbound ring buffer hands them over.
+ */
+public class ClientShardEventHandlerTest {
+
+    private static final int HANDLER_COUNT = 4;
+
+    private List<List<String>> processedClientIDs;
+
+    private List<ClientShardEventHandler> handlers;
+
+    private CountDownLatch stopLatch;
+
+    @Before
+    public void setUp() {
+        processedClientIDs = new ArrayList<>();
+        handlers = new ArrayList<>();
+        stopLatch = new CountDownLatch(HANDLER_COUNT);
+
+        for (int i = 0; i < HANDLER_COUNT; i++) {
+            final List<String> clientIDs = new ArrayList<>();
+            processedClientIDs.add(clientIDs);
+            handlers.add(new ClientShardEventHandler(i, HANDLER_COUNT, new EventHandler<ValueEvent>() {
+                @Override
+                public void onEvent(ValueEvent event, long sequence, boolean endOfBatch) {
+                    clientIDs.add(((LostConnectionEvent) event.getEvent()).getClientID());
+                }
+            }, stopLatch));
+        }
+    }
+
+    /**
+     * Test every event is processed by exactly one handler and events of a client by the same handler in order
+     */
+    @Test
+    public void testEventsOfClientProcessedInOrderByOneHandler() throws Exception {
+        List<String> published = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String clientID = "client" + (i % 10);
+            published.add(clientID);
+            publish(new LostConnectionEvent(clientID), clientID, i);
+        }
+
+        for (int i = 0; i < HANDLER_COUNT; i++) {
+            List<String> expected = new ArrayList<>();
+            for (String clientID : published) {
+                if (ClientShardEventHandler.getHandlerOrdinal(clientID, HANDLER_COUNT) == i) {
+                    expected.add(clientID);
+                }
+            }
+            assertEquals(expected, processedClientIDs.get(i));
+        }
+    }
+
+    /**
+     * Test events without a client ID are processed by the first handler
+     */
+    @Test
+    public void testEventWithoutClientID() throws Exception {
+        publish(new LostConnectionEvent(null), null, 0);
+
+        assertEquals(1, processedClientIDs.get(0).size());
+    }
+
+    /**
+     * Test the stop event is reached by every handler
+     */
+    @Test
+    public void testStopEventReachedByEveryHandler() throws Exception {
+        publish(new StopEvent(), null, 0);
+
+        assertEquals(0, stopLatch.getCount());
+        for (List<String> clientIDs : processedClientIDs) {
+            assertEquals(0, clientIDs.size());
+        }
+    }
+
+    private void publish(MessagingEvent messagingEvent, String clientID, long sequence) throws Exception {
+        ValueEvent event = new ValueEvent();
+        event.setEvent(messagingEvent);
+        event.setHandlerKey(clientID);
+        for (ClientShardEventHandler handler : handlers) {
+            handler.onEvent(event, sequence, true);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.dna.mqtt.moquette.messaging.spi.impl.subscriptions;
+
+import org.dna.mqtt.moquette.messaging.spi.IPersistentSubscriptionStore;
+import org.dna.mqtt.moquette.proto.messages.AbstractMessage.QOSType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SubscriptionsStore}
+ * Subscriptions of different clients are changed from several threads the way the client shard handlers do.
+ */
+public class SubscriptionsStoreTest {
+
+    private static final int CLIENT_COUNT = 4;
+
+    private static final int ITERATIONS = 2000;
+
+    private SubscriptionsStore store;
+
+    @Before
+    public void setUp() {
+        store = new SubscriptionsStore();
+        store.init(new EmptySubscriptionStore());
+    }
+
+    /**
+     * Clients subscribe, unsubscribe, activate and deactivate on overlapping topics while another thread matches
+     * publishes against the tree. No operation may fail and the tree must hold exactly the final subscriptions.
+     */
+    @Test
+    public void testConcurrentSubscribeUnsubscribeAndMatch() throws Exception {
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicBoolean clientsDone = new AtomicBoolean(false);
+        List<Thread> clients = new ArrayList<>();
+
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            final String clientID = "client" + i;
+            final String topic = "sport/tennis/player" + (i % 2);
+            clients.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int j = 0; j < ITERATIONS; j++) {
+                            String ownTopic = "sport/tennis/" + clientID + "/" + j;
+                            store.add(new Subscription(clientID, topic, QOSType.LEAST_ONE, false));
+                            store.add(new Subscription(clientID, ownTopic, QOSType.LEAST_ONE, false));
+                            store.add(new Subscription(clientID, "sport/+/player0", QOSType.MOST_ONE, false));
+                            store.deactivate(clientID);
+                            store.activate(clientID);
+                            store.removeSubscription(ownTopic, clientID);
+                            store.getSubscriptions(topic, clientID);
+                            store.removeForClient(clientID);
+                        }
+                        store.add(new Subscription(clientID, topic, QOSType.LEAST_ONE, false));
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+
+        Thread matcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    startLatch.await();
+                    while (!clientsDone.get()) {
+                        store.matches("sport/tennis/player0");
+                        store.size();
+                        store.dumpTree();
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }
+        });
+
+        for (Thread client : clients) {
+            client.start();
+        }
+        matcher.start();
+        startLatch.countDown();
+        for (Thread client : clients) {
+            client.join();
+        }
+        clientsDone.set(true);
+        matcher.join();
+
+        assertTrue("Concurrent subscription changes failed " + failures, failures.isEmpty());
+        assertEquals(CLIENT_COUNT / 2, store.matches("sport/tennis/player0").size());
+        assertEquals(CLIENT_COUNT / 2, store.matches("sport/tennis/player1").size());
+        assertTrue(store.matches("sport/tennis/client0/0").isEmpty());
+    }
+
+    /**
+     * Looking up or removing a subscription of an unknown topic should not add nodes to the tree.
+     */
+    @Test
+    public void testLookupDoesNotGrowTree() {
+        store.add(new Subscription("client0", "sport/tennis", QOSType.LEAST_ONE, false));
+        String treeBefore = store.dumpTree();
+
+        assertNull(store.getSubscriptions("sport/golf/player1", "client0"));
+        store.removeSubscription("sport/golf/player2", "client0");
+
+        assertEquals(treeBefore, store.dumpTree());
+    }
+
+    /**
+     * Subscription store without any persisted subscriptions.
+     */
+    private static class EmptySubscriptionStore implements IPersistentSubscriptionStore {
+
+        @Override
+        public void addNewSubscription(Subscription newSubscription, String clientID) {
+        }
+
+        @Override
+        public void removeAllSubscriptions(String clientID) {
+        }
+
+        @Override
+        public List<Subscription> retrieveAllSubscriptions() {
+            return Collections.emptyList();
+        }
+    }
+}
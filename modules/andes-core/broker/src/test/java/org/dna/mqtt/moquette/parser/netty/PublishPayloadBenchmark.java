@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.dna.mqtt.moquette.parser.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AttributeMap;
+import io.netty.util.DefaultAttributeMap;
+import org.dna.mqtt.moquette.proto.messages.AbstractMessage;
+import org.dna.mqtt.moquette.proto.messages.PublishMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares converting the payload of a PUBLISH frame read from a pooled inbound buffer into content chunks stored by
+ * Andes. {@link #slicedPayload()} decodes the frame with {@link PublishDecoder}, which keeps the payload as a slice
+ * of the inbound buffer, and copies it once into content chunks. {@link #copiedPayload()} copies the payload into a
+ * heap buffer first and chunks it again when it is larger than the maximum chunk size, the way payloads were handled
+ * before.
+ * <p/>
+ * {@link #main(String[])} adds the GC profiler so that the allocation rate of both paths can be compared.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class PublishPayloadBenchmark {
+
+    private static final int CONTENT_CHUNK_SIZE = 65500;
+
+    private static final String TOPIC = "benchmark/payload";
+
+    @Param({"1024", "65500", "262144"})
+    private int payloadSize;
+
+    private final PublishDecoder decoder = new PublishDecoder();
+
+    private final AttributeMap attributes = new DefaultAttributeMap();
+
+    private final List<Object> decoded = new ArrayList<>(1);
+
+    /**
+     * PUBLISH frame in a pooled direct buffer, the way frames are read from the socket
+     */
+    private ByteBuf frame;
+
+    /**
+     * Index of the first payload byte in the frame
+     */
+    private int payloadIndex;
+
+    @Setup
+    public void setUp() throws Exception {
+        ByteBuf topic = Utils.encodeString(TOPIC);
+        int remainingLength = topic.readableBytes() + 2 + payloadSize;
+        ByteBuf remainingLengthBytes = Utils.encodeRemainingLength(remainingLength);
+
+        frame = PooledByteBufAllocator.DEFAULT.directBuffer(1 + remainingLengthBytes.readableBytes()
+                + remainingLength);
+        frame.writeByte((AbstractMessage.PUBLISH << 4) | (AbstractMessage.QOSType.LEAST_ONE.ordinal() << 1));
+        frame.writeBytes(remainingLengthBytes);
+        frame.writeBytes(topic);
+        frame.writeShort(1);
+        payloadIndex = frame.writerIndex();
+        frame.writeBytes(new byte[payloadSize]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public List<AndesMessagePart> slicedPayload() throws Exception {
+        frame.readerIndex(0);
+        decoder.decode(attributes, frame, decoded);
+        PublishMessage message = (PublishMessage) decoded.get(0);
+        decoded.clear();
+        try {
+            return MQTTUtils.convertToAndesMessageParts(message.getPayload(), 0, CONTENT_CHUNK_SIZE);
+        } finally {
+            message.release();
+        }
+    }
+
+    @Benchmark
+    public List<AndesMessagePart> copiedPayload() {
+        ByteBuf payload = Unpooled.buffer(payloadSize);
+        frame.getBytes(payloadIndex, payload, payloadSize);
+        byte[] messageData = payload.nioBuffer().array();
+        AndesMessagePart messagePart = MQTTUtils.convertToAndesMessage(messageData, 0);
+
+        // Content larger than the maximum chunk size was copied again into chunks by the content chunk handler
+        if (payloadSize <= CONTENT_CHUNK_SIZE) {
+            return Collections.singletonList(messagePart);
+        }
+        return MQTTUtils.convertToAndesMessageParts(ByteBuffer.wrap(messageData), 0, CONTENT_CHUNK_SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PublishPayloadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.amqp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.framing.AMQShortString;
+import org.wso2.andes.framing.BasicContentHeaderProperties;
+import org.wso2.andes.framing.ContentHeaderBody;
+import org.wso2.andes.framing.FieldTable;
+import org.wso2.andes.framing.FieldTableFactory;
+import org.wso2.andes.framing.abstraction.MessagePublishInfoImpl;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.server.filter.JMSSelectorFilter;
+import org.wso2.andes.server.message.AMQMessage;
+import org.wso2.andes.server.message.MessageMetaData;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares checking a message against the selectors of all subscribers of a queue through
+ * {@link SharedSelectorEvaluator} with decoding the message and running the selector filter for each subscriber, the
+ * way {@link AMQPLocalSubscription} checked messages before. Selectors share their region conditions.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath. The GC profiler reports the bytes allocated per
+ * message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SharedSelectorEvaluatorBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int selectorCount;
+
+    private String[] selectors;
+
+    private JMSSelectorFilter[] filters;
+
+    private SharedSelectorEvaluator evaluator;
+
+    private byte[] metadata;
+
+    private long messageId;
+
+    @Setup
+    public void setUp() throws Exception {
+        selectors = new String[selectorCount];
+        filters = new JMSSelectorFilter[selectorCount];
+        for (int i = 0; i < selectorCount; i++) {
+            selectors[i] = "region = 'region" + (i % 4) + "' AND level > " + (i % 10);
+            filters[i] = new JMSSelectorFilter(selectors[i]);
+        }
+        evaluator = new SharedSelectorEvaluator();
+        metadata = createMetadata("region1", 5);
+    }
+
+    @Benchmark
+    public void sharedEvaluation(Blackhole blackhole) throws Exception {
+        AndesMessageMetadata message = new AndesMessageMetadata(messageId++, metadata, true);
+        for (int i = 0; i < selectorCount; i++) {
+            blackhole.consume(evaluator.getAcceptedMessage(message, i, selectors[i]));
+        }
+    }
+
+    @Benchmark
+    public void evaluationPerSubscriber(Blackhole blackhole) {
+        AndesMessageMetadata message = new AndesMessageMetadata(messageId++, metadata, true);
+        for (int i = 0; i < selectorCount; i++) {
+            AMQMessage amqMessage = AMQPUtils.getAMQMessageFromAndesMetaData(message);
+            blackhole.consume(filters[i].matches(AMQPUtils.convertAMQMessageToQueueEntry(amqMessage, null)));
+        }
+    }
+
+    private static byte[] createMetadata(String region, int level) {
+        BasicContentHeaderProperties properties = new BasicContentHeaderProperties();
+        properties.setContentType("text/plain");
+        FieldTable headers = FieldTableFactory.newFieldTable();
+        headers.setString("region", region);
+        headers.setInteger("level", level);
+        properties.setHeaders(headers);
+        properties.setDeliveryMode((byte) BasicContentHeaderProperties.PERSISTENT);
+        ContentHeaderBody contentHeaderBody = new ContentHeaderBody(60, 0, properties, 1024);
+
+        MessageMetaData messageMetaData = new MessageMetaData(new MessagePublishInfoImpl(new AMQShortString(""),
+                false, false, new AMQShortString("queue1")), contentHeaderBody, 1L, 2, System.currentTimeMillis(),
+                false);
+
+        byte[] metadata = new byte[1 + messageMetaData.getStorableSize()];
+        metadata[0] = (byte) messageMetaData.getType().ordinal();
+        ByteBuffer buf = ByteBuffer.wrap(metadata);
+        buf.position(1);
+        messageMetaData.writeToBuffer(0, buf.slice());
+        return metadata;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SharedSelectorEvaluatorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.amqp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.server.filter.MockFilterableMessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SharedSelectorEvaluator}
+ * Selectors of the subscribers of a queue are evaluated over messages carrying application properties.
+ */
+public class SharedSelectorEvaluatorTest {
+
+    private SharedSelectorEvaluator evaluator;
+
+    @Before
+    public void setUp() {
+        evaluator = new SharedSelectorEvaluator();
+    }
+
+    /**
+     * Test each subscriber gets the result of its own selector
+     */
+    @Test
+    public void testSelectorsOfSubscribers() throws Exception {
+        MockFilterableMessage message = new MockFilterableMessage().with("region", "east").with("level", 5);
+        evaluator.add(1, "region = 'east'");
+        evaluator.add(2, "region = 'west'");
+        evaluator.add(3, "region = 'east' AND level > 3");
+        evaluator.add(4, "region = 'east' AND level > 7");
+        evaluator.add(5, "region = 'west' OR level > 3");
+        evaluator.add(6, "region = 'east' AND missing > 3");
+
+        assertTrue(evaluator.isAccepted(1, message, 1));
+        assertFalse(evaluator.isAccepted(1, message, 2));
+        assertTrue(evaluator.isAccepted(1, message, 3));
+        assertFalse(evaluator.isAccepted(1, message, 4));
+        assertTrue(evaluator.isAccepted(1, message, 5));
+        assertFalse(evaluator.isAccepted(1, message, 6));
+    }
+
+    /**
+     * Test subscribers with the same selector share a group, and conditions common to selectors are shared
+     */
+    @Test
+    public void testSharedConditions() throws Exception {
+        evaluator.add(1, "region = 'east' AND level > 3");
+        evaluator.add(2, "region = 'east' AND level > 3");
+        evaluator.add(3, "region = 'east' AND level > 7");
+
+        assertEquals(2, evaluator.getGroupCount());
+        assertEquals(3, evaluator.getConditionCount());
+    }
+
+    /**
+     * Test a message is evaluated once for all subscribers, with each condition evaluated at most once
+     */
+    @Test
+    public void testMessageEvaluatedOnce() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            evaluator.add(i, "region = 'east' AND level > " + i);
+        }
+
+        MockFilterableMessage message = new MockFilterableMessage().with("region", "east").with("level", 5);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i < 5, evaluator.isAccepted(1, message, i));
+        }
+
+        assertEquals(1, message.getReadCount("region"));
+        assertEquals(10, message.getReadCount("level"));
+    }
+
+    /**
+     * Test LIKE and NOT LIKE conditions with different patterns on the same property are not shared
+     */
+    @Test
+    public void testLikeConditionsWithDifferentPatterns() throws Exception {
+        MockFilterableMessage message = new MockFilterableMessage().with("region", "east-1");
+        evaluator.add(1, "region LIKE 'east%'");
+        evaluator.add(2, "region LIKE 'west%'");
+        evaluator.add(3, "region NOT LIKE 'east%'");
+        evaluator.add(4, "region NOT LIKE 'west%'");
+        evaluator.add(5, "region LIKE 'east!%' ESCAPE '!'");
+        evaluator.add(6, "region LIKE 'east_1' ESCAPE '!'");
+
+        assertTrue(evaluator.isAccepted(1, message, 1));
+        assertFalse(evaluator.isAccepted(1, message, 2));
+        assertFalse(evaluator.isAccepted(1, message, 3));
+        assertTrue(evaluator.isAccepted(1, message, 4));
+        assertFalse(evaluator.isAccepted(1, message, 5));
+        assertTrue(evaluator.isAccepted(1, message, 6));
+
+        assertEquals(6, evaluator.getConditionCount());
+    }
+
+    /**
+     * Test conditions of removed subscribers are no longer evaluated
+     */
+    @Test
+    public void testRemoveSubscriber() throws Exception {
+        String queueName = "testRemoveSubscriber";
+        MockFilterableMessage message = new MockFilterableMessage().with("region", "east").with("level", 5);
+
+        SharedSelectorEvaluator.addSubscriber(queueName, 1, "region = 'east' AND level > 3");
+        SharedSelectorEvaluator.addSubscriber(queueName, 2, "region = 'west'");
+        evaluator = SharedSelectorEvaluator.getEvaluator(queueName);
+        assertEquals(3, evaluator.getConditionCount());
+
+        SharedSelectorEvaluator.removeSubscriber(queueName, 1);
+        assertEquals(1, evaluator.getGroupCount());
+        assertEquals(1, evaluator.getConditionCount());
+        assertFalse(evaluator.isAccepted(2, message, 2));
+
+        SharedSelectorEvaluator.removeSubscriber(queueName, 2);
+        assertNull(SharedSelectorEvaluator.getEvaluator(queueName));
+    }
+
+    /**
+     * Test a subscriber which is not added, such as one checked by a delivery after its subscription was closed,
+     * accepts no message and is not added by the check
+     */
+    @Test
+    public void testSubscriberNotAddedAcceptsNothing() throws Exception {
+        String queueName = "testSubscriberNotAddedAcceptsNothing";
+        MockFilterableMessage message = new MockFilterableMessage().with("region", "east");
+        evaluator.add(1, "region = 'east'");
+
+        assertFalse(evaluator.isAccepted(1, message, 2));
+        assertEquals(1, evaluator.getGroupCount());
+
+        SharedSelectorEvaluator.addSubscriber(queueName, 1, "region = 'east'");
+        SharedSelectorEvaluator.removeSubscriber(queueName, 1);
+        assertNull(SharedSelectorEvaluator.getAcceptedMessage(queueName, null, 1));
+        assertNull(SharedSelectorEvaluator.getEvaluator(queueName));
+    }
+}
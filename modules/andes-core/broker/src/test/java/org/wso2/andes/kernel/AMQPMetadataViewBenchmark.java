@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.server.message.MessageMetaData;
+import org.wso2.andes.server.store.MessageMetaDataType;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading AMQP metadata of a message buffered for delivery through {@link AMQPMetadataView} with decoding it
+ * through the protocol {@link MessageMetaData} factory, the way all metadata read from the store was parsed before.
+ * Also compares changing the routing key of a message for a durable topic subscription by splicing the stored bytes
+ * with encoding the whole metadata again.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath. The GC profiler reports the bytes allocated per
+ * buffered message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class AMQPMetadataViewBenchmark {
+
+    private static final String SUBSCRIPTION_QUEUE = "carbon:subscriber1";
+
+    private byte[] metadata;
+
+    private long messageId;
+
+    @Setup
+    public void setUp() {
+        metadata = AMQPMetadataViewTest.createMetadata(AMQPUtils.TOPIC_EXCHANGE_NAME, "benchmark.topic", false);
+    }
+
+    @Benchmark
+    public void bufferWithView(Blackhole blackhole) {
+        DeliverableAndesMetadata message = new DeliverableAndesMetadata(null, messageId++, metadata, true);
+        message.markAsBuffered();
+        blackhole.consume(message.isExpired());
+        blackhole.consume(message.getDestination());
+    }
+
+    @Benchmark
+    public void bufferWithDecodedMetadata(Blackhole blackhole) {
+        DeliverableAndesMetadata message = new DeliverableAndesMetadata(null, messageId++, metadata, false);
+        ByteBuffer buf = ByteBuffer.wrap(metadata);
+        buf.position(1);
+        MessageMetaData decoded = MessageMetaData.FACTORY.createMetaData(buf.slice());
+        message.setMetaDataType(MessageMetaDataType.META_DATA_0_8);
+        message.setPersistent(decoded.isPersistent());
+        message.setExpirationTime(decoded.getMessageHeader().getExpiration());
+        message.setArrivalTime(decoded.getArrivalTime());
+        message.setDestination(decoded.getMessagePublishInfo().getRoutingKey().toString());
+        message.setMessageContentLength(decoded.getContentSize());
+        message.setTopic(decoded.getMessagePublishInfo().getExchange().equals(AMQPUtils.TOPIC_EXCHANGE_NAME));
+        message.setMessageRouterName(decoded.getMessagePublishInfo().getExchange().toString());
+        message.setCompressed(decoded.isCompressed());
+        message.markAsBuffered();
+        blackhole.consume(message.isExpired());
+        blackhole.consume(message.getDestination());
+    }
+
+    @Benchmark
+    public byte[] splicedRoutingKey() {
+        return new AMQPMetadataView(metadata).withRoutingKeyAndExchange(SUBSCRIPTION_QUEUE, "amq.direct");
+    }
+
+    @Benchmark
+    public byte[] reencodedRoutingKey() {
+        ByteBuffer buf = ByteBuffer.wrap(metadata);
+        buf.position(1);
+        buf = buf.slice();
+        MessageMetaData decoded = MessageMetaData.FACTORY.createMetaData(buf);
+        return AMQPMetaDataHandler.constructMetadata(SUBSCRIPTION_QUEUE, buf, decoded, "amq.direct");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AMQPMetadataViewBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.junit.Test;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.framing.AMQShortString;
+import org.wso2.andes.framing.BasicContentHeaderProperties;
+import org.wso2.andes.framing.ContentHeaderBody;
+import org.wso2.andes.framing.FieldTable;
+import org.wso2.andes.framing.FieldTableFactory;
+import org.wso2.andes.framing.abstraction.MessagePublishInfoImpl;
+import org.wso2.andes.server.message.MessageMetaData;
+import org.wso2.andes.server.store.MessageMetaDataType;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link AMQPMetadataView}
+ * Metadata is encoded the way AMQP messages are stored and read back through the view and the protocol decoder.
+ */
+public class AMQPMetadataViewTest {
+
+    private static final long CONTENT_SIZE = 70000;
+
+    private static final long ARRIVAL_TIME = 1490000000000L;
+
+    private static final long EXPIRATION = 1490000060000L;
+
+    /**
+     * Test fields read through the view match the fields decoded by the protocol
+     */
+    @Test
+    public void testFieldsMatchDecodedMetadata() {
+        byte[] metadata = createMetadata("amq.direct", "queue1", true);
+        AMQPMetadataView view = new AMQPMetadataView(metadata);
+
+        ByteBuffer buf = ByteBuffer.wrap(metadata);
+        buf.position(1);
+        MessageMetaData decoded = MessageMetaData.FACTORY.createMetaData(buf.slice());
+
+        assertTrue(AMQPMetadataView.isAMQPMetadata(metadata));
+        assertEquals(decoded.getMessagePublishInfo().getExchange().toString(), view.getExchange());
+        assertEquals(decoded.getMessagePublishInfo().getRoutingKey().toString(), view.getRoutingKey());
+        assertEquals(decoded.getContentSize(), view.getContentSize());
+        assertEquals(decoded.getArrivalTime(), view.getArrivalTime());
+        assertEquals(decoded.getMessageHeader().getExpiration(), view.getExpiration());
+        assertEquals(decoded.isPersistent(), view.isPersistent());
+        assertEquals(decoded.isCompressed(), view.isCompressed());
+        assertTrue(view.isPublishedTo("amq.direct"));
+        assertFalse(view.isPublishedTo(AMQPUtils.TOPIC_EXCHANGE_NAME));
+    }
+
+    /**
+     * Test parsed message metadata decodes the destination and router name on access
+     */
+    @Test
+    public void testParsedMetadata() {
+        AndesMessageMetadata metadata = new AndesMessageMetadata(1, createMetadata(AMQPUtils.TOPIC_EXCHANGE_NAME,
+                "topic1", false), true);
+
+        assertEquals(MessageMetaDataType.META_DATA_0_8, metadata.getMetaDataType());
+        assertEquals("topic1", metadata.getDestination());
+        assertEquals(AMQPUtils.TOPIC_EXCHANGE_NAME, metadata.getMessageRouterName());
+        assertTrue(metadata.isTopic());
+        assertTrue(metadata.isPersistent());
+        assertFalse(metadata.isCompressed());
+        assertEquals(EXPIRATION, metadata.getExpirationTime());
+        assertEquals(ARRIVAL_TIME, metadata.getArrivalTime());
+        assertEquals(CONTENT_SIZE, metadata.getMessageContentLength());
+    }
+
+    /**
+     * Test routing key and exchange update writes the same bytes as encoding the metadata again, without changing
+     * the original metadata shared with copies of the message
+     */
+    @Test
+    public void testRoutingKeyAndExchangeUpdate() {
+        byte[] metadata = createMetadata(AMQPUtils.TOPIC_EXCHANGE_NAME, "topic1", false);
+        byte[] original = metadata.clone();
+
+        byte[] updated = new AMQPMetadataView(metadata).withRoutingKeyAndExchange("carbon:subscriber1",
+                "amq.direct");
+
+        assertArrayEquals(createMetadata("amq.direct", "carbon:subscriber1", false), updated);
+        assertArrayEquals(original, metadata);
+
+        AndesMessageMetadata message = new AndesMessageMetadata(1, metadata, true);
+        message.updateMetadata("carbon:subscriber1", "amq.direct");
+        assertEquals("carbon:subscriber1", message.getDestination());
+        assertEquals(AMQPUtils.TOPIC_EXCHANGE_NAME, message.getMessageRouterName());
+        assertArrayEquals(updated, message.getMetadata());
+    }
+
+    /**
+     * Test compression flag update, also for metadata stored before the flag was introduced
+     */
+    @Test
+    public void testCompressionUpdate() {
+        byte[] metadata = createMetadata("amq.direct", "queue1", false);
+        assertArrayEquals(createMetadata("amq.direct", "queue1", true),
+                new AMQPMetadataView(metadata).withCompressed(true));
+
+        byte[] metadataWithoutFlag = Arrays.copyOf(metadata, metadata.length - 1);
+        AMQPMetadataView view = new AMQPMetadataView(metadataWithoutFlag);
+        assertFalse(view.isCompressed());
+        assertTrue(new AMQPMetadataView(view.withCompressed(true)).isCompressed());
+    }
+
+    static byte[] createMetadata(String exchange, String routingKey, boolean isCompressed) {
+        BasicContentHeaderProperties properties = new BasicContentHeaderProperties();
+        properties.setContentType("text/plain");
+        FieldTable headers = FieldTableFactory.newFieldTable();
+        headers.setString("header1", "value1");
+        properties.setHeaders(headers);
+        properties.setDeliveryMode((byte) BasicContentHeaderProperties.PERSISTENT);
+        properties.setCorrelationId("correlation1");
+        properties.setExpiration(EXPIRATION);
+        ContentHeaderBody contentHeaderBody = new ContentHeaderBody(60, 0, properties, CONTENT_SIZE);
+
+        MessageMetaData messageMetaData = new MessageMetaData(new MessagePublishInfoImpl(new AMQShortString(exchange),
+                false, false, new AMQShortString(routingKey)), contentHeaderBody, 1L, 2, ARRIVAL_TIME, isCompressed);
+
+        byte[] metadata = new byte[1 + messageMetaData.getStorableSize()];
+        metadata[0] = (byte) messageMetaData.getType().ordinal();
+        ByteBuffer buf = ByteBuffer.wrap(metadata);
+        buf.position(1);
+        messageMetaData.writeToBuffer(0, buf.slice());
+        return metadata;
+    }
+}
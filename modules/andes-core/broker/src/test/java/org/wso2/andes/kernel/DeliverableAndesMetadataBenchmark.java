@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the memory kept for the delivery state of an in-flight message. Each operation creates the metadata of a
+ * message read from the store, schedules it to the subscriber channels and dispatches it to every channel, which is
+ * the state held until the message is acknowledged.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath. The GC profiler reports the bytes allocated per
+ * operation, which is the footprint of an in-flight message apart from the metadata bytes read from the store.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class DeliverableAndesMetadataBenchmark {
+
+    /**
+     * Number of subscriber channels a message is delivered to. A single channel for a queue message, several for a
+     * topic message.
+     */
+    @Param({"1", "10"})
+    private int channelCount;
+
+    private List<AndesSubscription> subscriptions;
+
+    private UUID[] channelIDs;
+
+    private long messageId;
+
+    @Setup
+    public void setUp() {
+        subscriptions = new ArrayList<>(channelCount);
+        channelIDs = new UUID[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            AndesSubscription subscription = DeliverableAndesMetadataTest.createSubscription("sub" + i);
+            subscriptions.add(subscription);
+            channelIDs[i] = subscription.getSubscriberConnection().getProtocolChannelID();
+        }
+    }
+
+    @Benchmark
+    public DeliverableAndesMetadata inFlightMessage() {
+        DeliverableAndesMetadata metadata = new DeliverableAndesMetadata(null, messageId++, null, false);
+        metadata.markAsBuffered();
+        metadata.markAsScheduledToDeliver(subscriptions);
+        for (UUID channelID : channelIDs) {
+            metadata.markAsDispatchedToDeliver(channelID);
+        }
+        return metadata;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DeliverableAndesMetadataBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+import org.wso2.andes.kernel.subscription.SubscriberConnection;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link DeliverableAndesMetadata}
+ * A message is scheduled to several subscriber channels and its packed delivery state is checked through the public
+ * API.
+ */
+public class DeliverableAndesMetadataTest {
+
+    private AndesSubscription[] subscriptions;
+
+    private DeliverableAndesMetadata metadata;
+
+    @Before
+    public void setUp() {
+        subscriptions = new AndesSubscription[3];
+        for (int i = 0; i < subscriptions.length; i++) {
+            subscriptions[i] = createSubscription("sub" + i);
+        }
+        metadata = new DeliverableAndesMetadata(null, 1, null, false);
+        metadata.markAsBuffered();
+        metadata.markAsScheduledToDeliver(Arrays.asList(subscriptions));
+    }
+
+    /**
+     * Test message is acknowledged by all once every channel acknowledges or closes
+     */
+    @Test
+    public void testAcknowledgedByAll() {
+        for (AndesSubscription subscription : subscriptions) {
+            metadata.markAsDispatchedToDeliver(channelOf(subscription));
+        }
+        assertFalse(metadata.markAsAcknowledgedByChannel(channelOf(subscriptions[0])));
+        metadata.markDeliveredChannelAsClosed(channelOf(subscriptions[1]));
+        assertTrue(metadata.markAsAcknowledgedByChannel(channelOf(subscriptions[2])));
+
+        assertTrue(metadata.isAknowledgedByAll());
+        assertEquals(MessageStatus.ACKED_BY_ALL, metadata.getLatestState());
+        assertEquals(3, metadata.getAllDeliveredChannels().size());
+    }
+
+    /**
+     * Test delivery counts are kept for each channel
+     */
+    @Test
+    public void testDeliveryCount() {
+        UUID channelID = channelOf(subscriptions[1]);
+        assertFalse(metadata.isRedelivered(channelID));
+
+        metadata.markAsDispatchedToDeliver(channelID);
+        metadata.markAsNackedByClient(channelID);
+        metadata.markAsDispatchedToDeliver(channelID);
+        assertTrue(metadata.isRedelivered(channelID));
+        assertEquals(2, metadata.getNumOfDeliveries4Channel(channelID));
+        assertEquals(0, metadata.getNumOfDeliveries4Channel(channelOf(subscriptions[0])));
+
+        assertEquals(1, metadata.markDeliveryFailureOfASentMessage(channelID));
+        metadata.rollbackDelivery(channelID);
+        metadata.rollbackDelivery(channelID);
+        assertEquals(-1, metadata.getNumOfDeliveries4Channel(channelID));
+        assertEquals(0, metadata.getNumOfDeliveries4Channel(UUID.randomUUID()));
+    }
+
+    /**
+     * Test delivery count is not incremented for messages beyond the last rollback
+     */
+    @Test
+    public void testBeyondLastRollback() {
+        UUID channelID = channelOf(subscriptions[0]);
+        metadata.setIsBeyondLastRollbackedMessage(true);
+        metadata.markAsDispatchedToDeliver(channelID);
+        assertEquals(0, metadata.getNumOfDeliveries4Channel(channelID));
+    }
+
+    /**
+     * Test message is OK to dispose once it went through a removable status, even if it moved on afterwards
+     */
+    @Test
+    public void testOKToDispose() {
+        assertFalse(metadata.isOKToDispose());
+        assertFalse(metadata.isStale());
+
+        metadata.markAsDLCMessage();
+        metadata.markAsBuffered();
+        metadata.markAsStale();
+
+        assertTrue(metadata.isOKToDispose());
+        assertFalse(metadata.isDLCMessage());
+        assertTrue(metadata.isStale());
+        assertEquals(MessageStatus.BUFFERED, metadata.getLatestState());
+    }
+
+    /**
+     * Test invalid transitions are not recorded
+     */
+    @Test
+    public void testInvalidTransition() {
+        assertFalse(metadata.addMessageStatus(MessageStatus.READ));
+        assertEquals(MessageStatus.SCHEDULED_TO_SEND, metadata.getLatestState());
+    }
+
+    private static UUID channelOf(AndesSubscription subscription) {
+        return subscription.getSubscriberConnection().getProtocolChannelID();
+    }
+
+    static AndesSubscription createSubscription(String subscriptionId) {
+        SubscriberConnection connection = new SubscriberConnection("connectedIP=127.0.0.1,connectedNode=node1,"
+                + "protocolChannelID=" + UUID.randomUUID());
+        return new AndesSubscription(subscriptionId, null, ProtocolType.AMQP, connection);
+    }
+}
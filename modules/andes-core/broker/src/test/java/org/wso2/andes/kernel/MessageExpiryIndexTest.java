@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MessageExpiryIndex}
+ * Messages are indexed with expiration times spread over several wheels and polled as the clock advances.
+ */
+public class MessageExpiryIndexTest {
+
+    private static final long START_TIME = 1490000000000L;
+
+    private static final long TICK_DURATION = 10;
+
+    private static final int WHEEL_SIZE = 4;
+
+    private static final String QUEUE_NAME = "queue";
+
+    @Test
+    public void testAddRespectsHorizon() {
+        MessageExpiryIndex index = new MessageExpiryIndex(TICK_DURATION, WHEEL_SIZE, START_TIME);
+
+        assertFalse("Nothing should be accepted before a horizon is set", index.add(1, QUEUE_NAME, START_TIME + 5));
+
+        index.setHorizon(START_TIME + 1000);
+        assertTrue(index.add(1, QUEUE_NAME, START_TIME + 5));
+        assertFalse("A message should be indexed only once", index.add(1, QUEUE_NAME, START_TIME + 5));
+        assertFalse("Messages expiring at the horizon should be rejected", index.add(2, QUEUE_NAME, START_TIME + 1000));
+
+        index.setHorizon(START_TIME + 500);
+        assertEquals("Horizon should not move backwards", START_TIME + 1000, index.getHorizon());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testPollGroupsByQueueAfterExpiration() {
+        MessageExpiryIndex index = new MessageExpiryIndex(TICK_DURATION, WHEEL_SIZE, START_TIME);
+        index.setHorizon(Long.MAX_VALUE);
+        index.add(1, "queueA", START_TIME + 25);
+        index.add(2, "queueB", START_TIME + 25);
+        index.add(3, "queueA", START_TIME + 27);
+
+        assertTrue(index.pollExpired(START_TIME + 25).isEmpty());
+
+        Map<String, List<Long>> expired = index.pollExpired(START_TIME + 26);
+        assertEquals(Collections.singletonList(1L), expired.get("queueA"));
+        assertEquals(Collections.singletonList(2L), expired.get("queueB"));
+
+        expired = index.pollExpired(START_TIME + 28);
+        assertEquals(Collections.singletonList(3L), expired.get("queueA"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testRemovedMessagesAreNotPolled() {
+        MessageExpiryIndex index = new MessageExpiryIndex(TICK_DURATION, WHEEL_SIZE, START_TIME);
+        index.setHorizon(Long.MAX_VALUE);
+        index.add(1, QUEUE_NAME, START_TIME + 5);
+        index.add(2, QUEUE_NAME, START_TIME + 5);
+        index.add(3, QUEUE_NAME, START_TIME + 500);
+
+        index.remove(1);
+        index.remove(3);
+        index.remove(4);
+        assertEquals(1, index.size());
+
+        assertEquals(Collections.singletonList(2L), index.pollExpired(START_TIME + 10).get(QUEUE_NAME));
+        assertTrue("Removed message polled", index.pollExpired(START_TIME + 1000).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testClearKeepsHorizon() {
+        MessageExpiryIndex index = new MessageExpiryIndex(TICK_DURATION, WHEEL_SIZE, START_TIME);
+        index.setHorizon(START_TIME + 1000);
+        index.add(1, QUEUE_NAME, START_TIME + 5);
+        index.add(2, QUEUE_NAME, START_TIME + 500);
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(START_TIME + 1000, index.getHorizon());
+        assertTrue("Message indexed again after clearing", index.add(2, QUEUE_NAME, START_TIME + 500));
+
+        assertTrue(index.pollExpired(START_TIME + 10).isEmpty());
+        assertEquals(Collections.singletonList(2L), index.pollExpired(START_TIME + 1000).get(QUEUE_NAME));
+    }
+
+    @Test
+    public void testMessagesCascadeFromOuterWheels() {
+        MessageExpiryIndex index = new MessageExpiryIndex(TICK_DURATION, WHEEL_SIZE, START_TIME);
+        index.setHorizon(Long.MAX_VALUE);
+        long expirationTime = START_TIME + 12345;
+        index.add(1, QUEUE_NAME, expirationTime);
+
+        for (long time = START_TIME; time <= expirationTime; time += 7) {
+            assertTrue("Message polled early at " + time, index.pollExpired(time).isEmpty());
+        }
+        assertEquals(Collections.singletonList(1L), index.pollExpired(expirationTime + 1).get(QUEUE_NAME));
+    }
+
+    @Test
+    public void testMatchesExpirationOrderUnderRandomClockJumps() {
+        MessageExpiryIndex index = new MessageExpiryIndex(TICK_DURATION, WHEEL_SIZE, START_TIME);
+        index.setHorizon(Long.MAX_VALUE);
+        Random random = new Random(42);
+        long[] expirationTimes = new long[2000];
+        long time = START_TIME;
+        long messageId = 0;
+        List<Long> polledIds = new ArrayList<>();
+
+        while (messageId < expirationTimes.length) {
+            for (int i = 0; i < 20 && messageId < expirationTimes.length; i++, messageId++) {
+                expirationTimes[(int) messageId] = time + random.nextInt(5000);
+                index.add(messageId, QUEUE_NAME, expirationTimes[(int) messageId]);
+            }
+            time += random.nextInt(random.nextBoolean() ? 20 : 500);
+            pollAndVerify(index, time, expirationTimes, polledIds);
+        }
+        pollAndVerify(index, time + 5000, expirationTimes, polledIds);
+
+        assertEquals(expirationTimes.length, polledIds.size());
+        assertEquals(0, index.size());
+    }
+
+    private static void pollAndVerify(MessageExpiryIndex index, long time, long[] expirationTimes,
+                                      List<Long> polledIds) {
+        List<Long> expired = index.pollExpired(time).get(QUEUE_NAME);
+        if (null != expired) {
+            for (Long messageId : expired) {
+                assertTrue("Message polled before expiring", expirationTimes[messageId.intValue()] < time);
+            }
+            polledIds.addAll(expired);
+        }
+        for (int i = 0; i < expirationTimes.length; i++) {
+            if (expirationTimes[i] != 0 && expirationTimes[i] < time) {
+                assertTrue("Expired message " + i + " was not polled", polledIds.contains((long) i));
+            }
+        }
+    }
+}
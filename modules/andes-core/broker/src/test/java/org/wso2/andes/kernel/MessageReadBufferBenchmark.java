@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MessageReadBuffer} with the {@link ConcurrentSkipListMap} previously used by {@link MessageHandler}
+ * for a queue with many buffered messages. Each fill and drain operation buffers a full slot worth of messages and
+ * delivers them from the head the same way the message flusher does.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath. The GC profiler reports the bytes allocated per
+ * operation, which is the memory needed to buffer the messages apart from the messages themselves.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageReadBufferBenchmark {
+
+    @Param({"100000"})
+    private int bufferedMessageCount;
+
+    private DeliverableAndesMetadata[] messages;
+
+    private MessageReadBuffer fullBuffer;
+
+    private ConcurrentSkipListMap<Long, DeliverableAndesMetadata> fullSkipListMap;
+
+    @Setup
+    public void setUp() {
+        messages = new DeliverableAndesMetadata[bufferedMessageCount];
+        fullBuffer = new MessageReadBuffer();
+        fullSkipListMap = new ConcurrentSkipListMap<>();
+
+        for (int i = 0; i < bufferedMessageCount; i++) {
+            messages[i] = new DeliverableAndesMetadata(null, i + 1, null, false);
+            fullBuffer.add(messages[i]);
+            fullSkipListMap.put(messages[i].getMessageID(), messages[i]);
+        }
+    }
+
+    @Benchmark
+    public int fillAndDrainBuffer() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        for (DeliverableAndesMetadata message : messages) {
+            buffer.add(message);
+        }
+
+        int deliveredCount = 0;
+        Iterator<DeliverableAndesMetadata> iterator = buffer.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            deliveredCount++;
+        }
+        return deliveredCount;
+    }
+
+    @Benchmark
+    public int fillAndDrainSkipListMap() {
+        ConcurrentSkipListMap<Long, DeliverableAndesMetadata> skipListMap = new ConcurrentSkipListMap<>();
+        for (DeliverableAndesMetadata message : messages) {
+            skipListMap.putIfAbsent(message.getMessageID(), message);
+        }
+
+        int deliveredCount = 0;
+        Iterator<DeliverableAndesMetadata> iterator = skipListMap.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            deliveredCount++;
+        }
+        return deliveredCount;
+    }
+
+    @Benchmark
+    public int sizeOfBuffer() {
+        return fullBuffer.size();
+    }
+
+    @Benchmark
+    public int sizeOfSkipListMap() {
+        return fullSkipListMap.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MessageReadBufferBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
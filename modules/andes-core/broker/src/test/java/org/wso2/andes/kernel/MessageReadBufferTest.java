@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MessageReadBuffer}
+ */
+public class MessageReadBufferTest {
+
+    @Test
+    public void testAscendingAddAndDrain() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        for (long id = 1; id <= 1000; id++) {
+            assertTrue(buffer.add(message(id)));
+        }
+        assertEquals(1000, buffer.size());
+
+        long expectedId = 1;
+        Iterator<DeliverableAndesMetadata> iterator = buffer.iterator();
+        while (iterator.hasNext()) {
+            assertEquals(expectedId++, iterator.next().getMessageID());
+            iterator.remove();
+        }
+        assertEquals(1001, expectedId);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testDuplicateMessageIdIsRejected() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        buffer.add(message(5));
+        buffer.add(message(10));
+
+        assertFalse(buffer.add(message(5)));
+        assertFalse(buffer.add(message(10)));
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    public void testOutOfOrderAddKeepsOrder() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        for (long id = 100; id < 200; id += 2) {
+            buffer.add(message(id));
+        }
+        // Re-queued messages arrive with smaller IDs
+        buffer.add(message(101));
+        buffer.add(message(1));
+        buffer.add(message(199));
+
+        assertEquals(53, buffer.size());
+        assertAscending(buffer);
+    }
+
+    @Test
+    public void testRemoveById() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        for (long id = 1; id <= 10; id++) {
+            buffer.add(message(id));
+        }
+
+        assertTrue(buffer.remove(1));
+        assertTrue(buffer.remove(5));
+        assertTrue(buffer.remove(10));
+        assertFalse(buffer.remove(5));
+        assertFalse(buffer.remove(11));
+
+        List<Long> remainingIds = new ArrayList<>();
+        for (DeliverableAndesMetadata message : buffer) {
+            remainingIds.add(message.getMessageID());
+        }
+        assertEquals(7, buffer.size());
+        assertEquals("[2, 3, 4, 6, 7, 8, 9]", remainingIds.toString());
+    }
+
+    @Test
+    public void testIteratorSeesMessagesAddedDuringIteration() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        buffer.add(message(1));
+        buffer.add(message(3));
+
+        Iterator<DeliverableAndesMetadata> iterator = buffer.iterator();
+        assertEquals(1, iterator.next().getMessageID());
+        iterator.remove();
+
+        buffer.add(message(2));
+        buffer.add(message(4));
+
+        assertEquals(2, iterator.next().getMessageID());
+        assertEquals(3, iterator.next().getMessageID());
+        assertEquals(4, iterator.next().getMessageID());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testRemoveAll() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        for (long id = 1; id <= 100; id++) {
+            buffer.add(message(id));
+        }
+
+        assertEquals(100, buffer.removeAll());
+        assertTrue(buffer.isEmpty());
+        assertFalse(buffer.iterator().hasNext());
+
+        buffer.add(message(1));
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void testRandomOperationsMatchSkipListMap() {
+        MessageReadBuffer buffer = new MessageReadBuffer();
+        ConcurrentSkipListMap<Long, DeliverableAndesMetadata> expected = new ConcurrentSkipListMap<>();
+        Random random = new Random(7);
+        long nextId = 1;
+
+        for (int i = 0; i < 100000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || 1 == nextId) {
+                long id = nextId++;
+                DeliverableAndesMetadata message = message(id);
+                buffer.add(message);
+                expected.put(id, message);
+            } else if (operation < 6) {
+                // Re-queue a message which was read before
+                long id = 1 + random.nextInt((int) nextId - 1);
+                DeliverableAndesMetadata message = message(id);
+                assertEquals(null == expected.putIfAbsent(id, message), buffer.add(message));
+            } else if (operation < 9) {
+                long id = 1 + random.nextInt((int) nextId);
+                assertEquals(null != expected.remove(id), buffer.remove(id));
+            } else if (!expected.isEmpty()) {
+                // Deliver a few messages from the head as the message flusher does
+                Iterator<DeliverableAndesMetadata> iterator = buffer.iterator();
+                for (int j = 0; j < 5 && iterator.hasNext(); j++) {
+                    DeliverableAndesMetadata message = iterator.next();
+                    assertEquals(expected.pollFirstEntry().getValue(), message);
+                    iterator.remove();
+                }
+            }
+            assertEquals(expected.size(), buffer.size());
+        }
+
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(buffer));
+    }
+
+    private void assertAscending(MessageReadBuffer buffer) {
+        long previousId = Long.MIN_VALUE;
+        for (DeliverableAndesMetadata message : buffer) {
+            assertTrue(message.getMessageID() > previousId);
+            previousId = message.getMessageID();
+        }
+    }
+
+    private DeliverableAndesMetadata message(long messageId) {
+        return new DeliverableAndesMetadata(null, messageId, null, false);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link QueueTaskScheduler}
+ * Tasks are submitted to task queues of a scheduler with a small pool and their execution order is recorded.
+ */
+public class QueueTaskSchedulerTest {
+
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private QueueTaskScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new QueueTaskScheduler(4);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Tasks of a queue should run one at a time in submission order while several queues are submitted to from
+     * several threads
+     */
+    @Test
+    public void testTasksOfQueueRunInOrder() throws Exception {
+        final int queueCount = 8;
+        final int taskCount = 2000;
+        final List<List<Integer>> executionOrders = new ArrayList<>();
+        final AtomicBoolean overlapped = new AtomicBoolean(false);
+        final CountDownLatch completed = new CountDownLatch(queueCount * taskCount);
+        List<Thread> submitters = new ArrayList<>();
+
+        for (int queue = 0; queue < queueCount; queue++) {
+            final List<Integer> executionOrder = Collections.synchronizedList(new ArrayList<Integer>());
+            executionOrders.add(executionOrder);
+            final QueueTaskScheduler.TaskQueue taskQueue = scheduler.createTaskQueue("queue" + queue);
+            final AtomicBoolean running = new AtomicBoolean(false);
+
+            Thread submitter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < taskCount; i++) {
+                        final int taskIndex = i;
+                        taskQueue.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!running.compareAndSet(false, true)) {
+                                    overlapped.set(true);
+                                }
+                                executionOrder.add(taskIndex);
+                                running.set(false);
+                                completed.countDown();
+                            }
+                        });
+                    }
+                }
+            });
+            submitters.add(submitter);
+            submitter.start();
+        }
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        assertTrue("Tasks did not complete", completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse("Tasks of the same queue ran concurrently", overlapped.get());
+        for (List<Integer> executionOrder : executionOrders) {
+            assertEquals(taskCount, executionOrder.size());
+            for (int i = 0; i < taskCount; i++) {
+                assertEquals("Task executed out of order", i, executionOrder.get(i).intValue());
+            }
+        }
+        assertEquals(0, scheduler.getPendingTaskCount());
+    }
+
+    /**
+     * A queue with a long backlog should hand the pool thread over to other queues after
+     * {@link QueueTaskScheduler#MAX_TASKS_PER_RUN} tasks
+     */
+    @Test
+    public void testBusyQueueYieldsToOtherQueues() throws Exception {
+        scheduler.shutdown();
+        scheduler = new QueueTaskScheduler(1);
+        QueueTaskScheduler.TaskQueue busyQueue = scheduler.createTaskQueue("busyQueue");
+        QueueTaskScheduler.TaskQueue otherQueue = scheduler.createTaskQueue("otherQueue");
+        final List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch blocker = new CountDownLatch(1);
+        int busyTaskCount = QueueTaskScheduler.MAX_TASKS_PER_RUN * 4;
+        final CountDownLatch completed = new CountDownLatch(busyTaskCount + 1);
+
+        // Hold the only pool thread so that both queues are pending before any task runs
+        busyQueue.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                executionOrder.add("busy");
+                completed.countDown();
+            }
+        });
+        for (int i = 1; i < busyTaskCount; i++) {
+            busyQueue.submit(new RecordingTask("busy", executionOrder, completed));
+        }
+        otherQueue.submit(new RecordingTask("other", executionOrder, completed));
+        blocker.countDown();
+
+        assertTrue("Tasks did not complete", completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("Other queue should run right after the first run of the busy queue",
+                QueueTaskScheduler.MAX_TASKS_PER_RUN, executionOrder.indexOf("other"));
+    }
+
+    /**
+     * A task submitted while the queue is still marked as scheduled should be picked up by the check done after the
+     * run clears the scheduled flag
+     */
+    @Test
+    public void testTaskSubmittedDuringRunIsExecuted() throws Exception {
+        final QueueTaskScheduler.TaskQueue taskQueue = scheduler.createTaskQueue("queue");
+        final AtomicInteger remainingResubmits = new AtomicInteger(1000);
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        // Each task submits the next one as the last action of the run, when the queue is still scheduled
+        taskQueue.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (remainingResubmits.decrementAndGet() > 0) {
+                    taskQueue.submit(this);
+                } else {
+                    completed.countDown();
+                }
+            }
+        });
+
+        assertTrue("Task submitted during a run was not executed",
+                completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getPendingTaskCount());
+    }
+
+    /**
+     * Tasks submitted after shutdown should be dropped without leaving them counted as pending
+     */
+    @Test
+    public void testTasksSubmittedAfterShutdownAreDropped() {
+        QueueTaskScheduler.TaskQueue taskQueue = scheduler.createTaskQueue("queue");
+        scheduler.shutdown();
+
+        final AtomicBoolean executed = new AtomicBoolean(false);
+        taskQueue.submit(new Runnable() {
+            @Override
+            public void run() {
+                executed.set(true);
+            }
+        });
+
+        assertFalse(executed.get());
+        assertEquals(0, scheduler.getPendingTaskCount());
+    }
+
+    /**
+     * Task recording its name in a shared execution order
+     */
+    private static final class RecordingTask implements Runnable {
+
+        private final String name;
+
+        private final List<String> executionOrder;
+
+        private final CountDownLatch completed;
+
+        private RecordingTask(String name, List<String> executionOrder, CountDownLatch completed) {
+            this.name = name;
+            this.executionOrder = executionOrder;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            executionOrder.add(name);
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.delivery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+import org.wso2.andes.store.log.LogMessageStoreImpl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for {@link StreamingContentReader}
+ * Content of messages in a message store is created for several deliveries and written out.
+ */
+public class StreamingContentReaderTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final int CHUNK_COUNT = 8;
+
+    private static final int CONTENT_LENGTH = CHUNK_COUNT * CHUNK_SIZE;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LogMessageStoreImpl messageStore;
+
+    private StreamingContentReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigurationProperties properties = new ConfigurationProperties();
+        properties.addProperty(LogMessageStoreImpl.PROPERTY_DIRECTORY, temporaryFolder.newFolder().getAbsolutePath());
+        messageStore = new LogMessageStoreImpl();
+        messageStore.initializeMessageStore(null, properties);
+
+        List<AndesMessage> messages = new ArrayList<>();
+        messages.add(createMessage(1));
+        messages.add(createMessage(2));
+        messageStore.storeMessages(messages);
+
+        reader = new StreamingContentReader(CHUNK_SIZE, 4 * CHUNK_SIZE, 6 * CHUNK_SIZE, 1, CHUNK_SIZE,
+                messageStore);
+    }
+
+    @After
+    public void tearDown() {
+        reader.stop();
+        messageStore.close();
+    }
+
+    /**
+     * Test deliveries of a message share its content while it is reachable, and other messages get their own
+     */
+    @Test
+    public void testContentSharedPerMessage() throws Exception {
+        StreamingContent firstDelivery = reader.createContent(1, CONTENT_LENGTH);
+        StreamingContent secondDelivery = reader.createContent(1, CONTENT_LENGTH);
+        StreamingContent otherMessage = reader.createContent(2, CONTENT_LENGTH);
+
+        assertSame(firstDelivery, secondDelivery);
+        assertNotSame(firstDelivery, otherMessage);
+    }
+
+    /**
+     * Test streamed messages share the memory of the reader, and the memory is returned once content is written
+     */
+    @Test
+    public void testMemorySharedByMessages() throws Exception {
+        StreamingContent first = reader.createContent(1, CONTENT_LENGTH);
+        StreamingContent second = reader.createContent(2, CONTENT_LENGTH);
+
+        // The first message takes a window and a window read ahead, the second message only a window
+        first.putContent(0, ByteBuffer.allocate(CHUNK_SIZE));
+        assertEquals(2 * CHUNK_SIZE, reader.getAvailableMemory());
+        second.putContent(0, ByteBuffer.allocate(CHUNK_SIZE));
+        assertEquals(0, reader.getAvailableMemory());
+
+        assertEquals(CONTENT_LENGTH, first.putContent(0, ByteBuffer.allocate(CONTENT_LENGTH)));
+        assertEquals(CONTENT_LENGTH, second.putContent(0, ByteBuffer.allocate(CONTENT_LENGTH)));
+        assertEquals(6 * CHUNK_SIZE, reader.getAvailableMemory());
+    }
+
+    private static AndesMessage createMessage(long messageId) {
+        byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                System.currentTimeMillis(), false, 1, "topic", true, CONTENT_LENGTH, false);
+        AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, metadataBytes, false);
+        metadata.setStorageQueueName("carbon:queue1");
+        AndesMessage message = new AndesMessage(metadata);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(i * CHUNK_SIZE);
+            part.setData(new byte[CHUNK_SIZE]);
+            message.addMessagePart(part);
+        }
+        return message;
+    }
+}
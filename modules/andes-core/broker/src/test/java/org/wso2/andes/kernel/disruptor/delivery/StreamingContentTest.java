@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.delivery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+import org.wso2.andes.store.log.LogMessageStoreImpl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link StreamingContent}
+ * Content of a message in a message store is written in frames smaller than the read window, the way the protocol
+ * layer writes message bodies.
+ */
+public class StreamingContentTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final int CHUNK_COUNT = 10;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LogMessageStoreImpl messageStore;
+
+    private ExecutorService readerExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigurationProperties properties = new ConfigurationProperties();
+        properties.addProperty(LogMessageStoreImpl.PROPERTY_DIRECTORY, temporaryFolder.newFolder().getAbsolutePath());
+        messageStore = new LogMessageStoreImpl();
+        messageStore.initializeMessageStore(null, properties);
+        messageStore.storeMessages(Collections.singletonList(createMessage(1, CHUNK_COUNT, CHUNK_SIZE / 2)));
+
+        readerExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        readerExecutor.shutdownNow();
+        messageStore.close();
+    }
+
+    /**
+     * Test content written in frames across windows matches the stored content
+     */
+    @Test
+    public void testWriteInFrames() throws Exception {
+        int contentLength = (CHUNK_COUNT - 1) * CHUNK_SIZE + CHUNK_SIZE / 2;
+        StreamingContent content = new StreamingContent(1, contentLength, CHUNK_SIZE, 4 * CHUNK_SIZE,
+                readerExecutor, messageStore, new Semaphore(Integer.MAX_VALUE), new AtomicInteger());
+
+        ByteBuffer written = ByteBuffer.allocate(contentLength);
+        int offset = 0;
+        while (offset < contentLength) {
+            ByteBuffer frame = ByteBuffer.allocate(700);
+            offset = offset + content.putContent(offset, frame);
+            frame.flip();
+            written.put(frame);
+        }
+
+        assertArrayEquals(expectedContent(contentLength), written.array());
+    }
+
+    /**
+     * Test content is written again from the start after it was fully written
+     */
+    @Test
+    public void testRewrite() throws Exception {
+        int contentLength = (CHUNK_COUNT - 1) * CHUNK_SIZE + CHUNK_SIZE / 2;
+        StreamingContent content = new StreamingContent(1, contentLength, CHUNK_SIZE, 2 * CHUNK_SIZE,
+                readerExecutor, messageStore, new Semaphore(Integer.MAX_VALUE), new AtomicInteger());
+
+        ByteBuffer first = ByteBuffer.allocate(contentLength);
+        assertEquals(contentLength, content.putContent(0, first));
+        ByteBuffer second = ByteBuffer.allocate(contentLength);
+        assertEquals(contentLength, content.putContent(0, second));
+
+        assertArrayEquals(first.array(), second.array());
+    }
+
+    /**
+     * Test memory is taken from the limiter while content is written and returned once all content is written
+     */
+    @Test
+    public void testMemoryReturnedWhenWritten() throws Exception {
+        int contentLength = (CHUNK_COUNT - 1) * CHUNK_SIZE + CHUNK_SIZE / 2;
+        Semaphore memoryLimiter = new Semaphore(8 * CHUNK_SIZE);
+        AtomicInteger heldMemory = new AtomicInteger();
+        StreamingContent content = new StreamingContent(1, contentLength, CHUNK_SIZE, 4 * CHUNK_SIZE,
+                readerExecutor, messageStore, memoryLimiter, heldMemory);
+        assertEquals(0, heldMemory.get());
+
+        ByteBuffer written = ByteBuffer.allocate(contentLength);
+        content.putContent(0, ByteBuffer.allocate(CHUNK_SIZE));
+        assertEquals(4 * CHUNK_SIZE, heldMemory.get());
+        assertEquals(4 * CHUNK_SIZE, memoryLimiter.availablePermits());
+
+        content.putContent(0, written);
+        assertArrayEquals(expectedContent(contentLength), written.array());
+        assertEquals(0, heldMemory.get());
+        assertEquals(8 * CHUNK_SIZE, memoryLimiter.availablePermits());
+    }
+
+    /**
+     * Test content is written one chunk at a time without memory from the limiter when the limiter is used up
+     */
+    @Test
+    public void testWriteWithoutMemory() throws Exception {
+        int contentLength = (CHUNK_COUNT - 1) * CHUNK_SIZE + CHUNK_SIZE / 2;
+        Semaphore memoryLimiter = new Semaphore(CHUNK_SIZE);
+        AtomicInteger heldMemory = new AtomicInteger();
+        StreamingContent content = new StreamingContent(1, contentLength, CHUNK_SIZE, 4 * CHUNK_SIZE,
+                readerExecutor, messageStore, memoryLimiter, heldMemory);
+
+        ByteBuffer written = ByteBuffer.allocate(contentLength);
+        int offset = 0;
+        while (offset < contentLength) {
+            ByteBuffer frame = ByteBuffer.allocate(700);
+            offset = offset + content.putContent(offset, frame);
+            assertEquals(0, heldMemory.get());
+            frame.flip();
+            written.put(frame);
+        }
+
+        assertArrayEquals(expectedContent(contentLength), written.array());
+        assertEquals(CHUNK_SIZE, memoryLimiter.availablePermits());
+    }
+
+    /**
+     * Test missing content is reported
+     */
+    @Test(expected = AndesException.class)
+    public void testMissingContent() throws Exception {
+        StreamingContent content = new StreamingContent(2, CHUNK_SIZE, CHUNK_SIZE, 2 * CHUNK_SIZE,
+                readerExecutor, messageStore, new Semaphore(Integer.MAX_VALUE), new AtomicInteger());
+        content.putContent(0, ByteBuffer.allocate(CHUNK_SIZE));
+    }
+
+    private static byte[] expectedContent(int contentLength) {
+        byte[] content = new byte[contentLength];
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            byte[] chunk = chunkData(1, i);
+            System.arraycopy(chunk, 0, content, i * CHUNK_SIZE, Math.min(chunk.length, contentLength - i * CHUNK_SIZE));
+        }
+        return content;
+    }
+
+    private static AndesMessage createMessage(long messageId, int chunkCount, int lastChunkSize) {
+        int contentLength = (chunkCount - 1) * CHUNK_SIZE + lastChunkSize;
+        byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                System.currentTimeMillis(), false, 1, "topic", true, contentLength, false);
+        AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, metadataBytes, false);
+        metadata.setStorageQueueName("carbon:queue1");
+        AndesMessage message = new AndesMessage(metadata);
+        for (int i = 0; i < chunkCount; i++) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(i * CHUNK_SIZE);
+            byte[] data = chunkData(messageId, i);
+            part.setData(i == chunkCount - 1 ? Arrays.copyOf(data, lastChunkSize) : data);
+            message.addMessagePart(part);
+        }
+        return message;
+    }
+
+    private static byte[] chunkData(long messageId, int chunkIndex) {
+        byte[] data = new byte[CHUNK_SIZE];
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            data[i] = (byte) (messageId * 31 + chunkIndex * 7 + i);
+        }
+        return data;
+    }
+}
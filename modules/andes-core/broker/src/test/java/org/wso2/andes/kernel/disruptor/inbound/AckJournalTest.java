@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link AckJournal}
+ * Message IDs are appended to a journal and read back by a journal opened on the same directory.
+ */
+public class AckJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Test IDs appended before the journal is closed are recovered
+     */
+    @Test
+    public void testRecoverAppendedIds() throws Exception {
+        File directory = temporaryFolder.newFolder();
+
+        AckJournal journal = new AckJournal(directory);
+        journal.append(createMessages(1, 3));
+        journal.seal();
+        journal.append(createMessages(4, 2));
+        journal.close();
+
+        AckJournal reopenedJournal = new AckJournal(directory);
+        assertEquals(LongArrayList.newListWith(1, 2, 3, 4, 5), reopenedJournal.readRecovered());
+
+        reopenedJournal.releaseRecovered();
+        reopenedJournal.close();
+        assertEquals(0, new AckJournal(directory).readRecovered().size());
+    }
+
+    /**
+     * Test IDs of released files are not recovered
+     */
+    @Test
+    public void testReleasedIdsNotRecovered() throws Exception {
+        File directory = temporaryFolder.newFolder();
+
+        AckJournal journal = new AckJournal(directory);
+        journal.append(createMessages(1, 3));
+        File sealedFile = journal.seal();
+        journal.append(createMessages(4, 2));
+        journal.release(Collections.singletonList(sealedFile));
+        journal.close();
+
+        assertEquals(LongArrayList.newListWith(4, 5), new AckJournal(directory).readRecovered());
+    }
+
+    /**
+     * Test an incomplete record at the end of a file is ignored
+     */
+    @Test
+    public void testIncompleteRecordIgnored() throws Exception {
+        File directory = temporaryFolder.newFolder();
+
+        AckJournal journal = new AckJournal(directory);
+        journal.append(createMessages(1, 2));
+        journal.append(createMessages(3, 4));
+        journal.close();
+        truncateJournalFile(directory, 10);
+
+        assertEquals(LongArrayList.newListWith(1, 2), new AckJournal(directory).readRecovered());
+    }
+
+    private static void truncateJournalFile(File directory, int bytes) throws IOException {
+        File[] files = directory.listFiles();
+        for (File file : files) {
+            if (file.length() > 0) {
+                try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                    randomAccessFile.setLength(file.length() - bytes);
+                }
+            }
+        }
+    }
+
+    private static List<AndesMessageMetadata> createMessages(long firstMessageId, int count) {
+        List<AndesMessageMetadata> messages = new ArrayList<>(count);
+        for (long messageId = firstMessageId; messageId < firstMessageId + count; messageId++) {
+            byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                    System.currentTimeMillis(), false, 1, "queue", true, 0, false);
+            messages.add(new AndesMessageMetadata(messageId, metadataBytes, false));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for {@link AckedMessageDeleter}
+ * Acknowledged messages are deleted through a store recording the IDs of each delete call.
+ */
+public class AckedMessageDeleterTest {
+
+    /**
+     * Deletion interval in milliseconds, long enough for deletions to be started only by the batch size
+     */
+    private static final int DELETION_INTERVAL = 3600 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Test acknowledged messages of several ack handlers are deleted with a single delete call
+     */
+    @Test
+    public void testAcksOfHandlersCoalesced() throws Exception {
+        RecordingDeletionStore deletionStore = new RecordingDeletionStore(0);
+        final AckedMessageDeleter deleter = new AckedMessageDeleter(deletionStore, DELETION_INTERVAL, 6,
+                temporaryFolder.newFolder());
+
+        List<Thread> ackHandlers = new ArrayList<>();
+        final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+        for (int handler = 0; handler < 3; handler++) {
+            final long firstMessageId = handler * 2 + 1;
+            Thread ackHandler = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        deleter.delete(createMessages(firstMessageId, 2));
+                    } catch (AndesException e) {
+                        failures.add(e);
+                    }
+                }
+            });
+            ackHandler.start();
+            ackHandlers.add(ackHandler);
+        }
+        for (Thread ackHandler : ackHandlers) {
+            ackHandler.join();
+        }
+
+        List<Long> deletedIds = deletionStore.deletions.poll(10, TimeUnit.SECONDS);
+        Collections.sort(deletedIds);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), deletedIds);
+        assertEquals(0, failures.size());
+
+        deleter.stop();
+        assertNull(deletionStore.deletions.poll());
+    }
+
+    /**
+     * Test messages of a failed deletion are deleted together with messages acknowledged after the failure
+     */
+    @Test
+    public void testFailedDeletionRetriedWithLaterAcks() throws Exception {
+        RecordingDeletionStore deletionStore = new RecordingDeletionStore(1);
+        File journalDirectory = temporaryFolder.newFolder();
+        AckedMessageDeleter deleter = new AckedMessageDeleter(deletionStore, DELETION_INTERVAL, 2,
+                journalDirectory);
+
+        deleter.delete(createMessages(1, 2));
+        assertEquals(Arrays.asList(1L, 2L), deletionStore.deletions.poll(10, TimeUnit.SECONDS));
+
+        deleter.delete(createMessages(3, 2));
+        List<Long> deletedIds = deletionStore.deletions.poll(10, TimeUnit.SECONDS);
+        Collections.sort(deletedIds);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), deletedIds);
+        deleter.stop();
+
+        // Journal files of the failed deletion are released with the retry, leaving only the current file
+        assertEquals(1, journalDirectory.listFiles().length);
+    }
+
+    /**
+     * Test messages which could not be deleted before the deleter stopped are deleted by ID when a deleter is
+     * opened on the same journal
+     */
+    @Test
+    public void testJournalRecoveredOnStart() throws Exception {
+        File journalDirectory = temporaryFolder.newFolder();
+        RecordingDeletionStore failingStore = new RecordingDeletionStore(Integer.MAX_VALUE);
+        AckedMessageDeleter deleter = new AckedMessageDeleter(failingStore, DELETION_INTERVAL, 100,
+                journalDirectory);
+        deleter.delete(createMessages(1, 3));
+        deleter.stop();
+
+        RecordingDeletionStore deletionStore = new RecordingDeletionStore(0);
+        AckedMessageDeleter recoveringDeleter = new AckedMessageDeleter(deletionStore, DELETION_INTERVAL, 100,
+                journalDirectory);
+        assertEquals(Arrays.asList(1L, 2L, 3L), deletionStore.deletionsById.poll());
+        recoveringDeleter.stop();
+        assertNull(deletionStore.deletions.poll());
+    }
+
+    private static List<DeliverableAndesMetadata> createMessages(long firstMessageId, int count) {
+        List<DeliverableAndesMetadata> messages = new ArrayList<>(count);
+        for (long messageId = firstMessageId; messageId < firstMessageId + count; messageId++) {
+            byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                    System.currentTimeMillis(), false, 1, "queue", true, 0, false);
+            messages.add(new DeliverableAndesMetadata(null, messageId, metadataBytes, false));
+        }
+        return messages;
+    }
+
+    /**
+     * Deletion store recording the IDs of each delete call. A given number of the first delete calls fail.
+     */
+    private static class RecordingDeletionStore implements AckedMessageDeleter.DeletionStore {
+
+        private final BlockingQueue<List<Long>> deletions = new LinkedBlockingQueue<>();
+
+        private final BlockingQueue<List<Long>> deletionsById = new LinkedBlockingQueue<>();
+
+        private final AtomicInteger remainingFailures;
+
+        private RecordingDeletionStore(int failureCount) {
+            remainingFailures = new AtomicInteger(failureCount);
+        }
+
+        @Override
+        public void deleteMessages(List<DeliverableAndesMetadata> messages) throws AndesException {
+            List<Long> messageIds = new ArrayList<>(messages.size());
+            for (DeliverableAndesMetadata message : messages) {
+                messageIds.add(message.getMessageID());
+            }
+            deletions.add(messageIds);
+            if (remainingFailures.getAndDecrement() > 0) {
+                throw new AndesException("Store is offline");
+            }
+        }
+
+        @Override
+        public void deleteMessagesById(List<Long> messageIds) throws AndesException {
+            deletionsById.add(new ArrayList<>(messageIds));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MessageGroupCommitter}
+ * Writers commit batches from separate threads to a committer storing groups through a recording store.
+ */
+public class MessageGroupCommitterTest {
+
+    /**
+     * Window time in microseconds, long enough for a group to be closed only by its writers joining
+     */
+    private static final long WINDOW_TIME = TimeUnit.SECONDS.toMicros(30);
+
+    private static final long WINDOW_SIZE = Long.MAX_VALUE;
+
+    /**
+     * Test the batches of all the writers are stored with a single call once every writer joined
+     */
+    @Test
+    public void testGroupFormation() throws Exception {
+        RecordingGroupStore groupStore = new RecordingGroupStore(null);
+        MessageGroupCommitter committer = new MessageGroupCommitter(groupStore, 3, WINDOW_TIME, WINDOW_SIZE);
+
+        List<Writer> writers = new ArrayList<>();
+        for (long messageId = 1; messageId <= 3; messageId++) {
+            writers.add(startWriter(committer, createMessages(messageId)));
+        }
+        for (Writer writer : writers) {
+            writer.join();
+            assertNull(writer.failure);
+        }
+
+        assertEquals(1, groupStore.groups.size());
+        assertEquals(3, groupStore.groups.get(0).size());
+    }
+
+    /**
+     * Test every writer of a group is released with the failure when the leader fails to store the group
+     */
+    @Test
+    public void testLeaderFailurePassedToFollowers() throws Exception {
+        RecordingGroupStore groupStore = new RecordingGroupStore(new IllegalStateException("Store is closed"));
+        MessageGroupCommitter committer = new MessageGroupCommitter(groupStore, 3, WINDOW_TIME, WINDOW_SIZE);
+
+        List<Writer> writers = new ArrayList<>();
+        for (long messageId = 1; messageId <= 3; messageId++) {
+            writers.add(startWriter(committer, createMessages(messageId)));
+        }
+        for (Writer writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(writer.isAlive());
+            assertTrue(writer.failure instanceof AndesException);
+        }
+        assertEquals(1, groupStore.groups.size());
+    }
+
+    /**
+     * Test a writer joining a group with empty batches is counted once, so that the group still waits for the
+     * remaining writer
+     */
+    @Test
+    public void testEmptyJoinCountedOnce() throws Exception {
+        RecordingGroupStore groupStore = new RecordingGroupStore(null);
+        MessageGroupCommitter committer = new MessageGroupCommitter(groupStore, 3, WINDOW_TIME, WINDOW_SIZE);
+
+        Writer leader = startWriter(committer, createMessages(1));
+        awaitWaiting(leader);
+
+        committer.commit(Collections.<AndesMessage>emptyList());
+        committer.commit(Collections.<AndesMessage>emptyList());
+        assertFalse(groupStore.stored.await(200, TimeUnit.MILLISECONDS));
+
+        Writer follower = startWriter(committer, createMessages(2));
+        leader.join();
+        follower.join();
+
+        assertNull(leader.failure);
+        assertNull(follower.failure);
+        assertEquals(1, groupStore.groups.size());
+        assertEquals(2, groupStore.groups.get(0).size());
+    }
+
+    private static Writer startWriter(MessageGroupCommitter committer, List<AndesMessage> messages) {
+        Writer writer = new Writer(committer, messages);
+        writer.start();
+        return writer;
+    }
+
+    /**
+     * Wait until a writer is parked in the committer
+     */
+    private static void awaitWaiting(Thread writer) throws InterruptedException {
+        while (writer.getState() != Thread.State.WAITING && writer.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static List<AndesMessage> createMessages(long messageId) {
+        byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                System.currentTimeMillis(), false, 1, "queue", true, 0, false);
+        AndesMessage message = new AndesMessage(new AndesMessageMetadata(messageId, metadataBytes, false));
+        return Collections.singletonList(message);
+    }
+
+    /**
+     * Writer committing one batch from its own thread
+     */
+    private static class Writer extends Thread {
+
+        private final MessageGroupCommitter committer;
+
+        private final List<AndesMessage> messages;
+
+        private volatile Exception failure;
+
+        private Writer(MessageGroupCommitter committer, List<AndesMessage> messages) {
+            this.committer = committer;
+            this.messages = messages;
+        }
+
+        @Override
+        public void run() {
+            try {
+                committer.commit(messages);
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Group store recording the stored groups, or failing every store
+     */
+    private static class RecordingGroupStore implements MessageGroupCommitter.GroupStore {
+
+        private final List<List<AndesMessage>> groups = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch stored = new CountDownLatch(1);
+
+        private final RuntimeException failure;
+
+        private RecordingGroupStore(RuntimeException failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void store(List<AndesMessage> messages) throws AndesException {
+            groups.add(new ArrayList<>(messages));
+            stored.countDown();
+            if (null != failure) {
+                throw failure;
+            }
+        }
+    }
+}
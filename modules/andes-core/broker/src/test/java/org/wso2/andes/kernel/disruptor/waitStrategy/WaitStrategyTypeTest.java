@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.waitStrategy;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.wso2.andes.kernel.disruptor.DisruptorExecutors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link WaitStrategyType}
+ * Events are passed through a two stage Disruptor using each wait strategy, with idle periods in between so that
+ * blocking strategies have to be woken up.
+ */
+@RunWith(Parameterized.class)
+public class WaitStrategyTypeTest {
+
+    private static final int BATCH_COUNT = 5;
+
+    private static final int EVENTS_PER_BATCH = 100;
+
+    private WaitStrategyType waitStrategyType;
+
+    public WaitStrategyTypeTest(WaitStrategyType waitStrategyType) {
+        this.waitStrategyType = waitStrategyType;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> data() {
+        List<Object[]> waitStrategyTypes = new ArrayList<>();
+        for (WaitStrategyType waitStrategyType : WaitStrategyType.values()) {
+            waitStrategyTypes.add(new Object[]{waitStrategyType});
+        }
+        return waitStrategyTypes;
+    }
+
+    @Test
+    public void testEventsReachAllStages() throws Exception {
+        ExecutorService executor = DisruptorExecutors.createExecutor("WaitStrategyTypeTest-%d", 2, true);
+        Disruptor<LongEvent> disruptor = new Disruptor<>(new LongEventFactory(), 64, executor, ProducerType.MULTI,
+                waitStrategyType.createWaitStrategy());
+
+        final CountDownLatch processedLatch = new CountDownLatch(BATCH_COUNT * EVENTS_PER_BATCH);
+        final long[] sum = new long[1];
+
+        disruptor.handleEventsWith(new EventHandler<LongEvent>() {
+            @Override
+            public void onEvent(LongEvent event, long sequence, boolean endOfBatch) {
+                event.value = event.value * 2;
+            }
+        }).then(new EventHandler<LongEvent>() {
+            @Override
+            public void onEvent(LongEvent event, long sequence, boolean endOfBatch) {
+                sum[0] += event.value;
+                processedLatch.countDown();
+            }
+        });
+
+        RingBuffer<LongEvent> ringBuffer = disruptor.start();
+        long expectedSum = 0;
+        try {
+            for (int batch = 0; batch < BATCH_COUNT; batch++) {
+                for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+                    long sequence = ringBuffer.next();
+                    ringBuffer.get(sequence).value = i;
+                    ringBuffer.publish(sequence);
+                    expectedSum += i * 2;
+                }
+                // Let the processors go idle
+                Thread.sleep(20);
+            }
+
+            assertTrue("Events were not processed using " + waitStrategyType,
+                    processedLatch.await(10, TimeUnit.SECONDS));
+        } finally {
+            disruptor.shutdown();
+            executor.shutdown();
+        }
+
+        assertEquals(expectedSum, sum[0]);
+    }
+
+    private static class LongEvent {
+        private long value;
+    }
+
+    private static class LongEventFactory implements EventFactory<LongEvent> {
+        @Override
+        public LongEvent newInstance() {
+            return new LongEvent();
+        }
+    }
+}
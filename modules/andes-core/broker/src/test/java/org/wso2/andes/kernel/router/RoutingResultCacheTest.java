@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.router;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for {@link RoutingResultCache}
+ */
+public class RoutingResultCacheTest {
+
+    /**
+     * A result matched before a binding change should not be cached
+     */
+    @Test
+    public void testResultMatchedBeforeBindingChangeIsDropped() {
+        RoutingResultCache cache = new RoutingResultCache(10, '.');
+        long generation = cache.getGeneration();
+
+        // Binding change and its invalidation happen between reading the generation and caching the result
+        cache.onBindingChange("a");
+        cache.put("a.b", Collections.<StorageQueue>emptySet(), generation);
+
+        assertNull(cache.get("a.b"));
+    }
+
+    /**
+     * A result matched with no binding change in between should be cached
+     */
+    @Test
+    public void testResultOfCurrentGenerationIsCached() {
+        RoutingResultCache cache = new RoutingResultCache(10, '.');
+        cache.onBindingChange("a");
+        Set<StorageQueue> matchingQueues = Collections.singleton(new StorageQueue("queueName=queue"));
+
+        cache.put("a.b", matchingQueues, cache.getGeneration());
+
+        assertEquals(matchingQueues, cache.get("a.b"));
+    }
+
+    /**
+     * A binding change should invalidate only the routing keys sharing the first constituent of its binding key
+     */
+    @Test
+    public void testBindingChangeInvalidatesRoutingKeysWithSameFirstConstituent() {
+        RoutingResultCache cache = new RoutingResultCache(10, '.');
+        cache.put("a", Collections.<StorageQueue>emptySet(), cache.getGeneration());
+        cache.put("a.b", Collections.<StorageQueue>emptySet(), cache.getGeneration());
+        cache.put("ab.c", Collections.<StorageQueue>emptySet(), cache.getGeneration());
+        cache.put("x.y", Collections.<StorageQueue>emptySet(), cache.getGeneration());
+
+        cache.onBindingChange("a");
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("a.b"));
+        assertNotNull(cache.get("ab.c"));
+        assertNotNull(cache.get("x.y"));
+    }
+
+    /**
+     * A binding change starting with a wildcard should invalidate all the routing keys
+     */
+    @Test
+    public void testWildcardBindingChangeInvalidatesAllRoutingKeys() {
+        RoutingResultCache cache = new RoutingResultCache(10, '.');
+        cache.put("a.b", Collections.<StorageQueue>emptySet(), cache.getGeneration());
+        cache.put("x.y", Collections.<StorageQueue>emptySet(), cache.getGeneration());
+
+        cache.onBindingChange(null);
+
+        assertNull(cache.get("a.b"));
+        assertNull(cache.get("x.y"));
+
+        cache.put("a.b", Collections.<StorageQueue>emptySet(), cache.getGeneration());
+        assertNotNull(cache.get("a.b"));
+    }
+}
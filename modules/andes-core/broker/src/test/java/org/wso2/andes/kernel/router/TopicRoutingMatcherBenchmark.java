@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel.router;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TopicRoutingMatcher} with the bitmap based {@link BitmapTopicRoutingMatcher} for matching routing
+ * keys and for subscribing and unsubscribing a queue while many queues are bound. Binding keys are a mix of exact,
+ * single level wildcard and multi level wildcard keys of the given protocol.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopicRoutingMatcherBenchmark {
+
+    private static final int ROUTING_KEY_COUNT = 1024;
+
+    private static final int REGION_COUNT = 10;
+
+    private static final int METRIC_COUNT = 5;
+
+    @Param({"AMQP", "MQTT"})
+    private ProtocolType protocolType;
+
+    @Param({"1000", "10000"})
+    private int queueCount;
+
+    private TopicRoutingMatcher trieMatcher;
+
+    private BitmapTopicRoutingMatcher bitmapMatcher;
+
+    private String[] routingKeys;
+
+    private int nextRoutingKey;
+
+    /**
+     * Queue added and removed by the subscription benchmarks
+     */
+    private StorageQueue churnQueue;
+
+    @Setup
+    public void setUp() throws AndesException {
+        String delimiter;
+        String singleLevelWildcard;
+        String multiLevelWildcard = "#";
+        if (ProtocolType.AMQP == protocolType) {
+            delimiter = ".";
+            singleLevelWildcard = "*";
+        } else {
+            delimiter = "/";
+            singleLevelWildcard = "+";
+        }
+
+        trieMatcher = new TopicRoutingMatcher(protocolType);
+        bitmapMatcher = new BitmapTopicRoutingMatcher(protocolType);
+        AndesMessageRouter bindingRouter = new DiscardMessageRouter("benchmark", "topic", false);
+
+        for (int i = 0; i < queueCount; i++) {
+            String region = "region" + (i % REGION_COUNT);
+            String device = "device" + i;
+            String metric = "metric" + (i % METRIC_COUNT);
+            String bindingKey;
+
+            switch (i % 4) {
+                case 0:
+                    bindingKey = region + delimiter + device + delimiter + metric;
+                    break;
+                case 1:
+                    bindingKey = region + delimiter + singleLevelWildcard + delimiter + metric;
+                    break;
+                case 2:
+                    bindingKey = region + delimiter + device + delimiter + multiLevelWildcard;
+                    break;
+                default:
+                    bindingKey = singleLevelWildcard + delimiter + device + delimiter + singleLevelWildcard;
+                    break;
+            }
+
+            StorageQueue queue = new StorageQueue("queueName=queue" + i);
+            queue.bindQueueToMessageRouter(bindingKey, bindingRouter);
+            trieMatcher.addStorageQueue(queue);
+            bitmapMatcher.addStorageQueue(queue);
+        }
+
+        routingKeys = new String[ROUTING_KEY_COUNT];
+        for (int i = 0; i < ROUTING_KEY_COUNT; i++) {
+            int deviceIndex = (i * 7919) % queueCount;
+            routingKeys[i] = "region" + (deviceIndex % REGION_COUNT) + delimiter + "device" + deviceIndex
+                    + delimiter + "metric" + (i % METRIC_COUNT);
+        }
+
+        churnQueue = new StorageQueue("queueName=churnQueue");
+        churnQueue.bindQueueToMessageRouter("region0" + delimiter + singleLevelWildcard + delimiter + "churn",
+                bindingRouter);
+    }
+
+    @Benchmark
+    public Set<StorageQueue> matchTrie() {
+        return trieMatcher.getMatchingStorageQueues(nextRoutingKey());
+    }
+
+    @Benchmark
+    public Set<StorageQueue> matchBitmap() {
+        return bitmapMatcher.getMatchingStorageQueues(nextRoutingKey());
+    }
+
+    @Benchmark
+    public void subscribeAndUnsubscribeTrie() throws AndesException {
+        trieMatcher.addStorageQueue(churnQueue);
+        trieMatcher.removeStorageQueue(churnQueue);
+    }
+
+    @Benchmark
+    public void subscribeAndUnsubscribeBitmap() throws AndesException {
+        bitmapMatcher.addStorageQueue(churnQueue);
+        bitmapMatcher.removeStorageQueue(churnQueue);
+    }
+
+    private String nextRoutingKey() {
+        nextRoutingKey = (nextRoutingKey + 1) & (ROUTING_KEY_COUNT - 1);
+        return routingKeys[nextRoutingKey];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TopicRoutingMatcherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
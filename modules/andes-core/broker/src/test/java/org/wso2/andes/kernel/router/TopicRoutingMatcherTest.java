@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel.router;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TopicRoutingMatcher}
+ */
+public class TopicRoutingMatcherTest {
+
+    private static final int ROUTING_CACHE_SIZE = 100;
+
+    /**
+     * Router used only to set binding keys of the storage queues
+     */
+    private final AndesMessageRouter bindingRouter = new DiscardMessageRouter("amq.dlc", "topic", false);
+
+    @Test
+    public void testAmqpWildcards() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue exact = addQueue(matcher, "exact", "sports.cricket.score");
+        StorageQueue singleLevel = addQueue(matcher, "singleLevel", "sports.*.score");
+        StorageQueue multiLevel = addQueue(matcher, "multiLevel", "sports.#");
+        StorageQueue multiLevelInMiddle = addQueue(matcher, "multiLevelInMiddle", "sports.#.score");
+        StorageQueue all = addQueue(matcher, "all", "#");
+
+        assertMatches(matcher, "sports.cricket.score", exact, singleLevel, multiLevel, multiLevelInMiddle, all);
+        assertMatches(matcher, "sports.football.score", singleLevel, multiLevel, multiLevelInMiddle, all);
+        assertMatches(matcher, "sports.score", multiLevel, multiLevelInMiddle, all);
+        assertMatches(matcher, "sports", multiLevel, all);
+        assertMatches(matcher, "sports.cricket.live.score", multiLevel, multiLevelInMiddle, all);
+        assertMatches(matcher, "news.cricket.score", all);
+    }
+
+    @Test
+    public void testMqttWildcards() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.MQTT);
+        StorageQueue exact = addQueue(matcher, "exact", "sensors/room1/temperature");
+        StorageQueue singleLevel = addQueue(matcher, "singleLevel", "sensors/+/temperature");
+        StorageQueue multiLevel = addQueue(matcher, "multiLevel", "sensors/#");
+        StorageQueue leadingSingleLevel = addQueue(matcher, "leadingSingleLevel", "+/room1/+");
+
+        assertMatches(matcher, "sensors/room1/temperature", exact, singleLevel, multiLevel, leadingSingleLevel);
+        assertMatches(matcher, "sensors/room2/temperature", singleLevel, multiLevel);
+        assertMatches(matcher, "sensors", multiLevel);
+        assertMatches(matcher, "sensors/room1", multiLevel);
+        assertMatches(matcher, "sensors//temperature", singleLevel, multiLevel);
+        assertMatches(matcher, "devices/room1/humidity", leadingSingleLevel);
+    }
+
+    @Test
+    public void testRemoveStorageQueue() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue first = addQueue(matcher, "first", "a.b");
+        StorageQueue second = addQueue(matcher, "second", "a.*");
+        StorageQueue third = addQueue(matcher, "third", "a.b.c");
+
+        matcher.removeStorageQueue(first);
+        assertFalse(matcher.isStorageQueueAvailable(first));
+        assertMatches(matcher, "a.b", second);
+
+        matcher.removeStorageQueue(second);
+        assertMatches(matcher, "a.b");
+        assertMatches(matcher, "a.b.c", third);
+
+        matcher.removeStorageQueue(third);
+        assertTrue(matcher.getAllStorageQueues().isEmpty());
+        assertMatches(matcher, "a.b.c");
+    }
+
+    @Test
+    public void testAddExistingStorageQueue() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue queue = addQueue(matcher, "queue", "a.b");
+
+        matcher.addStorageQueue(queue);
+
+        assertEquals(1, matcher.getAllStorageQueues().size());
+        assertMatches(matcher, "a.b", queue);
+    }
+
+    @Test
+    public void testAddingBindingInvalidatesMatchingCachedRoutingKeys() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP, ROUTING_CACHE_SIZE);
+        StorageQueue exact = addQueue(matcher, "exact", "a.b");
+        assertMatches(matcher, "a.b", exact);
+        assertMatches(matcher, "a.c");
+        assertMatches(matcher, "x.y");
+
+        StorageQueue singleLevel = addQueue(matcher, "singleLevel", "a.*");
+
+        assertMatches(matcher, "a.b", exact, singleLevel);
+        assertMatches(matcher, "a.c", singleLevel);
+        assertMatches(matcher, "x.y");
+
+        StorageQueue all = addQueue(matcher, "all", "#");
+
+        assertMatches(matcher, "a.b", exact, singleLevel, all);
+        assertMatches(matcher, "a.c", singleLevel, all);
+        assertMatches(matcher, "x.y", all);
+    }
+
+    @Test
+    public void testRemovingQueueInvalidatesCachedResultsContainingIt() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP, ROUTING_CACHE_SIZE);
+        StorageQueue multiLevel = addQueue(matcher, "multiLevel", "a.#");
+        StorageQueue exact = addQueue(matcher, "exact", "a.b");
+        assertMatches(matcher, "a.b", multiLevel, exact);
+        assertMatches(matcher, "a.c", multiLevel);
+
+        matcher.removeStorageQueue(multiLevel);
+
+        assertMatches(matcher, "a.b", exact);
+        assertMatches(matcher, "a.c");
+
+        matcher.removeStorageQueue(exact);
+
+        assertMatches(matcher, "a.b");
+    }
+
+    @Test
+    public void testUpdatingQueueReplacesCachedInstance() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP, ROUTING_CACHE_SIZE);
+        StorageQueue queue = addQueue(matcher, "queue", "a.*");
+        assertMatches(matcher, "a.b", queue);
+
+        StorageQueue updatedQueue = new StorageQueue("queueName=queue");
+        updatedQueue.bindQueueToMessageRouter("a.*", bindingRouter);
+        matcher.updateStorageQueue(updatedQueue);
+
+        assertTrue(matcher.getMatchingStorageQueues("a.b").iterator().next() == updatedQueue);
+    }
+
+    /**
+     * Cached results should match the trie once subscribers stop changing while routing keys were matched meanwhile
+     */
+    @Test
+    public void testSubscribeRacingWithMatch() throws Exception {
+        final TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP, ROUTING_CACHE_SIZE);
+        final StorageQueue stable = addQueue(matcher, "stable", "a.b");
+        final String[] routingKeys = {"a.b", "a.c", "a.b.c"};
+        final AtomicReference<Throwable> matchFailure = new AtomicReference<>();
+
+        for (int round = 0; round < 20; round++) {
+            final StorageQueue churn = new StorageQueue("queueName=churn" + round);
+            churn.bindQueueToMessageRouter((round % 2 == 0) ? "a.*" : "a.#", bindingRouter);
+            Thread subscriber = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 200; i++) {
+                            matcher.addStorageQueue(churn);
+                            matcher.removeStorageQueue(churn);
+                        }
+                        matcher.addStorageQueue(churn);
+                    } catch (Throwable e) {
+                        matchFailure.compareAndSet(null, e);
+                    }
+                }
+            });
+            subscriber.start();
+            while (subscriber.isAlive()) {
+                for (String routingKey : routingKeys) {
+                    matcher.getMatchingStorageQueues(routingKey);
+                }
+            }
+            subscriber.join();
+            assertNull(matchFailure.get());
+
+            TopicRoutingMatcher expectedMatcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+            for (StorageQueue queue : matcher.getAllStorageQueues()) {
+                expectedMatcher.addStorageQueue(queue);
+            }
+            for (String routingKey : routingKeys) {
+                assertEquals("Stale result for " + routingKey + " in round " + round,
+                             expectedMatcher.getMatchingStorageQueues(routingKey),
+                             matcher.getMatchingStorageQueues(routingKey));
+            }
+            matcher.removeStorageQueue(churn);
+            assertMatches(matcher, "a.b", stable);
+        }
+    }
+
+    private StorageQueue addQueue(TopicRoutingMatcher matcher, String name, String bindingKey)
+            throws AndesException {
+        StorageQueue queue = new StorageQueue("queueName=" + name);
+        queue.bindQueueToMessageRouter(bindingKey, bindingRouter);
+        matcher.addStorageQueue(queue);
+        return queue;
+    }
+
+    private void assertMatches(TopicRoutingMatcher matcher, String routingKey, StorageQueue... expectedQueues) {
+        Set<StorageQueue> expected = new HashSet<>(Arrays.asList(expectedQueues));
+        assertEquals("Unexpected queues for " + routingKey, expected, matcher.getMatchingStorageQueues(routingKey));
+    }
+}
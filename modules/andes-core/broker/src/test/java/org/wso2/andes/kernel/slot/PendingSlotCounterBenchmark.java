@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.slot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of recording messages in {@link PendingSlotCounter} with 8 writers publishing to 10000
+ * queues, compared against a map of slots guarded by a single lock. Previously slots were recorded into an unguarded
+ * map by a single writer and submitted through one synchronized method, so a single lock is what it takes to let
+ * several writers share that map.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class PendingSlotCounterBenchmark {
+
+    /**
+     * Size of the precomputed queue index sequence. Power of two so that it can be masked
+     */
+    private static final int SEQUENCE_SIZE = 1 << 16;
+
+    @Param({"10000"})
+    private int queueCount;
+
+    @Param({"1000"})
+    private int slotWindowSize;
+
+    private String[] queueNames;
+
+    private int[] queueSequence;
+
+    private final AtomicInteger writerCount = new AtomicInteger();
+
+    private PendingSlotCounter pendingSlotCounter;
+
+    private SynchronizedSlotCounter synchronizedSlotCounter;
+
+    @Setup
+    public void setUp() {
+        queueNames = new String[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            queueNames[i] = "queue-" + i;
+        }
+
+        Random random = new Random(42);
+        queueSequence = new int[SEQUENCE_SIZE];
+        for (int i = 0; i < SEQUENCE_SIZE; i++) {
+            queueSequence[i] = random.nextInt(queueCount);
+        }
+
+        // Timeout is large enough that only the window size seals slots during the benchmark
+        pendingSlotCounter = new PendingSlotCounter(slotWindowSize, TimeUnit.HOURS.toMillis(1));
+        synchronizedSlotCounter = new SynchronizedSlotCounter(slotWindowSize);
+    }
+
+    @Benchmark
+    public void recordPendingSlotCounter(Writer writer, Blackhole blackhole) {
+        long messageId = writer.nextMessageId();
+        String queueName = queueNames[queueSequence[(int) messageId & (SEQUENCE_SIZE - 1)]];
+
+        Slot slot = pendingSlotCounter.record(queueName, messageId);
+        if (null != slot) {
+            blackhole.consume(pendingSlotCounter.getLocalSafeZone(slot));
+        }
+    }
+
+    @Benchmark
+    public void recordSynchronizedSlotCounter(Writer writer, Blackhole blackhole) {
+        long messageId = writer.nextMessageId();
+        String queueName = queueNames[queueSequence[(int) messageId & (SEQUENCE_SIZE - 1)]];
+
+        blackhole.consume(synchronizedSlotCounter.record(queueName, messageId));
+    }
+
+    /**
+     * Message ID source of a single writer. Writers generate IDs from disjoint ranges so that they do not contend on
+     * a shared counter, similar to message ID generation of the broker.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private long nextMessageId;
+
+        @Setup
+        public void setUp(PendingSlotCounterBenchmark benchmark) {
+            nextMessageId = (long) benchmark.writerCount.getAndIncrement() << 40;
+        }
+
+        private long nextMessageId() {
+            return nextMessageId++;
+        }
+    }
+
+    /**
+     * Previous map of slots made safe for several writers with a single lock. Scans all queues to find the local
+     * safe zone.
+     */
+    private static final class SynchronizedSlotCounter {
+
+        private final int slotWindowSize;
+
+        private final Map<String, Slot> queueToSlotMap = new HashMap<>();
+
+        private SynchronizedSlotCounter(int slotWindowSize) {
+            this.slotWindowSize = slotWindowSize;
+        }
+
+        private synchronized long record(String queueName, long messageId) {
+            Slot slot = queueToSlotMap.get(queueName);
+            if (null == slot) {
+                slot = new Slot();
+                slot.setStartMessageId(messageId);
+                queueToSlotMap.put(queueName, slot);
+            }
+            slot.setEndMessageId(messageId);
+            slot.setMessageCount(slot.getMessageCount() + 1);
+
+            if (slot.getMessageCount() < slotWindowSize) {
+                return 0;
+            }
+
+            queueToSlotMap.remove(queueName);
+            long localSafeZone = slot.getEndMessageId();
+            for (Slot pendingSlot : queueToSlotMap.values()) {
+                localSafeZone = Math.min(pendingSlot.getStartMessageId(), localSafeZone);
+            }
+            return localSafeZone;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PendingSlotCounterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for {@link PendingSlotCounter}
+ * Slots are sealed with a window size of three messages and a timeout long enough not to be reached by the tests.
+ */
+public class PendingSlotCounterTest {
+
+    private static final long NO_PENDING_SLOTS = Long.MAX_VALUE;
+
+    private PendingSlotCounter pendingSlotCounter;
+
+    @Before
+    public void setUp() {
+        pendingSlotCounter = new PendingSlotCounter(3, 60000);
+    }
+
+    /**
+     * A full window should be sealed as a slot covering the recorded messages
+     */
+    @Test
+    public void testFullWindowIsSealed() {
+        assertNull(pendingSlotCounter.record("queue", 1));
+        assertNull(pendingSlotCounter.record("queue", 3));
+        Slot slot = pendingSlotCounter.record("queue", 2);
+
+        assertNotNull(slot);
+        assertEquals("queue", slot.getStorageQueueName());
+        assertEquals(1, slot.getStartMessageId());
+        assertEquals(3, slot.getEndMessageId());
+        assertEquals(3, slot.getMessageCount());
+    }
+
+    /**
+     * A sealed slot should hold back the safe zone until it is released after being submitted
+     */
+    @Test
+    public void testSealedSlotHoldsSafeZoneUntilReleased() {
+        Slot slot = recordSlot("queue", 1);
+
+        assertEquals(1, pendingSlotCounter.getMinimumPendingMessageId(NO_PENDING_SLOTS));
+
+        pendingSlotCounter.release(slot);
+
+        assertEquals(NO_PENDING_SLOTS, pendingSlotCounter.getMinimumPendingMessageId(NO_PENDING_SLOTS));
+    }
+
+    /**
+     * A slot submitted while another queue's sealed slot is still on its way to the coordinator should not carry a
+     * local safe zone beyond the start of that slot
+     */
+    @Test
+    public void testLocalSafeZoneIsHeldBySlotBeingSubmitted() {
+        // Writer of the first queue seals its slot but has not submitted it yet
+        Slot firstSlot = recordSlot("firstQueue", 1);
+        // Writer of the second queue seals and submits its slot meanwhile
+        Slot secondSlot = recordSlot("secondQueue", 4);
+
+        assertEquals(1, pendingSlotCounter.getLocalSafeZone(secondSlot));
+        pendingSlotCounter.release(secondSlot);
+
+        // The first slot is not held back by the submitted second slot nor by itself
+        assertEquals(3, pendingSlotCounter.getLocalSafeZone(firstSlot));
+        pendingSlotCounter.release(firstSlot);
+        assertEquals(NO_PENDING_SLOTS, pendingSlotCounter.getMinimumPendingMessageId(NO_PENDING_SLOTS));
+    }
+
+    /**
+     * Open windows of other queues should hold back the local safe zone of a sealed slot
+     */
+    @Test
+    public void testLocalSafeZoneIsHeldByOpenWindow() {
+        pendingSlotCounter.record("openQueue", 2);
+        Slot slot = recordSlot("queue", 3);
+
+        assertEquals(2, pendingSlotCounter.getLocalSafeZone(slot));
+    }
+
+    /**
+     * Record three consecutive messages to the queue and return the sealed slot
+     */
+    private Slot recordSlot(String queueName, long startMessageId) {
+        Slot slot = null;
+        for (long messageId = startMessageId; messageId < startMessageId + 3; messageId++) {
+            slot = pendingSlotCounter.record(queueName, messageId);
+        }
+        assertNotNull(slot);
+        return slot;
+    }
+}
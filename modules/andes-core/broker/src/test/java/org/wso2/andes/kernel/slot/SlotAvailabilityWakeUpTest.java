@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.task.Task;
+import org.wso2.andes.task.TaskExecutorService;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for waking delivery tasks through {@link SlotAvailabilityListener}
+ * Delivery tasks are parked with an idle delay much longer than the test, the same way
+ * {@link SlotDeliveryWorkerManager} parks them, and are woken only by slots becoming available at the slot manager.
+ */
+public class SlotAvailabilityWakeUpTest {
+
+    private static final long IDLE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private TaskExecutorService<DeliveryTask> taskExecutorService;
+
+    private TestSlotManager slotManager;
+
+    @Before
+    public void setUp() {
+        taskExecutorService = new TaskExecutorService<>(2, IDLE_DELAY_MILLIS, Executors.defaultThreadFactory());
+        taskExecutorService.start();
+        slotManager = new TestSlotManager();
+        // Same wiring as SlotDeliveryWorkerManager#slotAvailable
+        slotManager.addSlotAvailabilityListener(new SlotAvailabilityListener() {
+            @Override
+            public void slotAvailable(String storageQueueName) {
+                taskExecutorService.wakeUp(storageQueueName);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        taskExecutorService.shutdown();
+    }
+
+    /**
+     * A slot submitted for a queue should wake the parked delivery task of that queue only
+     */
+    @Test
+    public void testSlotSubmitWakesParkedDeliveryTask() throws Exception {
+        DeliveryTask queueTask = addParkedTask("queue");
+        DeliveryTask otherQueueTask = addParkedTask("otherQueue");
+
+        slotManager.submitSlot("queue");
+
+        assertTrue("Parked delivery task was not woken by the slot", queueTask.awaitRun());
+        assertFalse("Delivery task of another queue was woken", otherQueueTask.awaitRun(100));
+    }
+
+    /**
+     * Clearing the expiry deletion state should wake the delivery task of the queue whose slots were withheld
+     */
+    @Test
+    public void testClearingDeletionStateWakesParkedDeliveryTask() throws Exception {
+        DeliveryTask queueTask = addParkedTask("queue");
+        slotManager.setDeletionTaskState("queue", 100);
+
+        slotManager.clearDeletionTaskState();
+
+        assertTrue("Parked delivery task was not woken after deletion", queueTask.awaitRun());
+    }
+
+    /**
+     * Removing a listener should stop waking delivery tasks
+     */
+    @Test
+    public void testRemovedListenerDoesNotWakeDeliveryTask() throws Exception {
+        SlotAvailabilityListener failingListener = new SlotAvailabilityListener() {
+            @Override
+            public void slotAvailable(String storageQueueName) {
+                throw new AssertionError("Removed listener was notified");
+            }
+        };
+        slotManager.addSlotAvailabilityListener(failingListener);
+        slotManager.removeSlotAvailabilityListener(failingListener);
+        DeliveryTask queueTask = addParkedTask("queue");
+
+        slotManager.submitSlot("queue");
+
+        assertTrue(queueTask.awaitRun());
+        assertEquals(2, queueTask.runCount);
+    }
+
+    /**
+     * Add a delivery task and wait for its first run, after which it is parked
+     */
+    private DeliveryTask addParkedTask(String queueName) throws InterruptedException {
+        DeliveryTask task = new DeliveryTask(queueName);
+        taskExecutorService.add(task);
+        assertTrue("Delivery task did not run after being added", task.awaitRun());
+        return task;
+    }
+
+    /**
+     * Delivery task which finds no slot on each run
+     */
+    private static class DeliveryTask extends Task {
+
+        private final String queueName;
+
+        private final Semaphore runs = new Semaphore(0);
+
+        private volatile int runCount;
+
+        DeliveryTask(String queueName) {
+            this.queueName = queueName;
+        }
+
+        boolean awaitRun() throws InterruptedException {
+            return runs.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        boolean awaitRun(long timeoutMillis) throws InterruptedException {
+            return runs.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public TaskHint call() throws Exception {
+            runCount++;
+            runs.release();
+            return TaskHint.IDLE;
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return queueName;
+        }
+    }
+
+    /**
+     * Slot manager notifying listeners the way the standalone and cluster mode slot managers do on a slot submit
+     */
+    static class TestSlotManager extends AbstractSlotManager {
+
+        TestSlotManager() {
+            super(3);
+        }
+
+        void submitSlot(String queueName) {
+            notifySlotAvailable(queueName);
+        }
+
+        @Override
+        public long getSafeZoneLowerBoundId(String queueName) {
+            return -1;
+        }
+
+        @Override
+        public void clearAllActiveSlotRelationsToQueue(String queueName) {
+        }
+
+        @Override
+        public Set<String> getAllQueues() {
+            return Collections.emptySet();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link SlotCoordinatorCluster}
+ * Slot requests of delivery tasks are sent through a coordinator which records each batched call.
+ */
+public class SlotCoordinatorClusterTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /**
+     * Requests made while a call is in progress should be combined into the next call, requesting each queue once
+     */
+    @Test
+    public void testConcurrentRequestsAreCombined() throws Exception {
+        RecordingCoordinator coordinator = new RecordingCoordinator();
+        SlotCoordinatorCluster slotCoordinator = new SlotCoordinatorCluster("node", coordinator);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Slot> firstRequest = executorService.submit(getSlotTask(slotCoordinator, "queue0"));
+            assertTrue("First call was not sent", coordinator.firstCallStarted.await(TIMEOUT_SECONDS,
+                                                                                     TimeUnit.SECONDS));
+
+            List<Future<Slot>> waitingRequests = new ArrayList<>();
+            List<Thread> waitingThreads = new ArrayList<>();
+            for (String queueName : Arrays.asList("queue1", "queue2", "queue2")) {
+                FutureTask<Slot> request = new FutureTask<>(getSlotTask(slotCoordinator, queueName));
+                Thread thread = new Thread(request);
+                thread.start();
+                waitingRequests.add(request);
+                waitingThreads.add(thread);
+            }
+            // Requests are queued before the requesting threads wait for them to complete
+            for (Thread thread : waitingThreads) {
+                while (thread.getState() != Thread.State.TIMED_WAITING) {
+                    Thread.sleep(10);
+                }
+            }
+            coordinator.releaseFirstCall.countDown();
+
+            assertEquals("queue0", firstRequest.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getStorageQueueName());
+            assertEquals("queue1", waitingRequests.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .getStorageQueueName());
+
+            // Only one of the two requests for queue2 gets the slot, the other gets an empty slot
+            int queue2Slots = 0;
+            for (Future<Slot> request : waitingRequests.subList(1, 3)) {
+                Slot slot = request.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                assertNotNull(slot);
+                if ("queue2".equals(slot.getStorageQueueName())) {
+                    queue2Slots++;
+                }
+            }
+            assertEquals(1, queue2Slots);
+
+            assertEquals(2, coordinator.calls.size());
+            assertEquals(Collections.singletonList("queue0"), coordinator.calls.get(0));
+            assertEquals(Arrays.asList("queue1", "queue2"), coordinator.calls.get(1));
+        } finally {
+            coordinator.releaseFirstCall.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * A failed call should fail every request sent with it
+     */
+    @Test
+    public void testFailedCallFailsRequest() throws Exception {
+        RecordingCoordinator coordinator = new RecordingCoordinator();
+        coordinator.releaseFirstCall.countDown();
+        coordinator.failCalls = true;
+        SlotCoordinatorCluster slotCoordinator = new SlotCoordinatorCluster("node", coordinator);
+
+        try {
+            slotCoordinator.getSlot("queue");
+            fail("Slot request did not fail");
+        } catch (ConnectionException e) {
+            assertTrue(e.getCause() instanceof ConnectionException);
+        }
+
+        // Following requests are sent again
+        coordinator.failCalls = false;
+        assertEquals("queue", slotCoordinator.getSlot("queue").getStorageQueueName());
+        assertEquals(2, coordinator.calls.size());
+    }
+
+    /**
+     * An error thrown by the call should fail the requests instead of leaving them waiting
+     */
+    @Test
+    public void testErrorReleasesWaitingRequests() throws Exception {
+        RecordingCoordinator coordinator = new RecordingCoordinator();
+        coordinator.callError = new AssertionError("Coordinator call failed");
+        SlotCoordinatorCluster slotCoordinator = new SlotCoordinatorCluster("node", coordinator);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Slot> firstRequest = executorService.submit(getSlotTask(slotCoordinator, "queue0"));
+            assertTrue("First call was not sent", coordinator.firstCallStarted.await(TIMEOUT_SECONDS,
+                                                                                     TimeUnit.SECONDS));
+            FutureTask<Slot> waitingRequest = new FutureTask<>(getSlotTask(slotCoordinator, "queue1"));
+            Thread waitingThread = new Thread(waitingRequest);
+            waitingThread.start();
+            while (waitingThread.getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(10);
+            }
+            coordinator.releaseFirstCall.countDown();
+
+            for (Future<Slot> request : Arrays.asList(firstRequest, waitingRequest)) {
+                try {
+                    request.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    fail("Request was not failed");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof ConnectionException);
+                    assertTrue(e.getCause().getCause() instanceof AssertionError);
+                }
+            }
+        } finally {
+            coordinator.releaseFirstCall.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * A request waiting for a call which does not return should fail after the timeout
+     */
+    @Test
+    public void testWaitingRequestTimesOut() throws Exception {
+        RecordingCoordinator coordinator = new RecordingCoordinator();
+        SlotCoordinatorCluster slotCoordinator = new SlotCoordinatorCluster("node", coordinator, 100);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(getSlotTask(slotCoordinator, "queue0"));
+            assertTrue("First call was not sent", coordinator.firstCallStarted.await(TIMEOUT_SECONDS,
+                                                                                     TimeUnit.SECONDS));
+            try {
+                slotCoordinator.getSlot("queue1");
+                fail("Waiting request did not time out");
+            } catch (ConnectionException e) {
+                assertEquals(1, coordinator.calls.size());
+            }
+        } finally {
+            coordinator.releaseFirstCall.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    private static Callable<Slot> getSlotTask(final SlotCoordinator slotCoordinator, final String queueName) {
+        return new Callable<Slot>() {
+            @Override
+            public Slot call() throws Exception {
+                return slotCoordinator.getSlot(queueName);
+            }
+        };
+    }
+
+    /**
+     * Create a slot of the given storage queue
+     */
+    private static Slot newSlot(long startMessageId, long endMessageId, String queueName) {
+        Slot slot = new Slot(startMessageId, endMessageId, queueName);
+        slot.setStorageQueueName(queueName);
+        return slot;
+    }
+
+    /**
+     * Coordinator assigning a slot for every requested queue. The first call blocks until released.
+     */
+    private static class RecordingCoordinator implements SlotCoordinator {
+
+        private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<List<String>>());
+
+        private final CountDownLatch firstCallStarted = new CountDownLatch(1);
+
+        private final CountDownLatch releaseFirstCall = new CountDownLatch(1);
+
+        private volatile boolean failCalls;
+
+        private volatile Error callError;
+
+        @Override
+        public Map<String, Slot> getSlots(List<String> queueNames) throws ConnectionException {
+            calls.add(new ArrayList<>(queueNames));
+            if (calls.size() == 1) {
+                firstCallStarted.countDown();
+                try {
+                    releaseFirstCall.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failCalls) {
+                throw new ConnectionException("Coordinator is not reachable");
+            }
+            if (null != callError) {
+                throw callError;
+            }
+            Map<String, Slot> slots = new HashMap<>();
+            for (String queueName : queueNames) {
+                slots.put(queueName, newSlot(1, 10, queueName));
+            }
+            return slots;
+        }
+
+        @Override
+        public Slot getSlot(String queueName) throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateMessageId(String queueName, long startMessageId, long endMessageId, long localSafeZone)
+                throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateSlotDeletionSafeZone(long currentSlotDeleteSafeZone) throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean deleteSlot(String queueName, Slot slot) throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reAssignSlotWhenNoSubscribers(String queueName) throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clearAllActiveSlotRelationsToQueue(String queueName) throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addCoordinatorConnectionListener(CoordinatorConnectionListener listener) {
+        }
+    }
+}
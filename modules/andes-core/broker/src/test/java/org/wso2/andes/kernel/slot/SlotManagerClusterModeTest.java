@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.slot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.server.cluster.coordination.SlotAgent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link SlotManagerClusterMode}
+ * Slots are submitted to a slot manager on top of an in-memory slot agent recording every stored message ID.
+ */
+public class SlotManagerClusterModeTest {
+
+    private InMemorySlotAgent slotAgent;
+
+    private SlotManagerClusterMode slotManager;
+
+    @Before
+    public void setUp() {
+        slotAgent = new InMemorySlotAgent();
+        slotManager = new SlotManagerClusterMode(slotAgent, 3);
+    }
+
+    /**
+     * A slot submitted again by the same node should be recorded once while the local safe zone is still updated
+     */
+    @Test
+    public void testResubmittedSlotIsRecordedOnce() throws Exception {
+        slotManager.updateMessageID("queue", "node", 1, 10, 5);
+        slotManager.updateMessageID("queue", "node", 1, 10, 8);
+
+        assertEquals(Arrays.asList(10L), slotAgent.recordedMessageIds);
+        assertEquals(Long.valueOf(8), slotAgent.getLocalSafeZoneOfNode("node"));
+    }
+
+    /**
+     * Retrying a batch which failed midway should record each slot of the batch once
+     */
+    @Test
+    public void testBatchRetryAfterPartialFailure() throws Exception {
+        List<Slot> batch = Arrays.asList(newSlot(1, 10, "queue1"), newSlot(11, 20, "queue2"),
+                                         newSlot(21, 30, "queue3"));
+        slotAgent.failingQueues.add("queue2");
+
+        try {
+            submitBatch(batch);
+            fail("Batch did not fail");
+        } catch (AndesException e) {
+            assertEquals(Arrays.asList(10L), slotAgent.recordedMessageIds);
+        }
+
+        slotAgent.failingQueues.clear();
+        submitBatch(batch);
+
+        assertEquals(Arrays.asList(10L, 20L, 30L), slotAgent.recordedMessageIds);
+    }
+
+    /**
+     * Submit slots one by one the way the coordinator applies a batch of a node
+     */
+    private void submitBatch(List<Slot> slots) throws AndesException {
+        for (Slot slot : slots) {
+            slotManager.updateMessageID(slot.getStorageQueueName(), "node", slot.getStartMessageId(),
+                                        slot.getEndMessageId(), slot.getStartMessageId());
+        }
+    }
+
+    /**
+     * Create a slot of the given storage queue
+     */
+    private static Slot newSlot(long startMessageId, long endMessageId, String queueName) {
+        Slot slot = new Slot(startMessageId, endMessageId, queueName);
+        slot.setStorageQueueName(queueName);
+        return slot;
+    }
+
+    /**
+     * Slot agent keeping submitted message IDs and local safe zones in memory
+     */
+    private static class InMemorySlotAgent implements SlotAgent {
+
+        private final Map<String, TreeSet<Long>> messageIds = new HashMap<>();
+
+        private final List<Long> recordedMessageIds = new ArrayList<>();
+
+        private final Map<String, Long> localSafeZones = new HashMap<>();
+
+        private final Set<String> failingQueues = new HashSet<>();
+
+        @Override
+        public void addMessageId(String queueName, long messageId) throws AndesException {
+            if (failingQueues.contains(queueName)) {
+                throw new AndesException("Failed to store message id for queue " + queueName);
+            }
+            TreeSet<Long> queueMessageIds = messageIds.get(queueName);
+            if (null == queueMessageIds) {
+                queueMessageIds = new TreeSet<>();
+                messageIds.put(queueName, queueMessageIds);
+            }
+            queueMessageIds.add(messageId);
+            recordedMessageIds.add(messageId);
+        }
+
+        @Override
+        public TreeSet<Long> getSlotBasedMessageIds(String queueName) throws AndesException {
+            TreeSet<Long> queueMessageIds = messageIds.get(queueName);
+            return (null != queueMessageIds) ? new TreeSet<>(queueMessageIds) : new TreeSet<Long>();
+        }
+
+        @Override
+        public long getQueueToLastAssignedId(String queueName) throws AndesException {
+            return 0;
+        }
+
+        @Override
+        public Long getLocalSafeZoneOfNode(String nodeId) throws AndesException {
+            return localSafeZones.get(nodeId);
+        }
+
+        @Override
+        public void setLocalSafeZoneOfNode(String nodeId, long localSafeZone) throws AndesException {
+            localSafeZones.put(nodeId, localSafeZone);
+        }
+
+        @Override
+        public void createSlot(long startMessageId, long endMessageId, String storageQueueName, String assignedNodeId)
+                throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean deleteNonOverlappingSlot(String nodeId, String queueName, long startMessageId, long endMessageId)
+                throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean deleteSlot(String nodeId, String queueName, long startMessageId, long endMessageId)
+                throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteSlotAssignmentByQueueName(String nodeId, String queueName) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Slot getUnAssignedSlot(String queueName) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateSlotAssignment(String nodeId, String queueName, Slot allocatedSlot) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setQueueToLastAssignedId(String queueName, long lastAssignedId) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removePublisherNode(String nodeId) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TreeSet<String> getMessagePublishedNodes() throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reassignSlot(Slot slotToBeReAssigned) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setSlotState(long startMessageId, long endMessageId, SlotState slotState) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Slot getOverlappedSlot(String nodeId, String queueName) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteOverlappedSlots(String nodeId) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteMessageId(String queueName, long messageId) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteSlotsByQueueName(String queueName) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteMessageIdsByQueueName(String queueName) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TreeSet<Slot> getAssignedSlotsByNodeId(String nodeId) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TreeSet<Slot> getOverlappedSlotsByNodeId(String nodeId) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TreeSet<Slot> getAllSlotsByQueueName(String queueName) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateOverlappedSlots(String queueName, TreeSet<Slot> overlappedSlots) throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<String> getAllQueues() throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<String> getAllQueuesInSubmittedSlots() throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clearSlotStorage() throws AndesException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
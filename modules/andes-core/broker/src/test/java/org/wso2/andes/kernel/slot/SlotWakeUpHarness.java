@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.slot;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.wso2.andes.task.Task;
+import org.wso2.andes.task.TaskExecutorService;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how often idle delivery tasks ask for a slot when they poll on a fixed idle delay compared to
+ * when they are parked and woken by {@link SlotAvailabilityListener}.
+ * <p>
+ * Run with {@code [queueCount] [workerCount] [wakeUpsPerSecond] [durationSeconds]}. Every wake up stands for one
+ * queue receiving a slot.
+ */
+public final class SlotWakeUpHarness {
+
+    /**
+     * Idle delay used by delivery tasks before slots could wake them
+     */
+    private static final long POLLING_DELAY_MILLIS = 100;
+
+    private SlotWakeUpHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int queueCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int wakeUpsPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int durationSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        double pollingRate = measure(queueCount, workerCount, POLLING_DELAY_MILLIS, 0, durationSeconds);
+        double wakeUpRate = measure(queueCount, workerCount, TimeUnit.MINUTES.toMillis(10), wakeUpsPerSecond,
+                                    durationSeconds);
+
+        System.out.printf("%d idle queues, %d workers, %d queues/s receiving slots%n", queueCount, workerCount,
+                          wakeUpsPerSecond);
+        System.out.printf("polling every %d ms : %.0f getSlot calls/s%n", POLLING_DELAY_MILLIS, pollingRate);
+        System.out.printf("woken on slot arrival : %.0f getSlot calls/s%n", wakeUpRate);
+    }
+
+    /**
+     * Run idle delivery tasks for the given duration and return the slot requests made per second after
+     * the initial run of every task
+     */
+    private static double measure(int queueCount, int workerCount, long idleDelayMillis, int wakeUpsPerSecond,
+                                  int durationSeconds) throws InterruptedException {
+        AtomicLong slotRequests = new AtomicLong();
+        TaskExecutorService<IdleDeliveryTask> taskExecutorService =
+                new TaskExecutorService<>(workerCount, idleDelayMillis,
+                                          new ThreadFactoryBuilder().setDaemon(true).build());
+        taskExecutorService.start();
+        for (int i = 0; i < queueCount; i++) {
+            taskExecutorService.add(new IdleDeliveryTask("queue-" + i, slotRequests));
+        }
+        // Let every task make its first request and get parked
+        TimeUnit.SECONDS.sleep(1);
+
+        Random random = new Random();
+        long startRequests = slotRequests.get();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long wakeUpIntervalNanos = wakeUpsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / wakeUpsPerSecond : 0;
+        long nextWakeUp = start;
+        while (System.nanoTime() < end) {
+            if (wakeUpIntervalNanos > 0) {
+                taskExecutorService.wakeUp("queue-" + random.nextInt(queueCount));
+                nextWakeUp += wakeUpIntervalNanos;
+                long sleepNanos = nextWakeUp - System.nanoTime();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+            } else {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long requests = slotRequests.get() - startRequests;
+        taskExecutorService.shutdown();
+        return requests / elapsedSeconds;
+    }
+
+    /**
+     * Delivery task for a queue without messages. Each run stands for one getSlot call.
+     */
+    private static class IdleDeliveryTask extends Task {
+
+        private final String queueName;
+
+        private final AtomicLong slotRequests;
+
+        IdleDeliveryTask(String queueName, AtomicLong slotRequests) {
+            this.queueName = queueName;
+            this.slotRequests = slotRequests;
+        }
+
+        @Override
+        public TaskHint call() throws Exception {
+            slotRequests.incrementAndGet();
+            return TaskHint.IDLE;
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return queueName;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.subscription;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesBinding;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ClusterNotificationListener;
+import org.wso2.andes.kernel.ClusterNotificationListener.SubscriptionChange;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link SubscriptionNotificationBatcher}
+ * Changes are recorded by an agent instead of being sent to the cluster.
+ */
+public class SubscriptionNotificationBatcherTest {
+
+    /**
+     * Window long enough for changes to be notified only by an explicit flush
+     */
+    private static final int WINDOW = 60000;
+
+    /**
+     * Test collected changes are notified as a single batch which is decoded to the same changes
+     */
+    @Test
+    public void testBatch() throws Exception {
+        RecordingAgent agent = new RecordingAgent();
+        SubscriptionNotificationBatcher batcher = new SubscriptionNotificationBatcher(agent, WINDOW, 1000);
+
+        batcher.notifySubscriptionChange(createSubscription("sub1"), SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(createSubscription("sub2"), SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(createSubscription("sub3"), SubscriptionChange.Closed);
+        assertEquals(0, agent.batches.size());
+
+        batcher.flush();
+
+        assertEquals(1, agent.batches.size());
+        assertEquals(0, agent.changes.size());
+        SubscriptionNotificationBatch batch =
+                SubscriptionNotificationBatch.decode(agent.batches.get(0).encodeAsString());
+        assertEquals(Arrays.asList(SubscriptionChange.Added, SubscriptionChange.Added, SubscriptionChange.Closed),
+                batch.getChanges());
+        assertEquals(Arrays.asList("subscriptionId=sub1", "subscriptionId=sub2", "subscriptionId=sub3"),
+                batch.getEncodedSubscriptions());
+    }
+
+    /**
+     * Test a subscription added and closed within the window is not notified
+     */
+    @Test
+    public void testClosureCancelsAddition() throws Exception {
+        RecordingAgent agent = new RecordingAgent();
+        SubscriptionNotificationBatcher batcher = new SubscriptionNotificationBatcher(agent, WINDOW, 1000);
+
+        AndesSubscription cancelledSubscription = createSubscription("sub1");
+        AndesSubscription subscription = createSubscription("sub2");
+        batcher.notifySubscriptionChange(cancelledSubscription, SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(subscription, SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(cancelledSubscription, SubscriptionChange.Closed);
+        batcher.flush();
+
+        assertEquals(0, agent.batches.size());
+        assertEquals(Arrays.asList("Added:sub2"), agent.changes);
+    }
+
+    /**
+     * Test changes are notified without a flush once the maximum batch size is reached
+     */
+    @Test
+    public void testMaxBatchSize() throws Exception {
+        RecordingAgent agent = new RecordingAgent();
+        SubscriptionNotificationBatcher batcher = new SubscriptionNotificationBatcher(agent, WINDOW, 2);
+
+        batcher.notifySubscriptionChange(createSubscription("sub1"), SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(createSubscription("sub2"), SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(createSubscription("sub3"), SubscriptionChange.Added);
+
+        assertEquals(1, agent.batches.size());
+        assertEquals(2, agent.batches.get(0).size());
+    }
+
+    /**
+     * Test changes of a failed notification are notified by the next flush ahead of changes collected since, and a
+     * re-collected addition can still be cancelled by a closure
+     */
+    @Test
+    public void testFailedNotificationRequeued() throws Exception {
+        RecordingAgent agent = new RecordingAgent();
+        SubscriptionNotificationBatcher batcher = new SubscriptionNotificationBatcher(agent, WINDOW, 1000);
+
+        AndesSubscription cancelledSubscription = createSubscription("sub2");
+        batcher.notifySubscriptionChange(createSubscription("sub1"), SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(cancelledSubscription, SubscriptionChange.Added);
+        agent.failureCount = 1;
+        try {
+            batcher.flush();
+            fail("Notification failure not propagated to the flush");
+        } catch (AndesException e) {
+            assertEquals(0, agent.batches.size());
+        }
+
+        batcher.notifySubscriptionChange(createSubscription("sub3"), SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(cancelledSubscription, SubscriptionChange.Closed);
+        batcher.flush();
+
+        assertEquals(1, agent.batches.size());
+        assertEquals(Arrays.asList("subscriptionId=sub1", "subscriptionId=sub3"),
+                agent.batches.get(0).getEncodedSubscriptions());
+    }
+
+    /**
+     * Test changes of a notification failed at the end of a window are notified at the end of the next window
+     */
+    @Test
+    public void testFailedWindowRetried() throws Exception {
+        RecordingAgent agent = new RecordingAgent();
+        agent.failureCount = 1;
+        agent.notificationLatch = new CountDownLatch(1);
+        SubscriptionNotificationBatcher batcher = new SubscriptionNotificationBatcher(agent, 10, 1000);
+
+        batcher.notifySubscriptionChange(createSubscription("sub1"), SubscriptionChange.Added);
+
+        assertTrue("Changes not notified after a failure", agent.notificationLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("Added:sub1"), agent.changes);
+    }
+
+    /**
+     * Test changes are notified as they happen when there is no window
+     */
+    @Test
+    public void testWithoutWindow() throws Exception {
+        RecordingAgent agent = new RecordingAgent();
+        SubscriptionNotificationBatcher batcher = new SubscriptionNotificationBatcher(agent, 0, 1000);
+
+        AndesSubscription subscription = createSubscription("sub1");
+        batcher.notifySubscriptionChange(subscription, SubscriptionChange.Added);
+        batcher.notifySubscriptionChange(subscription, SubscriptionChange.Closed);
+
+        assertEquals(Arrays.asList("Added:sub1", "Closed:sub1"), agent.changes);
+    }
+
+    private static AndesSubscription createSubscription(final String subscriptionId) {
+        SubscriberConnection connection = new SubscriberConnection("connectedIP=127.0.0.1,connectedNode=node1,"
+                + "protocolChannelID=" + UUID.randomUUID());
+        return new AndesSubscription(subscriptionId, null, ProtocolType.MQTT, connection) {
+            @Override
+            public String encodeAsStr() {
+                return "subscriptionId=" + subscriptionId;
+            }
+        };
+    }
+
+    /**
+     * Agent recording the subscription notifications
+     */
+    private static class RecordingAgent implements ClusterNotificationAgent {
+
+        private final List<String> changes = new ArrayList<>();
+
+        private final List<SubscriptionNotificationBatch> batches = new ArrayList<>();
+
+        /**
+         * Number of notifications to fail before recording notifications
+         */
+        private volatile int failureCount;
+
+        /**
+         * Counted down on each recorded notification if set
+         */
+        private volatile CountDownLatch notificationLatch;
+
+        @Override
+        public void notifySubscriptionsChange(AndesSubscription subscription, SubscriptionChange changeType)
+                throws AndesException {
+            checkFailure();
+            changes.add(changeType + ":" + subscription.getSubscriptionId());
+            notified();
+        }
+
+        @Override
+        public void notifySubscriptionBatch(SubscriptionNotificationBatch batch) throws AndesException {
+            checkFailure();
+            batches.add(batch);
+            notified();
+        }
+
+        private void checkFailure() throws AndesException {
+            if (failureCount > 0) {
+                failureCount--;
+                throw new AndesException("Notification failed");
+            }
+        }
+
+        private void notified() {
+            if (null != notificationLatch) {
+                notificationLatch.countDown();
+            }
+        }
+
+        @Override
+        public void notifyMessageRouterChange(AndesMessageRouter messageRouter,
+                                              ClusterNotificationListener.MessageRouterChange changeType) {
+        }
+
+        @Override
+        public void notifyQueueChange(StorageQueue storageQueue, ClusterNotificationListener.QueueChange changeType) {
+        }
+
+        @Override
+        public void notifyBindingsChange(AndesBinding binding, ClusterNotificationListener.BindingChange changeType) {
+        }
+
+        @Override
+        public void notifyAnyDBChange() throws AndesException {
+        }
+
+        @Override
+        public void notifySlotAvailability(Collection<String> storageQueueNames) {
+        }
+    }
+}
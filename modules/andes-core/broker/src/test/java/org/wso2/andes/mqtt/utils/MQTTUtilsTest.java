@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.mqtt.utils;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link MQTTUtils}
+ * Payloads are given as direct buffers, the way they are read from a pooled inbound buffer.
+ */
+public class MQTTUtilsTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Test a payload larger than the chunk size is copied into chunks of the chunk size
+     */
+    @Test
+    public void testConvertToAndesMessageParts() {
+        byte[] payload = createPayload(2 * CHUNK_SIZE + 10);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(payload.length);
+        buffer.put(payload).flip();
+
+        List<AndesMessagePart> parts = MQTTUtils.convertToAndesMessageParts(buffer, 5, CHUNK_SIZE);
+
+        assertEquals(3, parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            AndesMessagePart part = parts.get(i);
+            assertEquals(5, part.getMessageID());
+            assertEquals(i * CHUNK_SIZE, part.getOffset());
+            assertArrayEquals(Arrays.copyOfRange(payload, i * CHUNK_SIZE,
+                    Math.min(payload.length, (i + 1) * CHUNK_SIZE)), part.getData());
+        }
+        // Position of the payload is not changed
+        assertEquals(0, buffer.position());
+    }
+
+    /**
+     * Test an empty payload is converted to a single empty chunk
+     */
+    @Test
+    public void testConvertEmptyPayload() {
+        List<AndesMessagePart> parts = MQTTUtils.convertToAndesMessageParts(ByteBuffer.allocateDirect(0), 5,
+                CHUNK_SIZE);
+
+        assertEquals(1, parts.size());
+        assertEquals(0, parts.get(0).getDataLength());
+    }
+
+    private static byte[] createPayload(int length) {
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+}
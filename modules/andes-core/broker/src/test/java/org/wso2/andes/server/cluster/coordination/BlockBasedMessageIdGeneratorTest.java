@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link BlockBasedMessageIdGenerator}
+ */
+public class BlockBasedMessageIdGeneratorTest {
+
+    private static final int NODE_ID = 5;
+
+    /**
+     * Generator with a controllable clock
+     */
+    private static class TestIdGenerator extends BlockBasedMessageIdGenerator {
+
+        private volatile long time = System.currentTimeMillis();
+
+        private volatile int waitCount;
+
+        TestIdGenerator(int maxBlockSize) {
+            super(maxBlockSize);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        void waitForClock() {
+            waitCount++;
+            time++;
+        }
+
+        @Override
+        int getUniqueIdForLocalNode() {
+            return NODE_ID;
+        }
+    }
+
+    /**
+     * More than 1024 IDs within the same millisecond should borrow from the next tick instead of failing
+     */
+    @Test
+    public void testSameMillisecondOverflow() {
+        TestIdGenerator generator = new TestIdGenerator(64);
+        long lastId = 0;
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.getNextId();
+            assertTrue("IDs should be increasing", id > lastId);
+            assertEquals("Node id should be preserved", NODE_ID, (id >>> 10) & 0xFF);
+            lastId = id;
+        }
+    }
+
+    /**
+     * IDs should keep increasing when the clock goes backwards, waiting for the clock if it went back further than
+     * the allowed drift
+     */
+    @Test
+    public void testClockGoingBackwards() {
+        TestIdGenerator generator = new TestIdGenerator(16);
+        long lastId = generator.getNextId();
+        long startTime = generator.time;
+        generator.time = startTime - 10;
+        for (int i = 0; i < 100; i++) {
+            long id = generator.getNextId();
+            assertTrue("IDs should be increasing", id > lastId);
+            lastId = id;
+        }
+        assertEquals(0, generator.waitCount);
+
+        generator.time = startTime - 10000;
+        for (int i = 0; i < 100; i++) {
+            long id = generator.getNextId();
+            assertTrue("IDs should be increasing", id > lastId);
+            lastId = id;
+        }
+        assertTrue("Clock drift should be bounded",
+                generator.time >= startTime - BlockBasedMessageIdGenerator.MAX_CLOCK_DRIFT);
+    }
+
+    /**
+     * Generating more than 1024 IDs per millisecond should not move the IDs further ahead of the clock than the
+     * allowed drift, so that a restarted node does not reuse IDs
+     */
+    @Test
+    public void testDriftBounded() {
+        TestIdGenerator generator = new TestIdGenerator(1024);
+        long idsWithinDrift = (BlockBasedMessageIdGenerator.MAX_CLOCK_DRIFT + 1) * 1024;
+        for (long i = 0; i < 2 * idsWithinDrift; i++) {
+            generator.getNextId();
+        }
+
+        assertTrue("Generator should wait for the clock", generator.waitCount > 0);
+        TestIdGenerator restartedGenerator = new TestIdGenerator(1024);
+        restartedGenerator.time = generator.time + BlockBasedMessageIdGenerator.MAX_CLOCK_DRIFT + 1;
+        assertTrue("Restarted generator should not reuse IDs",
+                restartedGenerator.getNextId() > generator.getNextId());
+    }
+
+    /**
+     * IDs generated by parallel threads should be unique
+     */
+    @Test
+    public void testUniqueIdsAcrossThreads() throws Exception {
+        final BlockBasedMessageIdGenerator generator = new TestIdGenerator(128);
+        final int threadCount = 8;
+        final int idsPerThread = 20000;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        List<Future<long[]>> futures = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executorService.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() throws Exception {
+                    long[] ids = new long[idsPerThread];
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids[j] = generator.getNextId();
+                    }
+                    return ids;
+                }
+            }));
+        }
+
+        Set<Long> generatedIds = new HashSet<>(threadCount * idsPerThread);
+        for (Future<long[]> future : futures) {
+            long lastId = 0;
+            for (long id : future.get()) {
+                assertTrue("IDs should be increasing within a thread", id > lastId);
+                assertTrue("Duplicate id detected " + id, generatedIds.add(id));
+                lastId = id;
+            }
+        }
+        executorService.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.server.ClusterResourceHolder;
+import org.wso2.andes.server.cluster.ClusterManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BlockBasedMessageIdGenerator} with {@link TimeStampBasedMessageIdGenerator} when 1 to 64
+ * publisher threads request IDs from the same generator.
+ * <p/>
+ * Both generators read the node id from the cluster manager, which is set up in standalone mode. Note that the
+ * time stamp based generator does not guard against more than 1024 IDs within a millisecond, which this benchmark
+ * exceeds, so only its throughput is meaningful.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageIdGeneratorBenchmark {
+
+    /**
+     * Number of publisher threads requesting IDs in each run
+     */
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    private MessageIdGenerator timeStampBasedGenerator;
+
+    private MessageIdGenerator blockBasedGenerator;
+
+    @Setup
+    public void setUp() {
+        ClusterResourceHolder.getInstance().setClusterManager(new ClusterManager());
+        timeStampBasedGenerator = new TimeStampBasedMessageIdGenerator();
+        blockBasedGenerator = new BlockBasedMessageIdGenerator();
+    }
+
+    @Benchmark
+    public long timeStampBased() {
+        return timeStampBasedGenerator.getNextId();
+    }
+
+    @Benchmark
+    public long blockBased() {
+        return blockBasedGenerator.getNextId();
+    }
+
+    /**
+     * Run both benchmarks with each of the publisher thread counts
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int threadCount : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(MessageIdGeneratorBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
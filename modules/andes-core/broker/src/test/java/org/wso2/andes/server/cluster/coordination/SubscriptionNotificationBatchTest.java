@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.ClusterNotificationListener.SubscriptionChange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SubscriptionNotificationBatch}
+ * Batches are encoded and decoded back the way they travel through cluster notifications.
+ */
+public class SubscriptionNotificationBatchTest {
+
+    private static final int CHANGE_COUNT = 200;
+
+    /**
+     * Test a decoded batch holds the encoded changes and the encoded batch is smaller than its subscriptions
+     */
+    @Test
+    public void testEncodeAndDecode() throws Exception {
+        SubscriptionNotificationBatch batch = createBatch();
+        int subscriptionsLength = 0;
+        for (String encodedSubscription : batch.getEncodedSubscriptions()) {
+            subscriptionsLength = subscriptionsLength + encodedSubscription.length();
+        }
+
+        String encodedBatch = batch.encodeAsString();
+        SubscriptionNotificationBatch decodedBatch = SubscriptionNotificationBatch.decode(encodedBatch);
+
+        assertEquals(batch.getChanges(), decodedBatch.getChanges());
+        assertEquals(batch.getEncodedSubscriptions(), decodedBatch.getEncodedSubscriptions());
+        assertTrue("Batch is not compressed", encodedBatch.length() < subscriptionsLength);
+    }
+
+    /**
+     * Test a batch split to fit a maximum length is decoded to the same changes in the same order
+     */
+    @Test
+    public void testEncodeInParts() throws Exception {
+        SubscriptionNotificationBatch batch = createBatch();
+        int maxLength = 512;
+
+        List<String> encodedParts = batch.encodeAsStrings(maxLength);
+
+        List<SubscriptionChange> changes = new ArrayList<>();
+        List<String> encodedSubscriptions = new ArrayList<>();
+        for (String encodedPart : encodedParts) {
+            assertTrue("Part longer than " + maxLength, encodedPart.length() <= maxLength);
+            SubscriptionNotificationBatch part = SubscriptionNotificationBatch.decode(encodedPart);
+            changes.addAll(part.getChanges());
+            encodedSubscriptions.addAll(part.getEncodedSubscriptions());
+        }
+        assertTrue(encodedParts.size() > 1);
+        assertEquals(batch.getChanges(), changes);
+        assertEquals(batch.getEncodedSubscriptions(), encodedSubscriptions);
+    }
+
+    private static SubscriptionNotificationBatch createBatch() {
+        SubscriptionNotificationBatch batch = new SubscriptionNotificationBatch();
+        for (int i = 0; i < CHANGE_COUNT; i++) {
+            SubscriptionChange changeType = i % 3 == 0 ? SubscriptionChange.Closed : SubscriptionChange.Added;
+            batch.add(changeType, "subscriptionId=" + i + ",storageQueue=carbon:device" + i
+                    + ",protocolType=MQTT,isActive=true,subscriberConnection=Y29ubmVjdGVkSVA9MTAuMC4wLjE=");
+        }
+        return batch;
+    }
+}
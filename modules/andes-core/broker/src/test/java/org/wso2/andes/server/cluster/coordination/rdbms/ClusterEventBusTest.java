@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.server.cluster.NodeHeartBeatData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link ClusterEventBus}
+ * Signals are pushed between buses of a five node cluster on localhost.
+ */
+public class ClusterEventBusTest {
+
+    private static final int NODE_COUNT = 5;
+
+    private static final long SIGNAL_TIMEOUT = 5;
+
+    private List<ClusterEventBus> eventBuses;
+
+    private List<NodeHeartBeatData> heartBeatData;
+
+    @Before
+    public void setUp() throws Exception {
+        eventBuses = new ArrayList<>(NODE_COUNT);
+        heartBeatData = new ArrayList<>(NODE_COUNT);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            ClusterEventBus eventBus = new ClusterEventBus("node" + i, new InetSocketAddress("127.0.0.1", 0), 0);
+            eventBuses.add(eventBus);
+            heartBeatData.add(new NodeHeartBeatData("node" + i, System.currentTimeMillis(), false,
+                    new InetSocketAddress("127.0.0.1", eventBus.getPort())));
+        }
+        for (ClusterEventBus eventBus : eventBuses) {
+            eventBus.updatePeers(heartBeatData);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (ClusterEventBus eventBus : eventBuses) {
+            eventBus.close();
+        }
+    }
+
+    /**
+     * Test a published signal reaches the listeners of all other nodes and only listeners of the published type
+     */
+    @Test
+    public void testPublish() throws Exception {
+        CountDownLatch notificationLatch = new CountDownLatch(NODE_COUNT - 1);
+        AtomicInteger membershipSignals = new AtomicInteger();
+        for (ClusterEventBus eventBus : eventBuses) {
+            eventBus.addEventListener(ClusterEventBus.EventType.CLUSTER_NOTIFICATION,
+                    new CountDownListener(notificationLatch));
+            eventBus.addEventListener(ClusterEventBus.EventType.MEMBERSHIP, new CountingListener(membershipSignals));
+        }
+
+        eventBuses.get(0).publish(ClusterEventBus.EventType.CLUSTER_NOTIFICATION);
+
+        assertTrue("Signal not received by all nodes", notificationLatch.await(SIGNAL_TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, membershipSignals.get());
+    }
+
+    /**
+     * Test signals reach a node which restarted after a connection was made to it
+     */
+    @Test
+    public void testPublishAfterRestart() throws Exception {
+        // A signal is not published before the restart, as its acknowledgement may be lost with the closed bus and
+        // the send again to the stopped node would hold off sends for the reconnect delay
+        assertTrue("Peers not connected", awaitPushActive(eventBuses.get(1)));
+
+        int port = eventBuses.get(1).getPort();
+        eventBuses.get(1).close();
+        ClusterEventBus restartedBus = restart("node1", port);
+        eventBuses.set(1, restartedBus);
+        restartedBus.updatePeers(heartBeatData);
+
+        CountDownLatch secondLatch = new CountDownLatch(1);
+        restartedBus.addEventListener(ClusterEventBus.EventType.MEMBERSHIP, new CountDownListener(secondLatch));
+        eventBuses.get(0).publish(ClusterEventBus.EventType.MEMBERSHIP);
+        assertTrue("Signal not received after restart", secondLatch.await(SIGNAL_TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test signals not acknowledged by a peer which closed the connection are sent again over a new connection
+     */
+    @Test
+    public void testUnacknowledgedSignalResent() throws Exception {
+        try (ServerSocket peerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            peerSocket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(SIGNAL_TIMEOUT));
+            List<NodeHeartBeatData> nodes = new ArrayList<>(heartBeatData.subList(0, 1));
+            nodes.add(new NodeHeartBeatData("restartedNode", System.currentTimeMillis(), false,
+                    new InetSocketAddress("127.0.0.1", peerSocket.getLocalPort())));
+            eventBuses.get(0).updatePeers(nodes);
+
+            try (Socket staleConnection = peerSocket.accept()) {
+                DataInputStream inputStream = new DataInputStream(staleConnection.getInputStream());
+                assertEquals("node0", inputStream.readUTF());
+                eventBuses.get(0).publish(ClusterEventBus.EventType.MEMBERSHIP);
+                // The peer goes down before acknowledging the signal
+                assertEquals(0x2, inputStream.read());
+            }
+
+            try (Socket newConnection = peerSocket.accept()) {
+                newConnection.setSoTimeout((int) TimeUnit.SECONDS.toMillis(SIGNAL_TIMEOUT));
+                DataInputStream inputStream = new DataInputStream(newConnection.getInputStream());
+                assertEquals("node0", inputStream.readUTF());
+                assertEquals("Signal not sent again", 0x2, inputStream.read());
+            }
+        }
+    }
+
+    /**
+     * Test signals not acknowledged in time are sent again over a new connection, as the peer may have gone down
+     * without closing the connection
+     */
+    @Test
+    public void testSignalResentWhenAcknowledgementTimesOut() throws Exception {
+        try (ServerSocket peerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            peerSocket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(SIGNAL_TIMEOUT));
+            List<NodeHeartBeatData> nodes = new ArrayList<>(heartBeatData.subList(0, 1));
+            nodes.add(new NodeHeartBeatData("unresponsiveNode", System.currentTimeMillis(), false,
+                    new InetSocketAddress("127.0.0.1", peerSocket.getLocalPort())));
+            eventBuses.get(0).updatePeers(nodes);
+
+            try (Socket halfOpenConnection = peerSocket.accept()) {
+                DataInputStream inputStream = new DataInputStream(halfOpenConnection.getInputStream());
+                assertEquals("node0", inputStream.readUTF());
+                eventBuses.get(0).publish(ClusterEventBus.EventType.CLUSTER_NOTIFICATION);
+                // The signal is neither acknowledged nor the connection closed
+                assertEquals(0x1, inputStream.read());
+
+                try (Socket newConnection = peerSocket.accept()) {
+                    newConnection.setSoTimeout((int) TimeUnit.SECONDS.toMillis(SIGNAL_TIMEOUT));
+                    inputStream = new DataInputStream(newConnection.getInputStream());
+                    assertEquals("node0", inputStream.readUTF());
+                    assertEquals("Signal not sent again", 0x1, inputStream.read());
+                }
+            }
+        }
+    }
+
+    /**
+     * Test connections claiming a node ID which is not in the cluster are closed, once the peers are not updated
+     * within the handshake timeout, without notifying the listeners
+     */
+    @Test
+    public void testConnectionFromUnknownNodeClosed() throws Exception {
+        AtomicInteger signals = new AtomicInteger();
+        ClusterEventBus eventBus = eventBuses.get(0);
+        eventBus.addEventListener(ClusterEventBus.EventType.MEMBERSHIP, new CountingListener(signals));
+        assertTrue("Peers not connected", awaitPushActive(eventBus));
+
+        try (Socket socket = new Socket("127.0.0.1", eventBus.getPort())) {
+            socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(2 * SIGNAL_TIMEOUT));
+            DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+            outputStream.writeUTF("unknownNode");
+            outputStream.write(0x2);
+            outputStream.flush();
+            assertEquals("Connection not closed", -1, socket.getInputStream().read());
+        }
+        assertEquals(0, signals.get());
+    }
+
+    /**
+     * Test connections from a node are closed once the node leaves the cluster
+     */
+    @Test
+    public void testConnectionClosedWhenNodeLeaves() throws Exception {
+        ClusterEventBus eventBus = eventBuses.get(0);
+        assertTrue("Peers not connected", awaitPushActive(eventBus));
+
+        eventBus.updatePeers(heartBeatData.subList(0, NODE_COUNT - 1));
+        // Push stays inactive when the node is listed again since its closed connection is not made again until it
+        // sends a signal
+        eventBus.updatePeers(heartBeatData);
+        assertFalse("Connection of the node which left not closed", awaitPushActive(eventBus, false));
+    }
+
+    /**
+     * Test push is active on a node only once every other node is connected to push signals to it
+     */
+    @Test
+    public void testPushActiveOnceAllPeersConnected() throws Exception {
+        for (ClusterEventBus eventBus : eventBuses) {
+            assertTrue("Peers not connected", awaitPushActive(eventBus));
+        }
+
+        List<NodeHeartBeatData> nodes = new ArrayList<>(heartBeatData);
+        nodes.add(new NodeHeartBeatData("unreachableNode", System.currentTimeMillis(), false,
+                new InetSocketAddress("127.0.0.1", unusedPort())));
+        ClusterEventBus eventBus = eventBuses.get(0);
+        eventBus.updatePeers(nodes);
+        assertFalse(awaitPushActive(eventBus, false));
+    }
+
+    /**
+     * Test the poll task reads at every run until push is active and at the fallback interval after that
+     */
+    @Test
+    public void testPollerFallsBackOnlyWhenPushActive() throws Exception {
+        ClusterEventBus pushingBus = eventBuses.get(0);
+        assertTrue("Peers not connected", awaitPushActive(pushingBus));
+        ClusterEventBus isolatedBus = new ClusterEventBus("isolatedNode", new InetSocketAddress("127.0.0.1", 0), 0);
+        eventBuses.add(isolatedBus);
+        List<NodeHeartBeatData> nodes = new ArrayList<>(heartBeatData);
+        nodes.add(new NodeHeartBeatData("isolatedNode", System.currentTimeMillis(), false,
+                new InetSocketAddress("127.0.0.1", isolatedBus.getPort())));
+        nodes.add(new NodeHeartBeatData("unreachableNode", System.currentTimeMillis(), false,
+                new InetSocketAddress("127.0.0.1", unusedPort())));
+        isolatedBus.updatePeers(nodes);
+
+        AtomicInteger pushingReads = new AtomicInteger();
+        AtomicInteger isolatedReads = new AtomicInteger();
+        long fallbackInterval = TimeUnit.HOURS.toMillis(1);
+        Runnable pushingPoller = pushingBus.pollerFor(new CountingListener(pushingReads), 10, fallbackInterval);
+        Runnable isolatedPoller = isolatedBus.pollerFor(new CountingListener(isolatedReads), 10, fallbackInterval);
+        for (int i = 0; i < 5; i++) {
+            pushingPoller.run();
+            isolatedPoller.run();
+        }
+
+        assertEquals(1, pushingReads.get());
+        assertEquals(5, isolatedReads.get());
+    }
+
+    /**
+     * Test a listener task is run once for signals received while it is waiting to run
+     */
+    @Test
+    public void testListenerCoalescesSignals() throws Exception {
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blockLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            AtomicInteger runCount = new AtomicInteger();
+            Runnable listener = ClusterEventBus.listenerFor(executor, new CountingListener(runCount));
+            for (int i = 0; i < 10; i++) {
+                listener.run();
+            }
+            blockLatch.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(SIGNAL_TIMEOUT, TimeUnit.SECONDS));
+            assertEquals(1, runCount.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean awaitPushActive(ClusterEventBus eventBus) throws InterruptedException {
+        return awaitPushActive(eventBus, true);
+    }
+
+    /**
+     * Wait until push is active on the bus or the signal timeout passes
+     *
+     * @return whether push is active
+     */
+    private static boolean awaitPushActive(ClusterEventBus eventBus, boolean isExpected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(isExpected ? SIGNAL_TIMEOUT : 1);
+        while (eventBus.isPushActive() != isExpected && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return eventBus.isPushActive();
+    }
+
+    private static int unusedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Start a bus on the port of a closed bus. The port is released once the acceptor of the closed bus returns.
+     */
+    private static ClusterEventBus restart(String nodeId, int port) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(SIGNAL_TIMEOUT);
+        while (true) {
+            try {
+                return new ClusterEventBus(nodeId, new InetSocketAddress("127.0.0.1", port), 0);
+            } catch (BindException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+    }
+
+    private static class CountDownListener implements Runnable {
+
+        private final CountDownLatch latch;
+
+        CountDownListener(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            latch.countDown();
+        }
+    }
+
+    private static class CountingListener implements Runnable {
+
+        private final AtomicInteger count;
+
+        CountingListener(AtomicInteger count) {
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+        }
+    }
+}
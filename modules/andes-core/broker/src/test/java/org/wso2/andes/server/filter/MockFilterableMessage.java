@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.filter;
+
+import org.wso2.andes.server.message.AMQMessageHeader;
+import org.wso2.andes.server.queue.Filterable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Message with application properties and JMS header fields to evaluate selectors over. Reads of each property
+ * are counted so that tests can check how often a selector looked at it.
+ */
+public class MockFilterableMessage implements Filterable, AMQMessageHeader {
+
+    private final Map<String, Object> headers = new HashMap<>();
+
+    private final Map<String, Integer> readCounts = new HashMap<>();
+
+    private byte priority = 4;
+
+    private long timestamp;
+
+    public MockFilterableMessage with(String name, Object value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public void setPriority(byte priority) {
+        this.priority = priority;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public int getReadCount(String name) {
+        Integer readCount = readCounts.get(name);
+        return null == readCount ? 0 : readCount;
+    }
+
+    @Override
+    public AMQMessageHeader getMessageHeader() {
+        return this;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public boolean isRedelivered() {
+        return false;
+    }
+
+    @Override
+    public String getCorrelationId() {
+        return null;
+    }
+
+    @Override
+    public long getExpiration() {
+        return 0;
+    }
+
+    @Override
+    public String getMessageId() {
+        return null;
+    }
+
+    @Override
+    public String getMimeType() {
+        return null;
+    }
+
+    @Override
+    public String getEncoding() {
+        return null;
+    }
+
+    @Override
+    public byte getPriority() {
+        return priority;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String getType() {
+        return null;
+    }
+
+    @Override
+    public String getReplyTo() {
+        return null;
+    }
+
+    @Override
+    public String getReplyToExchange() {
+        return null;
+    }
+
+    @Override
+    public String getReplyToRoutingKey() {
+        return null;
+    }
+
+    @Override
+    public Object getHeader(String name) {
+        readCounts.put(name, getReadCount(name) + 1);
+        return headers.get(name);
+    }
+
+    @Override
+    public boolean containsHeaders(Set<String> names) {
+        return headers.keySet().containsAll(names);
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+}
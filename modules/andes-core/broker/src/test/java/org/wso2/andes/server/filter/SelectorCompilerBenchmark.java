@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.server.filter.jms.selector.SelectorParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating typical header and property selectors through the parsed expression with evaluating them
+ * through {@link SelectorCompiler}.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath. The GC profiler reports the bytes allocated per
+ * evaluation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectorCompilerBenchmark {
+
+    @Param({
+            "JMSPriority > 4",
+            "JMSTimestamp >= 1000",
+            "region = 'east' AND level > 3",
+            "currency = 'USD' AND amount >= 100.5",
+            "region IS NOT NULL AND (level BETWEEN 2 AND 8 OR urgent = TRUE)",
+            "region IN ('east', 'west') OR level < 2"
+    })
+    private String selector;
+
+    private BooleanExpression parsedSelector;
+
+    private BooleanExpression compiledSelector;
+
+    private MockFilterableMessage message;
+
+    @Setup
+    public void setUp() throws Exception {
+        parsedSelector = new SelectorParser().parse(selector);
+        compiledSelector = SelectorCompiler.compile(parsedSelector);
+
+        message = new MockFilterableMessage()
+                .with("region", "east")
+                .with("level", 5)
+                .with("currency", "USD")
+                .with("amount", 250.75)
+                .with("urgent", false);
+        message.setPriority((byte) 7);
+        message.setTimestamp(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public boolean parsedSelector() {
+        return parsedSelector.matches(message);
+    }
+
+    @Benchmark
+    public boolean compiledSelector() {
+        return compiledSelector.matches(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SelectorCompilerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.filter;
+
+import org.junit.Test;
+import org.wso2.andes.server.queue.Filterable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SelectorCompiler}
+ * Compiled selectors are evaluated over messages with properties of every type and compared with the parsed
+ * selectors.
+ */
+public class SelectorCompilerTest {
+
+    private static final Object[] PROPERTY_VALUES = {null, (byte) 3, (short) 4, 5, 6L, 5.5f, 4.5d, "5", "east",
+            true, false};
+
+    /**
+     * Test compiled selectors give the same results as the parsed selectors
+     */
+    @Test
+    public void testSameResultsAsParsedSelector() {
+        PropertyExpression level = new PropertyExpression("level");
+        PropertyExpression region = new PropertyExpression("region");
+
+        List<BooleanExpression> selectors = new ArrayList<>();
+        selectors.add(ComparisonExpression.createGreaterThan(level, integer("4")));
+        selectors.add(ComparisonExpression.createGreaterThanEqual(level, integer("5")));
+        selectors.add(ComparisonExpression.createLessThan(level, ConstantExpression.createFloat("5.0")));
+        selectors.add(ComparisonExpression.createLessThanEqual(level, integer("4")));
+        selectors.add(ComparisonExpression.createGreaterThan(level, integer("2147483648")));
+        selectors.add(ComparisonExpression.createGreaterThan(level, UnaryExpression.createNegate(integer("3"))));
+        selectors.add(ComparisonExpression.createEqual(level, integer("5")));
+        selectors.add(ComparisonExpression.createEqual(level, ConstantExpression.createFloat("4.5")));
+        selectors.add(ComparisonExpression.createNotEqual(level, integer("5")));
+        selectors.add(ComparisonExpression.createEqual(region, new ConstantExpression("east")));
+        selectors.add(ComparisonExpression.createEqual(region, ConstantExpression.TRUE));
+        selectors.add(ComparisonExpression.createIsNull(region));
+        selectors.add(ComparisonExpression.createIsNotNull(region));
+        selectors.add(ComparisonExpression.createBetween(level, integer("4"), integer("5")));
+        selectors.add(ComparisonExpression.createNotBetween(level, integer("4"), integer("5")));
+        selectors.add(ComparisonExpression.createLike(region, "ea%", null));
+        selectors.add(ComparisonExpression.createInFilter(region, Arrays.asList("east", "west")));
+        selectors.add(UnaryExpression.createBooleanCast(region));
+        selectors.add(ComparisonExpression.createGreaterThan(ArithmeticExpression.createPlus(level, integer("1")),
+                integer("5")));
+        selectors.add(LogicExpression.createAND(
+                ComparisonExpression.createEqual(region, new ConstantExpression("east")),
+                ComparisonExpression.createGreaterThan(level, integer("4"))));
+        selectors.add(LogicExpression.createOR(
+                ComparisonExpression.createEqual(region, new ConstantExpression("east")),
+                ComparisonExpression.createGreaterThan(level, integer("4"))));
+        selectors.add(LogicExpression.createAND(
+                ComparisonExpression.createGreaterThan(level, integer("4")),
+                ComparisonExpression.createLessThan(region, integer("4"))));
+        selectors.add(LogicExpression.createOR(
+                ComparisonExpression.createGreaterThan(level, integer("4")),
+                ComparisonExpression.createLessThan(region, integer("4"))));
+        selectors.add(UnaryExpression.createNOT(ComparisonExpression.createGreaterThan(level, integer("4"))));
+        selectors.add(LogicExpression.createAND(ComparisonExpression.createEqual(integer("1"), integer("1")),
+                ComparisonExpression.createGreaterThan(level, integer("4"))));
+        selectors.add(LogicExpression.createOR(ComparisonExpression.createEqual(integer("1"), integer("2")),
+                ComparisonExpression.createGreaterThan(level, integer("4"))));
+
+        for (BooleanExpression selector : selectors) {
+            BooleanExpression compiledSelector = SelectorCompiler.compile(selector);
+            assertEquals(selector.toString(), compiledSelector.toString());
+
+            for (Object levelValue : PROPERTY_VALUES) {
+                for (Object regionValue : PROPERTY_VALUES) {
+                    MockFilterableMessage message = new MockFilterableMessage().with("level", levelValue).with("region", regionValue);
+                    String description = selector + " level=" + levelValue + " region=" + regionValue;
+
+                    assertEquals(description, evaluate(selector, message), evaluate(compiledSelector, message));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test comparisons of the numeric JMS header fields
+     */
+    @Test
+    public void testHeaderFields() {
+        PropertyExpression priority = new PropertyExpression("JMSPriority");
+        PropertyExpression timestamp = new PropertyExpression("JMSTimestamp");
+
+        MockFilterableMessage message = new MockFilterableMessage();
+        message.setPriority((byte) 7);
+        message.setTimestamp(1000L);
+
+        assertTrue(SelectorCompiler.compile(ComparisonExpression.createGreaterThan(priority, integer("4")))
+                .matches(message));
+        assertFalse(SelectorCompiler.compile(ComparisonExpression.createEqual(priority, integer("4")))
+                .matches(message));
+        assertTrue(SelectorCompiler.compile(ComparisonExpression.createLessThan(priority,
+                ConstantExpression.createFloat("7.5"))).matches(message));
+        assertTrue(SelectorCompiler.compile(ComparisonExpression.createGreaterThanEqual(timestamp, integer("1000")))
+                .matches(message));
+        assertFalse(SelectorCompiler.compile(ComparisonExpression.createGreaterThan(timestamp, integer("1000")))
+                .matches(message));
+    }
+
+    /**
+     * Evaluate a selector, giving the type of the error for selectors which cannot be evaluated over the message
+     */
+    private static Object evaluate(BooleanExpression selector, Filterable message) {
+        try {
+            Object result = selector.evaluate(message);
+            assertEquals(Boolean.TRUE.equals(result), selector.matches(message));
+            return result;
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static ConstantExpression integer(String text) {
+        return ConstantExpression.createFromDecimal(text);
+    }
+}
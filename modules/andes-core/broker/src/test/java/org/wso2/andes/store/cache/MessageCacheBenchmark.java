@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link GuavaBasedMessageCacheImpl} with {@link OffHeapMessageCacheImpl}. Each operation adds a message
+ * and reads the message added a given number of operations earlier, the way messages are published and then
+ * delivered from the cache once the consumers fall behind by that many messages. The delivered message is removed
+ * from the cache as it would be on acknowledgement.
+ * <p/>
+ * Hits and misses are reported as secondary results, and {@link #main(String[])} adds the GC profiler so that the
+ * allocation rate and GC time of both caches can be compared. Run from the test classpath with a heap large enough
+ * for the Guava cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageCacheBenchmark {
+
+    private static final int CONTENT_CHUNK_SIZE = 65500;
+
+    private static final long CACHE_SIZE = 256L * 1024L * 1024L;
+
+    @Param({"GUAVA", "OFF_HEAP"})
+    private String cacheType;
+
+    @Param({"1024", "65500"})
+    private int payloadSize;
+
+    /**
+     * Number of messages added between adding a message and reading it
+     */
+    @Param({"100", "10000"})
+    private int readDistance;
+
+    private AndesMessageCache cache;
+
+    private byte[] payload;
+
+    private long nextMessageId = 1;
+
+    /**
+     * Number of reads which found the message in the cache
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ReadCounters {
+
+        public long hits;
+
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        if ("GUAVA".equals(cacheType)) {
+            cache = new GuavaBasedMessageCacheImpl(CONTENT_CHUNK_SIZE, CACHE_SIZE, 4, 120, "strong", false);
+        } else {
+            cache = new OffHeapMessageCacheImpl(CONTENT_CHUNK_SIZE, CACHE_SIZE, 4, 120);
+        }
+        payload = new byte[payloadSize];
+    }
+
+    @Benchmark
+    public AndesMessage addAndRead(ReadCounters counters) {
+        long messageId = nextMessageId++;
+        cache.addToCache(createMessage(messageId));
+
+        long readMessageId = messageId - readDistance;
+        if (readMessageId <= 0) {
+            return null;
+        }
+
+        AndesMessage message = cache.getMessageFromCache(readMessageId);
+        if (null == message) {
+            counters.misses++;
+        } else {
+            counters.hits++;
+            cache.removeFromCache(readMessageId);
+        }
+        return message;
+    }
+
+    private AndesMessage createMessage(long messageId) {
+        byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                System.currentTimeMillis(), false, 1, "benchmark", true, payloadSize, false);
+        AndesMessage message = new AndesMessage(new AndesMessageMetadata(messageId, metadataBytes, false));
+        AndesMessagePart part = new AndesMessagePart();
+        part.setMessageID(messageId);
+        part.setOffSet(0);
+        part.setData(payload);
+        message.addMessagePart(part);
+        return message;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MessageCacheBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link OffHeapMessageCacheImpl}
+ * Messages are added to a cache of two slabs and read back as messages, content chunks and content views.
+ */
+public class OffHeapMessageCacheImplTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final int SLAB_SIZE = 1024 * 1024;
+
+    private OffHeapMessageCacheImpl cache;
+
+    @Before
+    public void setUp() {
+        cache = new OffHeapMessageCacheImpl(CHUNK_SIZE, 2 * SLAB_SIZE, 4, 60);
+    }
+
+    /**
+     * Test metadata and content of a cached message are read back
+     */
+    @Test
+    public void testReadMessage() {
+        cache.addToCache(createMessage(1, 3));
+
+        AndesMessage message = cache.getMessageFromCache(1);
+        assertNotNull(message);
+        assertEquals(1, message.getMetadata().getMessageID());
+        assertEquals(3, message.getContentChunkList().size());
+        for (int i = 0; i < 3; i++) {
+            AndesMessagePart part = message.getContentChunkList().get(i);
+            assertEquals(i * CHUNK_SIZE, part.getOffset());
+            assertArrayEquals(chunkData(1, i), part.getData());
+        }
+
+        assertArrayEquals(chunkData(1, 2), cache.getContentFromCache(1, 2 * CHUNK_SIZE).getData());
+        assertNull(cache.getMessageFromCache(2));
+    }
+
+    /**
+     * Test content of cached messages is filled and their IDs are removed from the requested list
+     */
+    @Test
+    public void testFillContent() {
+        cache.addToCache(createMessage(1, 1));
+        cache.addToCache(createMessage(3, 2));
+
+        LongArrayList messageIds = LongArrayList.newListWith(1, 2, 3);
+        LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>();
+        cache.fillContentFromCache(messageIds, contentList);
+
+        assertEquals(LongArrayList.newListWith(2), messageIds);
+        assertEquals(1, contentList.get(1).size());
+        assertEquals(2, contentList.get(3).size());
+        assertArrayEquals(chunkData(3, 1), contentList.get(3).get(1).getData());
+    }
+
+    /**
+     * Test removed messages are not returned
+     */
+    @Test
+    public void testRemove() {
+        cache.addToCache(createMessage(1, 1));
+        cache.addToCache(createMessage(2, 1));
+        cache.addToCache(createMessage(3, 1));
+
+        cache.removeFromCache(1);
+        cache.removeFromCache(LongArrayList.newListWith(2));
+
+        assertNull(cache.getMessageFromCache(1));
+        assertNull(cache.getMessageFromCache(2));
+        assertNotNull(cache.getMessageFromCache(3));
+    }
+
+    /**
+     * Test the oldest messages are evicted once all slabs are filled
+     */
+    @Test
+    public void testEviction() {
+        int messagesPerSlab = SLAB_SIZE / (10 * CHUNK_SIZE + 100);
+        int messageCount = 3 * messagesPerSlab;
+        for (int messageId = 1; messageId <= messageCount; messageId++) {
+            cache.addToCache(createMessage(messageId, 10));
+        }
+
+        assertNull(cache.getMessageFromCache(1));
+        AndesMessage lastMessage = cache.getMessageFromCache(messageCount);
+        assertNotNull(lastMessage);
+        assertArrayEquals(chunkData(messageCount, 9), lastMessage.getContentChunkList().get(9).getData());
+    }
+
+    /**
+     * Test a slab with a content view is not reused until the view is released
+     */
+    @Test
+    public void testContentViewKeepsSlab() {
+        cache.addToCache(createMessage(1, 2));
+        OffHeapMessageCacheImpl.ContentView view = cache.getContentBuffer(1, CHUNK_SIZE);
+        assertEquals(CHUNK_SIZE, view.getBuffer().remaining());
+
+        int messagesPerSlab = SLAB_SIZE / (10 * CHUNK_SIZE + 100);
+        for (int messageId = 2; messageId <= 3 * messagesPerSlab; messageId++) {
+            cache.addToCache(createMessage(messageId, 10));
+        }
+
+        byte[] data = new byte[CHUNK_SIZE];
+        view.getBuffer().duplicate().get(data);
+        assertArrayEquals(chunkData(1, 1), data);
+        assertNotNull(cache.getMessageFromCache(1));
+
+        view.release();
+        view.release();
+        int lastMessageId = 3 * messagesPerSlab;
+        for (int messageId = lastMessageId + 1; messageId <= lastMessageId + 2 * messagesPerSlab; messageId++) {
+            cache.addToCache(createMessage(messageId, 10));
+        }
+        assertNull(cache.getMessageFromCache(1));
+        assertNull(cache.getContentBuffer(1, CHUNK_SIZE));
+    }
+
+    /**
+     * Test messages are not cached while every other slab has a content view, so that no memory is allocated
+     * beyond the cache size, and caching resumes once the views are released
+     */
+    @Test
+    public void testNoCachingWhileAllSlabsViewed() {
+        int messagesPerSlab = SLAB_SIZE / (10 * CHUNK_SIZE + 100);
+        for (int messageId = 1; messageId <= messagesPerSlab; messageId++) {
+            cache.addToCache(createMessage(messageId, 10));
+        }
+        OffHeapMessageCacheImpl.ContentView view = cache.getContentBuffer(1, CHUNK_SIZE);
+
+        // Fills the second slab, after which the first slab cannot be reused
+        int firstUncachedId = 0;
+        for (int messageId = messagesPerSlab + 1; messageId <= 3 * messagesPerSlab; messageId++) {
+            cache.addToCache(createMessage(messageId, 10));
+            if (0 == firstUncachedId && null == cache.getMessageFromCache(messageId)) {
+                firstUncachedId = messageId;
+            }
+        }
+        assertTrue(firstUncachedId > messagesPerSlab);
+        assertNull(cache.getMessageFromCache(3 * messagesPerSlab));
+        byte[] data = new byte[CHUNK_SIZE];
+        view.getBuffer().duplicate().get(data);
+        assertArrayEquals(chunkData(1, 1), data);
+
+        view.release();
+        cache.addToCache(createMessage(3 * messagesPerSlab + 1, 10));
+        assertNotNull(cache.getMessageFromCache(3 * messagesPerSlab + 1));
+        assertNull(cache.getMessageFromCache(1));
+    }
+
+    private static AndesMessage createMessage(long messageId, int chunkCount) {
+        byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                System.currentTimeMillis(), false, 1, "queue", true, chunkCount * CHUNK_SIZE, false);
+        AndesMessage message = new AndesMessage(new AndesMessageMetadata(messageId, metadataBytes, false));
+        for (int i = 0; i < chunkCount; i++) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(i * CHUNK_SIZE);
+            part.setData(chunkData(messageId, i));
+            message.addMessagePart(part);
+        }
+        return message;
+    }
+
+    private static byte[] chunkData(long messageId, int chunkIndex) {
+        byte[] data = new byte[CHUNK_SIZE];
+        Arrays.fill(data, (byte) (messageId * 31 + chunkIndex));
+        return data;
+    }
+}
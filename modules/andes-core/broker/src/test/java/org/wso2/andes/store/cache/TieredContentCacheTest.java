@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.DisruptorCachedContent;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for {@link TieredContentCache}
+ * Messages are added to the message tier and read for delivery through the delivery tier.
+ */
+public class TieredContentCacheTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private TieredContentCache cache;
+
+    @Before
+    public void setUp() {
+        AndesMessageCache messageTier = new GuavaBasedMessageCacheImpl(CHUNK_SIZE, 1024 * 1024, 1, 60, "strong",
+                false);
+        cache = new TieredContentCache(messageTier, CHUNK_SIZE, 100, 60, 1);
+    }
+
+    /**
+     * Test content of a published message is assembled from the message tier and kept in the delivery tier
+     */
+    @Test
+    public void testDeliveryContentFromMessageTier() throws Exception {
+        AndesMessage message = createMessage(1, 2);
+        cache.addToCache(message);
+
+        DisruptorCachedContent content = cache.getDeliveryContent(1, 2 * CHUNK_SIZE);
+        assertNotNull(content);
+        assertSame(content, cache.getDeliveryContent(1, 2 * CHUNK_SIZE));
+
+        // Bytes are shared with the message tier
+        assertSame(message.getContentChunkList().get(1), content.getContentList().get(CHUNK_SIZE));
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 * CHUNK_SIZE);
+        content.putContent(0, buffer);
+        assertArrayEquals(chunkData(1, 1), Arrays.copyOfRange(buffer.array(), CHUNK_SIZE, 2 * CHUNK_SIZE));
+    }
+
+    /**
+     * Test content read from the message store is kept in the delivery tier
+     */
+    @Test
+    public void testPutDeliveryContent() {
+        assertNull(cache.getDeliveryContent(2, CHUNK_SIZE));
+
+        AndesMessagePart part = createMessage(2, 1).getContentChunkList().get(0);
+        DisruptorCachedContent content = cache.putDeliveryContent(2, Collections.singletonList(part), CHUNK_SIZE);
+
+        assertSame(content, cache.getDeliveryContent(2, CHUNK_SIZE));
+    }
+
+    /**
+     * Test removed messages are removed from both tiers
+     */
+    @Test
+    public void testRemoveFromBothTiers() {
+        cache.addToCache(createMessage(1, 1));
+        cache.addToCache(createMessage(2, 1));
+        assertNotNull(cache.getDeliveryContent(1, CHUNK_SIZE));
+        assertNotNull(cache.getDeliveryContent(2, CHUNK_SIZE));
+
+        cache.removeFromCache(1);
+        cache.removeFromCache(LongArrayList.newListWith(2));
+
+        assertNull(cache.getDeliveryContent(1, CHUNK_SIZE));
+        assertNull(cache.getDeliveryContent(2, CHUNK_SIZE));
+        assertNull(cache.getMessageFromCache(1));
+    }
+
+    private static AndesMessage createMessage(long messageId, int chunkCount) {
+        byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                System.currentTimeMillis(), false, 1, "queue", true, chunkCount * CHUNK_SIZE, false);
+        AndesMessage message = new AndesMessage(new AndesMessageMetadata(messageId, metadataBytes, false));
+        for (int i = 0; i < chunkCount; i++) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(i * CHUNK_SIZE);
+            part.setData(chunkData(messageId, i));
+            message.addMessagePart(part);
+        }
+        return message;
+    }
+
+    private static byte[] chunkData(long messageId, int chunkIndex) {
+        byte[] data = new byte[CHUNK_SIZE];
+        Arrays.fill(data, (byte) (messageId * 31 + chunkIndex));
+        return data;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the publish and acknowledge throughput of {@link LogMessageStoreImpl} with the embedded databases the
+ * broker supports. Each operation stores a batch of messages and then deletes them, the way the message writer and
+ * the acknowledgement handler do.
+ * <p/>
+ * Databases are written through JDBC with the metadata and content tables used by the RDBMS message store, so that
+ * the comparison does not depend on a data source being registered. Run with {@link #main(String[])} from the test
+ * classpath, on the disk the broker would use since the results are bound by flushing to it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogMessageStoreBenchmark {
+
+    private static final String QUEUE = "carbon:benchmark";
+
+    @Param({"LOG", "H2", "DERBY"})
+    private String store;
+
+    @Param({"100"})
+    private int batchSize;
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    private File directory;
+
+    private LogMessageStoreImpl logMessageStore;
+
+    private Connection connection;
+
+    private long nextMessageId = 1;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("message-store-benchmark").toFile();
+
+        if ("LOG".equals(store)) {
+            ConfigurationProperties properties = new ConfigurationProperties();
+            properties.addProperty(LogMessageStoreImpl.PROPERTY_DIRECTORY, directory.getAbsolutePath());
+            logMessageStore = new LogMessageStoreImpl();
+            logMessageStore.initializeMessageStore(null, properties);
+            return;
+        }
+
+        if ("H2".equals(store)) {
+            connection = DriverManager.getConnection("jdbc:h2:" + new File(directory, "mb").getAbsolutePath());
+        } else {
+            connection = DriverManager.getConnection("jdbc:derby:" + new File(directory, "mb").getAbsolutePath()
+                    + ";create=true");
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE MB_METADATA (MESSAGE_ID BIGINT NOT NULL, QUEUE_ID INTEGER NOT NULL,"
+                    + " DLC_QUEUE_ID INTEGER NOT NULL, MESSAGE_METADATA BLOB, PRIMARY KEY (MESSAGE_ID))");
+            statement.executeUpdate("CREATE TABLE MB_CONTENT (MESSAGE_ID BIGINT NOT NULL,"
+                    + " CONTENT_OFFSET INTEGER NOT NULL, MESSAGE_CONTENT BLOB,"
+                    + " PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET),"
+                    + " FOREIGN KEY (MESSAGE_ID) REFERENCES MB_METADATA (MESSAGE_ID) ON DELETE CASCADE)");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (null != logMessageStore) {
+            logMessageStore.close();
+        }
+        if (null != connection) {
+            connection.close();
+        }
+        if ("DERBY".equals(store)) {
+            try {
+                DriverManager.getConnection("jdbc:derby:" + new File(directory, "mb").getAbsolutePath()
+                        + ";shutdown=true");
+            } catch (SQLException e) {
+                // Derby reports a successful shutdown with an exception
+            }
+        }
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int publishAndAcknowledge() throws Exception {
+        List<AndesMessage> messages = createMessages();
+        if (null != logMessageStore) {
+            logMessageStore.storeMessages(messages);
+            List<AndesMessageMetadata> metadataList = new ArrayList<>(messages.size());
+            for (AndesMessage message : messages) {
+                metadataList.add(message.getMetadata());
+            }
+            logMessageStore.deleteMessages(metadataList);
+        } else {
+            insertMessages(messages);
+            deleteMessages(messages);
+        }
+        return messages.size();
+    }
+
+    private void insertMessages(List<AndesMessage> messages) throws SQLException {
+        try (PreparedStatement metadataStatement = connection.prepareStatement(
+                "INSERT INTO MB_METADATA (MESSAGE_ID, QUEUE_ID, DLC_QUEUE_ID, MESSAGE_METADATA) VALUES (?,?,-1,?)");
+             PreparedStatement contentStatement = connection.prepareStatement(
+                     "INSERT INTO MB_CONTENT (MESSAGE_ID, CONTENT_OFFSET, MESSAGE_CONTENT) VALUES (?,?,?)")) {
+            for (AndesMessage message : messages) {
+                metadataStatement.setLong(1, message.getMetadata().getMessageID());
+                metadataStatement.setInt(2, 1);
+                metadataStatement.setBytes(3, message.getMetadata().getMetadata());
+                metadataStatement.addBatch();
+                for (AndesMessagePart part : message.getContentChunkList()) {
+                    contentStatement.setLong(1, part.getMessageID());
+                    contentStatement.setInt(2, part.getOffset());
+                    contentStatement.setBytes(3, part.getData());
+                    contentStatement.addBatch();
+                }
+            }
+            metadataStatement.executeBatch();
+            contentStatement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private void deleteMessages(List<AndesMessage> messages) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM MB_METADATA WHERE MESSAGE_ID=?")) {
+            for (AndesMessage message : messages) {
+                statement.setLong(1, message.getMetadata().getMessageID());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private List<AndesMessage> createMessages() {
+        List<AndesMessage> messages = new ArrayList<>(batchSize);
+        byte[] payload = new byte[payloadSize];
+        for (int i = 0; i < batchSize; i++) {
+            long messageId = nextMessageId++;
+            byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                    System.currentTimeMillis(), false, 1, QUEUE, true, payloadSize, false);
+            AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, metadataBytes, false);
+            metadata.setStorageQueueName(QUEUE);
+
+            AndesMessage message = new AndesMessage(metadata);
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(0);
+            part.setData(payload);
+            message.addMessagePart(part);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LogMessageStoreBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
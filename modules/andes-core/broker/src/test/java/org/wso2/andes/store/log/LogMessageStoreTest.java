@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.log;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesConstants;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.mqtt.utils.MQTTUtils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link LogMessageStoreImpl}
+ * Messages are written to a store in a temporary directory and read back, including after reopening the store.
+ */
+public class LogMessageStoreTest {
+
+    private static final String QUEUE = "carbon:queue1";
+
+    private static final String DLC = AndesConstants.DEAD_LETTER_QUEUE_SUFFIX;
+
+    private static final int CHUNK_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File storeDirectory;
+
+    private LogMessageStoreImpl messageStore;
+
+    @Before
+    public void setUp() throws Exception {
+        storeDirectory = temporaryFolder.newFolder("message-log");
+        messageStore = openStore(1);
+    }
+
+    @After
+    public void tearDown() {
+        messageStore.close();
+    }
+
+    /**
+     * Test metadata and content of stored messages are read back
+     */
+    @Test
+    public void testStoreAndRead() throws Exception {
+        messageStore.storeMessages(createMessages(QUEUE, 1, 10, 3));
+
+        assertEquals(10, messageStore.getMessageCountForQueue(QUEUE));
+        assertEquals(5, messageStore.getMessageCountForQueueInRange(QUEUE, 3, 7));
+
+        AndesMessageMetadata metadata = messageStore.getMetadata(4);
+        assertNotNull(metadata);
+        assertEquals(4, metadata.getMessageID());
+        assertEquals("topic/4", metadata.getDestination());
+
+        AndesMessagePart part = messageStore.getContent(4, CHUNK_SIZE);
+        assertNotNull(part);
+        assertEquals(CHUNK_SIZE, part.getOffset());
+        assertArrayEquals(chunkData(4, 1), part.getData());
+
+        LongArrayList messageIds = new LongArrayList();
+        messageIds.add(2);
+        messageIds.add(9);
+        messageIds.add(42);
+        LongObjectHashMap<List<AndesMessagePart>> content = messageStore.getContent(messageIds);
+        assertEquals(2, content.size());
+        assertEquals(3, content.get(9).size());
+        assertArrayEquals(chunkData(9, 2), content.get(9).get(2).getData());
+
+        List<AndesMessagePart> range = messageStore.getContent(9, CHUNK_SIZE, 3 * CHUNK_SIZE);
+        assertEquals(2, range.size());
+        assertEquals(CHUNK_SIZE, range.get(0).getOffset());
+        assertArrayEquals(chunkData(9, 2), range.get(1).getData());
+
+        List<DeliverableAndesMetadata> metadataList = messageStore.getMetadataList(null, QUEUE, 2, 5);
+        assertEquals(4, metadataList.size());
+        assertEquals(2, metadataList.get(0).getMessageID());
+        assertEquals(QUEUE, metadataList.get(0).getStorageQueueName());
+
+        List<AndesMessageMetadata> nextMetadata = messageStore.getNextNMessageMetadataFromQueue(QUEUE, 8, 5);
+        assertEquals(3, nextMetadata.size());
+        assertEquals(8, nextMetadata.get(0).getMessageID());
+    }
+
+    /**
+     * Test deleted messages are no longer read
+     */
+    @Test
+    public void testDeleteMessages() throws Exception {
+        List<AndesMessage> messages = createMessages(QUEUE, 1, 10, 1);
+        messageStore.storeMessages(messages);
+
+        List<AndesMessageMetadata> toDelete = new ArrayList<>();
+        for (AndesMessage message : messages.subList(0, 4)) {
+            toDelete.add(message.getMetadata());
+        }
+        messageStore.deleteMessages(toDelete);
+        messageStore.deleteMessages(Collections.singletonList(10L));
+
+        assertEquals(5, messageStore.getMessageCountForQueue(QUEUE));
+        assertNull(messageStore.getMetadata(2));
+        assertNull(messageStore.getContent(2, 0));
+        assertNotNull(messageStore.getMetadata(5));
+        assertEquals(5, messageStore.getNextNMessageMetadataFromQueue(QUEUE, 0, 10).get(0).getMessageID());
+
+        assertEquals(5, messageStore.deleteAllMessageMetadata(QUEUE));
+        assertEquals(0, messageStore.getMessageCountForQueue(QUEUE));
+    }
+
+    /**
+     * Test messages moved to the dead letter channel are listed under it and not under their queue
+     */
+    @Test
+    public void testMoveToDLC() throws Exception {
+        messageStore.storeMessages(createMessages(QUEUE, 1, 6, 1));
+        messageStore.moveMetadataToDLC(2, DLC);
+        messageStore.moveMetadataToDLC(Arrays.asList(messageStore.getMetadata(3), messageStore.getMetadata(4)), DLC);
+
+        assertEquals(3, messageStore.getMessageCountForQueue(QUEUE));
+        assertEquals(3, messageStore.getMessageCountForDLCQueue(DLC));
+        assertEquals(3, messageStore.getMessageCountForQueueInDLC(QUEUE, DLC));
+        assertEquals(2, messageStore.getMetadataList(null, QUEUE, 1, 5).size());
+        assertEquals(Arrays.asList(3L, 4L), messageStore.getMessageIdsInDLCForQueue(QUEUE, DLC, 2, 10));
+
+        List<AndesMessageMetadata> dlcMetadata = messageStore.getNextNMessageMetadataForQueueFromDLC(QUEUE, DLC, 0, 10);
+        assertEquals(3, dlcMetadata.size());
+        assertEquals(QUEUE, dlcMetadata.get(0).getStorageQueueName());
+        assertNotNull(messageStore.getContent(2, 0));
+
+        assertEquals(3, messageStore.clearDLCQueue(DLC));
+        assertEquals(0, messageStore.getMessageCountForDLCQueue(DLC));
+        assertEquals(3, messageStore.getMessageCountForQueue(QUEUE));
+    }
+
+    /**
+     * Test retained messages are replaced per destination and removed by an empty payload
+     */
+    @Test
+    public void testRetainedMessages() throws Exception {
+        messageStore.storeRetainedMessages(retainMap(createMessage("topic/a", 1, 2)));
+        messageStore.storeRetainedMessages(retainMap(createMessage("topic/b", 2, 1)));
+        messageStore.storeRetainedMessages(retainMap(createMessage("topic/a", 3, 1)));
+
+        assertEquals(2, messageStore.getAllRetainedTopics().size());
+        DeliverableAndesMetadata metadata = messageStore.getRetainedMetadata("topic/a");
+        assertEquals(3, metadata.getMessageID());
+        Map<Integer, AndesMessagePart> content = messageStore.getRetainedContentParts(3);
+        assertEquals(1, content.size());
+        assertArrayEquals(chunkData(3, 0), content.get(0).getData());
+        assertTrue(messageStore.getRetainedContentParts(1).isEmpty());
+
+        AndesMessage emptyMessage = createMessage("topic/b", 4, 0);
+        AndesMessagePart emptyPart = new AndesMessagePart();
+        emptyPart.setMessageID(4);
+        emptyPart.setOffSet(0);
+        emptyPart.setData(new byte[0]);
+        emptyMessage.addMessagePart(emptyPart);
+        messageStore.storeRetainedMessages(retainMap(emptyMessage));
+
+        assertEquals(Collections.singletonList("topic/a"), messageStore.getAllRetainedTopics());
+        assertNull(messageStore.getRetainedMetadata("topic/b"));
+    }
+
+    /**
+     * Test the state of the store is recovered when the store is reopened
+     */
+    @Test
+    public void testRecoverOnReopen() throws Exception {
+        messageStore.storeMessages(createMessages(QUEUE, 1, 20, 2));
+        messageStore.deleteMessages(Arrays.asList(1L, 2L, 3L));
+        messageStore.moveMetadataToDLC(4, DLC);
+        messageStore.storeRetainedMessages(retainMap(createMessage("topic/a", 21, 1)));
+
+        messageStore.close();
+        messageStore = openStore(1);
+
+        assertEquals(16, messageStore.getMessageCountForQueue(QUEUE));
+        assertEquals(1, messageStore.getMessageCountForDLCQueue(DLC));
+        assertNull(messageStore.getMetadata(1));
+        assertEquals(QUEUE, messageStore.getNextNMessageMetadataFromDLC(DLC, 0, 10).get(0).getStorageQueueName());
+        assertArrayEquals(chunkData(12, 1), messageStore.getContent(12, CHUNK_SIZE).getData());
+        assertEquals(21, messageStore.getRetainedMetadata("topic/a").getMessageID());
+        assertArrayEquals(chunkData(21, 0), messageStore.getRetainedContentParts(21).get(0).getData());
+
+        // Writes after recovery are appended after the recovered records
+        messageStore.storeMessages(createMessages(QUEUE, 30, 31, 1));
+        messageStore.close();
+        messageStore = openStore(1);
+        assertEquals(18, messageStore.getMessageCountForQueue(QUEUE));
+        assertArrayEquals(chunkData(31, 0), messageStore.getContent(31, 0).getData());
+    }
+
+    /**
+     * Test log segments are deleted once all of their messages are deleted
+     */
+    @Test
+    public void testUnusedSegmentsDeleted() throws Exception {
+        // 1MB segments hold less than 300 messages of 3 chunks
+        messageStore.storeMessages(createMessages(QUEUE, 1, 1000, 3));
+        assertTrue(countSegments() > 3);
+
+        List<Long> messageIds = new ArrayList<>();
+        for (long messageId = 1; messageId <= 1000; messageId++) {
+            messageIds.add(messageId);
+        }
+        messageStore.deleteMessages(messageIds);
+
+        assertEquals(1, countSegments());
+        assertEquals(0, messageStore.getMessageCountForQueue(QUEUE));
+    }
+
+    /**
+     * Test compaction copies live messages out of sparse segments, so that the segments are deleted, and the copies
+     * are recovered when the store is reopened
+     */
+    @Test
+    public void testCompaction() throws Exception {
+        messageStore.storeMessages(createMessages(QUEUE, 1, 1000, 3));
+        int segmentCount = countSegments();
+
+        // Keep one in every ten messages
+        List<Long> messageIds = new ArrayList<>();
+        for (long messageId = 1; messageId <= 1000; messageId++) {
+            if (messageId % 10 != 0) {
+                messageIds.add(messageId);
+            }
+        }
+        messageStore.deleteMessages(messageIds);
+        messageStore.compact();
+
+        assertTrue(countSegments() < segmentCount);
+        assertEquals(100, messageStore.getMessageCountForQueue(QUEUE));
+        assertArrayEquals(chunkData(500, 2), messageStore.getContent(500, 2 * CHUNK_SIZE).getData());
+
+        messageStore.close();
+        messageStore = openStore(1);
+        assertEquals(100, messageStore.getMessageCountForQueue(QUEUE));
+        assertEquals("topic/990", messageStore.getMetadata(990).getDestination());
+        assertArrayEquals(chunkData(990, 1), messageStore.getContent(990, CHUNK_SIZE).getData());
+    }
+
+    /**
+     * Test content stays readable while compaction relocates it and deletes the segments it was read from
+     */
+    @Test
+    public void testContentReadDuringCompaction() throws Exception {
+        messageStore.storeMessages(createMessages(QUEUE, 1, 1000, 3));
+        List<Long> messageIds = new ArrayList<>();
+        final LongArrayList liveMessageIds = new LongArrayList();
+        for (long messageId = 1; messageId <= 1000; messageId++) {
+            if (messageId % 10 != 0) {
+                messageIds.add(messageId);
+            } else {
+                liveMessageIds.add(messageId);
+            }
+        }
+        messageStore.deleteMessages(messageIds);
+
+        final AtomicBoolean compacted = new AtomicBoolean(false);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    do {
+                        LongObjectHashMap<List<AndesMessagePart>> content = messageStore.getContent(liveMessageIds);
+                        assertEquals(liveMessageIds.size(), content.size());
+                        for (int i = 0; i < liveMessageIds.size(); i++) {
+                            long messageId = liveMessageIds.get(i);
+                            assertEquals(3, content.get(messageId).size());
+                            assertArrayEquals(chunkData(messageId, 2), content.get(messageId).get(2).getData());
+                        }
+                    } while (!compacted.get());
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        reader.start();
+        messageStore.compact();
+        compacted.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+    }
+
+    /**
+     * Test a batch which fails to be written leaves neither its messages nor its deletions behind, also after the
+     * store is reopened
+     */
+    @Test
+    public void testFailedBatchStoresNothing() throws Exception {
+        messageStore.storeMessages(createMessages(QUEUE, 1, 5, 1));
+
+        List<AndesMessage> batch = createMessages(QUEUE, 6, 10, 1);
+        // A chunk larger than a segment cannot be appended
+        AndesMessagePart oversizedPart = new AndesMessagePart();
+        oversizedPart.setMessageID(10);
+        oversizedPart.setOffSet(CHUNK_SIZE);
+        oversizedPart.setData(new byte[2 * 1024 * 1024]);
+        batch.get(4).addMessagePart(oversizedPart);
+
+        try {
+            messageStore.storeMessagesAndDelete(batch, Collections.singletonList(messageStore.getMetadata(1)));
+            fail("A batch with a chunk larger than a segment should fail");
+        } catch (AndesException e) {
+            // Expected
+        }
+
+        assertEquals(5, messageStore.getMessageCountForQueue(QUEUE));
+        assertNull(messageStore.getMetadata(6));
+        assertNotNull(messageStore.getMetadata(1));
+
+        messageStore.storeMessages(createMessages(QUEUE, 11, 11, 1));
+        messageStore.close();
+        messageStore = openStore(1);
+        assertEquals(6, messageStore.getMessageCountForQueue(QUEUE));
+        assertNull(messageStore.getMetadata(6));
+        assertArrayEquals(chunkData(11, 0), messageStore.getContent(11, 0).getData());
+    }
+
+    /**
+     * Test a deleted segment is unmapped and its records are no longer read
+     */
+    @Test
+    public void testDeletedSegmentIsNotRead() throws Exception {
+        LogSegment segment = LogSegment.create(temporaryFolder.newFolder("segment"), 0, 1024);
+        int position = segment.append(LogMessageStoreImpl.CONTENT_RECORD, new byte[]{1, 2, 3});
+        assertArrayEquals(new byte[]{1, 2, 3}, segment.readBody(position));
+
+        segment.delete();
+
+        assertNull(segment.readBody(position));
+    }
+
+    /**
+     * Test the store refuses to start when clustering is enabled and rejects preparing distributed transactions
+     */
+    @Test
+    public void testUnsupportedDeployments() throws Exception {
+        assertFalse(messageStore.getDtxStore().isPrepareSupported());
+
+        AndesContext.getInstance().setClusteringEnabled(true);
+        try {
+            openStore(1);
+            fail("The store should not start when clustering is enabled");
+        } catch (AndesException e) {
+            // Expected
+        } finally {
+            AndesContext.getInstance().setClusteringEnabled(false);
+        }
+    }
+
+    private LogMessageStoreImpl openStore(int segmentSizeMB) throws Exception {
+        ConfigurationProperties properties = new ConfigurationProperties();
+        properties.addProperty(LogMessageStoreImpl.PROPERTY_DIRECTORY, storeDirectory.getAbsolutePath());
+        properties.addProperty(LogMessageStoreImpl.PROPERTY_SEGMENT_SIZE, String.valueOf(segmentSizeMB));
+        properties.addProperty(LogMessageStoreImpl.PROPERTY_COMPACTION_INTERVAL, "3600");
+
+        LogMessageStoreImpl store = new LogMessageStoreImpl();
+        store.initializeMessageStore(null, properties);
+        return store;
+    }
+
+    private int countSegments() {
+        return storeDirectory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return LogSegment.isSegmentFile(file);
+            }
+        }).length;
+    }
+
+    private static List<AndesMessage> createMessages(String queueName, long firstId, long lastId, int chunkCount) {
+        List<AndesMessage> messages = new ArrayList<>();
+        for (long messageId = firstId; messageId <= lastId; messageId++) {
+            AndesMessage message = createMessage("topic/" + messageId, messageId, chunkCount);
+            message.getMetadata().setStorageQueueName(queueName);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static AndesMessage createMessage(String destination, long messageId, int chunkCount) {
+        byte[] metadataBytes = MQTTUtils.encodeMetaInfo(MQTTUtils.MQTT_META_INFO, messageId,
+                System.currentTimeMillis(), true, 1, destination, true, chunkCount * CHUNK_SIZE, false);
+        AndesMessage message = new AndesMessage(new AndesMessageMetadata(messageId, metadataBytes, true));
+        for (int i = 0; i < chunkCount; i++) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(i * CHUNK_SIZE);
+            part.setData(chunkData(messageId, i));
+            message.addMessagePart(part);
+        }
+        return message;
+    }
+
+    private static byte[] chunkData(long messageId, int chunkIndex) {
+        byte[] data = new byte[CHUNK_SIZE];
+        Arrays.fill(data, (byte) (messageId * 31 + chunkIndex));
+        return data;
+    }
+
+    private static Map<String, AndesMessage> retainMap(AndesMessage message) {
+        Map<String, AndesMessage> retainMap = new HashMap<>();
+        retainMap.put(message.getMetadata().getDestination(), message);
+        return retainMap;
+    }
+}
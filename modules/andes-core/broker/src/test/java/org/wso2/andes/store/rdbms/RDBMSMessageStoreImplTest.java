@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link RDBMSMessageStoreImpl}
+ * Metadata is deleted through a JDBC connection recording the IN lists of the executed delete statements.
+ */
+public class RDBMSMessageStoreImplTest {
+
+    /**
+     * Test a padded IN list deletes exactly the requested messages, for fewer IDs than a list, a multiple of the
+     * list size and a partially filled last list
+     */
+    @Test
+    public void testPaddedDeleteRemovesRequestedIds() throws Exception {
+        int listSize = RDBMSMessageStoreImpl.DELETE_ID_LIST_SIZE;
+        int[] idCounts = {1, 3, listSize, 2 * listSize, listSize + 25};
+        for (int idCount : idCounts) {
+            RecordingConnection recordingConnection = new RecordingConnection();
+            TreeSet<Long> table = new TreeSet<>();
+            for (long messageId = 1; messageId <= 3 * idCount; messageId++) {
+                table.add(messageId);
+            }
+
+            // Delete every third message so that the IDs are not contiguous
+            LongArrayList messageIds = new LongArrayList();
+            TreeSet<Long> expectedTable = new TreeSet<>(table);
+            for (long messageId = 3; messageId <= 3 * idCount; messageId = messageId + 3) {
+                messageIds.add(messageId);
+                expectedTable.remove(messageId);
+            }
+
+            new RDBMSMessageStoreImpl().deleteMetadata(recordingConnection.connection, messageIds);
+
+            assertEquals((idCount + listSize - 1) / listSize, recordingConnection.batches.size());
+            assertEquals(listSize, countPlaceholders(recordingConnection.sql));
+            for (Map<Integer, Long> parameters : recordingConnection.batches) {
+                assertEquals(listSize, parameters.size());
+                table.removeAll(parameters.values());
+            }
+            assertEquals(expectedTable, table);
+        }
+    }
+
+    /**
+     * Test no statement is prepared when there is nothing to delete
+     */
+    @Test
+    public void testEmptyDelete() throws Exception {
+        RecordingConnection recordingConnection = new RecordingConnection();
+        new RDBMSMessageStoreImpl().deleteMetadata(recordingConnection.connection, new LongArrayList());
+        assertEquals(null, recordingConnection.sql);
+        assertEquals(0, recordingConnection.batches.size());
+    }
+
+    private static int countPlaceholders(String sql) {
+        int count = 0;
+        for (char character : sql.toCharArray()) {
+            if ('?' == character) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * JDBC connection recording the parameters of each batch of a single prepared statement
+     */
+    private static class RecordingConnection {
+
+        private final List<Map<Integer, Long>> batches = new ArrayList<>();
+
+        private Map<Integer, Long> parameters = new HashMap<>();
+
+        private String sql;
+
+        private final PreparedStatement preparedStatement = (PreparedStatement) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "setLong":
+                                parameters.put((Integer) args[0], (Long) args[1]);
+                                return null;
+                            case "addBatch":
+                                batches.add(parameters);
+                                parameters = new HashMap<>();
+                                return null;
+                            case "executeBatch":
+                                return new int[batches.size()];
+                            case "isClosed":
+                                return false;
+                            default:
+                                return null;
+                        }
+                    }
+                });
+
+        private final Connection connection = (Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("prepareStatement".equals(method.getName())) {
+                            sql = (String) args[0];
+                            return preparedStatement;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TaskExecutorService}
+ * Idle tasks are run by a small executor and their run count is checked against the idle delay.
+ */
+public class TaskExecutorServiceTest {
+
+    private static final long IDLE_DELAY_MILLIS = 50;
+
+    private TaskExecutorService<CountingTask> taskExecutorService;
+
+    @Before
+    public void setUp() {
+        taskExecutorService = new TaskExecutorService<>(2, IDLE_DELAY_MILLIS, Executors.defaultThreadFactory());
+        taskExecutorService.start();
+    }
+
+    @After
+    public void tearDown() {
+        taskExecutorService.shutdown();
+    }
+
+    /**
+     * An idle task should run about once per idle delay, after its parked schedule expires, instead of being
+     * rescheduled immediately
+     */
+    @Test
+    public void testIdleTaskIsParkedAfterDelayExpires() throws Exception {
+        CountingTask task = new CountingTask("task");
+        taskExecutorService.add(task);
+
+        long observedMillis = IDLE_DELAY_MILLIS * 10;
+        Thread.sleep(observedMillis);
+
+        int runCount = task.runCount.get();
+        assertTrue("Idle task did not run after its delay expired. Run count " + runCount, runCount >= 3);
+        assertTrue("Idle task was rescheduled without the idle delay. Run count " + runCount,
+                runCount <= observedMillis / IDLE_DELAY_MILLIS + 2);
+    }
+
+    /**
+     * A parked task should run right away when woken up
+     */
+    @Test
+    public void testParkedTaskRunsOnWakeUp() throws Exception {
+        taskExecutorService.shutdown();
+        taskExecutorService = new TaskExecutorService<>(2, TimeUnit.MINUTES.toMillis(1),
+                Executors.defaultThreadFactory());
+        taskExecutorService.start();
+        CountingTask task = new CountingTask("task");
+        taskExecutorService.add(task);
+        assertTrue("Task did not run after being added", task.awaitRuns(1));
+
+        taskExecutorService.wakeUp(task.getId());
+
+        assertTrue("Parked task did not run on wake up", task.awaitRuns(2));
+    }
+
+    /**
+     * Idle task counting its runs
+     */
+    private static class CountingTask extends Task {
+
+        private final String id;
+
+        private final AtomicInteger runCount = new AtomicInteger();
+
+        private volatile CountDownLatch[] runLatches = {new CountDownLatch(1), new CountDownLatch(2)};
+
+        CountingTask(String id) {
+            this.id = id;
+        }
+
+        boolean awaitRuns(int count) throws InterruptedException {
+            return runLatches[count - 1].await(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public TaskHint call() throws Exception {
+            runCount.incrementAndGet();
+            for (CountDownLatch latch : runLatches) {
+                latch.countDown();
+            }
+            return TaskHint.IDLE;
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+}
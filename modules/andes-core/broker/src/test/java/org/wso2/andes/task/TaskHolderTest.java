@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.task;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TaskHolder}
+ * Schedules are created, claimed and parked the same way {@link TaskProcessor} does.
+ */
+public class TaskHolderTest {
+
+    private static final long IDLE_DELAY_MILLIS = 10;
+
+    /**
+     * A parked task whose idle delay expired should be claimed as running so that it can be parked again
+     */
+    @Test
+    public void testExpiredParkedTaskIsClaimedAndParkedAgain() {
+        TaskHolder<TestTask> taskHolder = new TaskHolder<>(new TestTask("task"));
+        assertTrue(taskHolder.claim(taskHolder.schedule(0, TimeUnit.MILLISECONDS)));
+
+        for (int run = 0; run < 3; run++) {
+            TaskSchedule idleSchedule = taskHolder.schedule(IDLE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            assertTrue("Idle task should be parked on run " + run, taskHolder.park());
+            // Idle delay expires without a wake up
+            assertTrue("Expired schedule should be claimed", taskHolder.claim(idleSchedule));
+        }
+        assertTrue("Task should be parked again after an expired schedule", taskHolder.park());
+    }
+
+    /**
+     * Waking a parked task should supersede the delayed schedule
+     */
+    @Test
+    public void testWakeUpSupersedesParkedSchedule() {
+        TaskHolder<TestTask> taskHolder = new TaskHolder<>(new TestTask("task"));
+        assertTrue(taskHolder.claim(taskHolder.schedule(0, TimeUnit.MILLISECONDS)));
+
+        TaskSchedule idleSchedule = taskHolder.schedule(IDLE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue(taskHolder.park());
+        TaskSchedule wakeUpSchedule = taskHolder.wakeUp();
+        assertNotNull("Parked task should be scheduled on wake up", wakeUpSchedule);
+        assertNull("Second wake up should not schedule the task again", taskHolder.wakeUp());
+
+        assertTrue(taskHolder.claim(wakeUpSchedule));
+        assertFalse("Delayed schedule should be stale", taskHolder.claim(idleSchedule));
+        assertTrue(taskHolder.park());
+    }
+
+    /**
+     * A wake up while the task is running should keep it from being parked after the run
+     */
+    @Test
+    public void testWakeUpWhileRunningPreventsPark() {
+        TaskHolder<TestTask> taskHolder = new TaskHolder<>(new TestTask("task"));
+        assertTrue(taskHolder.claim(taskHolder.schedule(0, TimeUnit.MILLISECONDS)));
+
+        assertNull("Running task should not be scheduled by a wake up", taskHolder.wakeUp());
+        assertFalse("Task woken while running should not be parked", taskHolder.park());
+        assertTrue("Task should be parked after the next idle run", taskHolder.park());
+    }
+
+    /**
+     * Task which does no work
+     */
+    static class TestTask extends Task {
+
+        private final String id;
+
+        TestTask(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public TaskHint call() throws Exception {
+            return TaskHint.IDLE;
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+}
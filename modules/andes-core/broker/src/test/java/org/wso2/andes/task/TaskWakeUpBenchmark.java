@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from {@link TaskExecutorService#wakeUp(String)} until a parked task runs, with many other tasks
+ * parked on the same executor. Without a wake up the task would only run after the idle delay.
+ * <p/>
+ * Run with {@link #main(String[])} from the test classpath.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskWakeUpBenchmark {
+
+    /**
+     * Idle delay of the parked tasks. Long enough for the parked schedules not to expire during a run
+     */
+    private static final long IDLE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Param({"10000"})
+    private int parkedTaskCount;
+
+    @Param({"4"})
+    private int workerCount;
+
+    private TaskExecutorService<LatchTask> taskExecutorService;
+
+    private LatchTask[] tasks;
+
+    private int nextTask;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        taskExecutorService = new TaskExecutorService<>(workerCount, IDLE_DELAY_MILLIS,
+                Executors.defaultThreadFactory());
+        tasks = new LatchTask[parkedTaskCount];
+        for (int i = 0; i < parkedTaskCount; i++) {
+            tasks[i] = new LatchTask("task-" + i);
+            taskExecutorService.add(tasks[i]);
+        }
+        taskExecutorService.start();
+        // Wait for the first run of each task, after which all of them are parked
+        for (LatchTask task : tasks) {
+            task.await();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        taskExecutorService.shutdown();
+    }
+
+    @Benchmark
+    public boolean wakeUpParkedTask() throws InterruptedException {
+        LatchTask task = tasks[nextTask];
+        nextTask = (nextTask + 1) % tasks.length;
+        task.reset();
+        taskExecutorService.wakeUp(task.getId());
+        return task.await();
+    }
+
+    /**
+     * Idle task releasing a latch each time it runs
+     */
+    private static class LatchTask extends Task {
+
+        private final String id;
+
+        private volatile CountDownLatch ran = new CountDownLatch(1);
+
+        LatchTask(String id) {
+            this.id = id;
+        }
+
+        void reset() {
+            ran = new CountDownLatch(1);
+        }
+
+        boolean await() throws InterruptedException {
+            return ran.await(1, TimeUnit.MINUTES);
+        }
+
+        @Override
+        public TaskHint call() throws Exception {
+            ran.countDown();
+            return TaskHint.IDLE;
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TaskWakeUpBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}